@@ -0,0 +1,25 @@
+package com.github.structlog4j;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.experimental.Wither;
+
+/**
+ * Settings for aggregating identical log entries, see StructLog4J.enableAggregation().
+ * Start from the defaults and override only what is needed, e.g.
+ *
+ * StructLog4J.enableAggregation(AggregationConfig.DEFAULT.withWindowMillis(1000));
+ */
+@Value
+@Wither
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class AggregationConfig {
+
+    public static final AggregationConfig DEFAULT = new AggregationConfig(5000, 10000);
+
+    /** Repeats of an entry within the window after it was first logged are only counted, and logged once when it closes */
+    private long windowMillis;
+    /** Maximum number of different entries tracked at the same time, any others are logged as is */
+    private int maxEvents;
+}
@@ -0,0 +1,61 @@
+package com.github.structlog4j;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.experimental.Wither;
+import org.slf4j.event.Level;
+
+/**
+ * Settings for asynchronous logging, see StructLog4J.enableAsync().
+ * Start from the defaults and override only what is needed, e.g.
+ *
+ * StructLog4J.enableAsync(AsyncConfig.DEFAULT.withCapacity(65536).withOverflowPolicy(OverflowPolicy.DROP));
+ */
+@Value
+@Wither
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class AsyncConfig {
+
+    /**
+     * How background threads wait for new log entries
+     */
+    public enum WaitStrategy {
+        /** Parks until signalled by a logging thread, lowest CPU usage but highest latency */
+        BLOCKING,
+        /** Spins, yields and then parks for a short while, good compromise */
+        SLEEPING,
+        /** Spins and then yields, low latency but keeps a CPU core busy */
+        YIELDING,
+        /** Spins constantly, lowest latency but burns a whole CPU core per thread */
+        BUSY_SPIN
+    }
+
+    /**
+     * What happens when the ring buffer is full
+     */
+    public enum OverflowPolicy {
+        /** Logging thread waits until there is space */
+        BLOCK,
+        /** Entries at dropLevel or less severe are dropped, the more severe ones wait until there is space */
+        DROP,
+        /** The oldest entry in the buffer is dropped to make space for the new one */
+        DROP_OLDEST
+    }
+
+    public static final AsyncConfig DEFAULT = new AsyncConfig(8192, 1, WaitStrategy.BLOCKING, OverflowPolicy.BLOCK,
+            Level.INFO, true, 5000);
+
+    /** Ring buffer capacity, rounded up to the next power of 2 */
+    private int capacity;
+    /** Number of background threads formatting and logging the entries */
+    private int threads;
+    private WaitStrategy waitStrategy;
+    private OverflowPolicy overflowPolicy;
+    /** Used only with OverflowPolicy.DROP */
+    private Level dropLevel;
+    /** Registers a JVM shutdown hook that logs all remaining entries */
+    private boolean flushOnShutdown;
+    /** How long to wait for the background threads to finish on shutdown */
+    private long shutdownTimeoutMillis;
+}
@@ -0,0 +1,254 @@
+package com.github.structlog4j;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Snapshot of a log entry captured on the logging thread in async mode, formatted later by a background thread.
+ * Primitive values are stored unboxed, objects that are not immutable are formatted to String right away.
+ * Instances are preallocated in the ring buffer and reused.
+ *
+ * Also used as the key of the EventAggregator: equals() and hashCode() compare the content of the entry
+ * (logger name, level, message and key/value pairs in any order), see computeHash()
+ */
+final class AsyncLogEntry {
+
+    private static final byte TYPE_OBJECT = 0;
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_DOUBLE = 2;
+    private static final byte TYPE_BOOLEAN = 3;
+
+    private static final int INITIAL_PAIRS = 16;
+
+    @Getter
+    private SLogger logger;
+    @Getter
+    private Level level;
+    @Getter
+    private String message;
+    @Getter
+    private Throwable error;
+
+    // key/value pairs, keys are either String or StructKey
+    private int size = 0;
+    private Object[] keys = new Object[INITIAL_PAIRS];
+    private byte[] types = new byte[INITIAL_PAIRS];
+    private long[] primitives = new long[INITIAL_PAIRS];
+    private Object[] values = new Object[INITIAL_PAIRS];
+
+    // index of the first pair coming from the mandatory context supplier, -1 if not marked
+    private int mandatoryStart = -1;
+
+    private boolean active = false;
+
+    // content hash, see computeHash()
+    private int hash = 0;
+
+    boolean isActive() {
+        return active;
+    }
+
+    void start() {
+        active = true;
+    }
+
+    void setMessage(String message) {
+        this.message = message;
+    }
+
+    void markMandatoryContext() {
+        mandatoryStart = size;
+    }
+
+    void finish(SLogger logger, Level level, Throwable error) {
+        this.logger = logger;
+        this.level = level;
+        this.error = error;
+        active = false;
+    }
+
+    int getMandatoryStart() {
+        return mandatoryStart < 0 ? size : mandatoryStart;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(Object key, Object value) {
+        int i = next(key, TYPE_OBJECT);
+        // only immutable values are kept as is, everything else is turned into the same String the formatters
+        // would write for it right away, as it may change later
+        if (value == null || value instanceof String || StructLog4J.isPrimitiveOrNumber(value.getClass())) {
+            values[i] = value;
+        } else {
+            values[i] = String.valueOf(value);
+        }
+    }
+
+    void add(Object key, long value) {
+        primitives[next(key, TYPE_LONG)] = value;
+    }
+
+    void add(Object key, double value) {
+        primitives[next(key, TYPE_DOUBLE)] = Double.doubleToRawLongBits(value);
+    }
+
+    void add(Object key, boolean value) {
+        primitives[next(key, TYPE_BOOLEAN)] = value ? 1 : 0;
+    }
+
+    /**
+     * Passes the captured key/value pairs from start (inclusive) to end (exclusive) on to the real formatter
+     */
+    @SuppressWarnings("unchecked")
+    void replay(IFormatter formatter, Object bld, Logger log, int start, int end) {
+        for(int i = start; i < end; i++) {
+            Object key = keys[i];
+            if (key instanceof StructKey) {
+                StructKey structKey = (StructKey) key;
+                switch (types[i]) {
+                    case TYPE_LONG:
+                        formatter.addKeyValue(log, bld, structKey, primitives[i]);
+                        break;
+                    case TYPE_DOUBLE:
+                        formatter.addKeyValue(log, bld, structKey, Double.longBitsToDouble(primitives[i]));
+                        break;
+                    case TYPE_BOOLEAN:
+                        formatter.addKeyValue(log, bld, structKey, primitives[i] != 0);
+                        break;
+                    default:
+                        formatter.addKeyValue(log, bld, structKey, values[i]);
+                }
+            } else {
+                String stringKey = (String) key;
+                switch (types[i]) {
+                    case TYPE_LONG:
+                        formatter.addKeyValue(log, bld, stringKey, primitives[i]);
+                        break;
+                    case TYPE_DOUBLE:
+                        formatter.addKeyValue(log, bld, stringKey, Double.longBitsToDouble(primitives[i]));
+                        break;
+                    case TYPE_BOOLEAN:
+                        formatter.addKeyValue(log, bld, stringKey, primitives[i] != 0);
+                        break;
+                    default:
+                        formatter.addKeyValue(log, bld, stringKey, values[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the content hash used by hashCode(), once the entry is finished. Pairs are hashed independently
+     * of their order and keys by name, so that a StructKey matches the same String key
+     */
+    void computeHash() {
+        int pairs = 0;
+        for(int i = 0; i < size; i++) {
+            pairs += pairHash(i);
+        }
+        hash = ((Objects.hashCode(logger != null ? logger.getSlfjLogger().getName() : null) * 31
+                + Objects.hashCode(level)) * 31 + Objects.hashCode(message)) * 31 + pairs;
+    }
+
+    /**
+     * Immutable copy that can be kept around after this entry gets reused
+     */
+    AsyncLogEntry copy() {
+        AsyncLogEntry copy = new AsyncLogEntry();
+        copy.logger = logger;
+        copy.level = level;
+        copy.message = message;
+        copy.error = error;
+        copy.size = size;
+        copy.keys = Arrays.copyOf(keys, size);
+        copy.types = Arrays.copyOf(types, size);
+        copy.primitives = Arrays.copyOf(primitives, size);
+        copy.values = Arrays.copyOf(values, size);
+        copy.mandatoryStart = mandatoryStart;
+        copy.hash = hash;
+        return copy;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        } else if (!(other instanceof AsyncLogEntry)) {
+            return false;
+        }
+        AsyncLogEntry entry = (AsyncLogEntry) other;
+        if (hash != entry.hash || size != entry.size || level != entry.level || !Objects.equals(message, entry.message)
+                || (logger != entry.logger && (logger == null || entry.logger == null
+                    || !logger.getSlfjLogger().getName().equals(entry.logger.getSlfjLogger().getName())))) {
+            return false;
+        }
+        for(int i = 0; i < size; i++) {
+            // usually logged in the same order
+            if (!samePair(i, entry, i)) {
+                boolean found = false;
+                for(int j = 0; j < size && !found; j++) {
+                    found = samePair(i, entry, j);
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private int pairHash(int i) {
+        int value = types[i] == TYPE_OBJECT ? Objects.hashCode(values[i]) : Long.hashCode(primitives[i]);
+        return (keyName(i).hashCode() * 31 + types[i]) * 31 + value;
+    }
+
+    private boolean samePair(int i, AsyncLogEntry other, int j) {
+        return types[i] == other.types[j] && keyName(i).equals(other.keyName(j))
+                && (types[i] == TYPE_OBJECT ? Objects.equals(values[i], other.values[j]) : primitives[i] == other.primitives[j]);
+    }
+
+    private String keyName(int i) {
+        Object key = keys[i];
+        return key instanceof StructKey ? ((StructKey) key).getName() : (String) key;
+    }
+
+    /**
+     * Releases all references so nothing is held on to while the entry sits in the ring buffer
+     */
+    void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        mandatoryStart = -1;
+        logger = null;
+        level = null;
+        message = null;
+        error = null;
+        active = false;
+        hash = 0;
+    }
+
+    private int next(Object key, byte type) {
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            types = Arrays.copyOf(types, capacity);
+            primitives = Arrays.copyOf(primitives, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        keys[size] = key;
+        types[size] = type;
+        return size++;
+    }
+}
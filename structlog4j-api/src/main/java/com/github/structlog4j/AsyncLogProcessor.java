@@ -0,0 +1,296 @@
+package com.github.structlog4j;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous logging pipeline.
+ *
+ * Acts as the formatter on the logging thread, but only captures each entry into a reusable per-thread AsyncLogEntry.
+ * Once complete, the entry is swapped into a preallocated multi-producer/multi-consumer ring buffer
+ * (bounded lock-free queue with a sequence number per cell), nothing gets copied or allocated.
+ * Background threads then format the entries with the real formatter and pass them on to SLF4J.
+ *
+ * With more than one background thread entries may get logged slightly out of order
+ */
+final class AsyncLogProcessor extends CapturingFormatter {
+
+    private static final int SPIN_TRIES = 100;
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long BLOCKING_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final AsyncConfig config;
+
+    private final Cell[] cells;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicInteger sleepers = new AtomicInteger();
+
+    private final Thread[] threads;
+    private volatile boolean running = true;
+
+    // entry currently being captured on each logging thread, swapped with a free one from the ring buffer once complete
+    private final ThreadLocal<AsyncLogEntry> staging = ThreadLocal.withInitial(AsyncLogEntry::new);
+
+    AsyncLogProcessor(AsyncConfig config) {
+        if (config.getCapacity() < 2 || config.getCapacity() > (1 << 30)) {
+            throw new IllegalArgumentException("Async capacity must be between 2 and 2^30: " + config.getCapacity());
+        } else if (config.getThreads() < 1) {
+            throw new IllegalArgumentException("At least one async thread is required: " + config.getThreads());
+        } else if (config.getWaitStrategy() == null || config.getOverflowPolicy() == null || config.getDropLevel() == null) {
+            throw new IllegalArgumentException("Async wait strategy, overflow policy and drop level must be specified");
+        }
+
+        this.config = config;
+
+        int capacity = Integer.highestOneBit(config.getCapacity() - 1) << 1;
+        cells = new Cell[capacity];
+        for(int i = 0; i < capacity; i++) {
+            cells[i] = new Cell(i);
+        }
+        mask = capacity - 1;
+
+        threads = new Thread[config.getThreads()];
+        for(int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(this::run, "structlog4j-async-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * Approximate number of entries waiting in the ring buffer
+     */
+    long getQueueDepth() {
+        return Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * Number of entries dropped because the ring buffer was full
+     */
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops the background threads after they log all the remaining entries
+     */
+    void shutdown() {
+        running = false;
+        for(Thread thread : threads) {
+            LockSupport.unpark(thread);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getShutdownTimeoutMillis());
+        for(Thread thread : threads) {
+            try {
+                thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // whatever got published in the meantime
+        drain();
+    }
+
+    /**
+     * Discards the entry being captured on this thread after an unexpected error
+     */
+    void abort() {
+        AsyncLogEntry entry = staging.get();
+        if (entry.isActive()) {
+            entry.clear();
+        }
+    }
+
+    /**
+     * Publishes a fully captured entry into the ring buffer, applying the overflow policy if it is full
+     */
+    void publish(SLogger logger, Level level, AsyncLogEntry entry, Throwable error) {
+        entry.finish(logger, level, error);
+
+        AsyncLogEntry free;
+        int counter = 0;
+        while ((free = offer(entry)) == null) {
+            // ring buffer is full
+            if (!running) {
+                // background threads are gone, log it ourselves
+                poll(false);
+            } else if (config.getOverflowPolicy() == AsyncConfig.OverflowPolicy.DROP_OLDEST) {
+                if (poll(true)) {
+                    dropped.increment();
+                }
+            } else if (config.getOverflowPolicy() == AsyncConfig.OverflowPolicy.DROP
+                    && level.toInt() <= config.getDropLevel().toInt()) {
+                dropped.increment();
+                entry.clear();
+                return;
+            } else {
+                counter = backOff(counter);
+            }
+        }
+
+        // the free entry from the ring buffer becomes the next one captured on this thread
+        if (staging.get() == entry) {
+            staging.set(free);
+        }
+
+        if (config.getWaitStrategy() == AsyncConfig.WaitStrategy.BLOCKING && sleepers.get() > 0) {
+            for(Thread thread : threads) {
+                LockSupport.unpark(thread);
+            }
+        }
+        if (!running) {
+            // published after shutdown, make sure it does not get lost
+            drain();
+        }
+    }
+
+    // IFormatter implementation, simply captures everything into the entry, see CapturingFormatter
+
+    @Override
+    public AsyncLogEntry start(Logger log) {
+        AsyncLogEntry entry = staging.get();
+        if (entry.isActive()) {
+            // another entry is still being captured on this thread (e.g. logging from within a toString()),
+            // or a fluent event was dropped without calling log(): do not clobber it, reuse the new one from now on
+            entry = new AsyncLogEntry();
+            staging.set(entry);
+        }
+        entry.start();
+        return entry;
+    }
+
+    // background thread
+    private void run() {
+        int counter = 0;
+        while (running) {
+            if (poll(false)) {
+                counter = 0;
+            } else {
+                counter = idle(counter);
+            }
+        }
+        drain();
+    }
+
+    private void drain() {
+        while (poll(false)) {
+            // keep going
+        }
+    }
+
+    // puts the entry into the ring buffer, returns the free entry it replaced or null if the buffer is full
+    private AsyncLogEntry offer(AsyncLogEntry entry) {
+        long pos = tail.get();
+        while (true) {
+            Cell cell = cells[(int) pos & mask];
+            long dif = cell.sequence - pos;
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    AsyncLogEntry free = cell.entry;
+                    cell.entry = entry;
+                    cell.sequence = pos + 1;
+                    return free;
+                }
+                pos = tail.get();
+            } else if (dif < 0) {
+                return null;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    // takes the oldest entry from the ring buffer and logs it (or just discards it), returns false if the buffer is empty
+    private boolean poll(boolean discard) {
+        long pos = head.get();
+        while (true) {
+            Cell cell = cells[(int) pos & mask];
+            long dif = cell.sequence - (pos + 1);
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    AsyncLogEntry entry = cell.entry;
+                    try {
+                        if (!discard) {
+                            entry.getLogger().logCaptured(entry);
+                        }
+                    } finally {
+                        entry.clear();
+                        cell.sequence = pos + mask + 1;
+                    }
+                    return true;
+                }
+                pos = head.get();
+            } else if (dif < 0) {
+                return false;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    // background thread waiting for new entries
+    private int idle(int counter) {
+        switch (config.getWaitStrategy()) {
+            case BUSY_SPIN:
+                break;
+            case YIELDING:
+                if (counter > SPIN_TRIES) {
+                    Thread.yield();
+                }
+                break;
+            case SLEEPING:
+                if (counter > 2 * SPIN_TRIES) {
+                    LockSupport.parkNanos(this, SLEEP_NANOS);
+                } else if (counter > SPIN_TRIES) {
+                    Thread.yield();
+                }
+                break;
+            default:
+                if (counter > SPIN_TRIES) {
+                    sleepers.incrementAndGet();
+                    try {
+                        // check again after registering, so that a publish in between is not missed
+                        if (running && getQueueDepth() == 0) {
+                            LockSupport.parkNanos(this, BLOCKING_TIMEOUT_NANOS);
+                        }
+                    } finally {
+                        sleepers.decrementAndGet();
+                    }
+                }
+        }
+        return counter + 1;
+    }
+
+    // logging thread waiting for space in the ring buffer
+    private int backOff(int counter) {
+        if (counter > 2 * SPIN_TRIES) {
+            LockSupport.parkNanos(this, SLEEP_NANOS);
+        } else if (counter > SPIN_TRIES) {
+            Thread.yield();
+        }
+        return counter + 1;
+    }
+
+    private static final class Cell {
+        // == position: free for the producer, == position + 1: published for the consumer
+        private volatile long sequence;
+        private AsyncLogEntry entry = new AsyncLogEntry();
+
+        private Cell(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.structlog4j;
+
+import org.slf4j.Logger;
+
+/**
+ * Formatter that does not format anything, just captures the message and key/value pairs into an AsyncLogEntry,
+ * to be formatted later with the real formatter. Used by the async processor and the event aggregator
+ */
+abstract class CapturingFormatter implements IFormatter<AsyncLogEntry> {
+
+    @Override
+    public IFormatter<AsyncLogEntry> addMessage(Logger log, AsyncLogEntry bld, String message) {
+        bld.setMessage(message);
+        return this;
+    }
+
+    @Override
+    public IFormatter<AsyncLogEntry> addKeyValue(Logger log, AsyncLogEntry bld, String key, Object value) {
+        bld.add(key, value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<AsyncLogEntry> addKeyValue(Logger log, AsyncLogEntry bld, String key, long value) {
+        bld.add(key, value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<AsyncLogEntry> addKeyValue(Logger log, AsyncLogEntry bld, String key, double value) {
+        bld.add(key, value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<AsyncLogEntry> addKeyValue(Logger log, AsyncLogEntry bld, String key, boolean value) {
+        bld.add(key, value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<AsyncLogEntry> addKeyValue(Logger log, AsyncLogEntry bld, StructKey key, Object value) {
+        bld.add(key, value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<AsyncLogEntry> addKeyValue(Logger log, AsyncLogEntry bld, StructKey key, long value) {
+        bld.add(key, value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<AsyncLogEntry> addKeyValue(Logger log, AsyncLogEntry bld, StructKey key, double value) {
+        bld.add(key, value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<AsyncLogEntry> addKeyValue(Logger log, AsyncLogEntry bld, StructKey key, boolean value) {
+        bld.add(key, value);
+        return this;
+    }
+
+    // captured entries are normally published and formatted later, if one ends up here it is rendered right away
+    // with the configured formatter (without the mandatory context, which is only added when it is published)
+    @Override
+    @SuppressWarnings("unchecked")
+    public String end(Logger log, AsyncLogEntry bld) {
+        IFormatter<Object> formatter = StructLog4J.getFormatter();
+        if (formatter == null || (IFormatter) formatter instanceof CapturingFormatter) {
+            formatter = (IFormatter) KeyValuePairFormatter.getInstance();
+        }
+        try {
+            Object rendered = formatter.start(log);
+            formatter.addMessage(log, rendered, bld.getMessage() != null ? bld.getMessage() : "");
+            bld.replay(formatter, rendered, log, 0, bld.size());
+            return formatter.end(log, rendered);
+        } finally {
+            // done with it, can be reused for the next captured entry
+            bld.clear();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.structlog4j;
+
+import lombok.Value;
+
+/**
+ * One distinct problem seen by the internal diagnostics channel
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+public class Diagnostic {
+    private DiagnosticType type;
+    // class whose toLog() returned the invalid data (or the failed sink), null if passed in directly
+    private String source;
+    // invalid key (the failed action for SINK_ERROR), null if the problem is not about a key
+    private String key;
+    // occurrences since the problem was first seen
+    private long count;
+}
@@ -0,0 +1,17 @@
+package com.github.structlog4j;
+
+/**
+ * Kinds of invalid input (and byte sink failures) reported by the internal diagnostics channel
+ *
+ * @author Jacek Furmankiewicz
+ */
+public enum DiagnosticType {
+    KEY_WITH_SPACES,
+    // other whitespace, control characters or '='
+    KEY_WITH_INVALID_CHARACTERS,
+    NON_STRING_KEY,
+    NULL_TO_LOG,
+    ODD_TO_LOG,
+    // a byte sink failed to write, the key is what it was doing
+    SINK_ERROR
+}
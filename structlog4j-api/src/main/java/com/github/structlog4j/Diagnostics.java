@@ -0,0 +1,78 @@
+package com.github.structlog4j;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Internal diagnostics channel: every distinct problem (type, source class, key) is reported
+ * at most once per interval, with the number of occurrences since the previous report
+ */
+class Diagnostics {
+
+    // distinct problems tracked, any others are counted together per type
+    static final int MAX_PROBLEMS = 1024;
+    static final String OTHER = "<other>";
+
+    private final long intervalNanos;
+    private final ConcurrentMap<ProblemKey,Problem> problems = new ConcurrentHashMap<>();
+
+    Diagnostics(long intervalNanos) {
+        this.intervalNanos = intervalNanos;
+    }
+
+    long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    @Value
+    private static class ProblemKey {
+        private DiagnosticType type;
+        private String source;
+        private String key;
+    }
+
+    private static class Problem {
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong sinceReport = new AtomicLong();
+        private final AtomicLong nextReport;
+
+        Problem(long now) {
+            nextReport = new AtomicLong(now);
+        }
+    }
+
+    /**
+     * Counts one occurrence of the problem
+     * @return Number of occurrences to report now (including this one), 0 if it was already reported in this interval
+     */
+    long occurred(DiagnosticType type, Class<?> source, String key) {
+        long now = System.nanoTime();
+        ProblemKey problemKey = new ProblemKey(type, source != null ? source.getName() : null, key);
+        Problem problem = problems.get(problemKey);
+        if (problem == null) {
+            if (problems.size() >= MAX_PROBLEMS) {
+                problemKey = new ProblemKey(type, OTHER, OTHER);
+            }
+            problem = problems.computeIfAbsent(problemKey, k -> new Problem(now));
+        }
+
+        problem.total.incrementAndGet();
+        problem.sinceReport.incrementAndGet();
+        long next = problem.nextReport.get();
+        if (now - next >= 0 && problem.nextReport.compareAndSet(next, now + intervalNanos)) {
+            return problem.sinceReport.getAndSet(0);
+        }
+        return 0;
+    }
+
+    List<Diagnostic> getProblems() {
+        List<Diagnostic> result = new ArrayList<>(problems.size());
+        problems.forEach((key, problem) -> result.add(new Diagnostic(key.getType(), key.getSource(), key.getKey(), problem.total.get())));
+        return result;
+    }
+}
@@ -0,0 +1,197 @@
+package com.github.structlog4j;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates identical log entries (same logger, level, message and key/value pairs) before they get formatted.
+ *
+ * The first occurrence is logged right away and opens a window, repeats within it are only counted.
+ * When the window closes a single entry is logged with the number of repeats and the time of the first and last one.
+ * Entries are captured just like in async mode and looked up by their content in a concurrent map,
+ * which is bounded: once full, new entries are simply logged as is until some windows close.
+ * Both limits are exact: an expired window that the background thread did not flush yet is closed by the next
+ * repeat itself, and a slot in the map is reserved before a new window is opened.
+ * Entries with an exception are never aggregated
+ */
+final class EventAggregator extends CapturingFormatter {
+
+    private static final long CLOSED = -1;
+
+    private final long windowNanos;
+    private final int maxEvents;
+
+    private final ConcurrentMap<AsyncLogEntry,Aggregate> events = new ConcurrentHashMap<>();
+    // reserved before an entry is added to the map, so concurrent threads cannot go beyond maxEvents
+    private final AtomicInteger tracked = new AtomicInteger();
+    private final LongAdder aggregated = new LongAdder();
+
+    // entry currently being captured on each logging thread
+    private final ThreadLocal<AsyncLogEntry> staging = ThreadLocal.withInitial(AsyncLogEntry::new);
+
+    private final ScheduledExecutorService flusher;
+
+    EventAggregator(AggregationConfig config) {
+        if (config.getWindowMillis() <= 0 || config.getMaxEvents() <= 0) {
+            throw new IllegalArgumentException("Invalid aggregation settings: " + config);
+        }
+        windowNanos = TimeUnit.MILLISECONDS.toNanos(config.getWindowMillis());
+        maxEvents = config.getMaxEvents();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "structlog4j-aggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, config.getWindowMillis() / 4);
+        flusher.scheduleWithFixedDelay(() -> flush(false), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Number of repeated entries that were only counted instead of logged
+     */
+    long getAggregatedCount() {
+        return aggregated.sum();
+    }
+
+    /**
+     * Number of different entries currently tracked
+     */
+    int getTrackedCount() {
+        return events.size();
+    }
+
+    /**
+     * Returns true if the finished entry is a repeat within the window and must not be logged
+     */
+    boolean absorb(AsyncLogEntry entry) {
+        if (entry.getError() != null) {
+            return false;
+        }
+        entry.computeHash();
+        while (true) {
+            Aggregate aggregate = events.get(entry);
+            if (aggregate == null) {
+                if (tracked.incrementAndGet() > maxEvents) {
+                    tracked.decrementAndGet();
+                    return false;
+                }
+                aggregate = new Aggregate(entry.copy());
+                Aggregate existing = events.putIfAbsent(aggregate.event, aggregate);
+                if (existing == null) {
+                    // first occurrence, logged right away
+                    return false;
+                }
+                tracked.decrementAndGet();
+                aggregate = existing;
+            }
+            if (System.nanoTime() - aggregate.startNanos >= windowNanos) {
+                // expired, but not flushed by the background thread yet
+                close(aggregate);
+            } else if (aggregate.repeat()) {
+                aggregated.increment();
+                return true;
+            } else {
+                // window closed in the meantime
+                remove(aggregate);
+            }
+            // start a new one
+        }
+    }
+
+    /**
+     * Discards the entry being captured on this thread after an unexpected error
+     */
+    void abort() {
+        staging.get().clear();
+    }
+
+    /**
+     * Stops the background thread and logs the repeats of all the open windows
+     */
+    void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(true);
+    }
+
+    @Override
+    public AsyncLogEntry start(Logger log) {
+        AsyncLogEntry entry = staging.get();
+        if (entry.isActive()) {
+            // another entry is still being captured on this thread (e.g. logging from within a toString()),
+            // or a fluent event was dropped without calling log(): do not clobber it, reuse the new one from now on
+            entry = new AsyncLogEntry();
+            staging.set(entry);
+        }
+        entry.start();
+        return entry;
+    }
+
+    // closes the expired windows (or all of them) and logs their repeats
+    private void flush(boolean all) {
+        long now = System.nanoTime();
+        for(Aggregate aggregate : events.values()) {
+            if (all || now - aggregate.startNanos >= windowNanos) {
+                close(aggregate);
+            }
+        }
+    }
+
+    // only the thread that actually closes the window logs its repeats
+    private void close(Aggregate aggregate) {
+        long repeats = aggregate.close();
+        remove(aggregate);
+        if (repeats > 0) {
+            aggregate.event.getLogger().logAggregated(aggregate.event, repeats, aggregate.firstMillis, aggregate.lastMillis);
+        }
+    }
+
+    private void remove(Aggregate aggregate) {
+        if (events.remove(aggregate.event, aggregate)) {
+            tracked.decrementAndGet();
+        }
+    }
+
+    private static final class Aggregate {
+        private final AsyncLogEntry event;
+        private final long startNanos = System.nanoTime();
+        private final long firstMillis = System.currentTimeMillis();
+        private volatile long lastMillis = firstMillis;
+        // CLOSED once the window closed
+        private final AtomicLong repeats = new AtomicLong();
+
+        private Aggregate(AsyncLogEntry event) {
+            this.event = event;
+        }
+
+        // returns false if the window already closed
+        private boolean repeat() {
+            long current;
+            do {
+                current = repeats.get();
+                if (current == CLOSED) {
+                    return false;
+                }
+            } while (!repeats.compareAndSet(current, current + 1));
+            lastMillis = System.currentTimeMillis();
+            return true;
+        }
+
+        private long close() {
+            return repeats.getAndSet(CLOSED);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.structlog4j;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.experimental.Wither;
+
+/**
+ * Settings for suppressing the stack traces of repeated exceptions, see StructLog4J.enableExceptionSuppression().
+ * Start from the defaults and override only what is needed, e.g.
+ *
+ * StructLog4J.enableExceptionSuppression(ExceptionSuppressionConfig.DEFAULT.withWindowMillis(10000));
+ */
+@Value
+@Wither
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ExceptionSuppressionConfig {
+
+    public static final ExceptionSuppressionConfig DEFAULT = new ExceptionSuppressionConfig(60000, 5, 1024);
+
+    /** Full stack trace is logged only for the first occurrence of an exception within the window */
+    private long windowMillis;
+    /** Number of top stack frames of the root cause that identify the exception, along with its class */
+    private int frames;
+    /** Maximum number of tracked exceptions, any new ones beyond it are never suppressed */
+    private int maxFingerprints;
+}
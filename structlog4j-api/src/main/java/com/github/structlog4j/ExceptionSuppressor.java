@@ -0,0 +1,87 @@
+package com.github.structlog4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks exceptions by their fingerprint (root cause class plus its top stack frames),
+ * to log the full stack trace only for the first occurrence within the window
+ */
+final class ExceptionSuppressor {
+
+    private final long windowNanos;
+    private final int frames;
+    private final int maxFingerprints;
+
+    private final ConcurrentMap<Long,Window> windows = new ConcurrentHashMap<>();
+
+    ExceptionSuppressor(ExceptionSuppressionConfig config) {
+        if (config.getWindowMillis() <= 0 || config.getFrames() < 0 || config.getMaxFingerprints() <= 0) {
+            throw new IllegalArgumentException("Invalid exception suppression settings: " + config);
+        }
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(config.getWindowMillis());
+        this.frames = config.getFrames();
+        this.maxFingerprints = config.getMaxFingerprints();
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the root cause class and its top stack frames, line numbers included
+     */
+    long fingerprint(Throwable rootCause) {
+        long hash = hash(0xcbf29ce484222325L, rootCause.getClass().getName());
+        StackTraceElement[] stackTrace = rootCause.getStackTrace();
+        for(int i = 0; i < Math.min(frames, stackTrace.length); i++) {
+            StackTraceElement frame = stackTrace[i];
+            hash = hash(hash(hash, frame.getClassName()), frame.getMethodName());
+            hash = (hash ^ frame.getLineNumber()) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns how many times the exception was already logged within the current window, 0 = first occurrence
+     */
+    long suppressedCount(long fingerprint) {
+        long now = System.nanoTime();
+        Window window = windows.get(fingerprint);
+        if (window == null) {
+            if (windows.size() >= maxFingerprints) {
+                windows.values().removeIf(w -> now - w.start.get() >= windowNanos);
+                if (windows.size() >= maxFingerprints) {
+                    // too many different exceptions, rather log them all than forget the old ones
+                    return 0;
+                }
+            }
+            window = windows.putIfAbsent(fingerprint, new Window(now));
+            if (window == null) {
+                return 0;
+            }
+        }
+
+        long start = window.start.get();
+        if (now - start >= windowNanos && window.start.compareAndSet(start, now)) {
+            // new window
+            window.suppressed.set(0);
+            return 0;
+        }
+        return window.suppressed.incrementAndGet();
+    }
+
+    private static long hash(long hash, String value) {
+        for(int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static final class Window {
+        private final AtomicLong start;
+        private final AtomicLong suppressed = new AtomicLong();
+
+        private Window(long start) {
+            this.start = new AtomicLong(start);
+        }
+    }
+}
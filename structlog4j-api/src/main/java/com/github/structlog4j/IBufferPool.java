@@ -0,0 +1,26 @@
+package com.github.structlog4j;
+
+/**
+ * Pool of the buffers the bundled formatters build their log entries in, set via StructLog4J.setBufferPool().
+ * Every acquired buffer is released once the log entry is done with it. A buffer that is not released
+ * (e.g. after an unexpected error) is simply garbage collected, so implementations must not rely on it.
+ * All methods may be called concurrently from any thread
+ *
+ * @author Jacek Furmankiewicz
+ */
+public interface IBufferPool {
+
+    /**
+     * Returns an empty StringBuilder
+     */
+    public StringBuilder acquireChars();
+
+    public void release(StringBuilder bld);
+
+    /**
+     * Returns an empty byte buffer
+     */
+    public Utf8Buffer acquireBytes();
+
+    public void release(Utf8Buffer buffer);
+}
@@ -0,0 +1,53 @@
+package com.github.structlog4j;
+
+import org.slf4j.Logger;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Formatter that encodes the log entry straight to UTF-8 bytes, without building a String first.
+ * When a byte sink is set via StructLog4J.setByteSink(), the bytes are passed to it directly,
+ * otherwise they are simply decoded back into a String for SLF4J
+ *
+ * @author Jacek Furmankiewicz
+ */
+public interface IByteFormatter<BLD> extends IFormatter<BLD> {
+
+    /**
+     * Returns the encoded log entry. The buffer is only valid until release() is called
+     */
+    public Utf8Buffer endBytes(Logger log, BLD bld);
+
+    /**
+     * True if every entry is a line of text: sinks append a line separator and the stack trace of the exception.
+     * Binary formats are written as they are, the loggers add the stack trace to the entry itself
+     */
+    public default boolean isText() {
+        return true;
+    }
+
+    /**
+     * Called after endBytes() once the byte sink has accepted the entry, not if it dropped it or failed
+     */
+    public default void written(Logger log, BLD bld) {}
+
+    /**
+     * Called once the bytes returned from endBytes() have been consumed, so the buffer can be reused
+     */
+    public default void release(Logger log, BLD bld) {}
+
+    /**
+     * Written by the byte sinks at the start of every new stream (e.g. a rotated file), before any entry,
+     * so that each of them can be read on its own. Null if entries do not depend on earlier ones
+     */
+    public default ByteBuffer streamHeader() {
+        return null;
+    }
+
+    @Override
+    public default String end(Logger log, BLD bld) {
+        String entry = endBytes(log, bld).toString();
+        release(log, bld);
+        return entry;
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.structlog4j;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Destination for log entries encoded by an IByteFormatter, bypassing SLF4J completely
+ *
+ * @author Jacek Furmankiewicz
+ */
+public interface IByteSink {
+
+    /**
+     * Writes a single log entry
+     *
+     * @param log SLF4J logger the entry was logged with (for its name)
+     * @param level Log level
+     * @param entry UTF-8 encoded entry (without a line separator). Only valid during this call, it is reused afterwards
+     * @param error Exception passed to the log call, null if none
+     */
+    public void write(Logger log, Level level, ByteBuffer entry, Throwable error);
+
+    /**
+     * Writes a single log entry encoded by the formatter, this is the one the loggers call. Sinks that frame
+     * the entries (a line separator, the stack trace), drop some of them or start new streams (e.g. rotated files)
+     * override it: only text formats get framed, and every new stream starts with the formatter's streamHeader()
+     *
+     * @param formatter Formatter that encoded the entry, see IByteFormatter.isText()
+     * @return False if the entry was dropped (e.g. logged after the sink was closed)
+     */
+    public default boolean write(Logger log, Level level, ByteBuffer entry, Throwable error, IByteFormatter<?> formatter) {
+        write(log, level, entry, error);
+        return true;
+    }
+}
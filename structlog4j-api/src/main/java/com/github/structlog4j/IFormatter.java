@@ -18,9 +18,69 @@ public interface IFormatter<BLD> {
 
     public IFormatter<BLD> addKeyValue(Logger log, BLD bld, String key, Object value);
 
+    /**
+     * Primitive versions of addKeyValue(), called from the fixed-arity ILogger methods.
+     * By default they just box the value, formatters should override them to append the value directly
+     */
+    public default IFormatter<BLD> addKeyValue(Logger log, BLD bld, String key, long value) {
+        return addKeyValue(log, bld, key, (Object) value);
+    }
+
+    public default IFormatter<BLD> addKeyValue(Logger log, BLD bld, String key, double value) {
+        return addKeyValue(log, bld, key, (Object) value);
+    }
+
+    public default IFormatter<BLD> addKeyValue(Logger log, BLD bld, String key, boolean value) {
+        return addKeyValue(log, bld, key, (Object) value);
+    }
+
+    /**
+     * StructKey versions of addKeyValue(). Formatters should override them to cache their encoded version
+     * of the key via StructKey.getEncoded()/setEncoded() instead of encoding it on every call
+     */
+    public default IFormatter<BLD> addKeyValue(Logger log, BLD bld, StructKey key, Object value) {
+        return addKeyValue(log, bld, key.getName(), value);
+    }
+
+    public default IFormatter<BLD> addKeyValue(Logger log, BLD bld, StructKey key, long value) {
+        return addKeyValue(log, bld, key.getName(), value);
+    }
+
+    public default IFormatter<BLD> addKeyValue(Logger log, BLD bld, StructKey key, double value) {
+        return addKeyValue(log, bld, key.getName(), value);
+    }
+
+    public default IFormatter<BLD> addKeyValue(Logger log, BLD bld, StructKey key, boolean value) {
+        return addKeyValue(log, bld, key.getName(), value);
+    }
+
     /**
      * Returns the formatted log message
      */
     public String end(Logger log, BLD bld);
 
+    /**
+     * Starts a fragment: key/value pairs that are formatted once and then added as is to many log entries
+     * (e.g. the mandatory context). The pairs are added to the returned builder with the regular addKeyValue() methods.
+     * Must return a new builder (not the one used for the current entry), or null if fragments are not supported,
+     * in which case the pairs simply get formatted on every log entry
+     */
+    public default BLD startFragment(Logger log) {
+        return null;
+    }
+
+    /**
+     * Returns the finished fragment, it must be immutable as it is shared between threads
+     */
+    public default Object endFragment(Logger log, BLD fragmentBld) {
+        return null;
+    }
+
+    /**
+     * Adds a fragment returned from endFragment() to the log entry
+     */
+    public default IFormatter<BLD> addFragment(Logger log, BLD bld, Object fragment) {
+        return this;
+    }
+
 }
@@ -0,0 +1,31 @@
+package com.github.structlog4j;
+
+/**
+ * Typed target for key/value pairs, primitive values are passed on without boxing.
+ * Used by IToLogStreaming implementations and extended by the fluent ILogEvent API
+ */
+public interface IKeyValueSink {
+
+    public IKeyValueSink kv(String key, long value);
+    public IKeyValueSink kv(String key, double value);
+    public IKeyValueSink kv(String key, boolean value);
+    public IKeyValueSink kv(String key, Object value);
+    // chars and floats would otherwise widen to the long/double versions, log them like their boxed values instead
+    public default IKeyValueSink kv(String key, char value) {
+        return kv(key, (Object) value);
+    }
+    public default IKeyValueSink kv(String key, float value) {
+        return kv(key, (Object) value);
+    }
+
+    public IKeyValueSink kv(StructKey key, long value);
+    public IKeyValueSink kv(StructKey key, double value);
+    public IKeyValueSink kv(StructKey key, boolean value);
+    public IKeyValueSink kv(StructKey key, Object value);
+    public default IKeyValueSink kv(StructKey key, char value) {
+        return kv(key, (Object) value);
+    }
+    public default IKeyValueSink kv(StructKey key, float value) {
+        return kv(key, (Object) value);
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.structlog4j;
+
+/**
+ * Value that is only computed if the entry it is passed to is actually logged, e.g.
+ * log.debug("Cache stats","size",lazy(cache::size))
+ *
+ * It is evaluated at most once per entry, after the level check and any sampling or rate limiting
+ *
+ * @author Jacek Furmankiewicz
+ */
+@FunctionalInterface
+public interface ILazyValue<T> {
+
+    /**
+     * Computes the value to log
+     * @return Value to log
+     */
+    public T get();
+
+    /**
+     * Gives a lambda or method reference the lazy value type, so it is not logged as a plain object
+     * @param value Lambda or method reference computing the value
+     * @param <T> Value type
+     * @return The same lazy value
+     */
+    public static <T> ILazyValue<T> lazy(ILazyValue<T> value) {
+        return value;
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.structlog4j;
+
+/**
+ * Fluent API for building a single log entry, e.g.
+ * log.atInfo("Request processed").kv("durationMs",elapsed).kv("success",true).log();
+ *
+ * Key/value pairs are passed on to the formatter as soon as they are added, primitive values are never boxed.
+ * The same rules apply as for the regular ILogger methods: once an invalid key is encountered all the following
+ * key/value pairs are skipped.
+ *
+ * Instances are reused for the next log entry on the same thread, never hold on to one after calling log().
+ * An event dropped without calling log() is simply discarded, the next one on the thread gets a fresh instance
+ */
+public interface ILogEvent extends IKeyValueSink {
+
+    @Override
+    public ILogEvent kv(String key, long value);
+    @Override
+    public ILogEvent kv(String key, double value);
+    @Override
+    public ILogEvent kv(String key, boolean value);
+    @Override
+    public ILogEvent kv(String key, Object value);
+    @Override
+    public default ILogEvent kv(String key, char value) {
+        return kv(key, (Object) value);
+    }
+    @Override
+    public default ILogEvent kv(String key, float value) {
+        return kv(key, (Object) value);
+    }
+
+    @Override
+    public ILogEvent kv(StructKey key, long value);
+    @Override
+    public ILogEvent kv(StructKey key, double value);
+    @Override
+    public ILogEvent kv(StructKey key, boolean value);
+    @Override
+    public ILogEvent kv(StructKey key, Object value);
+    @Override
+    public default ILogEvent kv(StructKey key, char value) {
+        return kv(key, (Object) value);
+    }
+    @Override
+    public default ILogEvent kv(StructKey key, float value) {
+        return kv(key, (Object) value);
+    }
+
+    /**
+     * Exception to log, handled the same way as a Throwable passed to the ILogger methods
+     */
+    public ILogEvent cause(Throwable t);
+
+    /**
+     * Sends the entry to the logger
+     */
+    public void log();
+}
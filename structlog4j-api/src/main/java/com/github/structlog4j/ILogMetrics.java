@@ -0,0 +1,39 @@
+package com.github.structlog4j;
+
+import javax.management.MXBean;
+import java.util.Map;
+
+/**
+ * What the logging library itself costs at runtime, published via JMX as com.github.structlog4j:type=Metrics
+ * once StructLog4J.enableMetrics() is called
+ *
+ * @author Jacek Furmankiewicz
+ */
+@MXBean
+public interface ILogMetrics {
+
+    // entries actually logged (after sampling, rate limiting and aggregation), in total, per level and per logger
+    public long getEvents();
+    public Map<String,Long> getEventsByLevel();
+    public Map<String,Long> getEventsByLogger();
+
+    // log calls dropped because their level was disabled, isXEnabled() checks alone are not counted
+    public Map<String,Long> getSuppressedByLevel();
+
+    // size of the formatted entries, chars for entries sent to SLF4J, bytes for the ones sent to a byte sink
+    public long getFormattedChars();
+    public long getFormattedBytes();
+
+    // time from starting an entry until it is fully formatted, entries per bucket of getFormattingTimeBucketNanos()
+    public long[] getFormattingTimeHistogram();
+    // upper bound of each bucket (exclusive), the last one has no upper bound
+    public long[] getFormattingTimeBucketNanos();
+    public long getFormattingTimeTotalNanos();
+
+    // internal errors: invalid keys, null or odd length toLog() results, unexpected exceptions (also of byte sinks)
+    public long getInvalidKeys();
+    public long getInvalidToLogs();
+    public long getUnexpectedErrors();
+
+    public void reset();
+}
@@ -1,5 +1,7 @@
 package com.github.structlog4j;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Core standard structured logger inteface
  *
@@ -14,6 +16,142 @@ public interface ILogger {
     public void debug(String message, Object...params);
     public void trace(String message, Object...params);
 
+    // lazy message versions, the message is only computed if the entry is actually logged
+    // e.g. log.debug(() -> "Loaded " + describe(config), "source", path)
+    public void error(ILazyValue<String> message, Object...params);
+    public void warn(ILazyValue<String> message, Object...params);
+    public void info(ILazyValue<String> message, Object...params);
+    public void debug(ILazyValue<String> message, Object...params);
+    public void trace(ILazyValue<String> message, Object...params);
+
+    // fixed-arity versions for the most common calls with 1 to 4 key/value pairs, they avoid allocating the varargs array
+    // a single primitive value is not boxed either (ints go to the long version, chars and floats are logged like their
+    // boxed values). The 2 to 4 pair versions take Object values on purpose (typed versions for every combination
+    // would be hundreds of overloads), so primitives passed to them ARE boxed: for several primitive values without
+    // boxing use the fluent API, e.g. log.atInfo(message).kv(k1,1L).kv(k2,2.0).log()
+
+    public void error(String message, String k1, Object v1);
+    public void error(String message, String k1, long v1);
+    public void error(String message, String k1, double v1);
+    public void error(String message, String k1, boolean v1);
+    public void error(String message, String k1, char v1);
+    public void error(String message, String k1, float v1);
+    public void error(String message, String k1, Object v1, String k2, Object v2);
+    public void error(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3);
+    public void error(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3, String k4, Object v4);
+
+    public void warn(String message, String k1, Object v1);
+    public void warn(String message, String k1, long v1);
+    public void warn(String message, String k1, double v1);
+    public void warn(String message, String k1, boolean v1);
+    public void warn(String message, String k1, char v1);
+    public void warn(String message, String k1, float v1);
+    public void warn(String message, String k1, Object v1, String k2, Object v2);
+    public void warn(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3);
+    public void warn(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3, String k4, Object v4);
+
+    public void info(String message, String k1, Object v1);
+    public void info(String message, String k1, long v1);
+    public void info(String message, String k1, double v1);
+    public void info(String message, String k1, boolean v1);
+    public void info(String message, String k1, char v1);
+    public void info(String message, String k1, float v1);
+    public void info(String message, String k1, Object v1, String k2, Object v2);
+    public void info(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3);
+    public void info(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3, String k4, Object v4);
+
+    public void debug(String message, String k1, Object v1);
+    public void debug(String message, String k1, long v1);
+    public void debug(String message, String k1, double v1);
+    public void debug(String message, String k1, boolean v1);
+    public void debug(String message, String k1, char v1);
+    public void debug(String message, String k1, float v1);
+    public void debug(String message, String k1, Object v1, String k2, Object v2);
+    public void debug(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3);
+    public void debug(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3, String k4, Object v4);
+
+    public void trace(String message, String k1, Object v1);
+    public void trace(String message, String k1, long v1);
+    public void trace(String message, String k1, double v1);
+    public void trace(String message, String k1, boolean v1);
+    public void trace(String message, String k1, char v1);
+    public void trace(String message, String k1, float v1);
+    public void trace(String message, String k1, Object v1, String k2, Object v2);
+    public void trace(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3);
+    public void trace(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3, String k4, Object v4);
+
+    // StructKey versions of the same, mixing String and StructKey keys goes to the varargs versions
+
+    public void error(String message, StructKey k1, Object v1);
+    public void error(String message, StructKey k1, long v1);
+    public void error(String message, StructKey k1, double v1);
+    public void error(String message, StructKey k1, boolean v1);
+    public void error(String message, StructKey k1, char v1);
+    public void error(String message, StructKey k1, float v1);
+    public void error(String message, StructKey k1, Object v1, StructKey k2, Object v2);
+    public void error(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3);
+    public void error(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3, StructKey k4, Object v4);
+
+    public void warn(String message, StructKey k1, Object v1);
+    public void warn(String message, StructKey k1, long v1);
+    public void warn(String message, StructKey k1, double v1);
+    public void warn(String message, StructKey k1, boolean v1);
+    public void warn(String message, StructKey k1, char v1);
+    public void warn(String message, StructKey k1, float v1);
+    public void warn(String message, StructKey k1, Object v1, StructKey k2, Object v2);
+    public void warn(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3);
+    public void warn(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3, StructKey k4, Object v4);
+
+    public void info(String message, StructKey k1, Object v1);
+    public void info(String message, StructKey k1, long v1);
+    public void info(String message, StructKey k1, double v1);
+    public void info(String message, StructKey k1, boolean v1);
+    public void info(String message, StructKey k1, char v1);
+    public void info(String message, StructKey k1, float v1);
+    public void info(String message, StructKey k1, Object v1, StructKey k2, Object v2);
+    public void info(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3);
+    public void info(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3, StructKey k4, Object v4);
+
+    public void debug(String message, StructKey k1, Object v1);
+    public void debug(String message, StructKey k1, long v1);
+    public void debug(String message, StructKey k1, double v1);
+    public void debug(String message, StructKey k1, boolean v1);
+    public void debug(String message, StructKey k1, char v1);
+    public void debug(String message, StructKey k1, float v1);
+    public void debug(String message, StructKey k1, Object v1, StructKey k2, Object v2);
+    public void debug(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3);
+    public void debug(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3, StructKey k4, Object v4);
+
+    public void trace(String message, StructKey k1, Object v1);
+    public void trace(String message, StructKey k1, long v1);
+    public void trace(String message, StructKey k1, double v1);
+    public void trace(String message, StructKey k1, boolean v1);
+    public void trace(String message, StructKey k1, char v1);
+    public void trace(String message, StructKey k1, float v1);
+    public void trace(String message, StructKey k1, Object v1, StructKey k2, Object v2);
+    public void trace(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3);
+    public void trace(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3, StructKey k4, Object v4);
+
+    // fluent APIs, e.g. log.atInfo("Request processed").kv("durationMs",elapsed).kv("success",true).log()
+    // a shared no-op event is returned if the level is disabled
+    public ILogEvent atError(String message);
+    public ILogEvent atWarn(String message);
+    public ILogEvent atInfo(String message);
+    public ILogEvent atDebug(String message);
+    public ILogEvent atTrace(String message);
+    public ILogEvent atError(ILazyValue<String> message);
+    public ILogEvent atWarn(ILazyValue<String> message);
+    public ILogEvent atInfo(ILazyValue<String> message);
+    public ILogEvent atDebug(ILazyValue<String> message);
+    public ILogEvent atTrace(ILazyValue<String> message);
+
+    // logger for the same name that only logs a fraction (e.g. 0.01 = 1%) of the entries, counted separately per message
+    // the same settings return the same logger, so the inline form log.sampled(0.01).debug(...) works as well,
+    // but better keep it in a field (only the first 16 different settings per logger are cached)
+    public ILogger sampled(double rate);
+    // logger for the same name that logs at most that many entries per time unit, counted separately per message
+    public ILogger limited(long permits, TimeUnit per);
+
     // logging level checks, usually never needed but we add them for completion
     public boolean isErrorEnabled();
     public boolean isWarnEnabled();
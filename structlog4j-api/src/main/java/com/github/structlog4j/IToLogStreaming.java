@@ -0,0 +1,79 @@
+package com.github.structlog4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming version of IToLog: instead of returning an array, the object writes its key/value pairs
+ * directly into the sink, e.g.
+ *
+ * public void toLog(IKeyValueSink sink) {
+ *     sink.kv("userName",getUserName()).kv("tenantId",getTenantId());
+ * }
+ *
+ * No array gets allocated and primitive values are not boxed. It can be passed to the logger anywhere
+ * an IToLog can be (including the mandatory context supplier)
+ */
+@FunctionalInterface
+public interface IToLogStreaming extends IToLog {
+
+    /**
+     * Writes the key/value pairs for logging into the sink
+     * @param sink Target for all the key/value pairs
+     */
+    public void toLog(IKeyValueSink sink);
+
+    /**
+     * Array version for compatibility with plain IToLog consumers, not used by the logger itself
+     */
+    @Override
+    public default Object[] toLog() {
+        List<Object> params = new ArrayList<>();
+        toLog(new IKeyValueSink() {
+            @Override
+            public IKeyValueSink kv(String key, long value) {
+                return kv(key, (Object) value);
+            }
+
+            @Override
+            public IKeyValueSink kv(String key, double value) {
+                return kv(key, (Object) value);
+            }
+
+            @Override
+            public IKeyValueSink kv(String key, boolean value) {
+                return kv(key, (Object) value);
+            }
+
+            @Override
+            public IKeyValueSink kv(String key, Object value) {
+                params.add(key);
+                params.add(value);
+                return this;
+            }
+
+            @Override
+            public IKeyValueSink kv(StructKey key, long value) {
+                return kv(key, (Object) value);
+            }
+
+            @Override
+            public IKeyValueSink kv(StructKey key, double value) {
+                return kv(key, (Object) value);
+            }
+
+            @Override
+            public IKeyValueSink kv(StructKey key, boolean value) {
+                return kv(key, (Object) value);
+            }
+
+            @Override
+            public IKeyValueSink kv(StructKey key, Object value) {
+                params.add(key);
+                params.add(value);
+                return this;
+            }
+        });
+        return params.toArray();
+    }
+}
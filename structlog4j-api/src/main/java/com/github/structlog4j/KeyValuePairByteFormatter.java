@@ -0,0 +1,184 @@
+package com.github.structlog4j;
+
+import org.slf4j.Logger;
+
+/**
+ * Byte version of the KeyValuePairFormatter, same output but encoded straight to UTF-8:
+ * message key1=value1 key2=value2 etc
+ */
+public class KeyValuePairByteFormatter implements IByteFormatter<Utf8Buffer> {
+
+    private static final byte SPACE = ' ';
+    private static final byte EQUAL = '=';
+    private static final byte QUOTES = '"';
+    private static final byte BACKSLASH = '\\';
+
+    private static final byte[] HEX = {'0','1','2','3','4','5','6','7','8','9','a','b','c','d','e','f'};
+
+    private static final int KEY_ENCODING = StructKey.newEncoding();
+
+    private static final KeyValuePairByteFormatter INSTANCE = new KeyValuePairByteFormatter();
+    public static KeyValuePairByteFormatter getInstance() {return INSTANCE;}
+
+    @Override
+    public Utf8Buffer start(Logger log) {
+        return StructLog4J.getBufferPool().acquireBytes();
+    }
+
+    @Override
+    public IFormatter<Utf8Buffer> addMessage(Logger log, Utf8Buffer bld, String message) {
+        bld.write(message);
+        return this;
+    }
+
+    @Override
+    public IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, String key, Object value) {
+        appendKey(bld, key);
+        appendValue(bld, value);
+        return this;
+    }
+
+    // primitives never contain spaces or quotes, they can be appended as is
+    @Override
+    public IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, String key, long value) {
+        appendKey(bld, key).write(value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, String key, double value) {
+        appendKey(bld, key).write(value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, String key, boolean value) {
+        appendKey(bld, key).write(value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, StructKey key, Object value) {
+        bld.write(encode(key));
+        appendValue(bld, value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, StructKey key, long value) {
+        bld.write(encode(key)).write(value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, StructKey key, double value) {
+        bld.write(encode(key)).write(value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, StructKey key, boolean value) {
+        bld.write(encode(key)).write(value);
+        return this;
+    }
+
+    @Override
+    public Utf8Buffer endBytes(Logger log, Utf8Buffer bld) {
+        return bld;
+    }
+
+    @Override
+    public void release(Logger log, Utf8Buffer bld) {
+        StructLog4J.getBufferPool().release(bld);
+    }
+
+    // fragments are simply pre-encoded " key1=value1 key2=value2" bytes
+    @Override
+    public Utf8Buffer startFragment(Logger log) {
+        return new Utf8Buffer();
+    }
+
+    @Override
+    public Object endFragment(Logger log, Utf8Buffer fragmentBld) {
+        return fragmentBld.toByteArray();
+    }
+
+    @Override
+    public IFormatter<Utf8Buffer> addFragment(Logger log, Utf8Buffer bld, Object fragment) {
+        bld.write((byte[]) fragment);
+        return this;
+    }
+
+    // " key=", cached in the key itself
+    private byte[] encode(StructKey key) {
+        byte[] encoded = (byte[]) key.getEncoded(KEY_ENCODING);
+        if (encoded == null) {
+            encoded = key.setEncoded(KEY_ENCODING, appendKey(new Utf8Buffer(), key.getName()).toByteArray());
+        }
+        return encoded;
+    }
+
+    private Utf8Buffer appendKey(Utf8Buffer bld, String key) {
+        return bld.write(SPACE).write(key).write(EQUAL);
+    }
+
+    private void appendValue(Utf8Buffer bld, Object value) {
+        if (value instanceof CharSequence) {
+            appendText(bld, (CharSequence) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+            bld.write(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            bld.write((double) value);
+        } else if (value instanceof Boolean) {
+            bld.write((boolean) value);
+        } else {
+            appendText(bld, String.valueOf(value));
+        }
+    }
+
+    // same rules as KeyValuePairFormatter: single pass, quotes added at the end only if whitespace was found
+    private void appendText(Utf8Buffer bld, CharSequence value) {
+        int mark = bld.length();
+        boolean quote = false;
+        int length = value.length();
+        int start = 0;
+        for(int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c > ' ' && c != '"' && c != '\\') {
+                continue;
+            }
+            if (c == ' ') {
+                quote = true;
+                continue;
+            }
+
+            bld.write(value, start, i).write(BACKSLASH);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                case '\\':
+                    bld.writeAscii(c);
+                    break;
+                case '\t':
+                    quote = true;
+                    bld.writeAscii('t');
+                    break;
+                case '\n':
+                    quote = true;
+                    bld.writeAscii('n');
+                    break;
+                case '\r':
+                    quote = true;
+                    bld.writeAscii('r');
+                    break;
+                default:
+                    bld.writeAscii('u').writeAscii('0').writeAscii('0').write(HEX[c >> 4]).write(HEX[c & 0xF]);
+            }
+        }
+        bld.write(value, start, length);
+
+        if (quote) {
+            bld.insert(mark, QUOTES).write(QUOTES);
+        }
+    }
+}
@@ -5,34 +5,27 @@ import org.slf4j.Logger;
 /**
  * Standard key value pair encoder that formats messages as:
  * message key1=value1 key2=value2 etc
+ *
+ * Values containing any whitespace are surrounded with quotes. Quotes and backslashes are escaped,
+ * as well as line breaks, tabs and other control characters, so every log entry stays on a single line
  */
 public class KeyValuePairFormatter implements IFormatter<StringBuilder> {
 
     private static final String SPACE = " ";
-    private static final String QUOTES= "\"";
-    private static final String QUOTES_ESCAPED = "\\\"";
     private static final String EQUAL="=";
+    private static final char QUOTES = '"';
+    private static final char BACKSLASH = '\\';
 
-    private static final KeyValuePairFormatter INSTANCE = new KeyValuePairFormatter();
-    public static KeyValuePairFormatter getInstance() {return INSTANCE;}
+    private static final char[] HEX = {'0','1','2','3','4','5','6','7','8','9','a','b','c','d','e','f'};
 
-    // thread local StringBuilder used for all log concatenation
-    final ThreadLocal<StringBuilder> BLD = new ThreadLocal<StringBuilder>() {
-        @Override
-        protected StringBuilder initialValue() {
-            return new StringBuilder();
-        }
+    private static final int KEY_ENCODING = StructKey.newEncoding();
 
-        @Override
-        public StringBuilder get() {
-            super.get().setLength(0);
-            return super.get();
-        }
-    };
+    private static final KeyValuePairFormatter INSTANCE = new KeyValuePairFormatter();
+    public static KeyValuePairFormatter getInstance() {return INSTANCE;}
 
     @Override
     public StringBuilder start(Logger log) {
-        return BLD.get();
+        return StructLog4J.getBufferPool().acquireChars();
     }
 
     @Override
@@ -44,20 +37,147 @@ public class KeyValuePairFormatter implements IFormatter<StringBuilder> {
     @Override
     public IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, String key, Object val) {
         bld.append(SPACE).append(key).append(EQUAL);
+        appendValue(bld, val);
+        return this;
+    }
 
-        String value = String.valueOf(val);
-        value = value.replace(QUOTES,QUOTES_ESCAPED);
-        if (value.indexOf(SPACE) < 0) {
-            // no spaces in the value, no need to surround it with quotes
-            bld.append(value);
-        } else {
-            bld.append(QUOTES).append(value).append(QUOTES);
-        }
+    // primitives never contain spaces or quotes, they can be appended as is
+    @Override
+    public IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, String key, long value) {
+        bld.append(SPACE).append(key).append(EQUAL).append(value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, String key, double value) {
+        bld.append(SPACE).append(key).append(EQUAL).append(value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, String key, boolean value) {
+        bld.append(SPACE).append(key).append(EQUAL).append(value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, StructKey key, Object val) {
+        bld.append(encode(key));
+        appendValue(bld, val);
+        return this;
+    }
+
+    @Override
+    public IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, StructKey key, long value) {
+        bld.append(encode(key)).append(value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, StructKey key, double value) {
+        bld.append(encode(key)).append(value);
+        return this;
+    }
+
+    @Override
+    public IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, StructKey key, boolean value) {
+        bld.append(encode(key)).append(value);
         return this;
     }
 
     @Override
     public String end(Logger log, StringBuilder bld) {
-        return bld.toString();
+        String entry = bld.toString();
+        StructLog4J.getBufferPool().release(bld);
+        return entry;
+    }
+
+    // fragments are simply pre-formatted " key1=value1 key2=value2" text
+    @Override
+    public StringBuilder startFragment(Logger log) {
+        return new StringBuilder();
+    }
+
+    @Override
+    public Object endFragment(Logger log, StringBuilder fragmentBld) {
+        return fragmentBld.toString();
+    }
+
+    @Override
+    public IFormatter<StringBuilder> addFragment(Logger log, StringBuilder bld, Object fragment) {
+        bld.append((String) fragment);
+        return this;
+    }
+
+    // " key=", cached in the key itself
+    private String encode(StructKey key) {
+        String encoded = (String) key.getEncoded(KEY_ENCODING);
+        if (encoded == null) {
+            encoded = key.setEncoded(KEY_ENCODING, SPACE + key.getName() + EQUAL);
+        }
+        return encoded;
+    }
+
+    // numbers and booleans never need quotes or escaping, they are appended without creating a String
+    private void appendValue(StringBuilder bld, Object val) {
+        if (val instanceof CharSequence) {
+            appendText(bld, (CharSequence) val);
+        } else if (val instanceof Long || val instanceof Integer || val instanceof Short) {
+            bld.append(((Number) val).longValue());
+        } else if (val instanceof Double) {
+            bld.append((double) val);
+        } else if (val instanceof Float) {
+            bld.append((float) val);
+        } else if (val instanceof Boolean) {
+            bld.append((boolean) val);
+        } else {
+            appendText(bld, String.valueOf(val));
+        }
+    }
+
+    // single pass: escapes as it goes and adds the surrounding quotes at the end, only if whitespace was found
+    private void appendText(StringBuilder bld, CharSequence value) {
+        int mark = bld.length();
+        boolean quote = false;
+        int length = value.length();
+        int start = 0;
+        for(int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c > ' ' && c != QUOTES && c != BACKSLASH) {
+                continue;
+            }
+            if (c == ' ') {
+                quote = true;
+                continue;
+            }
+
+            bld.append(value, start, i).append(BACKSLASH);
+            start = i + 1;
+            switch (c) {
+                case QUOTES:
+                case BACKSLASH:
+                    bld.append(c);
+                    break;
+                case '\t':
+                    quote = true;
+                    bld.append('t');
+                    break;
+                case '\n':
+                    quote = true;
+                    bld.append('n');
+                    break;
+                case '\r':
+                    quote = true;
+                    bld.append('r');
+                    break;
+                default:
+                    bld.append('u').append('0').append('0').append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+        bld.append(value, start, length);
+
+        if (quote) {
+            bld.insert(mark, QUOTES).append(QUOTES);
+        }
     }
 }
@@ -0,0 +1,99 @@
+package com.github.structlog4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sampling and rate limiting for ILogger.sampled() and ILogger.limited(), applied per call site
+ * (identified by the message, e.g. "Processing item"), before any formatting is done.
+ * Lock-free: sampling is a simple counter, rate limiting a token bucket kept in a single atomic long.
+ * Any sampling rate is exact in the long run, e.g. 0.4 logs 2 out of every 5 entries
+ */
+final class LogGate {
+
+    // call sites with dynamically generated messages all share the same state beyond this
+    private static final int MAX_SITES = 4096;
+
+    // 1 = no sampling
+    private final double rate;
+    // token bucket: one token every intervalNanos, at most burstNanos worth of them. 0 = no rate limit
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    private final ConcurrentMap<String,Site> sites = new ConcurrentHashMap<>();
+    private final Site overflow = new Site();
+
+    private LogGate(double rate, long intervalNanos, long burstNanos) {
+        this.rate = rate;
+        this.intervalNanos = intervalNanos;
+        this.burstNanos = burstNanos;
+    }
+
+    static LogGate sampled(LogGate current, double rate) {
+        if (!(rate > 0 && rate <= 1)) {
+            throw new IllegalArgumentException("Sampling rate must be greater than 0 and at most 1: " + rate);
+        }
+        return current == null ? new LogGate(rate, 0, 0) : new LogGate(rate, current.intervalNanos, current.burstNanos);
+    }
+
+    static LogGate limited(LogGate current, long permits, long periodNanos) {
+        if (permits <= 0 || periodNanos <= 0) {
+            throw new IllegalArgumentException("Rate limit must be greater than 0: " + permits + " per " + periodNanos + "ns");
+        }
+        long intervalNanos = Math.max(1, periodNanos / permits);
+        return new LogGate(current == null ? 1 : current.rate, intervalNanos, periodNanos);
+    }
+
+    /**
+     * Returns the number of entries skipped at the call site since the last logged one, or -1 if this one is skipped too
+     */
+    long admit(String callSite) {
+        Site site = site(callSite);
+        if ((rate < 1 && !sample(site.count.getAndIncrement()))
+                || (intervalNanos > 0 && !site.acquire(intervalNanos, burstNanos))) {
+            site.skipped.incrementAndGet();
+            return -1;
+        }
+        // avoid the write when nothing was skipped
+        return site.skipped.get() == 0 ? 0 : site.skipped.getAndSet(0);
+    }
+
+    // fractional accumulator: entry n is logged when ceil(n * rate) steps up, so exactly ceil(n * rate) of the first n are
+    private boolean sample(long n) {
+        return (long) Math.ceil((n + 1) * rate) > (long) Math.ceil(n * rate);
+    }
+
+    private Site site(String callSite) {
+        String key = callSite != null ? callSite : "";
+        Site site = sites.get(key);
+        if (site == null) {
+            if (sites.size() >= MAX_SITES) {
+                return overflow;
+            }
+            site = sites.computeIfAbsent(key, k -> new Site());
+        }
+        return site;
+    }
+
+    private static final class Site {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        // GCRA: theoretical time of the next entry, the bucket is empty once it is more than a burst ahead of now
+        private final AtomicLong nextNanos = new AtomicLong(System.nanoTime());
+
+        private boolean acquire(long intervalNanos, long burstNanos) {
+            long now = System.nanoTime();
+            while (true) {
+                long next = nextNanos.get();
+                long start = next - now > 0 ? next : now;
+                if (start - now > burstNanos - intervalNanos) {
+                    return false;
+                }
+                if (nextNanos.compareAndSet(next, start + intervalNanos)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.github.structlog4j;
+
+import org.slf4j.event.Level;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Striped counters behind ILogMetrics. Only exists while metrics are enabled, loggers skip all of it otherwise
+ */
+class LogMetrics implements ILogMetrics {
+
+    // loggers with their own counter, any others are counted together
+    static final int MAX_LOGGERS = 10_000;
+    static final String OTHER_LOGGERS = "<other>";
+
+    // bucket i holds times below 256 << i ns, i.e. from 256 ns up to ~4 ms
+    private static final int BUCKETS = 16;
+    private static final int BUCKET_SHIFT = 8;
+
+    private static final Level[] LEVELS = Level.values();
+
+    private final LongAdder[] events = adders(LEVELS.length);
+    private final LongAdder[] suppressed = adders(LEVELS.length);
+    private final ConcurrentMap<String,LongAdder> eventsByLogger = new ConcurrentHashMap<>();
+    private final LongAdder formattedChars = new LongAdder();
+    private final LongAdder formattedBytes = new LongAdder();
+    private final LongAdder[] formattingTime = adders(BUCKETS);
+    private final LongAdder formattingTimeTotal = new LongAdder();
+    private final LongAdder invalidKeys = new LongAdder();
+    private final LongAdder invalidToLogs = new LongAdder();
+    private final LongAdder unexpectedErrors = new LongAdder();
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for(int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    // looked up once per logger when its settings are resolved, never per entry
+    LongAdder loggerCounter(String loggerName) {
+        LongAdder counter = eventsByLogger.get(loggerName);
+        if (counter == null) {
+            String key = eventsByLogger.size() < MAX_LOGGERS ? loggerName : OTHER_LOGGERS;
+            counter = eventsByLogger.computeIfAbsent(key, name -> new LongAdder());
+        }
+        return counter;
+    }
+
+    void suppressed(Level level) {
+        suppressed[level.ordinal()].increment();
+    }
+
+    // formatted entry with its length, in chars or bytes, and the time its formatting started (0 = not timed,
+    // e.g. metrics got enabled while it was being formatted)
+    void formatted(Level level, LongAdder loggerCounter, int length, boolean bytes, long startNanos) {
+        events[level.ordinal()].increment();
+        loggerCounter.increment();
+        (bytes ? formattedBytes : formattedChars).add(length);
+        if (startNanos != 0) {
+            long nanos = System.nanoTime() - startNanos;
+            formattingTime[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos >>> BUCKET_SHIFT))].increment();
+            formattingTimeTotal.add(nanos);
+        }
+    }
+
+    void invalidKey() {
+        invalidKeys.increment();
+    }
+
+    void invalidToLog() {
+        invalidToLogs.increment();
+    }
+
+    void unexpectedError() {
+        unexpectedErrors.increment();
+    }
+
+    @Override
+    public long getEvents() {
+        long total = 0;
+        for(LongAdder counter : events) {
+            total += counter.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String,Long> getEventsByLevel() {
+        return byLevel(events);
+    }
+
+    @Override
+    public Map<String,Long> getEventsByLogger() {
+        Map<String,Long> result = new LinkedHashMap<>();
+        eventsByLogger.forEach((name, counter) -> result.put(name, counter.sum()));
+        return result;
+    }
+
+    @Override
+    public Map<String,Long> getSuppressedByLevel() {
+        return byLevel(suppressed);
+    }
+
+    private static Map<String,Long> byLevel(LongAdder[] counters) {
+        Map<String,Long> result = new LinkedHashMap<>();
+        for(Level level : LEVELS) {
+            result.put(level.name(), counters[level.ordinal()].sum());
+        }
+        return result;
+    }
+
+    @Override
+    public long getFormattedChars() {
+        return formattedChars.sum();
+    }
+
+    @Override
+    public long getFormattedBytes() {
+        return formattedBytes.sum();
+    }
+
+    @Override
+    public long[] getFormattingTimeHistogram() {
+        long[] histogram = new long[BUCKETS];
+        for(int i = 0; i < BUCKETS; i++) {
+            histogram[i] = formattingTime[i].sum();
+        }
+        return histogram;
+    }
+
+    @Override
+    public long[] getFormattingTimeBucketNanos() {
+        long[] bounds = new long[BUCKETS];
+        for(int i = 0; i < BUCKETS - 1; i++) {
+            bounds[i] = 1L << (BUCKET_SHIFT + i);
+        }
+        bounds[BUCKETS - 1] = Long.MAX_VALUE;
+        return bounds;
+    }
+
+    @Override
+    public long getFormattingTimeTotalNanos() {
+        return formattingTimeTotal.sum();
+    }
+
+    @Override
+    public long getInvalidKeys() {
+        return invalidKeys.sum();
+    }
+
+    @Override
+    public long getInvalidToLogs() {
+        return invalidToLogs.sum();
+    }
+
+    @Override
+    public long getUnexpectedErrors() {
+        return unexpectedErrors.sum();
+    }
+
+    // counters are only reset, loggers keep using the same ones
+    @Override
+    public void reset() {
+        for(LongAdder counter : events) {
+            counter.reset();
+        }
+        for(LongAdder counter : suppressed) {
+            counter.reset();
+        }
+        eventsByLogger.values().forEach(LongAdder::reset);
+        formattedChars.reset();
+        formattedBytes.reset();
+        for(LongAdder counter : formattingTime) {
+            counter.reset();
+        }
+        formattingTimeTotal.reset();
+        invalidKeys.reset();
+        invalidToLogs.reset();
+        unexpectedErrors.reset();
+    }
+}
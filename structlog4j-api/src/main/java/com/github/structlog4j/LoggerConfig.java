@@ -0,0 +1,86 @@
+package com.github.structlog4j;
+
+import lombok.Value;
+import lombok.experimental.Wither;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Immutable snapshot of all the settings, every change publishes a new one with a higher version.
+ * Loggers resolve their own settings from it only when the version changes
+ */
+@Value
+@Wither
+class LoggerConfig {
+
+    static final LoggerConfig DEFAULT = new LoggerConfig(0, KeyValuePairFormatter.getInstance(), Optional.empty(), Optional.empty(),
+            LoggerConfig::defaultValueFormat, LoggerOverrideTrie.EMPTY, null, null, null,
+            new StripedBufferPool(), null, new Diagnostics(TimeUnit.MINUTES.toNanos(1)), null);
+
+    private long version;
+    private IFormatter formatter;
+    private Optional<MandatoryContext> staticMandatoryContext;
+    private Optional<MandatoryContext> mandatoryContextSupplier;
+    private Function<Object,String> valueFormatter;
+    private LoggerOverrideTrie overrides;
+    // null = stack traces are never suppressed
+    private ExceptionSuppressor exceptionSuppressor;
+    // null = no aggregation
+    private EventAggregator aggregator;
+    // null = no metrics
+    private LogMetrics metrics;
+    // buffers the formatters build log entries in
+    private IBufferPool bufferPool;
+    // null = log entries go to SLF4J
+    private IByteSink byteSink;
+    // invalid keys and toLog() results, reported at most once per interval
+    private Diagnostics diagnostics;
+    // null = synchronous logging
+    private AsyncLogProcessor asyncProcessor;
+
+    @SuppressWarnings("unchecked")
+    LoggerSettings resolve(Logger backend) {
+        LoggerOverrideTrie.Resolved resolved = overrides.resolve(backend.getName());
+        int threshold = backendThreshold(backend);
+        if (resolved.getLevel() != null) {
+            threshold = Math.max(threshold, resolved.getLevel().toInt());
+        }
+        return new LoggerSettings(version,
+                resolved.getFormatter() != null ? resolved.getFormatter() : formatter,
+                resolved.getMandatoryContext() != null ? Optional.of(resolved.getMandatoryContext()) : staticMandatoryContext,
+                mandatoryContextSupplier,
+                threshold,
+                exceptionSuppressor,
+                aggregator,
+                metrics,
+                metrics != null ? metrics.loggerCounter(backend.getName()) : null,
+                resolved.getByteSink() != null ? resolved.getByteSink() : byteSink,
+                diagnostics,
+                asyncProcessor);
+    }
+
+    // lowest level enabled in the SLF4J backend, only asked again after the next version bump
+    private static int backendThreshold(Logger backend) {
+        if (backend.isTraceEnabled()) {
+            return Level.TRACE.toInt();
+        } else if (backend.isDebugEnabled()) {
+            return Level.DEBUG.toInt();
+        } else if (backend.isInfoEnabled()) {
+            return Level.INFO.toInt();
+        } else if (backend.isWarnEnabled()) {
+            return Level.WARN.toInt();
+        } else if (backend.isErrorEnabled()) {
+            return Level.ERROR.toInt();
+        }
+        return LoggerSettings.OFF;
+    }
+
+    // default formatter just does a toString(), regardless of object type
+    private static String defaultValueFormat(Object value) {
+        return value == null ? StructLog4J.VALUE_NULL : value.toString();
+    }
+}
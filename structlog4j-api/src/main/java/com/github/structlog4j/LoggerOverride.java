@@ -0,0 +1,29 @@
+package com.github.structlog4j;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.experimental.Wither;
+import org.slf4j.event.Level;
+
+/**
+ * Settings for all loggers whose name starts with a given prefix, see StructLog4J.setLoggerOverride().
+ * Anything left null is inherited from a shorter prefix or the global settings, e.g.
+ *
+ * StructLog4J.setLoggerOverride("com.acme.billing", LoggerOverride.NONE.withLevel(Level.WARN));
+ */
+@Value
+@Wither
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class LoggerOverride {
+
+    public static final LoggerOverride NONE = new LoggerOverride(null, null, null, null);
+
+    private IFormatter formatter;
+    /** Replaces the global static mandatory context */
+    private IToLog mandatoryContext;
+    /** Minimum level, on top of whatever is enabled in the SLF4J implementation */
+    private Level level;
+    /** Writes the entries straight to this sink instead of SLF4J (only with an IByteFormatter), e.g. a dedicated audit file */
+    private IByteSink byteSink;
+}
@@ -0,0 +1,108 @@
+package com.github.structlog4j;
+
+import lombok.Getter;
+import lombok.Value;
+import org.slf4j.event.Level;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Logger overrides indexed by the segments of their prefix ("com", "acme", "billing"),
+ * so that "com.acme" applies to "com.acme.Billing" but not to "com.acmeCorp". Immutable once built
+ */
+final class LoggerOverrideTrie {
+
+    static final LoggerOverrideTrie EMPTY = new LoggerOverrideTrie(Collections.emptyMap());
+
+    @Getter
+    private final Map<String,LoggerOverride> overrides;
+
+    private final Node root = new Node();
+
+    LoggerOverrideTrie(Map<String,LoggerOverride> overrides) {
+        Map<String,LoggerOverride> copy = new LinkedHashMap<>();
+        for(Map.Entry<String,LoggerOverride> entry : overrides.entrySet()) {
+            String prefix = entry.getKey();
+            if (prefix == null || entry.getValue() == null) {
+                throw new IllegalArgumentException("Logger override prefix and value cannot be null");
+            }
+            copy.put(prefix, entry.getValue());
+
+            Node node = root;
+            int start = 0;
+            while (start < prefix.length()) {
+                int end = prefix.indexOf('.', start);
+                end = end < 0 ? prefix.length() : end;
+                if (end > start) {
+                    node = node.children.computeIfAbsent(prefix.substring(start, end), key -> new Node());
+                }
+                start = end + 1;
+            }
+            node.set(entry.getValue());
+        }
+        this.overrides = Collections.unmodifiableMap(copy);
+    }
+
+    LoggerOverrideTrie with(String prefix, LoggerOverride override) {
+        Map<String,LoggerOverride> copy = new LinkedHashMap<>(overrides);
+        if (override != null) {
+            copy.put(prefix, override);
+        } else {
+            copy.remove(prefix);
+        }
+        return new LoggerOverrideTrie(copy);
+    }
+
+    // walks down the logger name, overrides on longer prefixes win
+    Resolved resolve(String loggerName) {
+        Node node = root;
+        IFormatter<Object> formatter = node.formatter;
+        MandatoryContext mandatoryContext = node.mandatoryContext;
+        Level level = node.level;
+        IByteSink byteSink = node.byteSink;
+
+        int start = 0;
+        while (node != null && start < loggerName.length()) {
+            int end = loggerName.indexOf('.', start);
+            end = end < 0 ? loggerName.length() : end;
+            node = node.children.get(loggerName.substring(start, end));
+            if (node != null) {
+                formatter = node.formatter != null ? node.formatter : formatter;
+                mandatoryContext = node.mandatoryContext != null ? node.mandatoryContext : mandatoryContext;
+                level = node.level != null ? node.level : level;
+                byteSink = node.byteSink != null ? node.byteSink : byteSink;
+            }
+            start = end + 1;
+        }
+        return new Resolved(formatter, mandatoryContext, level, byteSink);
+    }
+
+    @Value
+    static class Resolved {
+        private IFormatter<Object> formatter;
+        private MandatoryContext mandatoryContext;
+        private Level level;
+        private IByteSink byteSink;
+    }
+
+    private static final class Node {
+        private final Map<String,Node> children = new HashMap<>();
+        private IFormatter<Object> formatter;
+        private MandatoryContext mandatoryContext;
+        private Level level;
+        private IByteSink byteSink;
+
+        @SuppressWarnings("unchecked")
+        private void set(LoggerOverride override) {
+            formatter = override.getFormatter();
+            // rendered once per configuration, shared by all the loggers under the prefix
+            mandatoryContext = override.getMandatoryContext() != null
+                    ? new MandatoryContext(override.getMandatoryContext(), MandatoryContext.NEVER) : null;
+            level = override.getLevel();
+            byteSink = override.getByteSink();
+        }
+    }
+}
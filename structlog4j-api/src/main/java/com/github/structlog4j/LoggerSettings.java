@@ -0,0 +1,39 @@
+package com.github.structlog4j;
+
+import lombok.Value;
+import org.slf4j.event.Level;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Settings resolved for one logger from a given configuration version
+ */
+@Value
+class LoggerSettings {
+
+    private long version;
+    private IFormatter<Object> formatter;
+    private Optional<MandatoryContext> staticMandatoryContext;
+    private Optional<MandatoryContext> mandatoryContextSupplier;
+    // lowest Level.toInt() that gets logged, combining the SLF4J backend level with any override
+    private int threshold;
+    // null = stack traces are never suppressed
+    private ExceptionSuppressor exceptionSuppressor;
+    // null = no aggregation
+    private EventAggregator aggregator;
+    // null = no metrics
+    private LogMetrics metrics;
+    private LongAdder loggerEvents;
+    // the override of the logger or else the global one, null = log entries go to SLF4J
+    private IByteSink byteSink;
+    private Diagnostics diagnostics;
+    // null = synchronous logging
+    private AsyncLogProcessor asyncProcessor;
+
+    static final int OFF = Integer.MAX_VALUE;
+
+    boolean isEnabled(Level entryLevel) {
+        return entryLevel.toInt() >= threshold;
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.structlog4j;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Mandatory context key/value pairs, along with their pre-rendered fragment for the current formatter.
+ * The fragment is rendered again only if the formatter changes or the refresh interval expires
+ */
+@RequiredArgsConstructor
+final class MandatoryContext {
+
+    static final long NEVER = Long.MAX_VALUE;
+
+    @Getter
+    private final IToLog context;
+
+    // 0 = evaluated on every log entry, NEVER = static context that is rendered only once
+    private final long refreshNanos;
+
+    private volatile Rendered rendered = null;
+
+    boolean isPerEntry() {
+        return refreshNanos == 0;
+    }
+
+    /**
+     * Returns the pre-rendered fragment for the formatter, or null if the context has to be formatted
+     * on every log entry (no refresh interval or fragments not supported by the formatter)
+     */
+    Object getFragment(IFormatter<Object> formatter, SLogger logger) {
+        if (refreshNanos == 0) {
+            return null;
+        }
+
+        Rendered current = rendered;
+        long now = refreshNanos == NEVER ? 0 : System.nanoTime();
+        if (current == null || current.formatter != formatter || (refreshNanos != NEVER && now - current.renderedAt >= refreshNanos)) {
+            // worst case a few threads render it at the same time, they all get the same result
+            current = new Rendered(formatter, logger.renderFragment(formatter, context), now);
+            rendered = current;
+        }
+        return current.fragment;
+    }
+
+    @RequiredArgsConstructor
+    private static final class Rendered {
+        private final IFormatter<Object> formatter;
+        private final Object fragment;
+        private final long renderedAt;
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.structlog4j;
+
+/**
+ * Shared event returned for disabled levels, simply ignores everything
+ */
+final class NoOpLogEvent implements ILogEvent {
+
+    static final NoOpLogEvent INSTANCE = new NoOpLogEvent();
+
+    private NoOpLogEvent() {}
+
+    @Override
+    public ILogEvent kv(String key, long value) {
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(String key, double value) {
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(String key, boolean value) {
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(String key, Object value) {
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(StructKey key, long value) {
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(StructKey key, double value) {
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(StructKey key, boolean value) {
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(StructKey key, Object value) {
+        return this;
+    }
+
+    @Override
+    public ILogEvent cause(Throwable t) {
+        return this;
+    }
+
+    @Override
+    public void log() {
+        // do nothing
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.structlog4j;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+/**
+ * Basic byte sink writing every entry as a separate line to an output stream (e.g. System.out),
+ * followed by the stack trace of the exception, if any. Binary entries are written as they are,
+ * after the formatter's stream header
+ */
+public class OutputStreamByteSink implements IByteSink {
+
+    private static final byte NEW_LINE = '\n';
+
+    private final PrintStream out;
+    // guarded by out
+    private boolean started = false;
+
+    public OutputStreamByteSink(OutputStream out) {
+        try {
+            this.out = out instanceof PrintStream ? (PrintStream) out : new PrintStream(out, false, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Sink writing to the standard output
+     */
+    public static OutputStreamByteSink console() {
+        return new OutputStreamByteSink(System.out);
+    }
+
+    @Override
+    public void write(Logger log, Level level, ByteBuffer entry, Throwable error) {
+        write(entry, error, null);
+    }
+
+    @Override
+    public boolean write(Logger log, Level level, ByteBuffer entry, Throwable error, IByteFormatter<?> formatter) {
+        return write(entry, error, formatter);
+    }
+
+    // false if the stream failed (PrintStream keeps the error to itself)
+    private boolean write(ByteBuffer entry, Throwable error, IByteFormatter<?> formatter) {
+        synchronized (out) {
+            if (!started && formatter != null) {
+                ByteBuffer header = formatter.streamHeader();
+                if (header != null) {
+                    write(header);
+                }
+            }
+            started = true;
+            write(entry);
+            if (formatter == null || formatter.isText()) {
+                out.write(NEW_LINE);
+                if (error != null) {
+                    error.printStackTrace(out);
+                }
+            }
+            return !out.checkError();
+        }
+    }
+
+    private void write(ByteBuffer bytes) {
+        if (bytes.hasArray()) {
+            out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        } else {
+            while (bytes.hasRemaining()) {
+                out.write(bytes.get());
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.structlog4j;
+
+import lombok.experimental.UtilityClass;
+import org.slf4j.LoggerFactory;
+
+import java.beans.PropertyChangeListener;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Refreshes the levels cached by the loggers whenever Logback or Log4j2 get reconfigured.
+ * Done via reflection, so neither of them is needed at compile time
+ */
+@UtilityClass
+class ReconfigurationHooks {
+
+    private final String LOGBACK_CONTEXT = "ch.qos.logback.classic.LoggerContext";
+    private final String LOGBACK_LISTENER = "ch.qos.logback.classic.spi.LoggerContextListener";
+    private final String LOG4J2_FACTORY = "org.apache.logging.slf4j.Log4jLoggerFactory";
+    private final String LOG4J2_MANAGER = "org.apache.logging.log4j.LogManager";
+    private final String LOG4J2_CONTEXT = "org.apache.logging.log4j.core.LoggerContext";
+
+    /**
+     * Registers a listener with the SLF4J backend, if it is one we know
+     * @return true if registered, false if levels have to be refreshed manually via StructLog4J.refreshLevels()
+     */
+    boolean install() {
+        try {
+            Object factory = LoggerFactory.getILoggerFactory();
+            String type = factory.getClass().getName();
+            if (LOGBACK_CONTEXT.equals(type)) {
+                return installLogback(factory);
+            } else if (LOG4J2_FACTORY.equals(type)) {
+                return installLog4j2(factory.getClass().getClassLoader());
+            }
+            return false;
+        } catch (Exception | LinkageError e) {
+            // unknown or incompatible version, fall back to manual refresh
+            return false;
+        }
+    }
+
+    // LoggerContextListener is notified on every level change and (re)configuration
+    private boolean installLogback(Object context) throws Exception {
+        Class<?> listenerType = Class.forName(LOGBACK_LISTENER, true, context.getClass().getClassLoader());
+        Object listener = Proxy.newProxyInstance(listenerType.getClassLoader(), new Class<?>[]{listenerType}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "isResetResistant":
+                    // stay registered when a configuration file gets reloaded
+                    return true;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "StructLog4J level refresh";
+                default:
+                    StructLog4J.refreshLevels();
+                    return null;
+            }
+        });
+        context.getClass().getMethod("addListener", listenerType).invoke(context, listener);
+        return true;
+    }
+
+    // core LoggerContext fires a "config" property change on reconfiguration and after Configurator.setLevel()
+    private boolean installLog4j2(ClassLoader loader) throws Exception {
+        Class<?> manager = Class.forName(LOG4J2_MANAGER, true, loader);
+        Object context = manager.getMethod("getContext", boolean.class).invoke(null, false);
+        if (context == null || !LOG4J2_CONTEXT.equals(context.getClass().getName())) {
+            return false;
+        }
+        PropertyChangeListener listener = event -> StructLog4J.refreshLevels();
+        Method add = context.getClass().getMethod("addPropertyChangeListener", PropertyChangeListener.class);
+        add.invoke(context, listener);
+        return true;
+    }
+}
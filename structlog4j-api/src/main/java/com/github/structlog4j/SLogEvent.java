@@ -0,0 +1,184 @@
+package com.github.structlog4j;
+
+import org.slf4j.event.Level;
+
+/**
+ * Concrete implementation of the ILogEvent interface.
+ * Every key/value pair is passed to the formatter right away, nothing is collected in between.
+ * A single instance per thread is reused by SLogger
+ */
+final class SLogEvent implements ILogEvent {
+
+    private SLogger logger;
+    private Level level;
+    private IFormatter<Object> formatter;
+    private Object bld;
+    private Throwable error;
+    private long startNanos;
+
+    private boolean active = false;
+    private boolean failed = false;
+    private boolean processKeyValues = true; // set to false in case we encounter errors and cannot rely on the keys any more
+
+    boolean isActive() {
+        return active;
+    }
+
+    SLogEvent start(SLogger logger, Level level, String message, long skipped) {
+        this.logger = logger;
+        this.level = level;
+        error = null;
+        active = true;
+        failed = false;
+        processKeyValues = true;
+
+        try {
+            startNanos = logger.formattingStarted();
+            formatter = logger.formatter();
+            bld = logger.start(formatter, message, skipped);
+        } catch (Exception ex) {
+            fail(ex);
+        }
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(String key, long value) {
+        if (processKeyValues) {
+            try {
+                processKeyValues = logger.handleKeyValue(formatter, bld, key, value);
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(String key, double value) {
+        if (processKeyValues) {
+            try {
+                processKeyValues = logger.handleKeyValue(formatter, bld, key, value);
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(String key, boolean value) {
+        if (processKeyValues) {
+            try {
+                processKeyValues = logger.handleKeyValue(formatter, bld, key, value);
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(String key, Object value) {
+        if (processKeyValues) {
+            try {
+                processKeyValues = logger.handleKeyValue(formatter, bld, key, value, null);
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(StructKey key, long value) {
+        if (processKeyValues) {
+            try {
+                processKeyValues = logger.handleKeyValue(formatter, bld, key, value);
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(StructKey key, double value) {
+        if (processKeyValues) {
+            try {
+                processKeyValues = logger.handleKeyValue(formatter, bld, key, value);
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(StructKey key, boolean value) {
+        if (processKeyValues) {
+            try {
+                processKeyValues = logger.handleKeyValue(formatter, bld, key, value);
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ILogEvent kv(StructKey key, Object value) {
+        if (processKeyValues) {
+            try {
+                processKeyValues = logger.handleKeyValue(formatter, bld, key, value, null);
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ILogEvent cause(Throwable t) {
+        // logged even after an invalid key, same as in the regular ILogger methods
+        if (t != null && !failed) {
+            try {
+                error = logger.handleThrowable(formatter, bld, t);
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public void log() {
+        if (!active) {
+            // already logged
+            return;
+        }
+        try {
+            if (!failed) {
+                logger.end(level, formatter, bld, error, startNanos);
+            }
+        } catch (Exception ex) {
+            logger.handleUnexpectedError(ex);
+        } finally {
+            // do not hold on to anything until the next entry, ignore any calls until then
+            logger = null;
+            formatter = null;
+            bld = null;
+            error = null;
+            active = false;
+            failed = true;
+            processKeyValues = false;
+        }
+    }
+
+    // unexpected error, the entry gets dropped
+    private void fail(Exception ex) {
+        logger.handleUnexpectedError(ex);
+        failed = true;
+        processKeyValues = false;
+    }
+}
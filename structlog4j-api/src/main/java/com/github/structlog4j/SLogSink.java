@@ -0,0 +1,102 @@
+package com.github.structlog4j;
+
+/**
+ * Sink passed to IToLogStreaming implementations, writes every key/value pair straight into the formatter.
+ * Same rules as for IToLog: invalid keys are reported and skipped, the other pairs are still logged.
+ * A single instance per thread is reused by SLogger
+ */
+final class SLogSink implements IKeyValueSink {
+
+    private SLogger logger;
+    private IFormatter<Object> formatter;
+    private Object bld;
+    private IToLogStreaming source;
+
+    private boolean active = false;
+
+    boolean isActive() {
+        return active;
+    }
+
+    void write(SLogger logger, IFormatter<Object> formatter, Object bld, IToLogStreaming source) {
+        this.logger = logger;
+        this.formatter = formatter;
+        this.bld = bld;
+        this.source = source;
+        active = true;
+        try {
+            source.toLog(this);
+        } finally {
+            // do not hold on to anything, ignore any calls from a sink that was kept by mistake
+            this.logger = null;
+            this.formatter = null;
+            this.bld = null;
+            this.source = null;
+            active = false;
+        }
+    }
+
+    @Override
+    public IKeyValueSink kv(String key, long value) {
+        if (active) {
+            logger.handleKeyValue(formatter, bld, key, value, source);
+        }
+        return this;
+    }
+
+    @Override
+    public IKeyValueSink kv(String key, double value) {
+        if (active) {
+            logger.handleKeyValue(formatter, bld, key, value, source);
+        }
+        return this;
+    }
+
+    @Override
+    public IKeyValueSink kv(String key, boolean value) {
+        if (active) {
+            logger.handleKeyValue(formatter, bld, key, value, source);
+        }
+        return this;
+    }
+
+    @Override
+    public IKeyValueSink kv(String key, Object value) {
+        if (active) {
+            logger.handleKeyValue(formatter, bld, key, value, source);
+        }
+        return this;
+    }
+
+    @Override
+    public IKeyValueSink kv(StructKey key, long value) {
+        if (active) {
+            logger.handleKeyValue(formatter, bld, key, value, source);
+        }
+        return this;
+    }
+
+    @Override
+    public IKeyValueSink kv(StructKey key, double value) {
+        if (active) {
+            logger.handleKeyValue(formatter, bld, key, value, source);
+        }
+        return this;
+    }
+
+    @Override
+    public IKeyValueSink kv(StructKey key, boolean value) {
+        if (active) {
+            logger.handleKeyValue(formatter, bld, key, value, source);
+        }
+        return this;
+    }
+
+    @Override
+    public IKeyValueSink kv(StructKey key, Object value) {
+        if (active) {
+            logger.handleKeyValue(formatter, bld, key, value, source);
+        }
+        return this;
+    }
+}
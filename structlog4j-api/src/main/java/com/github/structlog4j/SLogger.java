@@ -1,105 +1,769 @@
 package com.github.structlog4j;
 
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import org.slf4j.LoggerFactory;
 import org.slf4j.event.Level;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Concrete implementation of the ILogger interface
  *
  * @author Jacek Furmankiewicz
  */
-@RequiredArgsConstructor
 public class SLogger implements ILogger {
 
     private static final String KEY_ERROR_MESSAGE = "errorMessage";
+    private static final String KEY_ERROR_FINGERPRINT = "errorFingerprint";
+    private static final String KEY_ERROR_SUPPRESSED = "errorSuppressed";
+    private static final String KEY_STACK_TRACE = "stackTrace";
+    private static final String KEY_SKIPPED = "skipped";
+    private static final String KEY_REPEAT_COUNT = "repeatCount";
+    private static final String KEY_FIRST_TIMESTAMP = "firstTimestamp";
+    private static final String KEY_LAST_TIMESTAMP = "lastTimestamp";
     private static final String SPACE = " ";
 
     @Getter // for testing
     private final org.slf4j.Logger slfjLogger;
 
+    // reusable event per thread for the fluent API, see atError(), atInfo(), etc.
+    private static final ThreadLocal<SLogEvent> EVENT = ThreadLocal.withInitial(SLogEvent::new);
+    // reusable sink per thread for IToLogStreaming
+    private static final ThreadLocal<SLogSink> SINK = ThreadLocal.withInitial(SLogSink::new);
+
+    // resolved from the current configuration, immutable so it is safe to publish without volatile
+    private LoggerSettings settings = null;
+
+    // sampling and rate limiting, null = everything gets logged
+    private final LogGate gate;
+
+    // loggers returned by sampled() and limited(), beyond this (e.g. computed rates) they are no longer cached
+    private static final int MAX_DERIVED = 16;
+    private volatile Derived[] derived = null;
+
     SLogger(String name) {
-        slfjLogger = LoggerFactory.getLogger(name);
+        this(LoggerFactory.getLogger(name), null);
+    }
+
+    SLogger(org.slf4j.Logger slfjLogger, LogGate gate) {
+        this.slfjLogger = slfjLogger;
+        this.gate = gate;
+        settings();
+    }
+
+    @Override
+    public ILogger sampled(double rate) {
+        return derived(true, rate, 0, 0);
+    }
+
+    @Override
+    public ILogger limited(long permits, TimeUnit per) {
+        return derived(false, 0, permits, per.toNanos(1));
+    }
+
+    // the same settings always return the same logger, so the inline form log.sampled(0.01).debug(...) shares one gate
+    private SLogger derived(boolean sampling, double rate, long permits, long periodNanos) {
+        SLogger logger = Derived.find(derived, rate, permits, periodNanos);
+        return logger != null ? logger : addDerived(sampling, rate, permits, periodNanos);
+    }
+
+    private synchronized SLogger addDerived(boolean sampling, double rate, long permits, long periodNanos) {
+        Derived[] current = derived;
+        SLogger existing = Derived.find(current, rate, permits, periodNanos);
+        if (existing != null) {
+            return existing;
+        }
+        // also validates the settings, nothing invalid ever gets cached
+        LogGate derivedGate = sampling ? LogGate.sampled(gate, rate) : LogGate.limited(gate, permits, periodNanos);
+        SLogger logger = new SLogger(slfjLogger, derivedGate);
+        if (current == null) {
+            derived = new Derived[]{new Derived(rate, permits, periodNanos, logger)};
+        } else if (current.length < MAX_DERIVED) {
+            Derived[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = new Derived(rate, permits, periodNanos, logger);
+            derived = updated;
+        }
+        return logger;
+    }
+
+    @Override
+    public void error(String message, Object... params) {
+        if (shouldLog(Level.ERROR)) {
+          log(Level.ERROR,message,params);
+        }
+    }
+
+    @Override
+    public void warn(String message, Object... params) {
+        if (shouldLog(Level.WARN)) {
+            log(Level.WARN,message,params);
+        }
+    }
+
+    @Override
+    public void info(String message, Object... params) {
+        if (shouldLog(Level.INFO)) {
+            log(Level.INFO,message,params);
+        }
+    }
+
+    @Override
+    public void debug(String message, Object... params) {
+        if (shouldLog(Level.DEBUG)) {
+            log(Level.DEBUG,message,params);
+        }
+    }
+
+    @Override
+    public void trace(String message, Object... params) {
+        if (shouldLog(Level.TRACE)) {
+            log(Level.TRACE,message,params);
+        }
+    }
+
+    // lazy message variants, the message is computed after the level check
+    @Override
+    public void error(ILazyValue<String> message, Object... params) {
+        if (shouldLog(Level.ERROR)) {
+            log(Level.ERROR,message,params);
+        }
+    }
+
+    @Override
+    public void warn(ILazyValue<String> message, Object... params) {
+        if (shouldLog(Level.WARN)) {
+            log(Level.WARN,message,params);
+        }
+    }
+
+    @Override
+    public void info(ILazyValue<String> message, Object... params) {
+        if (shouldLog(Level.INFO)) {
+            log(Level.INFO,message,params);
+        }
+    }
+
+    @Override
+    public void debug(ILazyValue<String> message, Object... params) {
+        if (shouldLog(Level.DEBUG)) {
+            log(Level.DEBUG,message,params);
+        }
+    }
+
+    @Override
+    public void trace(ILazyValue<String> message, Object... params) {
+        if (shouldLog(Level.TRACE)) {
+            log(Level.TRACE,message,params);
+        }
+    }
+
+    // fixed-arity variants, they go through the pooled fluent event so there is no varargs array and no boxing
+    @Override
+    public void error(String message, String k1, Object v1) {
+        atError(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void error(String message, String k1, long v1) {
+        atError(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void error(String message, String k1, double v1) {
+        atError(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void error(String message, String k1, boolean v1) {
+        atError(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void error(String message, String k1, char v1) {
+        atError(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void error(String message, String k1, float v1) {
+        atError(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void error(String message, String k1, Object v1, String k2, Object v2) {
+        atError(message).kv(k1,v1).kv(k2,v2).log();
+    }
+
+    @Override
+    public void error(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+        atError(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).log();
+    }
+
+    @Override
+    public void error(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3, String k4, Object v4) {
+        atError(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).kv(k4,v4).log();
+    }
+
+    @Override
+    public void warn(String message, String k1, Object v1) {
+        atWarn(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void warn(String message, String k1, long v1) {
+        atWarn(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void warn(String message, String k1, double v1) {
+        atWarn(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void warn(String message, String k1, boolean v1) {
+        atWarn(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void warn(String message, String k1, char v1) {
+        atWarn(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void warn(String message, String k1, float v1) {
+        atWarn(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void warn(String message, String k1, Object v1, String k2, Object v2) {
+        atWarn(message).kv(k1,v1).kv(k2,v2).log();
+    }
+
+    @Override
+    public void warn(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+        atWarn(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).log();
+    }
+
+    @Override
+    public void warn(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3, String k4, Object v4) {
+        atWarn(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).kv(k4,v4).log();
+    }
+
+    @Override
+    public void info(String message, String k1, Object v1) {
+        atInfo(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void info(String message, String k1, long v1) {
+        atInfo(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void info(String message, String k1, double v1) {
+        atInfo(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void info(String message, String k1, boolean v1) {
+        atInfo(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void info(String message, String k1, char v1) {
+        atInfo(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void info(String message, String k1, float v1) {
+        atInfo(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void info(String message, String k1, Object v1, String k2, Object v2) {
+        atInfo(message).kv(k1,v1).kv(k2,v2).log();
+    }
+
+    @Override
+    public void info(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+        atInfo(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).log();
+    }
+
+    @Override
+    public void info(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3, String k4, Object v4) {
+        atInfo(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).kv(k4,v4).log();
+    }
+
+    @Override
+    public void debug(String message, String k1, Object v1) {
+        atDebug(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void debug(String message, String k1, long v1) {
+        atDebug(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void debug(String message, String k1, double v1) {
+        atDebug(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void debug(String message, String k1, boolean v1) {
+        atDebug(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void debug(String message, String k1, char v1) {
+        atDebug(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void debug(String message, String k1, float v1) {
+        atDebug(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void debug(String message, String k1, Object v1, String k2, Object v2) {
+        atDebug(message).kv(k1,v1).kv(k2,v2).log();
+    }
+
+    @Override
+    public void debug(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+        atDebug(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).log();
+    }
+
+    @Override
+    public void debug(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3, String k4, Object v4) {
+        atDebug(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).kv(k4,v4).log();
+    }
+
+    @Override
+    public void trace(String message, String k1, Object v1) {
+        atTrace(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void trace(String message, String k1, long v1) {
+        atTrace(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void trace(String message, String k1, double v1) {
+        atTrace(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void trace(String message, String k1, boolean v1) {
+        atTrace(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void trace(String message, String k1, char v1) {
+        atTrace(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void trace(String message, String k1, float v1) {
+        atTrace(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void trace(String message, String k1, Object v1, String k2, Object v2) {
+        atTrace(message).kv(k1,v1).kv(k2,v2).log();
+    }
+
+    @Override
+    public void trace(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+        atTrace(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).log();
+    }
+
+    @Override
+    public void trace(String message, String k1, Object v1, String k2, Object v2, String k3, Object v3, String k4, Object v4) {
+        atTrace(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).kv(k4,v4).log();
+    }
+
+    @Override
+    public void error(String message, StructKey k1, Object v1) {
+        atError(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void error(String message, StructKey k1, long v1) {
+        atError(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void error(String message, StructKey k1, double v1) {
+        atError(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void error(String message, StructKey k1, boolean v1) {
+        atError(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void error(String message, StructKey k1, char v1) {
+        atError(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void error(String message, StructKey k1, float v1) {
+        atError(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void error(String message, StructKey k1, Object v1, StructKey k2, Object v2) {
+        atError(message).kv(k1,v1).kv(k2,v2).log();
+    }
+
+    @Override
+    public void error(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3) {
+        atError(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).log();
+    }
+
+    @Override
+    public void error(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3, StructKey k4, Object v4) {
+        atError(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).kv(k4,v4).log();
+    }
+
+    @Override
+    public void warn(String message, StructKey k1, Object v1) {
+        atWarn(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void warn(String message, StructKey k1, long v1) {
+        atWarn(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void warn(String message, StructKey k1, double v1) {
+        atWarn(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void warn(String message, StructKey k1, boolean v1) {
+        atWarn(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void warn(String message, StructKey k1, char v1) {
+        atWarn(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void warn(String message, StructKey k1, float v1) {
+        atWarn(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void warn(String message, StructKey k1, Object v1, StructKey k2, Object v2) {
+        atWarn(message).kv(k1,v1).kv(k2,v2).log();
+    }
+
+    @Override
+    public void warn(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3) {
+        atWarn(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).log();
+    }
+
+    @Override
+    public void warn(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3, StructKey k4, Object v4) {
+        atWarn(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).kv(k4,v4).log();
+    }
+
+    @Override
+    public void info(String message, StructKey k1, Object v1) {
+        atInfo(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void info(String message, StructKey k1, long v1) {
+        atInfo(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void info(String message, StructKey k1, double v1) {
+        atInfo(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void info(String message, StructKey k1, boolean v1) {
+        atInfo(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void info(String message, StructKey k1, char v1) {
+        atInfo(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void info(String message, StructKey k1, float v1) {
+        atInfo(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void info(String message, StructKey k1, Object v1, StructKey k2, Object v2) {
+        atInfo(message).kv(k1,v1).kv(k2,v2).log();
+    }
+
+    @Override
+    public void info(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3) {
+        atInfo(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).log();
+    }
+
+    @Override
+    public void info(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3, StructKey k4, Object v4) {
+        atInfo(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).kv(k4,v4).log();
+    }
+
+    @Override
+    public void debug(String message, StructKey k1, Object v1) {
+        atDebug(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void debug(String message, StructKey k1, long v1) {
+        atDebug(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void debug(String message, StructKey k1, double v1) {
+        atDebug(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void debug(String message, StructKey k1, boolean v1) {
+        atDebug(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void debug(String message, StructKey k1, char v1) {
+        atDebug(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void debug(String message, StructKey k1, float v1) {
+        atDebug(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void debug(String message, StructKey k1, Object v1, StructKey k2, Object v2) {
+        atDebug(message).kv(k1,v1).kv(k2,v2).log();
+    }
+
+    @Override
+    public void debug(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3) {
+        atDebug(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).log();
     }
 
-    SLogger(Class<?> source) {
-        slfjLogger = LoggerFactory.getLogger(source);
+    @Override
+    public void debug(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3, StructKey k4, Object v4) {
+        atDebug(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).kv(k4,v4).log();
     }
 
     @Override
-    public void error(String message, Object... params) {
-        if (slfjLogger.isErrorEnabled()) {
-          log(Level.ERROR,message,params);
-        }
+    public void trace(String message, StructKey k1, Object v1) {
+        atTrace(message).kv(k1,v1).log();
     }
 
     @Override
-    public void warn(String message, Object... params) {
-        if (slfjLogger.isWarnEnabled()) {
-            log(Level.WARN,message,params);
-        }
+    public void trace(String message, StructKey k1, long v1) {
+        atTrace(message).kv(k1,v1).log();
     }
 
     @Override
-    public void info(String message, Object... params) {
-        if (slfjLogger.isInfoEnabled()) {
-            log(Level.INFO,message,params);
-        }
+    public void trace(String message, StructKey k1, double v1) {
+        atTrace(message).kv(k1,v1).log();
     }
 
     @Override
-    public void debug(String message, Object... params) {
-        if (slfjLogger.isDebugEnabled()) {
-            log(Level.DEBUG,message,params);
-        }
+    public void trace(String message, StructKey k1, boolean v1) {
+        atTrace(message).kv(k1,v1).log();
     }
 
     @Override
-    public void trace(String message, Object... params) {
-        if (slfjLogger.isTraceEnabled()) {
-            log(Level.TRACE,message,params);
-        }
+    public void trace(String message, StructKey k1, char v1) {
+        atTrace(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void trace(String message, StructKey k1, float v1) {
+        atTrace(message).kv(k1,v1).log();
+    }
+
+    @Override
+    public void trace(String message, StructKey k1, Object v1, StructKey k2, Object v2) {
+        atTrace(message).kv(k1,v1).kv(k2,v2).log();
+    }
+
+    @Override
+    public void trace(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3) {
+        atTrace(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).log();
+    }
+
+    @Override
+    public void trace(String message, StructKey k1, Object v1, StructKey k2, Object v2, StructKey k3, Object v3, StructKey k4, Object v4) {
+        atTrace(message).kv(k1,v1).kv(k2,v2).kv(k3,v3).kv(k4,v4).log();
+    }
+
+    @Override
+    public ILogEvent atError(String message) {
+        return shouldLog(Level.ERROR) ? event(Level.ERROR,message) : NoOpLogEvent.INSTANCE;
+    }
+
+    @Override
+    public ILogEvent atWarn(String message) {
+        return shouldLog(Level.WARN) ? event(Level.WARN,message) : NoOpLogEvent.INSTANCE;
+    }
+
+    @Override
+    public ILogEvent atInfo(String message) {
+        return shouldLog(Level.INFO) ? event(Level.INFO,message) : NoOpLogEvent.INSTANCE;
+    }
+
+    @Override
+    public ILogEvent atDebug(String message) {
+        return shouldLog(Level.DEBUG) ? event(Level.DEBUG,message) : NoOpLogEvent.INSTANCE;
+    }
+
+    @Override
+    public ILogEvent atTrace(String message) {
+        return shouldLog(Level.TRACE) ? event(Level.TRACE,message) : NoOpLogEvent.INSTANCE;
+    }
+
+    @Override
+    public ILogEvent atError(ILazyValue<String> message) {
+        return shouldLog(Level.ERROR) ? event(Level.ERROR,message) : NoOpLogEvent.INSTANCE;
+    }
+
+    @Override
+    public ILogEvent atWarn(ILazyValue<String> message) {
+        return shouldLog(Level.WARN) ? event(Level.WARN,message) : NoOpLogEvent.INSTANCE;
+    }
+
+    @Override
+    public ILogEvent atInfo(ILazyValue<String> message) {
+        return shouldLog(Level.INFO) ? event(Level.INFO,message) : NoOpLogEvent.INSTANCE;
+    }
+
+    @Override
+    public ILogEvent atDebug(ILazyValue<String> message) {
+        return shouldLog(Level.DEBUG) ? event(Level.DEBUG,message) : NoOpLogEvent.INSTANCE;
+    }
+
+    @Override
+    public ILogEvent atTrace(ILazyValue<String> message) {
+        return shouldLog(Level.TRACE) ? event(Level.TRACE,message) : NoOpLogEvent.INSTANCE;
     }
 
     @Override
     public boolean isErrorEnabled() {
-        return slfjLogger.isErrorEnabled();
+        return settings().isEnabled(Level.ERROR);
     }
 
     @Override
     public boolean isWarnEnabled() {
-        return slfjLogger.isWarnEnabled();
+        return settings().isEnabled(Level.WARN);
     }
 
     @Override
     public boolean isInfoEnabled() {
-        return slfjLogger.isInfoEnabled();
+        return settings().isEnabled(Level.INFO);
     }
 
     @Override
     public boolean isDebugEnabled() {
-        return slfjLogger.isDebugEnabled();
+        return settings().isEnabled(Level.DEBUG);
     }
 
     @Override
     public boolean isTraceEnabled() {
-        return slfjLogger.isTraceEnabled();
+        return settings().isEnabled(Level.TRACE);
+    }
+
+    // level check of the logging methods, unlike isXEnabled() it counts the entries suppressed by the level
+    private boolean shouldLog(Level level) {
+        LoggerSettings current = settings();
+        if (current.isEnabled(level)) {
+            return true;
+        }
+        if (current.getMetrics() != null) {
+            current.getMetrics().suppressed(level);
+        }
+        return false;
+    }
+
+    private ILogEvent event(Level level, String message) {
+        long skipped = admit(message);
+        if (skipped < 0) {
+            return NoOpLogEvent.INSTANCE;
+        }
+        SLogEvent event = EVENT.get();
+        if (event.isActive()) {
+            // another entry is still being built on this thread (e.g. logging from within a toString()),
+            // or it was dropped without calling log(): do not clobber it, the new one is reused from now on
+            event = new SLogEvent();
+            EVENT.set(event);
+        }
+        return event.start(this, level, message, skipped);
+    }
+
+    private ILogEvent event(Level level, ILazyValue<String> message) {
+        long skipped = admit(callSite(message));
+        if (skipped < 0) {
+            return NoOpLogEvent.INSTANCE;
+        }
+        String evaluated;
+        try {
+            evaluated = evaluateMessage(message);
+        } catch (Exception ex) {
+            handleUnexpectedError(ex);
+            return NoOpLogEvent.INSTANCE;
+        }
+        SLogEvent event = EVENT.get();
+        if (event.isActive()) {
+            event = new SLogEvent();
+            EVENT.set(event);
+        }
+        return event.start(this, level, evaluated, skipped);
     }
 
     private void log(Level level, String message, Object...params) {
+        long skipped = admit(message);
+        if (skipped < 0) {
+            return;
+        }
+        log(level, message, skipped, params);
+    }
+
+    private void log(Level level, ILazyValue<String> message, Object...params) {
+        long skipped = admit(callSite(message));
+        if (skipped < 0) {
+            return;
+        }
+        String evaluated;
         try {
-            // just in case...
-            if (message == null) {
-                message = "";
-            }
+            evaluated = evaluateMessage(message);
+        } catch (Exception ex) {
+            handleUnexpectedError(ex);
+            return;
+        }
+        log(level, evaluated, skipped, params);
+    }
 
+    private void log(Level level, String message, long skipped, Object[] params) {
+        try {
             Throwable e = null;
-            IFormatter<Object> formatter = StructLog4J.getFormatter();
-            Object bld = formatter.start(slfjLogger);
-            formatter.addMessage(slfjLogger, bld, message);
+            long startNanos = formattingStarted();
+            IFormatter<Object> formatter = formatter();
+            Object bld = start(formatter, message, skipped);
 
             boolean processKeyValues = true; // set to false in case we encounter errors and cannot rely on the order any more
 
@@ -112,10 +776,7 @@ public class SLogger implements ILogger {
                 } else if (param instanceof Throwable) {
                     // exceptions are not logged directly (unless they implement IToLog)
                     // they will get passed separate as exceptions to the base SLF4J API
-                    e = (Throwable) param;
-
-                    // also log the error explicitly as a separate key/value pair for easy parsing
-                    formatter.addKeyValue(slfjLogger, bld,KEY_ERROR_MESSAGE, getCauseErrorMessage(e));
+                    e = handleThrowable(formatter, bld, (Throwable) param);
 
                 } else {
                     // dynamic key/value pairs being passed in
@@ -135,30 +796,302 @@ public class SLogger implements ILogger {
                 }
             }
 
-            // add mandatory context, if specified
-            Optional<IToLog> mandatory = StructLog4J.getMandatoryContextSupplier();
-            mandatory.ifPresent(iToLog -> handleIToLog(formatter, bld, iToLog));
+            end(level, formatter, bld, e, startNanos);
 
-            String logEntry = formatter.end(slfjLogger, bld);
+        } catch (Exception ex) {
+            handleUnexpectedError(ex);
+        }
+    }
+
+    // start of the formatting time kept with the entry (nested entries have their own), 0 while metrics are disabled
+    long formattingStarted() {
+        return current().getMetrics() != null ? System.nanoTime() : 0;
+    }
+
+    // starts a new log entry with the message, and the number of entries skipped by sampling/rate limiting before it
+    Object start(IFormatter<Object> formatter, String message, long skipped) {
+        Object bld = formatter.start(slfjLogger);
+        // just in case...
+        formatter.addMessage(slfjLogger, bld, message != null ? message : "");
+        if (skipped > 0) {
+            formatter.addKeyValue(slfjLogger, bld, KEY_SKIPPED, skipped);
+        }
+        return bld;
+    }
 
-            // actual logging via SLF4J
+    // sampling and rate limiting per call site, before any formatting: -1 = skip this entry
+    private long admit(String message) {
+        return gate == null ? 0 : gate.admit(message);
+    }
+
+    // every lambda or method reference has its own class, so it identifies the call site without evaluating the message
+    private static String callSite(ILazyValue<String> message) {
+        return message == null ? null : message.getClass().getName();
+    }
+
+    // computes a lazy value, anything else is returned as is
+    static Object evaluate(Object value) {
+        return value instanceof ILazyValue ? ((ILazyValue<?>) value).get() : value;
+    }
+
+    private static String evaluateMessage(ILazyValue<String> message) {
+        return message == null ? null : message.get();
+    }
+
+    // formatter for new log entries, the async processor and the event aggregator only capture them
+    @SuppressWarnings("unchecked")
+    IFormatter<Object> formatter() {
+        LoggerSettings current = current();
+        AsyncLogProcessor processor = current.getAsyncProcessor();
+        if (processor != null) {
+            // aggregated on the background thread
+            return (IFormatter) processor;
+        }
+        return current.getAggregator() != null ? (IFormatter) current.getAggregator() : current.getFormatter();
+    }
+
+    // settings for this logger, resolved again only if the configuration changed
+    LoggerSettings settings() {
+        LoggerConfig config = StructLog4J.getConfig();
+        LoggerSettings current = settings;
+        if (current == null || current.getVersion() != config.getVersion()) {
+            current = config.resolve(slfjLogger);
+            settings = current;
+        }
+        return current;
+    }
+
+    // settings already refreshed by the level check when the entry was started, saves another volatile read
+    private LoggerSettings current() {
+        LoggerSettings current = settings;
+        return current != null ? current : settings();
+    }
+
+    // adds the mandatory context and sends the finished entry to SLF4J
+    void end(Level level, IFormatter<Object> formatter, Object bld, Throwable e, long startNanos) {
+        if (bld instanceof AsyncLogEntry) {
+            if ((IFormatter) formatter instanceof EventAggregator) {
+                aggregate(level, (EventAggregator) (IFormatter) formatter, (AsyncLogEntry) bld, e);
+            } else {
+                publish(level, (AsyncLogProcessor) (IFormatter) formatter, (AsyncLogEntry) bld, e);
+            }
+            return;
+        }
+
+        // add mandatory context, if specified: static first, then the one from the supplier
+        LoggerSettings current = current();
+        Optional<MandatoryContext> mandatory = current.getStaticMandatoryContext();
+        if (mandatory.isPresent()) {
+            handleMandatoryContext(formatter, bld, mandatory.get());
+        }
+        mandatory = current.getMandatoryContextSupplier();
+        if (mandatory.isPresent()) {
+            handleMandatoryContext(formatter, bld, mandatory.get());
+        }
+
+        emit(level, formatter, bld, e, startNanos);
+    }
+
+    // actual logging via SLF4J, or straight to the byte sink
+    @SuppressWarnings("unchecked")
+    private void emit(Level level, IFormatter<Object> formatter, Object bld, Throwable e, long startNanos) {
+        IByteSink sink = current().getByteSink();
+        if (sink != null && formatter instanceof IByteFormatter) {
+            IByteFormatter<Object> byteFormatter = (IByteFormatter<Object>) formatter;
+            try {
+                if (e != null && !byteFormatter.isText()) {
+                    // binary entries are not followed by anything, the stack trace goes into the entry itself
+                    formatter.addKeyValue(slfjLogger, bld, KEY_STACK_TRACE, stackTrace(e));
+                }
+                Utf8Buffer logEntry = byteFormatter.endBytes(slfjLogger, bld);
+                ByteBuffer bytes = logEntry.toByteBuffer();
+                formatted(level, bytes.remaining(), true, startNanos);
+                if (sink.write(slfjLogger, level, bytes, e, byteFormatter)) {
+                    byteFormatter.written(slfjLogger, bld);
+                }
+            } finally {
+                byteFormatter.release(slfjLogger, bld);
+            }
+        } else {
+            String logEntry = formatter.end(slfjLogger, bld);
+            formatted(level, logEntry.length(), false, startNanos);
             log(level, logEntry, e);
+        }
+    }
+
+    private void formatted(Level level, int length, boolean bytes, long startNanos) {
+        LoggerSettings current = current();
+        if (current.getMetrics() != null) {
+            current.getMetrics().formatted(level, current.getLoggerEvents(), length, bytes, startNanos);
+        }
+    }
+
+    // internal errors, only counted while metrics are enabled
+    private LogMetrics metrics() {
+        return current().getMetrics();
+    }
+
+    // async: a mandatory context supplier evaluated on every entry has to be captured on the calling thread,
+    // everything else is added by the background thread
+    private void publish(Level level, AsyncLogProcessor processor, AsyncLogEntry entry, Throwable e) {
+        captureMandatoryContext(processor, entry);
+        processor.publish(this, level, entry, e);
+    }
+
+    // aggregation: repeats within the window are only counted, anything else is formatted right away
+    private void aggregate(Level level, EventAggregator aggregator, AsyncLogEntry entry, Throwable e) {
+        try {
+            captureMandatoryContext(aggregator, entry);
+            entry.finish(this, level, e);
+            if (!aggregator.absorb(entry)) {
+                logCaptured(entry, 0, 0, 0);
+            }
+        } finally {
+            entry.clear();
+        }
+    }
+
+    private void captureMandatoryContext(CapturingFormatter capture, AsyncLogEntry entry) {
+        entry.markMandatoryContext();
+        Optional<MandatoryContext> mandatory = current().getMandatoryContextSupplier();
+        if (mandatory.isPresent() && mandatory.get().isPerEntry()) {
+            handleIToLog(capture, entry, mandatory.get().getContext());
+        }
+    }
 
+    // async: called from the background thread, with the entry captured earlier
+    void logCaptured(AsyncLogEntry entry) {
+        EventAggregator aggregator = settings().getAggregator();
+        if (aggregator == null || !aggregator.absorb(entry)) {
+            logCaptured(entry, 0, 0, 0);
+        }
+    }
+
+    // aggregation: logs the repeats of an entry once its window closes, called from the aggregator thread
+    void logAggregated(AsyncLogEntry entry, long repeatCount, long firstMillis, long lastMillis) {
+        logCaptured(entry, repeatCount, firstMillis, lastMillis);
+    }
+
+    // formats an entry captured earlier and sends it to SLF4J
+    private void logCaptured(AsyncLogEntry entry, long repeatCount, long firstMillis, long lastMillis) {
+        try {
+            LoggerSettings current = settings();
+            long startNanos = formattingStarted();
+            IFormatter<Object> formatter = current.getFormatter();
+            Object bld = start(formatter, entry.getMessage(), 0);
+            entry.replay(formatter, bld, slfjLogger, 0, entry.getMandatoryStart());
+            if (repeatCount > 0) {
+                formatter.addKeyValue(slfjLogger, bld, KEY_REPEAT_COUNT, repeatCount);
+                formatter.addKeyValue(slfjLogger, bld, KEY_FIRST_TIMESTAMP, firstMillis);
+                formatter.addKeyValue(slfjLogger, bld, KEY_LAST_TIMESTAMP, lastMillis);
+            }
+
+            Optional<MandatoryContext> mandatory = current.getStaticMandatoryContext();
+            if (mandatory.isPresent()) {
+                handleMandatoryContext(formatter, bld, mandatory.get());
+            }
+            entry.replay(formatter, bld, slfjLogger, entry.getMandatoryStart(), entry.size());
+            mandatory = current.getMandatoryContextSupplier();
+            if (mandatory.isPresent() && !mandatory.get().isPerEntry()) {
+                handleMandatoryContext(formatter, bld, mandatory.get());
+            }
+
+            emit(entry.getLevel(), formatter, bld, entry.getError(), startNanos);
         } catch (Exception ex) {
-            /// should never happen, a logging library has no right to generate exceptions :-)
-            slfjLogger.error("UNEXPECTED LOGGER ERROR: " + ex.getMessage(),ex);
+            handleUnexpectedError(ex);
+        }
+    }
+
+    // adds the pre-rendered fragment, or formats the mandatory context from scratch if there is none
+    private void handleMandatoryContext(IFormatter<Object> formatter, Object bld, MandatoryContext mandatory) {
+        Object fragment = mandatory.getFragment(formatter, this);
+        if (fragment != null) {
+            formatter.addFragment(slfjLogger, bld, fragment);
+        } else {
+            handleIToLog(formatter, bld, mandatory.getContext());
+        }
+    }
+
+    // formats the key/value pairs once into a fragment, returns null if the formatter does not support fragments
+    Object renderFragment(IFormatter<Object> formatter, IToLog loggable) {
+        Object fragmentBld = formatter.startFragment(slfjLogger);
+        if (fragmentBld == null) {
+            return null;
+        }
+        handleIToLog(formatter, fragmentBld, loggable);
+        return formatter.endFragment(slfjLogger, fragmentBld);
+    }
+
+    void handleUnexpectedError(Exception ex) {
+        LoggerSettings current = current();
+        AsyncLogProcessor processor = current.getAsyncProcessor();
+        if (processor != null) {
+            // do not leave a half captured entry behind
+            processor.abort();
+        }
+        EventAggregator aggregator = current.getAggregator();
+        if (aggregator != null) {
+            aggregator.abort();
+        }
+        LogMetrics metrics = current.getMetrics();
+        if (metrics != null) {
+            metrics.unexpectedError();
+        }
+        /// should never happen, a logging library has no right to generate exceptions :-)
+        slfjLogger.error("UNEXPECTED LOGGER ERROR: " + ex.getMessage(),ex);
+    }
+
+    // log the error explicitly as a separate key/value pair for easy parsing,
+    // returns null if the stack trace of a repeated exception should not be logged
+    Throwable handleThrowable(IFormatter formatter, Object bld, Throwable e) {
+        Throwable rootCause = getRootCause(e);
+        formatter.addKeyValue(slfjLogger, bld,KEY_ERROR_MESSAGE, rootCause.getMessage());
+
+        ExceptionSuppressor suppressor = current().getExceptionSuppressor();
+        if (suppressor == null) {
+            return e;
+        }
+        long fingerprint = suppressor.fingerprint(rootCause);
+        formatter.addKeyValue(slfjLogger, bld, KEY_ERROR_FINGERPRINT, Long.toHexString(fingerprint));
+        long suppressed = suppressor.suppressedCount(fingerprint);
+        if (suppressed == 0) {
+            return e;
         }
+        formatter.addKeyValue(slfjLogger, bld, KEY_ERROR_SUPPRESSED, suppressed);
+        return null;
     }
 
     // handle IToLog implementations
     private void handleIToLog(IFormatter encoder, Object bld, IToLog loggable) {
+        if (loggable instanceof IToLogStreaming) {
+            // written straight into the formatter, no array to allocate and check
+            SLogSink sink = SINK.get();
+            if (sink.isActive()) {
+                // toLog() of another object is still running on this thread, do not clobber it
+                sink = new SLogSink();
+            }
+            sink.write(this, encoder, bld, (IToLogStreaming) loggable);
+            return;
+        }
+
         Object[] logParams = loggable.toLog();
         //sanity checks
-        if (logParams == null) {
-            slfjLogger.error("Null returned from {}.toLog()",loggable.getClass());
-            return;
-        } else if (logParams.length % 2 != 0) {
-            slfjLogger.error("Odd number of parameters ({}) returned from {}.toLog()",logParams.length,loggable.getClass());
+        if (logParams == null || logParams.length % 2 != 0) {
+            LogMetrics metrics = metrics();
+            if (metrics != null) {
+                metrics.invalidToLog();
+            }
+            if (logParams == null) {
+                long occurrences = diagnose(DiagnosticType.NULL_TO_LOG, loggable.getClass(), null);
+                if (occurrences > 0) {
+                    reportProblem("Null returned from " + loggable.getClass() + ".toLog()", occurrences);
+                }
+            } else {
+                long occurrences = diagnose(DiagnosticType.ODD_TO_LOG, loggable.getClass(), null);
+                if (occurrences > 0) {
+                    reportProblem("Odd number of parameters (" + logParams.length + ") returned from " + loggable.getClass() + ".toLog()", occurrences);
+                }
+            }
             return;
         }
 
@@ -169,18 +1102,141 @@ public class SLogger implements ILogger {
 
     // common logic for handling keys
     // returns true/false depending on whether it was successful or not
-    private boolean handleKeyValue(IFormatter formatter, Object bld, Object keyObject, Object value, IToLog source) {
+    boolean handleKeyValue(IFormatter formatter, Object bld, Object keyObject, Object value, IToLog source) {
+        if (keyObject instanceof StructKey) {
+            // already validated when created
+            StructKey key = (StructKey) keyObject;
+            Object evaluated = evaluate(value);
+            if (evaluated instanceof Long || evaluated instanceof Integer || evaluated instanceof Short || evaluated instanceof Byte) {
+                formatter.addKeyValue(slfjLogger, bld, key, ((Number) evaluated).longValue());
+            } else if (evaluated instanceof Double) {
+                formatter.addKeyValue(slfjLogger, bld, key, ((Double) evaluated).doubleValue());
+            } else if (evaluated instanceof Boolean) {
+                formatter.addKeyValue(slfjLogger, bld, key, ((Boolean) evaluated).booleanValue());
+            } else {
+                formatter.addKeyValue(slfjLogger, bld, key, evaluated);
+            }
+            return true;
+        } else if (isValidKey(keyObject, source)) {
+            String key = (String) keyObject;
+            Object evaluated = evaluate(value);
+            // boxed values take the same path as the primitive ones, so they are formatted (and aggregated) the same way
+            if (evaluated instanceof Long || evaluated instanceof Integer || evaluated instanceof Short || evaluated instanceof Byte) {
+                formatter.addKeyValue(slfjLogger, bld, key, ((Number) evaluated).longValue());
+            } else if (evaluated instanceof Double) {
+                formatter.addKeyValue(slfjLogger, bld, key, ((Double) evaluated).doubleValue());
+            } else if (evaluated instanceof Boolean) {
+                formatter.addKeyValue(slfjLogger, bld, key, ((Boolean) evaluated).booleanValue());
+            } else {
+                formatter.addKeyValue(slfjLogger, bld, key, evaluated);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // primitive versions of handleKeyValue(), the value is passed on to the formatter without boxing
+    boolean handleKeyValue(IFormatter formatter, Object bld, String key, long value) {
+        return handleKeyValue(formatter, bld, key, value, null);
+    }
+
+    boolean handleKeyValue(IFormatter formatter, Object bld, String key, long value, IToLog source) {
+        if (isValidKey(key, source)) {
+            formatter.addKeyValue(slfjLogger, bld, key, value);
+            return true;
+        }
+        return false;
+    }
+
+    boolean handleKeyValue(IFormatter formatter, Object bld, String key, double value) {
+        return handleKeyValue(formatter, bld, key, value, null);
+    }
+
+    boolean handleKeyValue(IFormatter formatter, Object bld, String key, double value, IToLog source) {
+        if (isValidKey(key, source)) {
+            formatter.addKeyValue(slfjLogger, bld, key, value);
+            return true;
+        }
+        return false;
+    }
+
+    boolean handleKeyValue(IFormatter formatter, Object bld, String key, boolean value) {
+        return handleKeyValue(formatter, bld, key, value, null);
+    }
+
+    boolean handleKeyValue(IFormatter formatter, Object bld, String key, boolean value, IToLog source) {
+        if (isValidKey(key, source)) {
+            formatter.addKeyValue(slfjLogger, bld, key, value);
+            return true;
+        }
+        return false;
+    }
+
+    // StructKey versions of handleKeyValue(), the key was already validated when created
+    boolean handleKeyValue(IFormatter formatter, Object bld, StructKey key, long value) {
+        return handleKeyValue(formatter, bld, key, value, null);
+    }
+
+    boolean handleKeyValue(IFormatter formatter, Object bld, StructKey key, long value, IToLog source) {
+        if (key != null) {
+            formatter.addKeyValue(slfjLogger, bld, key, value);
+            return true;
+        }
+        return isValidKey(null, source);
+    }
+
+    boolean handleKeyValue(IFormatter formatter, Object bld, StructKey key, double value) {
+        return handleKeyValue(formatter, bld, key, value, null);
+    }
+
+    boolean handleKeyValue(IFormatter formatter, Object bld, StructKey key, double value, IToLog source) {
+        if (key != null) {
+            formatter.addKeyValue(slfjLogger, bld, key, value);
+            return true;
+        }
+        return isValidKey(null, source);
+    }
+
+    boolean handleKeyValue(IFormatter formatter, Object bld, StructKey key, boolean value) {
+        return handleKeyValue(formatter, bld, key, value, null);
+    }
+
+    boolean handleKeyValue(IFormatter formatter, Object bld, StructKey key, boolean value, IToLog source) {
+        if (key != null) {
+            formatter.addKeyValue(slfjLogger, bld, key, value);
+            return true;
+        }
+        return isValidKey(null, source);
+    }
+
+    // validates the key, reports any errors
+    private boolean isValidKey(Object keyObject, IToLog source) {
         // key must be a String
         if (keyObject != null && keyObject instanceof String) {
 
             String key = (String)keyObject;
-            if (key.indexOf(SPACE) < 0) {
-                formatter.addKeyValue(slfjLogger, bld, key, value);
-            } else {
-                if (source == null) {
-                    slfjLogger.error("Key with spaces was passed in: {}", key);
-                } else {
-                    slfjLogger.error("Key with spaces was passed in from {}.toLog(): {}", source.getClass(), key);
+            // a single scan for valid keys, spaces are reported separately as the most common mistake
+            boolean invalid = StructKey.indexOfInvalid(key) >= 0;
+            if (invalid && key.indexOf(SPACE) >= 0) {
+                invalidKey();
+                long occurrences = diagnose(DiagnosticType.KEY_WITH_SPACES, source != null ? source.getClass() : null, key);
+                if (occurrences > 0) {
+                    if (source == null) {
+                        reportProblem("Key with spaces was passed in: " + printable(key), occurrences);
+                    } else {
+                        reportProblem("Key with spaces was passed in from " + source.getClass() + ".toLog(): " + printable(key), occurrences);
+                    }
+                }
+                return false;
+            } else if (invalid) {
+                invalidKey();
+                long occurrences = diagnose(DiagnosticType.KEY_WITH_INVALID_CHARACTERS, source != null ? source.getClass() : null, key);
+                if (occurrences > 0) {
+                    if (source == null) {
+                        reportProblem("Key with whitespace, control characters or '=' was passed in: " + printable(key), occurrences);
+                    } else {
+                        reportProblem("Key with whitespace, control characters or '=' was passed in from " + source.getClass() + ".toLog(): " + printable(key), occurrences);
+                    }
                 }
                 return false;
             }
@@ -188,12 +1244,15 @@ public class SLogger implements ILogger {
         } else {
 
             // a non-String key was passed
-            if (source == null) {
-                slfjLogger.error("Non-String or null key was passed in: {} ({})", keyObject,
-                        keyObject != null ? keyObject.getClass() : "null");
-            } else {
-                slfjLogger.error("Non-String or null key was passed in from {}.toLog(): {} ({})", source.getClass(), keyObject,
-                        keyObject != null ? keyObject.getClass() : "null");
+            invalidKey();
+            long occurrences = diagnose(DiagnosticType.NON_STRING_KEY, source != null ? source.getClass() : null, String.valueOf(keyObject));
+            if (occurrences > 0) {
+                String invalidKey = keyObject + " (" + (keyObject != null ? keyObject.getClass() : "null") + ")";
+                if (source == null) {
+                    reportProblem("Non-String or null key was passed in: " + invalidKey, occurrences);
+                } else {
+                    reportProblem("Non-String or null key was passed in from " + source.getClass() + ".toLog(): " + invalidKey, occurrences);
+                }
             }
             return false;
         }
@@ -202,6 +1261,39 @@ public class SLogger implements ILogger {
         return true;
     }
 
+    // invalid keys are reported as is, except for the characters that could break the report itself
+    private static String printable(String key) {
+        StringBuilder bld = null;
+        for(int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c != ' ' && c != '=' && StructKey.isInvalid(c)) {
+                if (bld == null) {
+                    bld = new StringBuilder(key.length() + 16).append(key, 0, i);
+                }
+                bld.append(String.format("\\u%04X", (int) c));
+            } else if (bld != null) {
+                bld.append(c);
+            }
+        }
+        return bld != null ? bld.toString() : key;
+    }
+
+    // counts the problem, returns how many occurrences to report now (0 = already reported in this interval)
+    private long diagnose(DiagnosticType type, Class<?> source, String key) {
+        return current().getDiagnostics().occurred(type, source, key);
+    }
+
+    private void reportProblem(String message, long occurrences) {
+        slfjLogger.error(occurrences > 1 ? message + " (" + occurrences + " times since the last report)" : message);
+    }
+
+    private void invalidKey() {
+        LogMetrics metrics = metrics();
+        if (metrics != null) {
+            metrics.invalidKey();
+        }
+    }
+
     private void log(Level level, String structuredMessage, Throwable err) {
         switch (level) {
             case ERROR:
@@ -244,14 +1336,56 @@ public class SLogger implements ILogger {
         }
     }
 
-    // Goes down the exception hierarchy to find the actual error message at the root of the entire
-    // stack trace
-    private String getCauseErrorMessage(Throwable t) {
-        if (t.getCause() == null) {
-            return t.getMessage();
-        } else {
-            return getCauseErrorMessage(t.getCause());
+    static String stackTrace(Throwable e) {
+        StringWriter trace = new StringWriter(1024);
+        e.printStackTrace(new PrintWriter(trace));
+        return trace.toString();
+    }
+
+    // Goes down the exception hierarchy to find the actual error at the root of the entire stack trace.
+    // Iterative, and stops on cause cycles: a second pointer follows at half the speed, if they ever meet it is a cycle
+    static Throwable getRootCause(Throwable t) {
+        Throwable root = t;
+        Throwable slow = t;
+        boolean moveSlow = false;
+        Throwable cause;
+        while ((cause = root.getCause()) != null && cause != root) {
+            root = cause;
+            if (moveSlow) {
+                slow = slow.getCause();
+                if (slow == root) {
+                    break;
+                }
+            }
+            moveSlow = !moveSlow;
         }
+        return root;
     }
 
+
+    // settings of a logger returned by sampled() or limited()
+    private static final class Derived {
+        private final double rate;
+        private final long permits;
+        private final long periodNanos;
+        private final SLogger logger;
+
+        private Derived(double rate, long permits, long periodNanos, SLogger logger) {
+            this.rate = rate;
+            this.permits = permits;
+            this.periodNanos = periodNanos;
+            this.logger = logger;
+        }
+
+        private static SLogger find(Derived[] derived, double rate, long permits, long periodNanos) {
+            if (derived != null) {
+                for(Derived d : derived) {
+                    if (d.rate == rate && d.permits == permits && d.periodNanos == periodNanos) {
+                        return d.logger;
+                    }
+                }
+            }
+            return null;
+        }
+    }
 }
@@ -2,20 +2,40 @@ package com.github.structlog4j;
 
 import lombok.experimental.UtilityClass;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
- * Structured logger factory
+ * Structured logger factory. Loggers are cached, so the same name (or class) always returns the same instance
  * @author Jacek Furmankiewicz
  */
 @UtilityClass
 public class SLoggerFactory {
 
+    private final ConcurrentMap<String,LoggerRef> LOGGERS = new ConcurrentHashMap<>();
+    private final ReferenceQueue<SLogger> COLLECTED = new ReferenceQueue<>();
+
+    // true if Logback or Log4j2 tell us about level changes, otherwise StructLog4J.refreshLevels() has to be called
+    final boolean LEVELS_AUTO_REFRESHED = ReconfigurationHooks.install();
+
+    // cached on the class itself, does not prevent it from being unloaded
+    private final ClassValue<SLogger> CLASS_LOGGERS = new ClassValue<SLogger>() {
+        @Override
+        protected SLogger computeValue(Class<?> type) {
+            return lookup(type.getName(), false);
+        }
+    };
+
     /**
      * Returns logger for explicit name
      * @param name Logger name
      * @return Structured logger
      */
     public ILogger getLogger(String name) {
-        return new SLogger(name);
+        return lookup(name, false);
     }
 
     /**
@@ -24,6 +44,67 @@ public class SLoggerFactory {
      * @return Structured logger
      */
     public ILogger getLogger(Class<?> source) {
-        return new SLogger(source);
+        return CLASS_LOGGERS.get(source);
+    }
+
+    /**
+     * Same as getLogger(name), but the logger is only weakly held by the cache, it is garbage collected once
+     * it is not used any more. Meant for dynamically generated names (e.g. per tenant), which would otherwise
+     * stay in the cache forever. If the same name is also requested via getLogger(name), it is kept for good
+     * @param name Logger name
+     * @return Structured logger
+     */
+    public ILogger getWeakLogger(String name) {
+        return lookup(name, true);
+    }
+
+    /**
+     * Number of cached loggers that are still alive, for monitoring
+     */
+    public int getLoggerCount() {
+        expungeCollected();
+        return LOGGERS.size();
+    }
+
+    private SLogger lookup(String name, boolean weak) {
+        LoggerRef ref = LOGGERS.get(name);
+        SLogger logger = ref != null ? ref.get() : null;
+        if (logger == null) {
+            expungeCollected();
+            // created within compute() so only one instance ever exists, the array holds it strongly until returned
+            SLogger[] holder = new SLogger[1];
+            ref = LOGGERS.compute(name, (key, current) -> {
+                holder[0] = current != null ? current.get() : null;
+                if (holder[0] != null) {
+                    return current;
+                }
+                holder[0] = new SLogger(key);
+                return new LoggerRef(key, holder[0], COLLECTED);
+            });
+            logger = holder[0];
+        }
+        if (!weak && ref.strong == null) {
+            ref.strong = logger;
+        }
+        return logger;
+    }
+
+    private void expungeCollected() {
+        Reference<? extends SLogger> collected;
+        while ((collected = COLLECTED.poll()) != null) {
+            LoggerRef ref = (LoggerRef) collected;
+            LOGGERS.remove(ref.name, ref);
+        }
+    }
+
+    private static final class LoggerRef extends WeakReference<SLogger> {
+        private final String name;
+        // set for regular (non-weak) loggers, which then never get collected
+        private volatile SLogger strong;
+
+        private LoggerRef(String name, SLogger logger, ReferenceQueue<SLogger> queue) {
+            super(logger, queue);
+            this.name = name;
+        }
     }
 }
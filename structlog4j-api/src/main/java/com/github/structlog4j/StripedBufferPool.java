@@ -0,0 +1,123 @@
+package com.github.structlog4j;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Default buffer pool, bounded both in the number of pooled buffers and in their size, so memory stays flat
+ * no matter how many threads log (e.g. one virtual thread per request).
+ *
+ * Buffers are kept in a few stripes of slots, each thread picks its stripe by its id and takes/returns buffers
+ * with a simple CAS, there are no locks. When the stripe is empty a new buffer is created, when it is full the released
+ * buffer is simply dropped. Buffers that grew beyond the maximum size are trimmed back before being pooled again
+ */
+public class StripedBufferPool implements IBufferPool {
+
+    public static final int DEFAULT_BUFFERS_PER_STRIPE = 4;
+    public static final int DEFAULT_INITIAL_CAPACITY = 256;
+    public static final int DEFAULT_MAX_CAPACITY = 16 * 1024;
+
+    private final int stripeMask;
+    private final int buffersPerStripe;
+    private final int initialCapacity;
+    private final int maxCapacity;
+
+    private final AtomicReferenceArray<StringBuilder> chars;
+    private final AtomicReferenceArray<Utf8Buffer> bytes;
+
+    /**
+     * Default settings: 2 stripes per CPU core, 4 buffers per stripe, trimmed back to 256 if they grow beyond 16K
+     */
+    public StripedBufferPool() {
+        this(Runtime.getRuntime().availableProcessors() * 2, DEFAULT_BUFFERS_PER_STRIPE, DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_CAPACITY);
+    }
+
+    /**
+     * @param stripes Number of stripes, rounded up to a power of 2
+     * @param buffersPerStripe Maximum number of pooled buffers per stripe (for each buffer type)
+     * @param initialCapacity Initial capacity of new buffers, in chars or bytes
+     * @param maxCapacity Buffers that grew beyond this are trimmed back to the initial capacity when released
+     */
+    public StripedBufferPool(int stripes, int buffersPerStripe, int initialCapacity, int maxCapacity) {
+        if (stripes < 1 || buffersPerStripe < 0 || initialCapacity < 0 || maxCapacity < initialCapacity) {
+            throw new IllegalArgumentException("Invalid buffer pool settings: stripes=" + stripes + ", buffersPerStripe=" + buffersPerStripe +
+                    ", initialCapacity=" + initialCapacity + ", maxCapacity=" + maxCapacity);
+        }
+        int stripeCount = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripeMask = stripeCount - 1;
+        this.buffersPerStripe = buffersPerStripe;
+        this.initialCapacity = initialCapacity;
+        this.maxCapacity = maxCapacity;
+
+        chars = new AtomicReferenceArray<>(stripeCount * buffersPerStripe);
+        bytes = new AtomicReferenceArray<>(stripeCount * buffersPerStripe);
+    }
+
+    @Override
+    public StringBuilder acquireChars() {
+        StringBuilder bld = take(chars);
+        return bld != null ? bld : new StringBuilder(initialCapacity);
+    }
+
+    @Override
+    public void release(StringBuilder bld) {
+        bld.setLength(0);
+        if (bld.capacity() > maxCapacity) {
+            bld.trimToSize();
+            bld.ensureCapacity(initialCapacity);
+        }
+        put(chars, bld);
+    }
+
+    @Override
+    public Utf8Buffer acquireBytes() {
+        Utf8Buffer buffer = take(bytes);
+        return buffer != null ? buffer : new Utf8Buffer(initialCapacity);
+    }
+
+    @Override
+    public void release(Utf8Buffer buffer) {
+        buffer.reset();
+        if (buffer.capacity() > maxCapacity) {
+            buffer.trim(initialCapacity);
+        }
+        put(bytes, buffer);
+    }
+
+    /**
+     * Number of buffers currently in the pool, for monitoring
+     */
+    public int getPooledCount() {
+        int count = 0;
+        for(int i = 0; i < chars.length(); i++) {
+            count += (chars.get(i) != null ? 1 : 0) + (bytes.get(i) != null ? 1 : 0);
+        }
+        return count;
+    }
+
+    private <T> T take(AtomicReferenceArray<T> slots) {
+        int start = stripe() * buffersPerStripe;
+        for(int i = start; i < start + buffersPerStripe; i++) {
+            T buffer = slots.get(i);
+            if (buffer != null && slots.compareAndSet(i, buffer, null)) {
+                return buffer;
+            }
+        }
+        return null;
+    }
+
+    private <T> void put(AtomicReferenceArray<T> slots, T buffer) {
+        int start = stripe() * buffersPerStripe;
+        for(int i = start; i < start + buffersPerStripe; i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, buffer)) {
+                return;
+            }
+        }
+        // stripe is full, the buffer is dropped
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & stripeMask;
+    }
+}
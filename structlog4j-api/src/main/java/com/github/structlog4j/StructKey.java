@@ -0,0 +1,105 @@
+package com.github.structlog4j;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pre-validated key, meant to be declared once as a constant and then used instead of a String key, e.g.
+ *
+ * private static final StructKey USER_NAME = StructKey.of("userName");
+ * ...
+ * log.atInfo("Starting processing").kv(USER_NAME,userName).log();
+ *
+ * The key is validated only once when created (instead of on every log entry) and every formatter
+ * caches its encoded version of it (e.g. " userName=" for key/value pairs), so it never gets encoded again.
+ * Accepted everywhere a String key is. The fixed-arity ILogger methods have StructKey versions too, only calls
+ * mixing String and StructKey keys fall back to the varargs version
+ */
+@EqualsAndHashCode(of = "name")
+public final class StructKey {
+
+    private static final String SPACE = " ";
+    private static final AtomicInteger ENCODINGS = new AtomicInteger();
+
+    @Getter
+    private final String name;
+
+    // encoded versions of the key, indexed by the encoding id of each formatter
+    // copy on write, in the worst case a concurrently added encoding gets lost and is simply created again
+    private volatile Object[] encoded = new Object[0];
+
+    private StructKey(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Creates a new key
+     * @param name Key name, must not be empty or contain whitespace, control characters or '='
+     * @return Validated key
+     */
+    public static StructKey of(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Key cannot be null or empty");
+        } else if (name.contains(SPACE)) {
+            throw new IllegalArgumentException("Key cannot contain spaces: " + name);
+        } else if (indexOfInvalid(name) >= 0) {
+            throw new IllegalArgumentException("Key cannot contain whitespace, control characters or '=': " + name);
+        }
+        return new StructKey(name);
+    }
+
+    /**
+     * Position of the first character not allowed in a key (whitespace, control characters or '='), or -1 if there is none.
+     * Such keys would break the key=value output or allow forging extra pairs/entries
+     */
+    static int indexOfInvalid(String name) {
+        for(int i = 0; i < name.length(); i++) {
+            if (isInvalid(name.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean isInvalid(char c) {
+        return c <= ' ' || c == '=' || (c >= 0x7F && (Character.isISOControl(c) || Character.isWhitespace(c) || Character.isSpaceChar(c)));
+    }
+
+    /**
+     * Registers a new encoding, each formatter should call this once and keep the returned id
+     * @return Encoding id to be used in getEncoded()/setEncoded()
+     */
+    public static int newEncoding() {
+        return ENCODINGS.getAndIncrement();
+    }
+
+    /**
+     * Returns the cached encoded version of this key, or null if not encoded yet
+     * @param encoding Encoding id returned from newEncoding()
+     */
+    public Object getEncoded(int encoding) {
+        Object[] current = encoded;
+        return encoding < current.length ? current[encoding] : null;
+    }
+
+    /**
+     * Caches the encoded version of this key. Encoded values must be immutable as they are shared between threads
+     * @param encoding Encoding id returned from newEncoding()
+     * @param value Encoded key
+     * @return The encoded key that was passed in
+     */
+    public <T> T setEncoded(int encoding, T value) {
+        Object[] updated = Arrays.copyOf(encoded, Math.max(encoded.length, encoding + 1));
+        updated[encoding] = value;
+        encoded = updated;
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,12 +1,22 @@
 package com.github.structlog4j;
 
 import lombok.experimental.UtilityClass;
+import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 /**
- * Common settings
+ * Common settings. They are kept in an immutable snapshot that is swapped atomically on every change,
+ * so they can be safely changed at runtime while other threads are logging
  *
  * @author Jacek Furmakiewicz
  */
@@ -14,23 +24,282 @@ import java.util.function.Function;
 public class StructLog4J {
 
     static final String VALUE_NULL = "null";
+    static final String METRICS_NAME = "com.github.structlog4j:type=Metrics";
 
-    private IFormatter formatter = KeyValuePairFormatter.getInstance();
-    private Optional<IToLog> mandatoryContextSupplier = Optional.empty();
+    // formatter, mandatory context, value formatter, logger overrides, byte sink, buffer pool, diagnostics, async, etc.
+    private volatile LoggerConfig config = LoggerConfig.DEFAULT;
 
-    // default formatter just does a toString(), regardless of object type
-    private Function<Object,String> defaultValueFormatter = (value) -> value == null ? VALUE_NULL : value.toString();
-
-    private Function<Object,String> valueFormatter = defaultValueFormatter;
+    private Thread asyncShutdownHook = null;
 
     /**
-     * Allows to override the default formatter. Should be only done once during application startup
-     * from the main thread to avoid any concurrency issues
+     * Allows to override the default formatter. Takes effect right away, even for existing loggers
      *
      * @param formatter Custom formatter implementing the IFormatter interface
      */
     public void setFormatter(IFormatter formatter) {
-        StructLog4J.formatter = formatter;
+        if (formatter == null) {
+            throw new IllegalArgumentException("Formatter cannot be null");
+        }
+        update(current -> current.withFormatter(formatter));
+    }
+
+    /**
+     * Overrides the formatter, static mandatory context, minimum level and/or byte sink for all loggers whose name
+     * starts with the prefix, e.g. "com.acme.billing" applies to "com.acme.billing.InvoiceService"
+     * (but not to "com.acme.billingV2"). When several prefixes match, the longest one wins.
+     * An empty prefix applies to all loggers
+     *
+     * @param prefix Logger name prefix (usually a package name)
+     * @param override Settings to override, anything left null is inherited
+     */
+    public void setLoggerOverride(String prefix, LoggerOverride override) {
+        if (prefix == null || override == null) {
+            throw new IllegalArgumentException("Logger override prefix and value cannot be null");
+        }
+        update(current -> current.withOverrides(current.getOverrides().with(prefix, override)));
+    }
+
+    /**
+     * Replaces all the logger overrides at once, e.g. when reloading them from a config file.
+     * Loggers see either all the old or all the new ones, never a mix
+     *
+     * @param overrides Overrides by logger name prefix
+     */
+    public void setLoggerOverrides(Map<String,LoggerOverride> overrides) {
+        LoggerOverrideTrie trie = new LoggerOverrideTrie(overrides);
+        update(current -> current.withOverrides(trie));
+    }
+
+    public void removeLoggerOverride(String prefix) {
+        update(current -> current.withOverrides(current.getOverrides().with(prefix, null)));
+    }
+
+    public void clearLoggerOverrides() {
+        update(current -> current.withOverrides(LoggerOverrideTrie.EMPTY));
+    }
+
+    /**
+     * Loggers cache the level of their SLF4J logger, call this after changing levels in the backend at runtime.
+     * Not needed for Logback and Log4j2, their reconfigurations are picked up automatically
+     */
+    public void refreshLevels() {
+        update(current -> current);
+    }
+
+    /**
+     * Gets current logger overrides by prefix
+     */
+    public Map<String,LoggerOverride> getLoggerOverrides() {
+        return config.getOverrides().getOverrides();
+    }
+
+    /**
+     * Sends the log entries straight to the byte sink instead of SLF4J, without ever creating a String.
+     * Only used with formatters implementing IByteFormatter (e.g. KeyValuePairByteFormatter),
+     * any other formatter still logs via SLF4J
+     *
+     * @param byteSink Destination for the UTF-8 encoded log entries
+     */
+    public void setByteSink(IByteSink byteSink) {
+        if (byteSink == null) {
+            throw new IllegalArgumentException("Byte sink cannot be null");
+        }
+        update(current -> current.withByteSink(byteSink));
+    }
+
+    /**
+     * Gets optional byte sink
+     */
+    public Optional<IByteSink> getByteSink() {
+        return Optional.ofNullable(config.getByteSink());
+    }
+
+    /**
+     * Goes back to logging via SLF4J
+     */
+    public void clearByteSink() {
+        update(current -> current.withByteSink(null));
+    }
+
+    /**
+     * Replaces the pool of buffers the formatters build log entries in. The default StripedBufferPool is bounded
+     * and safe with any number of threads, ThreadLocalBufferPool may be a bit faster with a small fixed thread pool
+     *
+     * @param bufferPool Custom buffer pool
+     */
+    public void setBufferPool(IBufferPool bufferPool) {
+        if (bufferPool == null) {
+            throw new IllegalArgumentException("Buffer pool cannot be null");
+        }
+        update(current -> current.withBufferPool(bufferPool));
+    }
+
+    public IBufferPool getBufferPool() {
+        return config.getBufferPool();
+    }
+
+    /**
+     * Logs the full stack trace of an exception only for its first occurrence within the window. Repeats of the same
+     * exception (same root cause class thrown from the same place) are logged with just the errorMessage,
+     * errorFingerprint and errorSuppressed (number of repeats so far) keys
+     *
+     * @param config Window length, number of stack frames that identify an exception and how many to track
+     */
+    public void enableExceptionSuppression(ExceptionSuppressionConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("Exception suppression config cannot be null");
+        }
+        ExceptionSuppressor suppressor = new ExceptionSuppressor(config);
+        update(current -> current.withExceptionSuppressor(suppressor));
+    }
+
+    /**
+     * Goes back to logging the full stack trace every time
+     */
+    public void disableExceptionSuppression() {
+        update(current -> current.withExceptionSuppressor(null));
+    }
+
+    /**
+     * Aggregates identical log entries (same logger, level, message and key/value pairs, in any order): the first one is
+     * logged right away, repeats within the window are only counted. When the window closes, a single entry
+     * is logged with the repeatCount, firstTimestamp and lastTimestamp (in epoch millis) keys added
+     *
+     * @param config Window length and maximum number of different entries tracked at the same time
+     */
+    public synchronized void enableAggregation(AggregationConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("Aggregation config cannot be null");
+        }
+        EventAggregator aggregator = new EventAggregator(config);
+        disableAggregation();
+        update(current -> current.withAggregator(aggregator));
+    }
+
+    /**
+     * Stops aggregating, after the repeats of all the currently open windows are logged
+     */
+    public synchronized void disableAggregation() {
+        EventAggregator aggregator = config.getAggregator();
+        if (aggregator != null) {
+            update(current -> current.withAggregator(null));
+            aggregator.shutdown();
+        }
+    }
+
+    /**
+     * Number of repeated log entries that were only counted instead of logged, 0 if not aggregating
+     */
+    public long getAggregatedCount() {
+        EventAggregator aggregator = config.getAggregator();
+        return aggregator != null ? aggregator.getAggregatedCount() : 0;
+    }
+
+    /**
+     * Starts counting logged and suppressed entries, formatted sizes, formatting times and internal errors,
+     * and publishes them via JMX as com.github.structlog4j:type=Metrics. Costs nothing while disabled
+     */
+    public synchronized void enableMetrics() {
+        if (config.getMetrics() == null) {
+            LogMetrics metrics = new LogMetrics();
+            registerMetrics(metrics);
+            update(current -> current.withMetrics(metrics));
+        }
+    }
+
+    /**
+     * Stops counting and unregisters the MBean
+     */
+    public synchronized void disableMetrics() {
+        if (config.getMetrics() != null) {
+            update(current -> current.withMetrics(null));
+            unregisterMetrics();
+        }
+    }
+
+    /**
+     * Invalid keys and toLog() results are reported as errors on the logger they were passed to, but every distinct
+     * problem (type, source class and key) at most once per interval, with the number of occurrences since
+     * the previous report. Also forgets all problems seen so far
+     *
+     * @param interval Minimum time between two reports of the same problem (1 minute by default)
+     * @param unit Interval time unit
+     */
+    public void setDiagnosticsInterval(long interval, TimeUnit unit) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("Diagnostics interval cannot be negative");
+        }
+        Diagnostics diagnostics = new Diagnostics(unit.toNanos(interval));
+        update(current -> current.withDiagnostics(diagnostics));
+    }
+
+    /**
+     * Forgets all problems seen so far, the next occurrence of each is reported right away
+     */
+    public void clearDiagnostics() {
+        update(current -> current.withDiagnostics(new Diagnostics(current.getDiagnostics().getIntervalNanos())));
+    }
+
+    /**
+     * Every distinct problem seen so far with the number of occurrences, e.g. for a health check
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return config.getDiagnostics().getProblems();
+    }
+
+    /**
+     * Reports a failed write (or other action) of a byte sink, which has no logger of its own to report to.
+     * Counted as a SINK_ERROR problem (the action being the key) and as an unexpected error in the metrics,
+     * and reported via SLF4J on the logger of the sink class at most once per diagnostics interval
+     *
+     * @param sink Class of the sink
+     * @param action What failed, e.g. "write"
+     * @param error Cause of the failure
+     */
+    public void reportSinkError(Class<?> sink, String action, Exception error) {
+        LoggerConfig current = config;
+        LogMetrics metrics = current.getMetrics();
+        if (metrics != null) {
+            metrics.unexpectedError();
+        }
+        long occurrences = current.getDiagnostics().occurred(DiagnosticType.SINK_ERROR, sink, action);
+        if (occurrences > 0) {
+            String message = "Byte sink failed to " + action + ": " + error;
+            LoggerFactory.getLogger(sink).error(occurrences > 1 ? message + " (" + occurrences + " times since the last report)" : message, error);
+        }
+    }
+
+    /**
+     * Returns the metrics, null if not enabled
+     */
+    public ILogMetrics getMetrics() {
+        return config.getMetrics();
+    }
+
+    private void registerMetrics(LogMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(METRICS_NAME);
+            if (server.isRegistered(name)) {
+                // e.g. left behind by another class loader of the same application
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(metrics, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to register the metrics MBean " + METRICS_NAME, e);
+        }
+    }
+
+    private void unregisterMetrics() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(METRICS_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to unregister the metrics MBean " + METRICS_NAME, e);
+        }
     }
 
     /**
@@ -41,7 +310,36 @@ public class StructLog4J {
      * @param mandatoryContextSupplier Lambda that will executed on every log entry.
      */
     public void setMandatoryContextSupplier(IToLog mandatoryContextSupplier) {
-        StructLog4J.mandatoryContextSupplier = Optional.of(mandatoryContextSupplier);
+        MandatoryContext context = new MandatoryContext(mandatoryContextSupplier, 0);
+        update(current -> current.withMandatoryContextSupplier(Optional.of(context)));
+    }
+
+    /**
+     * Same as above, but the lambda is executed only once per refresh interval instead of on every log entry.
+     * In between its key/value pairs are added pre-formatted to every log entry
+     *
+     * @param mandatoryContextSupplier Lambda that will executed once per refresh interval
+     * @param refreshInterval How often to execute the lambda
+     * @param unit Refresh interval time unit
+     */
+    public void setMandatoryContextSupplier(IToLog mandatoryContextSupplier, long refreshInterval, TimeUnit unit) {
+        if (refreshInterval <= 0) {
+            throw new IllegalArgumentException("Refresh interval must be greater than 0");
+        }
+        MandatoryContext context = new MandatoryContext(mandatoryContextSupplier, unit.toNanos(refreshInterval));
+        update(current -> current.withMandatoryContextSupplier(Optional.of(context)));
+    }
+
+    /**
+     * Allows to specify mandatory key/value pairs that never change (e.g. hostname, service name, version).
+     * They are formatted only once and then added as is to every log entry, before the ones from
+     * the mandatory context supplier (if any)
+     *
+     * @param staticMandatoryContext Key/value pairs, toLog() is called only once (or again if the formatter changes)
+     */
+    public void setStaticMandatoryContext(IToLog staticMandatoryContext) {
+        MandatoryContext context = new MandatoryContext(staticMandatoryContext, MandatoryContext.NEVER);
+        update(current -> current.withStaticMandatoryContext(Optional.of(context)));
     }
 
     /**
@@ -52,7 +350,7 @@ public class StructLog4J {
      */
     public void setValueFormatter(Function<Object,String> formatter) {
         if (formatter != null) {
-            valueFormatter = formatter;
+            update(current -> current.withValueFormatter(formatter));
         } else {
             throw new RuntimeException("Value formatter cannot be null");
         }
@@ -62,28 +360,115 @@ public class StructLog4J {
      * Gets current log formatter
      */
     public IFormatter getFormatter() {
-        return formatter;
+        return config.getFormatter();
     }
 
     /**
      * Gets optional mandatory context supplier
      */
     public Optional<IToLog> getMandatoryContextSupplier() {
-        return mandatoryContextSupplier;
+        return config.getMandatoryContextSupplier().map(MandatoryContext::getContext);
+    }
+
+    /**
+     * Gets optional static mandatory context
+     */
+    public Optional<IToLog> getStaticMandatoryContext() {
+        return config.getStaticMandatoryContext().map(MandatoryContext::getContext);
     }
 
     /**
      * Clears the mandatory context supplier (usually for testing purposes only)
      */
     public void clearMandatoryContextSupplier() {
-        mandatoryContextSupplier = Optional.empty();
+        update(current -> current.withMandatoryContextSupplier(Optional.empty()));
+    }
+
+    /**
+     * Clears both the static mandatory context and the mandatory context supplier (usually for testing purposes only)
+     */
+    public void clearMandatoryContext() {
+        update(current -> current.withStaticMandatoryContext(Optional.empty()).withMandatoryContextSupplier(Optional.empty()));
+    }
+
+    /**
+     * Switches to asynchronous logging: log entries are captured on the calling thread and then formatted
+     * and passed on to SLF4J by background threads. Should be only done once during application startup
+     *
+     * @param config Ring buffer size, number of background threads, wait strategy and what to do when the buffer is full
+     */
+    public synchronized void enableAsync(AsyncConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("Async config cannot be null");
+        }
+        AsyncLogProcessor processor = new AsyncLogProcessor(config);
+        disableAsync();
+
+        update(current -> current.withAsyncProcessor(processor));
+        if (config.isFlushOnShutdown()) {
+            asyncShutdownHook = new Thread(processor::shutdown, "structlog4j-async-shutdown");
+            Runtime.getRuntime().addShutdownHook(asyncShutdownHook);
+        }
+    }
+
+    /**
+     * Switches back to synchronous logging, after all the pending log entries are flushed
+     */
+    public synchronized void disableAsync() {
+        AsyncLogProcessor processor = config.getAsyncProcessor();
+        if (processor != null) {
+            update(current -> current.withAsyncProcessor(null));
+            processor.shutdown();
+        }
+        if (asyncShutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(asyncShutdownHook);
+            } catch (IllegalStateException e) {
+                // already shutting down
+            }
+            asyncShutdownHook = null;
+        }
+    }
+
+    /**
+     * Returns true if asynchronous logging is enabled
+     */
+    public boolean isAsync() {
+        return config.getAsyncProcessor() != null;
+    }
+
+    /**
+     * Approximate number of log entries waiting to be logged, 0 if not async
+     */
+    public long getAsyncQueueDepth() {
+        AsyncLogProcessor processor = config.getAsyncProcessor();
+        return processor != null ? processor.getQueueDepth() : 0;
+    }
+
+    /**
+     * Number of log entries dropped because the ring buffer was full, 0 if not async
+     */
+    public long getAsyncDroppedCount() {
+        AsyncLogProcessor processor = config.getAsyncProcessor();
+        return processor != null ? processor.getDroppedCount() : 0;
+    }
+
+    // internal, used by SLogger
+    LoggerConfig getConfig() {
+        return config;
+    }
+
+    // copy on write, every change gets a new version so that the loggers resolve their settings again
+    private synchronized void update(UnaryOperator<LoggerConfig> change) {
+        LoggerConfig current = config;
+        config = change.apply(current).withVersion(current.getVersion() + 1);
     }
 
     /**
      * Returns the value formatter
      */
     public Function<Object,String> getValueFormatter() {
-        return valueFormatter;
+        return config.getValueFormatter();
     }
 
     /**
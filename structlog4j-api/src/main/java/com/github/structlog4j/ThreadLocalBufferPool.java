@@ -0,0 +1,74 @@
+package com.github.structlog4j;
+
+/**
+ * Buffer pool keeping one buffer of each type per thread. Fastest option when logging from a fixed number
+ * of platform threads, but with lots of short-lived (e.g. virtual) threads use the StripedBufferPool instead.
+ * If the thread's buffer is already in use (e.g. logging from within a toString()) a new one is created.
+ * Buffers that grew beyond the maximum size are trimmed back when released
+ */
+public class ThreadLocalBufferPool implements IBufferPool {
+
+    private final int initialCapacity;
+    private final int maxCapacity;
+
+    // null while the thread's buffer is in use
+    private final ThreadLocal<StringBuilder[]> chars = ThreadLocal.withInitial(() -> new StringBuilder[1]);
+    private final ThreadLocal<Utf8Buffer[]> bytes = ThreadLocal.withInitial(() -> new Utf8Buffer[1]);
+
+    public ThreadLocalBufferPool() {
+        this(StripedBufferPool.DEFAULT_INITIAL_CAPACITY, StripedBufferPool.DEFAULT_MAX_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity Initial capacity of new buffers, in chars or bytes
+     * @param maxCapacity Buffers that grew beyond this are trimmed back to the initial capacity when released
+     */
+    public ThreadLocalBufferPool(int initialCapacity, int maxCapacity) {
+        if (initialCapacity < 0 || maxCapacity < initialCapacity) {
+            throw new IllegalArgumentException("Invalid buffer pool settings: initialCapacity=" + initialCapacity + ", maxCapacity=" + maxCapacity);
+        }
+        this.initialCapacity = initialCapacity;
+        this.maxCapacity = maxCapacity;
+    }
+
+    @Override
+    public StringBuilder acquireChars() {
+        StringBuilder[] slot = chars.get();
+        StringBuilder bld = slot[0];
+        if (bld == null) {
+            return new StringBuilder(initialCapacity);
+        }
+        slot[0] = null;
+        return bld;
+    }
+
+    @Override
+    public void release(StringBuilder bld) {
+        bld.setLength(0);
+        if (bld.capacity() > maxCapacity) {
+            bld.trimToSize();
+            bld.ensureCapacity(initialCapacity);
+        }
+        chars.get()[0] = bld;
+    }
+
+    @Override
+    public Utf8Buffer acquireBytes() {
+        Utf8Buffer[] slot = bytes.get();
+        Utf8Buffer buffer = slot[0];
+        if (buffer == null) {
+            return new Utf8Buffer(initialCapacity);
+        }
+        slot[0] = null;
+        return buffer;
+    }
+
+    @Override
+    public void release(Utf8Buffer buffer) {
+        buffer.reset();
+        if (buffer.capacity() > maxCapacity) {
+            buffer.trim(initialCapacity);
+        }
+        bytes.get()[0] = buffer;
+    }
+}
@@ -0,0 +1,218 @@
+package com.github.structlog4j;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable growable byte buffer that encodes text straight to UTF-8, used by the byte formatters.
+ * Numbers and booleans are written without creating any intermediate Strings
+ */
+public final class Utf8Buffer {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private static final byte[] TRUE = {'t','r','u','e'};
+    private static final byte[] FALSE = {'f','a','l','s','e'};
+    private static final byte[] MIN_LONG = "-9223372036854775808".getBytes(StandardCharsets.US_ASCII);
+
+    // doubles in this range are whole numbers that Double.toString() writes as "123.0"
+    private static final double MAX_PLAIN_DOUBLE = 1e7;
+
+    private byte[] bytes;
+    private int length = 0;
+
+    // view over the bytes handed out to sinks, re-created only when the array grows
+    private ByteBuffer view;
+
+    public Utf8Buffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public Utf8Buffer(int capacity) {
+        bytes = new byte[Math.max(16, capacity)];
+        view = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Empties the buffer, keeping the allocated capacity
+     */
+    public Utf8Buffer reset() {
+        length = 0;
+        return this;
+    }
+
+    /**
+     * Empties the buffer and shrinks it back to the capacity, if it grew beyond it
+     */
+    public Utf8Buffer trim(int capacity) {
+        length = 0;
+        if (bytes.length > capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+            view = ByteBuffer.wrap(bytes);
+        }
+        return this;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int capacity() {
+        return bytes.length;
+    }
+
+    /**
+     * Underlying array, valid from 0 to length()
+     */
+    public byte[] array() {
+        return bytes;
+    }
+
+    public Utf8Buffer write(byte b) {
+        ensure(1);
+        bytes[length++] = b;
+        return this;
+    }
+
+    public Utf8Buffer write(byte[] b) {
+        return write(b, 0, b.length);
+    }
+
+    public Utf8Buffer write(byte[] b, int offset, int len) {
+        ensure(len);
+        System.arraycopy(b, offset, bytes, length, len);
+        length += len;
+        return this;
+    }
+
+    /**
+     * Inserts a single byte at the offset, shifting everything after it
+     */
+    public Utf8Buffer insert(int offset, byte b) {
+        ensure(1);
+        System.arraycopy(bytes, offset, bytes, offset + 1, length - offset);
+        bytes[offset] = b;
+        length++;
+        return this;
+    }
+
+    /**
+     * Appends a single ASCII character, no encoding needed
+     */
+    public Utf8Buffer writeAscii(char c) {
+        ensure(1);
+        bytes[length++] = (byte) c;
+        return this;
+    }
+
+    public Utf8Buffer write(CharSequence s) {
+        return write(s, 0, s.length());
+    }
+
+    /**
+     * Encodes the characters from start (inclusive) to end (exclusive) as UTF-8
+     */
+    public Utf8Buffer write(CharSequence s, int start, int end) {
+        // worst case 3 bytes per char, surrogate pairs take 4 bytes for 2 chars
+        ensure((end - start) * 3);
+        byte[] b = bytes;
+        int pos = length;
+        for(int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                b[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xC0 | (c >> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                b[pos++] = (byte) (0xF0 | (cp >> 18));
+                b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, same replacement as String.getBytes()
+                b[pos++] = '?';
+            } else {
+                b[pos++] = (byte) (0xE0 | (c >> 12));
+                b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        length = pos;
+        return this;
+    }
+
+    /**
+     * Same output as Long.toString(), without creating the String
+     */
+    public Utf8Buffer write(long value) {
+        if (value == Long.MIN_VALUE) {
+            return write(MIN_LONG);
+        }
+        ensure(20);
+        if (value < 0) {
+            bytes[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for(long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int pos = length + digits;
+        length = pos;
+        do {
+            bytes[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        return this;
+    }
+
+    /**
+     * Same output as Double.toString(). Whole numbers are written directly,
+     * anything else still goes through Double.toString()
+     */
+    public Utf8Buffer write(double value) {
+        if (value == (long) value && Math.abs(value) < MAX_PLAIN_DOUBLE && (value != 0 || 1 / value > 0)) {
+            return write((long) value).writeAscii('.').writeAscii('0');
+        }
+        return write(Double.toString(value));
+    }
+
+    public Utf8Buffer write(boolean value) {
+        return write(value ? TRUE : FALSE);
+    }
+
+    /**
+     * Copy of the content
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Content as a ByteBuffer positioned at 0 with the limit at length(). It shares the array with this buffer,
+     * so it is only valid until the buffer is modified again
+     */
+    public ByteBuffer toByteBuffer() {
+        view.clear();
+        view.limit(length);
+        return view;
+    }
+
+    /**
+     * Decodes the content back into a String
+     */
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            view = ByteBuffer.wrap(bytes);
+        }
+    }
+}
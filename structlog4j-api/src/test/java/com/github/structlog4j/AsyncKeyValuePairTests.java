@@ -0,0 +1,237 @@
+package com.github.structlog4j;
+
+import static org.junit.Assert.*;
+import static com.github.structlog4j.test.TestUtils.*;
+
+import com.github.structlog4j.test.samples.TestSecurityContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+import org.slf4j.impl.LogEntry;
+import org.slf4j.impl.TestLogger;
+
+import java.util.LinkedList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for async logging
+ */
+public class AsyncKeyValuePairTests {
+
+    private SLogger log;
+    private LinkedList<LogEntry> entries;
+
+    private static final StructKey COUNT = StructKey.of("count");
+
+    @Before
+    public void setup() {
+        initForTesting();
+
+        log = (SLogger) SLoggerFactory.getLogger(AsyncKeyValuePairTests.class);
+        entries = ((TestLogger)log.getSlfjLogger()).getEntries();
+        // loggers are cached, start from scratch
+        entries.clear();
+    }
+
+    @After
+    public void tearDown() {
+        StructLog4J.disableAsync();
+    }
+
+    @Test
+    public void asyncTest() {
+        StructLog4J.enableAsync(AsyncConfig.DEFAULT);
+        assertTrue(StructLog4J.isAsync());
+
+        log.error("This is an error","user","John Doe","tenant","System");
+        log.info("This is an info","count",5L,"success",true);
+        log.atWarn("This is a warning").kv(COUNT, 1.5).kv("user","Jacek").log();
+        log.debug("This is a debug",new TestSecurityContext("Test User","TEST_TENANT"));
+
+        // flushes all pending entries
+        StructLog4J.disableAsync();
+        assertFalse(StructLog4J.isAsync());
+
+        assertEquals(entries.toString(),4,entries.size());
+        assertMessage(entries,0,Level.ERROR,"This is an error user=\"John Doe\" tenant=System",false);
+        assertMessage(entries,1,Level.INFO,"This is an info count=5 success=true",false);
+        assertMessage(entries,2,Level.WARN,"This is a warning count=1.5 user=Jacek",false);
+        assertMessage(entries,3,Level.DEBUG,"This is a debug userName=\"Test User\" tenantId=TEST_TENANT",false);
+    }
+
+    @Test
+    public void asyncExceptionTest() {
+        StructLog4J.enableAsync(AsyncConfig.DEFAULT);
+
+        log.error("This is an error",new RuntimeException("Major exception"),"user","Jacek");
+        StructLog4J.disableAsync();
+
+        assertEquals(entries.toString(),1,entries.size());
+        assertMessage(entries,0,Level.ERROR,"This is an error errorMessage=\"Major exception\" user=Jacek",true);
+    }
+
+    @Test
+    public void asyncAggregationTest() {
+        StructLog4J.enableAsync(AsyncConfig.DEFAULT);
+        StructLog4J.enableAggregation(AggregationConfig.DEFAULT.withWindowMillis(60000));
+
+        for(int i = 0; i < 3; i++) {
+            log.info("Polling","queue","orders",COUNT,0L);
+        }
+        // aggregated on the background thread
+        StructLog4J.disableAsync();
+        StructLog4J.disableAggregation();
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.INFO,"Polling queue=orders count=0",false);
+        assertTrue(entries.toString(),entries.get(1).getMessage().startsWith("Polling queue=orders count=0 repeatCount=2 "));
+    }
+
+    @Test
+    public void asyncValueSnapshotTest() {
+        StructLog4J.enableAsync(AsyncConfig.DEFAULT.withThreads(2).withWaitStrategy(AsyncConfig.WaitStrategy.SLEEPING));
+
+        // value changes right after the call, the log entry should still have the original one
+        StringBuilder value = new StringBuilder("Before");
+        log.info("This is an info","value",value);
+        value.setLength(0);
+        value.append("After");
+
+        StructLog4J.disableAsync();
+
+        assertEquals(entries.toString(),1,entries.size());
+        assertMessage(entries,0,Level.INFO,"This is an info value=Before",false);
+    }
+
+    @Test
+    public void asyncValueFormatterTest() {
+        StructLog4J.setValueFormatter(value -> "formatted");
+
+        log.info("This is an info","value",new StringBuilder("Before"),"count",5);
+        StructLog4J.enableAsync(AsyncConfig.DEFAULT);
+        log.info("This is an info","value",new StringBuilder("Before"),"count",5);
+        StructLog4J.disableAsync();
+
+        // async writes exactly what sync does
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.INFO,"This is an info value=Before count=5",false);
+        assertMessage(entries,1,Level.INFO,entries.get(0).getMessage(),false);
+    }
+
+    @Test
+    public void asyncMandatoryContextTest() {
+        AtomicInteger dynamicCalls = new AtomicInteger();
+        StructLog4J.setStaticMandatoryContext(() -> new Object[]{"hostname","Titanic"});
+        StructLog4J.setMandatoryContextSupplier(() -> new Object[]{"requestCount",dynamicCalls.incrementAndGet()});
+        StructLog4J.enableAsync(AsyncConfig.DEFAULT);
+
+        log.error("First","key1",1L);
+        log.error("Second");
+
+        StructLog4J.disableAsync();
+
+        // per-entry supplier executed on the calling thread, the static context added by the background thread
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.ERROR,"First key1=1 hostname=Titanic requestCount=1",false);
+        assertMessage(entries,1,Level.ERROR,"Second hostname=Titanic requestCount=2",false);
+    }
+
+    @Test
+    public void asyncManyThreadsTest() throws InterruptedException {
+        StructLog4J.enableAsync(AsyncConfig.DEFAULT.withCapacity(16).withWaitStrategy(AsyncConfig.WaitStrategy.YIELDING));
+
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for(int i = 0; i < 250; i++) {
+                    log.info("Message",COUNT,i);
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        StructLog4J.disableAsync();
+
+        // small buffer with the default BLOCK policy, nothing should get lost
+        assertEquals(1000,entries.size());
+        assertEquals(0,StructLog4J.getAsyncQueueDepth());
+    }
+
+    @Test
+    public void asyncDropTest() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StructLog4J.setFormatter(new BlockingFormatter(started, release));
+        StructLog4J.enableAsync(AsyncConfig.DEFAULT.withCapacity(2).withOverflowPolicy(AsyncConfig.OverflowPolicy.DROP));
+
+        // background thread gets stuck on the first one
+        log.info("Message 1");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // the entry being formatted still occupies its slot, so only one more fits, the rest gets dropped
+        for(int i = 2; i <= 6; i++) {
+            log.info("Message " + i);
+        }
+        assertEquals(1,StructLog4J.getAsyncQueueDepth());
+        assertEquals(4,StructLog4J.getAsyncDroppedCount());
+
+        release.countDown();
+        StructLog4J.disableAsync();
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.INFO,"Message 1",false);
+        assertMessage(entries,1,Level.INFO,"Message 2",false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void asyncInvalidConfigTest() {
+        StructLog4J.enableAsync(AsyncConfig.DEFAULT.withThreads(0));
+    }
+
+    // waits on the latch when formatting the first entry
+    private static class BlockingFormatter implements IFormatter<Object> {
+
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        private BlockingFormatter(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public Object start(Logger log) {
+            return new StringBuilder();
+        }
+
+        @Override
+        public IFormatter<Object> addMessage(Logger log, Object bld, String message) {
+            ((StringBuilder) bld).append(message);
+            return this;
+        }
+
+        @Override
+        public IFormatter<Object> addKeyValue(Logger log, Object bld, String key, Object value) {
+            ((StringBuilder) bld).append(' ').append(key).append('=').append(value);
+            return this;
+        }
+
+        @Override
+        public String end(Logger log, Object bld) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return bld.toString();
+        }
+    }
+}
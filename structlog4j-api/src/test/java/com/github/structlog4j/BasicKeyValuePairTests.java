@@ -2,7 +2,9 @@ package com.github.structlog4j;
 
 import static org.junit.Assert.*;
 import static com.github.structlog4j.test.TestUtils.*;
+import static com.github.structlog4j.test.PerformanceHarness.*;
 
+import com.github.structlog4j.test.TestByteSink;
 import com.github.structlog4j.test.samples.BusinessObjectContext;
 import com.github.structlog4j.test.samples.TestSecurityContext;
 import org.junit.Before;
@@ -11,7 +13,16 @@ import org.slf4j.event.Level;
 import org.slf4j.impl.LogEntry;
 import org.slf4j.impl.TestLogger;
 
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 /**
  * Tests for core functionality
@@ -24,12 +35,17 @@ public class BasicKeyValuePairTests {
 
     private TestSecurityContext iToLog = new TestSecurityContext("Test User","TEST_TENANT");
 
+    private static final StructKey USER = StructKey.of("user");
+    private static final StructKey COUNT = StructKey.of("count");
+
     @Before
     public void setup() {
         initForTesting();
 
         log = (SLogger) SLoggerFactory.getLogger(BasicKeyValuePairTests.class);
         entries = ((TestLogger)log.getSlfjLogger()).getEntries();
+        // loggers are cached, start from scratch
+        entries.clear();
     }
 
     @Test
@@ -132,6 +148,60 @@ public class BasicKeyValuePairTests {
     }
 
 
+    @Test
+    public void exceptionCauseCycleTest() {
+        RuntimeException first = new RuntimeException("First");
+        RuntimeException second = new RuntimeException("Second", first);
+        // cause cycle, the JDK only prevents an exception from being its own cause
+        first.initCause(new RuntimeException("Third", second));
+
+        log.error("This is an error",first);
+
+        assertEquals(entries.toString(),1,entries.size());
+        assertEquals(entries.toString(),Level.ERROR,entries.get(0).getLevel());
+        assertTrue(entries.toString(),entries.get(0).getMessage().startsWith("This is an error errorMessage="));
+    }
+
+    @Test
+    public void exceptionSuppressionTest() {
+        StructLog4J.enableExceptionSuppression(ExceptionSuppressionConfig.DEFAULT);
+
+        for(int i = 0; i < 3; i++) {
+            log.error("This is an error",new RuntimeException("Major exception",new IllegalStateException("Root cause " + i)));
+        }
+        log.atError("This is an error").cause(new IllegalStateException("Root cause")).log();
+        // different place, different fingerprint
+        log.error("This is an error",new IllegalStateException("Root cause"));
+
+        assertEquals(entries.toString(),5,entries.size());
+        String fingerprint = entries.get(0).getMessage().replaceAll(".* errorFingerprint=", "");
+        assertMessage(entries,0,Level.ERROR,"This is an error errorMessage=\"Root cause 0\" errorFingerprint=" + fingerprint,true);
+        assertMessage(entries,1,Level.ERROR,"This is an error errorMessage=\"Root cause 1\" errorFingerprint=" + fingerprint + " errorSuppressed=1",false);
+        assertMessage(entries,2,Level.ERROR,"This is an error errorMessage=\"Root cause 2\" errorFingerprint=" + fingerprint + " errorSuppressed=2",false);
+        assertTrue(entries.toString(),entries.get(3).getError().isPresent());
+        assertFalse(entries.toString(),entries.get(3).getMessage().contains(fingerprint));
+        assertTrue(entries.toString(),entries.get(4).getError().isPresent());
+    }
+
+    @Test
+    public void exceptionSuppressionWindowTest() throws InterruptedException {
+        StructLog4J.enableExceptionSuppression(ExceptionSuppressionConfig.DEFAULT.withWindowMillis(50));
+
+        for(int i = 0; i < 3; i++) {
+            if (i == 2) {
+                Thread.sleep(100);
+            }
+            log.error("This is an error",new RuntimeException("Major exception"));
+        }
+
+        assertEquals(entries.toString(),3,entries.size());
+        assertTrue(entries.toString(),entries.get(0).getError().isPresent());
+        assertFalse(entries.toString(),entries.get(1).getError().isPresent());
+        // window expired, logged in full again
+        assertTrue(entries.toString(),entries.get(2).getError().isPresent());
+        assertFalse(entries.toString(),entries.get(2).getMessage().contains("errorSuppressed"));
+    }
+
     @Test
     public void exceptionWithKeyValueTest() {
 
@@ -235,4 +305,842 @@ public class BasicKeyValuePairTests {
                 entries.get(2).getMessage());
     }
 
+    @Test
+    public void primitiveKeyValueTest() {
+        log.error("This is an error","count",23L);
+        log.error("This is an error","ratio",0.5);
+        log.error("This is an error","success",true);
+        log.error("This is an error","count",23,"ratio",0.5);
+        log.error("This is an error","user","John Doe","success",false);
+
+        assertEquals(entries.toString(),5,entries.size());
+        assertMessage(entries,0,Level.ERROR,"This is an error count=23",false);
+        assertMessage(entries,1,Level.ERROR,"This is an error ratio=0.5",false);
+        assertMessage(entries,2,Level.ERROR,"This is an error success=true",false);
+        assertMessage(entries,3,Level.ERROR,"This is an error count=23 ratio=0.5",false);
+        assertMessage(entries,4,Level.ERROR,"This is an error user=\"John Doe\" success=false",false);
+    }
+
+    @Test
+    public void charAndFloatKeyValueTest() {
+        // must not widen to long/double
+        log.error("This is an error","grade",'A');
+        log.error("This is an error","ratio",0.1f);
+        log.error("This is an error","grade",'A',"ratio",0.1f);
+        log.atError("This is an error").kv("grade",'A').kv(StructKey.of("ratio"),0.1f).log();
+
+        assertEquals(entries.toString(),4,entries.size());
+        assertMessage(entries,0,Level.ERROR,"This is an error grade=A",false);
+        assertMessage(entries,1,Level.ERROR,"This is an error ratio=0.1",false);
+        assertMessage(entries,2,Level.ERROR,"This is an error grade=A ratio=0.1",false);
+        assertMessage(entries,3,Level.ERROR,"This is an error grade=A ratio=0.1",false);
+    }
+
+    @Test
+    public void fixedArityKeyValuePairsTest() {
+        log.info("This is an info","key1",1L,"key2","Value 2","key3",true);
+        log.info("This is an info","key1",1L,"key2","Value 2","key3",true,"key4",2.5);
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.INFO,"This is an info key1=1 key2=\"Value 2\" key3=true",false);
+        assertMessage(entries,1,Level.INFO,"This is an info key1=1 key2=\"Value 2\" key3=true key4=2.5",false);
+    }
+
+    @Test
+    public void fixedArityWithMandatoryContextTest() {
+        StructLog4J.setMandatoryContextSupplier(() -> new Object[]{"hostname","Titanic","serviceName","MyService"});
+
+        log.warn("This is a warning","count",23L);
+        log.debug("This is a debug","count",23L,"user","John");
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.WARN,"This is a warning count=23 hostname=Titanic serviceName=MyService",false);
+        assertMessage(entries,1,Level.DEBUG,"This is a debug count=23 user=John hostname=Titanic serviceName=MyService",false);
+    }
+
+    @Test
+    public void fluentTest() {
+        Throwable rootCause = new RuntimeException("This is the root cause of the error");
+        Throwable t = new RuntimeException("Major exception",rootCause);
+
+        log.atInfo("This is an info").kv("count",23).kv("ratio",0.5).kv("success",true).kv("user","John Doe").log();
+        log.atError("This is an error").kv("key1",1L).cause(t).kv("key2","Value 2").log();
+        log.atTrace("This is a trace").log();
+
+        assertEquals(entries.toString(),3,entries.size());
+        assertMessage(entries,0,Level.INFO,"This is an info count=23 ratio=0.5 success=true user=\"John Doe\"",false);
+        assertMessage(entries,1,Level.ERROR,"This is an error key1=1 errorMessage=\"This is the root cause of the error\" key2=\"Value 2\"",true);
+        assertMessage(entries,2,Level.TRACE,"This is a trace",false);
+    }
+
+    @Test
+    public void fluentWithMandatoryContextTest() {
+        StructLog4J.setMandatoryContextSupplier(() -> new Object[]{"hostname","Titanic","serviceName","MyService"});
+
+        log.atWarn("This is a warning").kv("count",23L).log();
+
+        assertEquals(entries.toString(),1,entries.size());
+        assertMessage(entries,0,Level.WARN,"This is a warning count=23 hostname=Titanic serviceName=MyService",false);
+    }
+
+    @Test
+    public void fluentNestedTest() {
+        // logging from within a toString() while another entry is being built on the same thread
+        Object nested = new Object() {
+            @Override
+            public String toString() {
+                log.atDebug("Nested").kv("key1",1L).log();
+                return "nested";
+            }
+        };
+
+        ILogEvent event = log.atInfo("Outer").kv("key1","Value1");
+        event.kv("nested",nested).kv("key2",2L).log();
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.DEBUG,"Nested key1=1",false);
+        // the nested entry got its own buffer from the pool
+        assertMessage(entries,1,Level.INFO,"Outer key1=Value1 nested=nested key2=2",false);
+    }
+
+    @Test
+    public void structKeyTest() {
+        StructLog4J.setMandatoryContextSupplier(() -> new Object[]{StructKey.of("hostname"),"Titanic"});
+
+        log.error("This is an error",USER,"John Doe",COUNT,23L,"key1",1L);
+        log.error("This is an error",(IToLog) () -> new Object[]{USER,"John Doe",COUNT,23L});
+        log.atInfo("This is an info").kv(USER,"John Doe").kv(COUNT,23L).kv(StructKey.of("success"),true).log();
+        // same key used again, encoded version comes from the cache
+        log.atInfo("This is an info").kv(USER,"Jane").kv(COUNT,24).log();
+
+        assertEquals(entries.toString(),4,entries.size());
+        assertMessage(entries,0,Level.ERROR,"This is an error user=\"John Doe\" count=23 key1=1 hostname=Titanic",false);
+        assertMessage(entries,1,Level.ERROR,"This is an error user=\"John Doe\" count=23 hostname=Titanic",false);
+        assertMessage(entries,2,Level.INFO,"This is an info user=\"John Doe\" count=23 success=true hostname=Titanic",false);
+        assertMessage(entries,3,Level.INFO,"This is an info user=Jane count=24 hostname=Titanic",false);
+    }
+
+    @Test
+    public void structKeyFixedArityTest() {
+        log.info("This is an info",COUNT,23L);
+        log.info("This is an info",COUNT,'A');
+        log.info("This is an info",USER,"John Doe",COUNT,23L);
+        log.info("This is an info",USER,"John Doe",COUNT,23L,StructKey.of("success"),true,StructKey.of("ratio"),0.5);
+
+        assertEquals(entries.toString(),4,entries.size());
+        assertMessage(entries,0,Level.INFO,"This is an info count=23",false);
+        assertMessage(entries,1,Level.INFO,"This is an info count=A",false);
+        assertMessage(entries,2,Level.INFO,"This is an info user=\"John Doe\" count=23",false);
+        assertMessage(entries,3,Level.INFO,"This is an info user=\"John Doe\" count=23 success=true ratio=0.5",false);
+    }
+
+    @Test
+    public void iToLogStreamingTest() {
+        StructLog4J.setMandatoryContextSupplier((IToLogStreaming) sink -> sink.kv("hostname","Titanic").kv(StructKey.of("pid"),1234L));
+
+        IToLogStreaming stats = sink -> sink.kv("count",23L).kv("ratio",0.5).kv("success",true).kv(USER,"John Doe");
+        log.info("This is an info",stats,"key1",1L);
+
+        assertEquals(entries.toString(),1,entries.size());
+        assertMessage(entries,0,Level.INFO,"This is an info count=23 ratio=0.5 success=true user=\"John Doe\" key1=1 hostname=Titanic pid=1234",false);
+    }
+
+    @Test
+    public void iToLogStreamingAsArrayTest() {
+        // still usable wherever a plain IToLog is expected
+        assertArrayEquals(new Object[]{"userName","Test User","tenantId","TEST_TENANT"},iToLog.toLog());
+    }
+
+    @Test
+    public void staticMandatoryContextTest() {
+        AtomicInteger staticCalls = new AtomicInteger();
+        AtomicInteger dynamicCalls = new AtomicInteger();
+
+        StructLog4J.setStaticMandatoryContext(() -> {
+            staticCalls.incrementAndGet();
+            return new Object[]{"hostname","Titanic","serviceName","My Service"};
+        });
+        StructLog4J.setMandatoryContextSupplier(() -> new Object[]{"requestCount",dynamicCalls.incrementAndGet()});
+
+        log.error("This is an error","key1",1L);
+        log.info("This is an info",iToLog);
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.ERROR,"This is an error key1=1 hostname=Titanic serviceName=\"My Service\" requestCount=1",false);
+        assertMessage(entries,1,Level.INFO,"This is an info userName=\"Test User\" tenantId=TEST_TENANT hostname=Titanic serviceName=\"My Service\" requestCount=2",false);
+
+        // static part rendered only once, dynamic one on every entry
+        assertEquals(1,staticCalls.get());
+        assertEquals(2,dynamicCalls.get());
+    }
+
+    @Test
+    public void refreshedMandatoryContextTest() {
+        AtomicInteger dynamicCalls = new AtomicInteger();
+        StructLog4J.setMandatoryContextSupplier(() -> new Object[]{"refreshCount",dynamicCalls.incrementAndGet()}, 1, TimeUnit.HOURS);
+
+        log.error("First");
+        log.error("Second");
+        log.error("Third");
+
+        assertEquals(entries.toString(),3,entries.size());
+        assertMessage(entries,0,Level.ERROR,"First refreshCount=1",false);
+        assertMessage(entries,1,Level.ERROR,"Second refreshCount=1",false);
+        assertMessage(entries,2,Level.ERROR,"Third refreshCount=1",false);
+        assertEquals(1,dynamicCalls.get());
+    }
+
+    @Test
+    public void refreshedMandatoryContextExpiredTest() {
+        AtomicInteger dynamicCalls = new AtomicInteger();
+        StructLog4J.setMandatoryContextSupplier(() -> new Object[]{"refreshCount",dynamicCalls.incrementAndGet()}, 1, TimeUnit.NANOSECONDS);
+
+        log.error("First");
+        log.error("Second");
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.ERROR,"First refreshCount=1",false);
+        assertMessage(entries,1,Level.ERROR,"Second refreshCount=2",false);
+    }
+
+    @Test
+    public void escapingTest() {
+        log.error("This is an error","tab","a\tb","newLine","line1\nline2","quotes","say \"hi\"","backslash","C:\\temp","control","x\u0001y");
+
+        assertEquals(entries.toString(),1,entries.size());
+        assertMessage(entries,0,Level.ERROR,"This is an error tab=\"a\\tb\" newLine=\"line1\\nline2\" quotes=\"say \\\"hi\\\"\" " +
+                "backslash=C:\\\\temp control=x\\u0001y",false);
+        // one line per log entry, no matter what
+        assertEquals(-1,entries.get(0).getMessage().indexOf('\n'));
+    }
+
+    @Test
+    public void typedValuesTest() {
+        StringBuilder text = new StringBuilder("Some text");
+        log.error("This is an error",new Object[]{"text",text,"int",5,"short",(short) 3,"float",1.1f,"double",2.5,"bool",false});
+
+        assertEquals(entries.toString(),1,entries.size());
+        assertMessage(entries,0,Level.ERROR,"This is an error text=\"Some text\" int=5 short=3 float=1.1 double=2.5 bool=false",false);
+    }
+
+    @Test
+    public void byteFormatterTest() {
+        StructLog4J.setStaticMandatoryContext(() -> new Object[]{"hostname","Titanic"});
+        logForByteFormatter();
+        LinkedList<LogEntry> expected = new LinkedList<>(entries);
+        entries.clear();
+
+        // same output, but straight to the sink
+        TestByteSink sink = new TestByteSink();
+        StructLog4J.setFormatter(KeyValuePairByteFormatter.getInstance());
+        StructLog4J.setByteSink(sink);
+        logForByteFormatter();
+
+        assertSameMessages(expected);
+        assertTrue(sink.getBytesWritten() > 0);
+
+        // still works via SLF4J without a sink
+        StructLog4J.clearByteSink();
+        entries.clear();
+        logForByteFormatter();
+        assertSameMessages(expected);
+    }
+
+    private void assertSameMessages(LinkedList<LogEntry> expected) {
+        assertEquals(entries.toString(),expected.size(),entries.size());
+        for(int i = 0; i < expected.size(); i++) {
+            assertMessage(entries,i,expected.get(i).getLevel(),expected.get(i).getMessage(),expected.get(i).getError().isPresent());
+        }
+    }
+
+    private void logForByteFormatter() {
+        log.error("This is an error","user","John \"Doe\"","count",-123456789L,"success",true);
+        log.info("Zażółć gęślą jaźń \uD83D\uDE00",iToLog,"ratio",1.5,"whole",2.0,"tiny",1e-9,"nothing",null);
+        log.atWarn("Fluent").kv(USER,"Jacek").kv(COUNT,Long.MIN_VALUE).kv("negativeZero",-0.0).cause(new RuntimeException("Major exception")).log();
+    }
+
+    @Test
+    public void loggerOverrideTest() {
+        StructLog4J.setStaticMandatoryContext(() -> new Object[]{"hostname","Titanic"});
+        SLogger other = (SLogger) SLoggerFactory.getLogger("com.githubber.Other");
+        LinkedList<LogEntry> otherEntries = ((TestLogger) other.getSlfjLogger()).getEntries();
+
+        // replaces the static mandatory context under the prefix only
+        StructLog4J.setLoggerOverride("com.github", LoggerOverride.NONE.withMandatoryContext(() -> new Object[]{"team","core"}));
+        log.info("Info");
+        other.info("Other");
+
+        // longer prefix wins, the mandatory context is still inherited
+        StructLog4J.setLoggerOverride("com.github.structlog4j.BasicKeyValuePairTests", LoggerOverride.NONE.withLevel(Level.WARN));
+        log.info("Not logged");
+        log.atInfo("Not logged").log();
+        assertFalse(log.isInfoEnabled());
+        log.warn("Warning");
+
+        StructLog4J.removeLoggerOverride("com.github.structlog4j.BasicKeyValuePairTests");
+        log.info("Info again");
+
+        assertEquals(entries.toString(),3,entries.size());
+        assertMessage(entries,0,Level.INFO,"Info team=core",false);
+        assertMessage(entries,1,Level.WARN,"Warning team=core",false);
+        assertMessage(entries,2,Level.INFO,"Info again team=core",false);
+        assertMessage(otherEntries,otherEntries.size() - 1,Level.INFO,"Other hostname=Titanic",false);
+    }
+
+    @Test
+    public void loggerOverridesReplacedTest() {
+        Map<String,LoggerOverride> overrides = new HashMap<>();
+        overrides.put("", LoggerOverride.NONE.withLevel(Level.ERROR));
+        overrides.put("com.github.structlog4j", LoggerOverride.NONE.withFormatter(KeyValuePairByteFormatter.getInstance()));
+        StructLog4J.setLoggerOverrides(overrides);
+
+        assertEquals(overrides, StructLog4J.getLoggerOverrides());
+        assertSame(KeyValuePairByteFormatter.getInstance(), log.settings().getFormatter());
+        // the global formatter can still be changed, but the override wins
+        StructLog4J.setFormatter(KeyValuePairFormatter.getInstance());
+        assertSame(KeyValuePairByteFormatter.getInstance(), log.settings().getFormatter());
+
+        log.warn("Not logged");
+        log.error("Error","key1",1L);
+
+        StructLog4J.clearLoggerOverrides();
+        assertTrue(StructLog4J.getLoggerOverrides().isEmpty());
+        assertSame(KeyValuePairFormatter.getInstance(), log.settings().getFormatter());
+        log.warn("Warning");
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.ERROR,"Error key1=1",false);
+        assertMessage(entries,1,Level.WARN,"Warning",false);
+    }
+
+    @Test
+    public void loggerOverrideByteSinkTest() {
+        TestByteSink sink = new TestByteSink();
+        SLogger other = (SLogger) SLoggerFactory.getLogger("com.githubber.Other");
+        LinkedList<LogEntry> otherEntries = ((TestLogger) other.getSlfjLogger()).getEntries();
+        otherEntries.clear();
+
+        // only the loggers under the prefix bypass SLF4J
+        StructLog4J.setFormatter(KeyValuePairByteFormatter.getInstance());
+        StructLog4J.setLoggerOverride("com.github", LoggerOverride.NONE.withByteSink(sink));
+        log.info("Info","key1",1L);
+        assertEquals(11,sink.getBytesWritten());
+        other.info("Other");
+        assertEquals(11,sink.getBytesWritten());
+
+        StructLog4J.clearLoggerOverrides();
+        log.info("Info again");
+        assertEquals(11,sink.getBytesWritten());
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.INFO,"Info key1=1",false);
+        assertMessage(entries,1,Level.INFO,"Info again",false);
+        assertMessage(otherEntries,0,Level.INFO,"Other",false);
+    }
+
+    @Test
+    public void refreshLevelsTest() {
+        // the test SLF4J binding is neither Logback nor Log4j2
+        assertFalse(SLoggerFactory.LEVELS_AUTO_REFRESHED);
+
+        StructLog4J.setLoggerOverride("com.github", LoggerOverride.NONE.withLevel(Level.WARN));
+        LoggerSettings cached = log.settings();
+        assertSame(cached, log.settings());
+
+        // cached levels are resolved again, the overrides stay
+        StructLog4J.refreshLevels();
+        assertNotSame(cached, log.settings());
+        assertFalse(log.isInfoEnabled());
+        assertTrue(log.isWarnEnabled());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullLoggerOverrideTest() {
+        StructLog4J.setLoggerOverride("com.github", null);
+    }
+
+    @Test
+    public void loggerCacheTest() {
+        assertSame(log, SLoggerFactory.getLogger(BasicKeyValuePairTests.class));
+        assertSame(log, SLoggerFactory.getLogger(BasicKeyValuePairTests.class.getName()));
+        assertSame(log, SLoggerFactory.getWeakLogger(BasicKeyValuePairTests.class.getName()));
+        assertNotSame(log, SLoggerFactory.getLogger("com.github.structlog4j.Other"));
+    }
+
+    @Test
+    public void weakLoggerTest() throws InterruptedException {
+        int count = SLoggerFactory.getLoggerCount();
+        ILogger weak = SLoggerFactory.getWeakLogger("tenant.weakLoggerTest");
+        assertSame(weak, SLoggerFactory.getWeakLogger("tenant.weakLoggerTest"));
+        assertEquals(count + 1, SLoggerFactory.getLoggerCount());
+
+        // dropped from the cache once it really got garbage collected, a new one is created on the next lookup
+        WeakReference<ILogger> collected = new WeakReference<>(weak);
+        weak = null;
+        assertTrue("weak logger was not collected", gc(() -> collected.get() == null && SLoggerFactory.getLoggerCount() == count, 10000));
+        ILogger recreated = SLoggerFactory.getWeakLogger("tenant.weakLoggerTest");
+        assertEquals(count + 1, SLoggerFactory.getLoggerCount());
+
+        // requested as a regular logger too, kept for good
+        assertSame(recreated, SLoggerFactory.getLogger("tenant.weakLoggerTest"));
+        WeakReference<ILogger> kept = new WeakReference<>(recreated);
+        recreated = null;
+        assertFalse("regular logger was collected", gc(() -> kept.get() == null, 1000));
+        assertEquals(count + 1, SLoggerFactory.getLoggerCount());
+        assertSame(kept.get(), SLoggerFactory.getWeakLogger("tenant.weakLoggerTest"));
+    }
+
+    // runs the GC until the condition holds (references are cleared and enqueued asynchronously), false on timeout
+    private static boolean gc(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            System.gc();
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    @Test
+    public void sampledTest() {
+        ILogger sampled = log.sampled(0.25);
+        for(int i = 0; i < 10; i++) {
+            sampled.info("Loop", "i", i);
+            // counted separately per message
+            sampled.atInfo("Fluent loop").kv("i", i).log();
+        }
+        log.info("Not sampled");
+
+        assertEquals(entries.toString(),7,entries.size());
+        assertMessage(entries,0,Level.INFO,"Loop i=0",false);
+        assertMessage(entries,1,Level.INFO,"Fluent loop i=0",false);
+        assertMessage(entries,2,Level.INFO,"Loop skipped=3 i=4",false);
+        assertMessage(entries,3,Level.INFO,"Fluent loop skipped=3 i=4",false);
+        assertMessage(entries,4,Level.INFO,"Loop skipped=3 i=8",false);
+        assertMessage(entries,5,Level.INFO,"Fluent loop skipped=3 i=8",false);
+        assertMessage(entries,6,Level.INFO,"Not sampled",false);
+    }
+
+    @Test
+    public void sampledInlineTest() {
+        // the same rate returns the same logger, so the sampling state is shared
+        assertSame(log.sampled(0.2), log.sampled(0.2));
+        assertSame(log.limited(5, TimeUnit.MINUTES), log.limited(5, TimeUnit.MINUTES));
+        assertNotSame(log.sampled(0.2), log.sampled(0.3));
+
+        for(int i = 0; i < 10; i++) {
+            log.sampled(0.2).info("Inline loop", "i", i);
+        }
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.INFO,"Inline loop i=0",false);
+        assertMessage(entries,1,Level.INFO,"Inline loop skipped=4 i=5",false);
+    }
+
+    @Test
+    public void sampledFractionalRateTest() {
+        // not a reciprocal of a whole number, 2 out of every 5
+        ILogger sampled = log.sampled(0.4);
+        for(int i = 0; i < 10; i++) {
+            sampled.info("Fractional loop", "i", i);
+        }
+
+        assertEquals(entries.toString(),4,entries.size());
+        assertMessage(entries,0,Level.INFO,"Fractional loop i=0",false);
+        assertMessage(entries,1,Level.INFO,"Fractional loop skipped=1 i=2",false);
+        assertMessage(entries,2,Level.INFO,"Fractional loop skipped=2 i=5",false);
+        assertMessage(entries,3,Level.INFO,"Fractional loop skipped=1 i=7",false);
+    }
+
+    @Test
+    public void limitedTest() throws InterruptedException {
+        // burst of 20, then one more every 50 ms
+        ILogger limited = log.limited(20, TimeUnit.SECONDS);
+        for(int i = 0; i < 25; i++) {
+            limited.debug("Loop", "i", i);
+        }
+        assertEquals(entries.toString(),20,entries.size());
+
+        Thread.sleep(100);
+        limited.debug("Loop", "i", 25);
+
+        assertEquals(entries.toString(),21,entries.size());
+        assertMessage(entries,20,Level.DEBUG,"Loop skipped=5 i=25",false);
+    }
+
+    @Test
+    public void lazyValueTest() {
+        AtomicInteger evaluations = new AtomicInteger();
+        ILazyValue<Integer> size = () -> evaluations.incrementAndGet();
+
+        // not evaluated for disabled levels or skipped entries
+        StructLog4J.setLoggerOverride("com.github.structlog4j", LoggerOverride.NONE.withLevel(Level.INFO));
+        log.debug("Cache stats", "size", size);
+        log.atDebug("Cache stats").kv("size", size).log();
+        ILogger sampled = log.sampled(0.5);
+        sampled.info("Sampled stats", "size", size);
+        sampled.info("Sampled stats", "size", size);
+        assertEquals(1, evaluations.get());
+        StructLog4J.clearLoggerOverrides();
+
+        // evaluated once, even if the entry goes to both the byte sink and SLF4J
+        StructLog4J.setFormatter(KeyValuePairByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+        log.info("Cache stats", "size", size, "hits", ILazyValue.lazy(() -> 10L));
+        assertEquals(2, evaluations.get());
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.INFO,"Sampled stats size=1",false);
+        assertMessage(entries,1,Level.INFO,"Cache stats size=2 hits=10",false);
+    }
+
+    @Test
+    public void lazyMessageTest() {
+        AtomicInteger evaluations = new AtomicInteger();
+
+        StructLog4J.setLoggerOverride("com.github.structlog4j", LoggerOverride.NONE.withLevel(Level.INFO));
+        log.debug(() -> "Expensive " + evaluations.incrementAndGet());
+        log.atTrace(() -> "Expensive " + evaluations.incrementAndGet()).log();
+        assertEquals(0, evaluations.get());
+
+        log.info(() -> "Expensive " + evaluations.incrementAndGet(), "key", "value");
+        log.atWarn(() -> "Fluent " + evaluations.incrementAndGet()).kv("key", "value").log();
+        assertEquals(2, evaluations.get());
+
+        // each lambda is its own call site when sampled
+        ILogger sampled = log.sampled(0.5);
+        for(int i = 0; i < 4; i++) {
+            sampled.info(() -> "Loop " + evaluations.incrementAndGet());
+        }
+        assertEquals(4, evaluations.get());
+
+        assertEquals(entries.toString(),4,entries.size());
+        assertMessage(entries,0,Level.INFO,"Expensive 1 key=value",false);
+        assertMessage(entries,1,Level.WARN,"Fluent 2 key=value",false);
+        assertMessage(entries,2,Level.INFO,"Loop 3",false);
+        assertMessage(entries,3,Level.INFO,"Loop 4 skipped=1",false);
+    }
+
+    @Test
+    public void metricsTest() throws Exception {
+        assertNull(StructLog4J.getMetrics());
+        StructLog4J.enableMetrics();
+        ILogMetrics metrics = StructLog4J.getMetrics();
+
+        log.info("Info", "key1", 1L);
+        log.error("Error");
+        StructLog4J.setLoggerOverride("com.github.structlog4j", LoggerOverride.NONE.withLevel(Level.INFO));
+        // only checking the level is not counted
+        assertFalse(log.isDebugEnabled());
+        assertFalse(log.isTraceEnabled());
+        log.debug("Not logged");
+        log.info("Bad key", "key 1", 1L);
+        log.info("Odd toLog", (IToLog) () -> new Object[]{"key1"});
+
+        StructLog4J.setFormatter(KeyValuePairByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+        log.warn("Bytes");
+
+        assertEquals(5, metrics.getEvents());
+        assertEquals(Long.valueOf(3), metrics.getEventsByLevel().get("INFO"));
+        assertEquals(Long.valueOf(5), metrics.getEventsByLogger().get(BasicKeyValuePairTests.class.getName()));
+        assertEquals(Long.valueOf(1), metrics.getSuppressedByLevel().get("DEBUG"));
+        assertEquals(Long.valueOf(0), metrics.getSuppressedByLevel().get("TRACE"));
+        assertEquals("Info key1=1".length() + "Error".length() + "Bad key".length() + "Odd toLog".length(), metrics.getFormattedChars());
+        assertEquals("Bytes".length(), metrics.getFormattedBytes());
+        assertEquals(5, Arrays.stream(metrics.getFormattingTimeHistogram()).sum());
+        assertEquals(1, metrics.getInvalidKeys());
+        assertEquals(1, metrics.getInvalidToLogs());
+
+        // published via JMX
+        ObjectName name = new ObjectName("com.github.structlog4j:type=Metrics");
+        assertEquals(5L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Events"));
+
+        StructLog4J.disableMetrics();
+        assertNull(StructLog4J.getMetrics());
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        log.warn("Not counted");
+        assertEquals(5, metrics.getEvents());
+    }
+
+    @Test
+    public void metricsNestedTimingTest() {
+        StructLog4J.enableMetrics();
+        ILogMetrics metrics = StructLog4J.getMetrics();
+        try {
+            // a nested entry logged late during the outer one must not reset the outer start time
+            Object slow = new Object() {
+                @Override
+                public String toString() {
+                    long start = System.nanoTime();
+                    while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(20)) {
+                        Thread.yield();
+                    }
+                    log.info("Nested");
+                    return "slow";
+                }
+            };
+            log.info("Outer","value",slow);
+
+            assertEquals(entries.toString(),2,entries.size());
+            assertEquals(2,metrics.getEvents());
+            assertTrue(String.valueOf(metrics.getFormattingTimeTotalNanos()),
+                    metrics.getFormattingTimeTotalNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+        } finally {
+            StructLog4J.disableMetrics();
+        }
+    }
+
+    @Test
+    public void allocationBudgetTest() {
+        // only the final String
+        assertAllocatesAtMost(160, () -> log.info("Processed flight records", "airlineCode", "UA", "recordCount", 42L));
+        assertAllocatesAtMost(184, () -> log.atInfo("Processed flight records").kv("airlineCode", "UA").kv("recordCount", 42L).kv("success", true).log());
+
+        // nothing at all straight to a byte sink, or when the level is disabled
+        StructLog4J.setFormatter(KeyValuePairByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+        assertAllocatesAtMost(0, () -> log.info("Processed flight records", "airlineCode", "UA", "recordCount", 42L));
+        assertAllocatesAtMost(0, () -> log.atInfo("Processed flight records").kv("airlineCode", "UA").kv("recordCount", 42L).kv("success", true).log());
+        assertAllocatesAtMost(0, () -> log.trace("Processed flight records", "airlineCode", "UA", "recordCount", 42L));
+        assertAllocatesAtMost(0, () -> log.info("Processed flight records", USER, "UA", COUNT, 42L));
+        assertAllocatesAtMost(0, () -> log.info("Processed flight records", COUNT, 123456789L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSamplingRateTest() {
+        log.sampled(0);
+    }
+
+    @Test
+    public void capturedEntryEndTest() {
+        StructLog4J.enableAggregation(AggregationConfig.DEFAULT);
+
+        // the capturing formatter renders the entry if it ever gets formatted directly
+        IFormatter<Object> formatter = log.formatter();
+        Object bld = formatter.start(log.getSlfjLogger());
+        formatter.addMessage(log.getSlfjLogger(), bld, "Captured");
+        formatter.addKeyValue(log.getSlfjLogger(), bld, "user", "John Doe");
+        formatter.addKeyValue(log.getSlfjLogger(), bld, COUNT, 23L);
+
+        assertEquals("Captured user=\"John Doe\" count=23", formatter.end(log.getSlfjLogger(), bld));
+    }
+
+    @Test
+    public void aggregationTest() {
+        StructLog4J.enableAggregation(AggregationConfig.DEFAULT.withWindowMillis(60000));
+
+        for(int i = 0; i < 3; i++) {
+            log.info("Polling","queue","orders","size",0L);
+        }
+        // same pairs in a different order
+        log.atInfo("Polling").kv("size",0L).kv(StructKey.of("queue"),"orders").log();
+        log.info("Polling","queue","orders","size",1L);
+        log.warn("Polling","queue","orders","size",0L);
+        log.info("Polling","queue","orders","size",0L,new RuntimeException("Major exception"));
+
+        assertEquals(entries.toString(),4,entries.size());
+        assertMessage(entries,0,Level.INFO,"Polling queue=orders size=0",false);
+        assertMessage(entries,1,Level.INFO,"Polling queue=orders size=1",false);
+        assertMessage(entries,2,Level.WARN,"Polling queue=orders size=0",false);
+        assertMessage(entries,3,Level.INFO,"Polling queue=orders size=0 errorMessage=\"Major exception\"",true);
+        assertEquals(3, StructLog4J.getAggregatedCount());
+
+        // closes the open windows
+        StructLog4J.disableAggregation();
+        assertEquals(entries.toString(),5,entries.size());
+        assertEquals(Level.INFO,entries.get(4).getLevel());
+        assertTrue(entries.toString(),entries.get(4).getMessage().matches("Polling queue=orders size=0 repeatCount=3 firstTimestamp=\\d+ lastTimestamp=\\d+"));
+    }
+
+    @Test
+    public void aggregationWindowTest() throws InterruptedException {
+        StructLog4J.enableAggregation(AggregationConfig.DEFAULT.withWindowMillis(20));
+
+        log.info("Polling","queue","orders");
+        log.info("Polling","queue","orders");
+        for(int i = 0; i < 100 && entries.size() < 2; i++) {
+            Thread.sleep(10);
+        }
+        // new window
+        log.info("Polling","queue","orders");
+
+        assertEquals(entries.toString(),3,entries.size());
+        assertTrue(entries.toString(),entries.get(1).getMessage().startsWith("Polling queue=orders repeatCount=1 "));
+        assertMessage(entries,2,Level.INFO,"Polling queue=orders",false);
+    }
+
+    @Test
+    public void aggregationBoundedTest() {
+        StructLog4J.enableAggregation(AggregationConfig.DEFAULT.withMaxEvents(2));
+
+        for(int i = 0; i < 3; i++) {
+            log.info("Polling","queue",i);
+            log.info("Polling","queue",i);
+        }
+
+        // the third one is not tracked any more
+        assertEquals(entries.toString(),4,entries.size());
+        assertMessage(entries,3,Level.INFO,"Polling queue=2",false);
+    }
+
+    @Test
+    public void aggregationExpiredWindowTest() throws InterruptedException {
+        // flushed in the background only every 100ms
+        StructLog4J.enableAggregation(AggregationConfig.DEFAULT.withWindowMillis(400));
+
+        log.info("Polling","queue","orders");
+        log.info("Polling","queue","orders");
+        Thread.sleep(410);
+        // the window is over even if it was not flushed yet: the repeats are logged and a new window opened
+        log.info("Polling","queue","orders");
+
+        assertEquals(entries.toString(),3,entries.size());
+        assertTrue(entries.toString(),entries.get(1).getMessage().startsWith("Polling queue=orders repeatCount=1 "));
+        assertMessage(entries,2,Level.INFO,"Polling queue=orders",false);
+        StructLog4J.disableAggregation();
+    }
+
+    @Test
+    public void aggregationBoundedConcurrentTest() throws InterruptedException {
+        StructLog4J.enableAggregation(AggregationConfig.DEFAULT.withMaxEvents(4));
+        EventAggregator aggregator = StructLog4J.getConfig().getAggregator();
+        AtomicInteger maxTracked = new AtomicInteger();
+
+        Thread[] threads = new Thread[8];
+        for(int t = 0; t < threads.length; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for(int i = 0; i < 200; i++) {
+                    log.info("Polling","thread",thread,"i",i);
+                    maxTracked.accumulateAndGet(aggregator.getTrackedCount(), Math::max);
+                }
+            });
+        }
+        // the test logger is not thread safe
+        TestLogger.setRecording(false);
+        try {
+            for(Thread thread : threads) {
+                thread.start();
+            }
+            for(Thread thread : threads) {
+                thread.join();
+            }
+        } finally {
+            TestLogger.setRecording(true);
+            StructLog4J.disableAggregation();
+        }
+
+        // never more than maxEvents windows open at the same time
+        assertEquals(4, maxTracked.get());
+    }
+
+    @Test
+    public void stripedBufferPoolTest() {
+        StripedBufferPool pool = new StripedBufferPool(1,2,16,64);
+
+        StringBuilder bld = pool.acquireChars().append("test");
+        pool.release(bld);
+        // same buffer comes back, empty
+        assertSame(bld, pool.acquireChars());
+        assertEquals(0, bld.length());
+
+        // oversized buffers get trimmed
+        bld.append(new char[1000]);
+        pool.release(bld);
+        assertTrue(String.valueOf(bld.capacity()), bld.capacity() <= 64);
+
+        Utf8Buffer buffer = pool.acquireBytes();
+        buffer.write(new byte[1000]);
+        pool.release(buffer);
+        assertSame(buffer, pool.acquireBytes());
+        assertEquals(0, buffer.length());
+        assertTrue(String.valueOf(buffer.capacity()), buffer.capacity() <= 64);
+        pool.release(buffer);
+
+        // bounded: only 2 buffers per type are kept
+        pool.acquireChars();
+        for(int i = 0; i < 5; i++) {
+            pool.release(new StringBuilder());
+        }
+        assertEquals(3, pool.getPooledCount());
+    }
+
+    @Test
+    public void threadLocalBufferPoolTest() {
+        ThreadLocalBufferPool pool = new ThreadLocalBufferPool(16,64);
+
+        StringBuilder bld = pool.acquireChars();
+        // in use, so nested acquire gets a new one
+        StringBuilder nested = pool.acquireChars();
+        assertNotSame(bld, nested);
+        pool.release(nested);
+        assertSame(nested, pool.acquireChars());
+
+        StructLog4J.setBufferPool(pool);
+        log.atInfo("Outer").kv("nested",new Object() {
+            @Override
+            public String toString() {
+                log.info("Nested","key1",1L);
+                return "nested";
+            }
+        }).log();
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertMessage(entries,0,Level.INFO,"Nested key1=1",false);
+        assertMessage(entries,1,Level.INFO,"Outer nested=nested",false);
+    }
+
+    @Test
+    public void bufferPoolBalancedTest() {
+        CountingBufferPool pool = new CountingBufferPool();
+        StructLog4J.setBufferPool(pool);
+
+        logForByteFormatter();
+        StructLog4J.setFormatter(KeyValuePairByteFormatter.getInstance());
+        logForByteFormatter();
+        StructLog4J.setByteSink(new TestByteSink());
+        logForByteFormatter();
+
+        assertEquals(entries.toString(),9,entries.size());
+        assertEquals(9, pool.acquired.get());
+        assertEquals(pool.acquired.get(), pool.released.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullBufferPoolTest() {
+        StructLog4J.setBufferPool(null);
+    }
+
+    private static class CountingBufferPool extends StripedBufferPool {
+        private final AtomicInteger acquired = new AtomicInteger();
+        private final AtomicInteger released = new AtomicInteger();
+
+        @Override
+        public StringBuilder acquireChars() {
+            acquired.incrementAndGet();
+            return super.acquireChars();
+        }
+
+        @Override
+        public void release(StringBuilder bld) {
+            released.incrementAndGet();
+            super.release(bld);
+        }
+
+        @Override
+        public Utf8Buffer acquireBytes() {
+            acquired.incrementAndGet();
+            return super.acquireBytes();
+        }
+
+        @Override
+        public void release(Utf8Buffer buffer) {
+            released.incrementAndGet();
+            super.release(buffer);
+        }
+    }
+
 }
@@ -1,8 +1,10 @@
 package com.github.structlog4j;
 
 import static org.junit.Assert.*;
+import static com.github.structlog4j.test.PerformanceHarness.*;
 
 import com.github.structlog4j.test.samples.TestSecurityContext;
+import com.github.structlog4j.test.TestByteSink;
 import com.github.structlog4j.test.TestUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -10,6 +12,8 @@ import org.slf4j.impl.LogEntry;
 import org.slf4j.impl.TestLogger;
 
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests for handling of invalid input
@@ -25,6 +29,8 @@ public class ErrorKeyValuePairTests {
 
         log = (SLogger) SLoggerFactory.getLogger(BasicKeyValuePairTests.class);
         entries = ((TestLogger)log.getSlfjLogger()).getEntries();
+        // loggers are cached, start from scratch
+        entries.clear();
     }
 
     @Test
@@ -49,6 +55,34 @@ public class ErrorKeyValuePairTests {
         assertEquals(entries.toString(),"This is an error",entries.get(1).getMessage());
     }
 
+    @Test
+    public void keyWithInvalidCharactersTest() {
+        log.error("This is an error","tab\tkey",1L);
+        log.error("This is an error","new\nline","forged=true");
+        log.error("This is an error","cr\rkey","value");
+        log.error("This is an error","key=forged","value");
+        log.error("This is an error","nbsp\u00A0key","value","good_key_that_will_be_skipped",2L);
+
+        assertEquals(entries.toString(),10,entries.size());
+        assertEquals(entries.toString(),"Key with whitespace, control characters or '=' was passed in: tab\\u0009key",entries.get(0).getMessage());
+        assertEquals(entries.toString(),"This is an error",entries.get(1).getMessage());
+        assertEquals(entries.toString(),"Key with whitespace, control characters or '=' was passed in: new\\u000Aline",entries.get(2).getMessage());
+        assertEquals(entries.toString(),"Key with whitespace, control characters or '=' was passed in: cr\\u000Dkey",entries.get(4).getMessage());
+        assertEquals(entries.toString(),"Key with whitespace, control characters or '=' was passed in: key=forged",entries.get(6).getMessage());
+        assertEquals(entries.toString(),"Key with whitespace, control characters or '=' was passed in: nbsp\\u00A0key",entries.get(8).getMessage());
+        assertEquals(entries.toString(),"This is an error",entries.get(9).getMessage());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void structKeyWithTabTest() {
+        StructKey.of("key\twith_tab");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void structKeyWithEqualsTest() {
+        StructKey.of("key=value");
+    }
+
     @Test
     public void keyWithSpacesRecoverTest() {
 
@@ -147,4 +181,162 @@ public class ErrorKeyValuePairTests {
         // validate that despite the error we still managed to process the log entry and logged as much as we could
         assertEquals(entries.toString(),"This is an error key1=Value1",entries.get(1).getMessage());
     }
+
+    @Test
+    public void fixedArityKeyWithSpacesTest() {
+        log.error("This is an error","good_key",1L,"key with spaces",2L,"good_key_that_will_be_skipped",3L);
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertEquals(entries.toString(),"Key with spaces was passed in: key with spaces",entries.get(0).getMessage());
+
+        // same as the varargs version, everything after the bad key is skipped
+        assertEquals(entries.toString(),"This is an error good_key=1",entries.get(1).getMessage());
+    }
+
+    @Test
+    public void fixedArityNullKeyTest() {
+        // a bare null would be ambiguous between the String and StructKey versions
+        log.error("This is an error",(String) null,1L);
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertEquals(entries.toString(),"Non-String or null key was passed in: null (null)",entries.get(0).getMessage());
+        assertEquals(entries.toString(),"This is an error",entries.get(1).getMessage());
+    }
+
+    @Test
+    public void fluentKeyWithSpacesTest() {
+        Throwable t = new RuntimeException("Important exception");
+
+        log.atError("This is an error").kv("good_key",1L).kv("key with spaces",2L).kv("good_key_that_will_be_skipped",3L).cause(t).log();
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertEquals(entries.toString(),"Key with spaces was passed in: key with spaces",entries.get(0).getMessage());
+
+        // same as the varargs version, everything after the bad key is skipped but the exception is still logged
+        assertEquals(entries.toString(),"This is an error good_key=1 errorMessage=\"Important exception\"",entries.get(1).getMessage());
+        assertTrue(entries.toString(),entries.get(1).getError().isPresent());
+    }
+
+    @Test
+    public void fluentLogTwiceTest() {
+        ILogEvent event = log.atError("This is an error").kv("key1",1L);
+        event.log();
+        event.kv("key2",2L).log();
+
+        assertEquals(entries.toString(),1,entries.size());
+        assertEquals(entries.toString(),"This is an error key1=1",entries.get(0).getMessage());
+    }
+
+    @Test
+    public void fluentDroppedEventTest() {
+        // never logged, must not stay active on this thread
+        log.atError("This is an error").kv("key1",1L);
+        log.atError("This is an error").kv("key2",2L).log();
+
+        assertEquals(entries.toString(),1,entries.size());
+        assertEquals(entries.toString(),"This is an error key2=2",entries.get(0).getMessage());
+
+        StructLog4J.setFormatter(KeyValuePairByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+        log.atError("This is an error").kv("key1",1L);
+        // the pooled event and buffer are reused again
+        assertAllocatesAtMost(0, () -> log.atError("This is an error").kv("key2",2L).log());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void structKeyWithSpacesTest() {
+        StructKey.of("key with spaces");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void structKeyEmptyTest() {
+        StructKey.of("");
+    }
+
+    @Test
+    public void fluentNullStructKeyTest() {
+        StructKey key = null;
+        log.atError("This is an error").kv("key1",1L).kv(key,2L).kv("good_key_that_will_be_skipped",3L).log();
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertEquals(entries.toString(),"Non-String or null key was passed in: null (null)",entries.get(0).getMessage());
+        assertEquals(entries.toString(),"This is an error key1=1",entries.get(1).getMessage());
+    }
+
+    @Test
+    public void iToLogStreamingWithKeyWithSpacesTest() {
+        IToLogStreaming toLog = new IToLogStreaming() {
+            @Override
+            public void toLog(IKeyValueSink sink) {
+                sink.kv("key1","Value1").kv("key with spaces",2L).kv("key3",3L);
+            }
+        };
+
+        log.error("This is an error",toLog);
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertEquals(entries.toString(),"Key with spaces was passed in from class com.github.structlog4j.ErrorKeyValuePairTests$5.toLog(): key with spaces",entries.get(0).getMessage());
+
+        // same as IToLog, only the invalid key is skipped
+        assertEquals(entries.toString(),"This is an error key1=Value1 key3=3",entries.get(1).getMessage());
+    }
+
+    @Test
+    public void staticMandatoryContextWithKeyWithSpacesTest() {
+        StructLog4J.setStaticMandatoryContext(() -> new Object[]{"hostname","Titanic","key with spaces","Value"});
+
+        log.error("This is an error");
+        log.error("This is another error");
+
+        // reported only once, when the static context got rendered
+        assertEquals(entries.toString(),3,entries.size());
+        assertTrue(entries.toString(),entries.get(0).getMessage().startsWith("Key with spaces was passed in from class com.github.structlog4j.ErrorKeyValuePairTests"));
+        assertEquals(entries.toString(),"This is an error hostname=Titanic",entries.get(1).getMessage());
+        assertEquals(entries.toString(),"This is another error hostname=Titanic",entries.get(2).getMessage());
+    }
+
+    @Test
+    public void repeatedProblemTest() throws InterruptedException {
+        StructLog4J.setDiagnosticsInterval(100, TimeUnit.MILLISECONDS);
+
+        for(int i = 0; i < 10; i++) {
+            log.error("This is an error","key with spaces",1L);
+        }
+        // reported once, with the number of occurrences once the interval is over
+        Thread.sleep(150);
+        log.error("This is an error","key with spaces",1L);
+
+        assertEquals(entries.toString(),13,entries.size());
+        assertEquals(entries.toString(),"Key with spaces was passed in: key with spaces",entries.get(0).getMessage());
+        assertEquals(entries.toString(),"This is an error",entries.get(1).getMessage());
+        assertEquals(entries.toString(),"Key with spaces was passed in: key with spaces (10 times since the last report)",entries.get(11).getMessage());
+
+        List<Diagnostic> diagnostics = StructLog4J.getDiagnostics();
+        assertEquals(diagnostics.toString(),1,diagnostics.size());
+        assertEquals(new Diagnostic(DiagnosticType.KEY_WITH_SPACES,null,"key with spaces",11),diagnostics.get(0));
+    }
+
+    @Test
+    public void distinctProblemsTest() {
+        IToLog odd = () -> new Object[]{"key1"};
+        for(int i = 0; i < 3; i++) {
+            log.error("This is an error","key with spaces",1L);
+            log.error("This is an error","other key",1L);
+            log.error("This is an error",odd);
+        }
+
+        // each one reported once
+        assertEquals(entries.toString(),12,entries.size());
+        assertEquals(entries.toString(),"Key with spaces was passed in: key with spaces",entries.get(0).getMessage());
+        assertEquals(entries.toString(),"Key with spaces was passed in: other key",entries.get(2).getMessage());
+        assertTrue(entries.toString(),entries.get(4).getMessage().startsWith("Odd number of parameters (1) returned from"));
+        assertEquals(3,StructLog4J.getDiagnostics().size());
+        assertTrue(StructLog4J.getDiagnostics().stream().allMatch(diagnostic -> diagnostic.getCount() == 3));
+
+        // reported again after being forgotten
+        StructLog4J.clearDiagnostics();
+        log.error("This is an error","key with spaces",1L);
+        assertEquals(entries.toString(),14,entries.size());
+    }
+
 }
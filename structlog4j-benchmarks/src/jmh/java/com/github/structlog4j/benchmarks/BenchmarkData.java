@@ -0,0 +1,80 @@
+package com.github.structlog4j.benchmarks;
+
+import com.github.structlog4j.IFormatter;
+import com.github.structlog4j.IToLog;
+import com.github.structlog4j.KeyValuePairFormatter;
+import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.json.JsonFormatter;
+import com.github.structlog4j.yaml.YamlFormatter;
+
+/**
+ * Test data and settings shared by the benchmarks
+ */
+final class BenchmarkData {
+
+    static final String MESSAGE = "Processed flight records";
+
+    private BenchmarkData() {}
+
+    // key/value pairs with a typical mix of strings, numbers and booleans, values boxed upfront
+    static Object[] pairs(int count) {
+        Object[] pairs = new Object[count * 2];
+        for(int i = 0; i < count; i++) {
+            pairs[i * 2] = "key" + i;
+            switch (i % 4) {
+                case 0:
+                    pairs[i * 2 + 1] = "value " + i;
+                    break;
+                case 1:
+                    pairs[i * 2 + 1] = i * 1000L;
+                    break;
+                case 2:
+                    pairs[i * 2 + 1] = i * 1.5;
+                    break;
+                default:
+                    pairs[i * 2 + 1] = i % 2 == 0;
+            }
+        }
+        return pairs;
+    }
+
+    // same pairs as an SLF4J format string, e.g. "Processed flight records key0={} key1={}"
+    static String slf4jFormat(Object[] pairs) {
+        StringBuilder format = new StringBuilder(MESSAGE);
+        for(int i = 0; i < pairs.length; i += 2) {
+            format.append(' ').append(pairs[i]).append("={}");
+        }
+        return format.toString();
+    }
+
+    static Object[] slf4jArguments(Object[] pairs) {
+        Object[] arguments = new Object[pairs.length / 2];
+        for(int i = 0; i < arguments.length; i++) {
+            arguments[i] = pairs[i * 2 + 1];
+        }
+        return arguments;
+    }
+
+    static IFormatter formatter(String name) {
+        switch (name) {
+            case "keyValue":
+                return KeyValuePairFormatter.getInstance();
+            case "json":
+                return JsonFormatter.getInstance();
+            case "yaml":
+                return YamlFormatter.getInstance();
+            default:
+                throw new IllegalArgumentException("Unknown formatter: " + name);
+        }
+    }
+
+    // default settings, so that every benchmark only measures what it sets up itself
+    static void reset() {
+        StructLog4J.setFormatter(KeyValuePairFormatter.getInstance());
+        StructLog4J.clearMandatoryContext();
+        StructLog4J.clearLoggerOverrides();
+    }
+
+    // typical mandatory context, evaluated on every log entry
+    static final IToLog MANDATORY_CONTEXT = () -> new Object[]{"hostname", "bench01", "serviceName", "checkout", "threadName", Thread.currentThread().getName()};
+}
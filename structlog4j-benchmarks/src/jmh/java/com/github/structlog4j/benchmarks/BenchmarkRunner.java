@@ -0,0 +1,40 @@
+package com.github.structlog4j.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Runs the benchmarks at 1, 4 and N (available processors) threads, with the GC profiler for the allocation per operation
+ *
+ * Arguments: regex of the benchmarks to run (empty = all), directory for the JSON results
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 && !args[0].isEmpty() ? args[0] : BenchmarkRunner.class.getPackage().getName();
+        File resultDir = new File(args.length > 1 ? args[1] : ".");
+        resultDir.mkdirs();
+
+        int[] threadCounts = Arrays.stream(new int[]{1, 4, Runtime.getRuntime().availableProcessors()}).distinct().toArray();
+        for(int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .forks(1)
+                    .warmupIterations(5)
+                    .measurementIterations(5)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "results-" + threads + "-threads.json").getPath())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.structlog4j.benchmarks;
+
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.SLoggerFactory;
+import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.binary.BinaryDecoder;
+import com.github.structlog4j.binary.BinaryFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a binary stream of 1000 records back, one record per operation
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BinaryDecoderBenchmark {
+
+    @Param({"2", "8"})
+    public int pairs;
+
+    private byte[] stream;
+    private ByteArrayInputStream in;
+    private BinaryDecoder decoder;
+
+    @Setup
+    public void setup() {
+        BenchmarkData.reset();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StructLog4J.setFormatter(new BinaryFormatter());
+        StructLog4J.setByteSink((logger, level, entry, error) -> {
+            while (entry.hasRemaining()) {
+                out.write(entry.get());
+            }
+        });
+        ILogger log = SLoggerFactory.getLogger(BinaryDecoderBenchmark.class);
+        Object[] params = BenchmarkData.pairs(pairs);
+        for(int i = 0; i < 1000; i++) {
+            log.info(BenchmarkData.MESSAGE, params);
+        }
+        StructLog4J.clearByteSink();
+
+        stream = out.toByteArray();
+        restart();
+    }
+
+    @Benchmark
+    public Map<String,Object> decode() throws IOException {
+        if (in.available() == 0) {
+            restart();
+        }
+        return decoder.read(in);
+    }
+
+    private void restart() {
+        in = new ByteArrayInputStream(stream);
+        decoder = new BinaryDecoder();
+    }
+}
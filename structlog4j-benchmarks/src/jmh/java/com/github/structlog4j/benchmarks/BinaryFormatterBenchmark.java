@@ -0,0 +1,62 @@
+package com.github.structlog4j.benchmarks;
+
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.SLoggerFactory;
+import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.binary.BinaryFormatter;
+import com.github.structlog4j.json.JsonByteFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Binary versus JSON records written to a byte sink, the average record size is printed at the end
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BinaryFormatterBenchmark {
+
+    @Param({"json", "binary"})
+    public String format;
+
+    @Param({"2", "8"})
+    public int pairs;
+
+    private ILogger log;
+    private Object[] params;
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder records = new LongAdder();
+
+    @Setup
+    public void setup() {
+        BenchmarkData.reset();
+        StructLog4J.setFormatter(format.equals("binary") ? new BinaryFormatter() : JsonByteFormatter.getInstance());
+        StructLog4J.setByteSink((logger, level, entry, error) -> {
+            bytes.add(entry.remaining());
+            records.increment();
+        });
+        log = SLoggerFactory.getLogger(BinaryFormatterBenchmark.class);
+        params = BenchmarkData.pairs(pairs);
+    }
+
+    @TearDown
+    public void tearDown() {
+        StructLog4J.clearByteSink();
+        System.out.println(format + " with " + pairs + " pairs: " + bytes.sum() / Math.max(1, records.sum()) + " bytes per record");
+    }
+
+    @Benchmark
+    public void encode() {
+        log.info(BenchmarkData.MESSAGE, params);
+    }
+}
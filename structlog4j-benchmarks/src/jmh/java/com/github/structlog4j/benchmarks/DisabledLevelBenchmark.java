@@ -0,0 +1,57 @@
+package com.github.structlog4j.benchmarks;
+
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.SLoggerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DEBUG calls while the backend only has INFO enabled, should cost next to nothing
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DisabledLevelBenchmark {
+
+    private ILogger log;
+    private Logger slf4j;
+    private Object[] params;
+    private long recordCount = 42;
+
+    @Setup
+    public void setup() {
+        BenchmarkData.reset();
+        log = SLoggerFactory.getLogger(DisabledLevelBenchmark.class);
+        slf4j = LoggerFactory.getLogger(DisabledLevelBenchmark.class);
+        params = BenchmarkData.pairs(8);
+    }
+
+    @Benchmark
+    public void fixedArity() {
+        log.debug(BenchmarkData.MESSAGE, "airlineCode", "UA", "recordCount", recordCount);
+    }
+
+    @Benchmark
+    public void varargs() {
+        log.debug(BenchmarkData.MESSAGE, params);
+    }
+
+    @Benchmark
+    public void fluent() {
+        log.atDebug(BenchmarkData.MESSAGE).kv("airlineCode", "UA").kv("recordCount", recordCount).log();
+    }
+
+    @Benchmark
+    public void slf4jBaseline() {
+        slf4j.debug("Processed flight records airlineCode={} recordCount={}", "UA", recordCount);
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.structlog4j.benchmarks;
+
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.SLoggerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging an exception wrapped in a growing chain of causes
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ExceptionBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int causes;
+
+    private ILogger log;
+    private Exception exception;
+
+    @Setup
+    public void setup() {
+        BenchmarkData.reset();
+        log = SLoggerFactory.getLogger(ExceptionBenchmark.class);
+
+        exception = new IllegalStateException("Connection refused");
+        for(int i = 1; i < causes; i++) {
+            exception = new RuntimeException("Wrapped " + i, exception);
+        }
+    }
+
+    @Benchmark
+    public void log() {
+        log.error("Request failed", "requestId", 12345L, exception);
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.structlog4j.benchmarks;
+
+import ch.qos.logback.core.ContextBase;
+import ch.qos.logback.core.FileAppender;
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.IByteSink;
+import com.github.structlog4j.KeyValuePairByteFormatter;
+import com.github.structlog4j.SLoggerFactory;
+import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.sink.FileByteSink;
+import com.github.structlog4j.sink.FileSinkConfig;
+import com.github.structlog4j.sink.MappedRingFileSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same entry (8 key/value pairs) written to a file by the FileByteSink (or the MappedRingFileSink)
+ * versus a Logback file appender.
+ *
+ * The Logback side gets the entry as a String, just like it would from SLF4J, and writes it with the usual
+ * pattern layout (timestamp, thread, level and logger in front of the message, see LogbackPatternEncoder),
+ * as a real application would
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FileSinkBenchmark {
+
+    @Param({"logback", "sink", "sinkEveryBatchFsync", "ring"})
+    public String target;
+
+    private Path file;
+    private ILogger log;
+    private Object[] params;
+    private FileByteSink sink;
+    private MappedRingFileSink ring;
+    private FileAppender<LogbackPatternEncoder.Event> appender;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkData.reset();
+        StructLog4J.setFormatter(KeyValuePairByteFormatter.getInstance());
+        file = Files.createTempFile("structlog4j-benchmark", ".log");
+
+        if (target.equals("logback")) {
+            StructLog4J.setByteSink(logbackSink());
+        } else if (target.equals("ring")) {
+            Files.delete(file);
+            ring = new MappedRingFileSink(file);
+            StructLog4J.setByteSink(ring);
+        } else {
+            // Logback does not fsync either
+            sink = new FileByteSink(file, FileSinkConfig.DEFAULT.withCloseOnShutdown(false).withFsyncPolicy(
+                    target.equals("sink") ? FileSinkConfig.FsyncPolicy.NEVER : FileSinkConfig.FsyncPolicy.EVERY_BATCH));
+            StructLog4J.setByteSink(sink);
+        }
+        log = SLoggerFactory.getLogger(FileSinkBenchmark.class);
+        params = BenchmarkData.pairs(8);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        StructLog4J.clearByteSink();
+        if (sink != null) {
+            sink.close();
+        }
+        if (ring != null) {
+            ring.close();
+        }
+        if (appender != null) {
+            appender.stop();
+        }
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void log() {
+        log.info(BenchmarkData.MESSAGE, params);
+    }
+
+    // Logback core only, its classic module would replace the no-op SLF4J binding
+    private IByteSink logbackSink() {
+        ContextBase context = new ContextBase();
+        LogbackPatternEncoder encoder = new LogbackPatternEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(LogbackPatternEncoder.PATTERN);
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+
+        appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setFile(file.toString());
+        appender.setEncoder(encoder);
+        appender.start();
+        return (logger, level, entry, error) -> appender.doAppend(
+                new LogbackPatternEncoder.Event(logger.getName(), level, StandardCharsets.UTF_8.decode(entry).toString()));
+    }
+}
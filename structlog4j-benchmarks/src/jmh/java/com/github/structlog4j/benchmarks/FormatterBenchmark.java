@@ -0,0 +1,49 @@
+package com.github.structlog4j.benchmarks;
+
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.SLoggerFactory;
+import com.github.structlog4j.StructLog4J;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same log entry (8 key/value pairs) in every output format, with and without mandatory context
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FormatterBenchmark {
+
+    @Param({"keyValue", "json", "yaml"})
+    public String formatter;
+
+    @Param({"false", "true"})
+    public boolean mandatoryContext;
+
+    private ILogger log;
+    private Object[] params;
+
+    @Setup
+    public void setup() {
+        BenchmarkData.reset();
+        StructLog4J.setFormatter(BenchmarkData.formatter(formatter));
+        if (mandatoryContext) {
+            StructLog4J.setMandatoryContextSupplier(BenchmarkData.MANDATORY_CONTEXT);
+        }
+        log = SLoggerFactory.getLogger(FormatterBenchmark.class);
+        params = BenchmarkData.pairs(8);
+    }
+
+    @Benchmark
+    public void log() {
+        log.info(BenchmarkData.MESSAGE, params);
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.structlog4j.benchmarks;
+
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.IToLog;
+import com.github.structlog4j.SLoggerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Business object logged via IToLog versus the same key/value pairs passed inline
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class IToLogBenchmark {
+
+    // typical POJO, builds its key/value pairs on every call
+    private static class Flight implements IToLog {
+        private final String airlineCode = "UA";
+        private final String flightNumber = "1234";
+        private final String origin = "ORD";
+        private final String destination = "SFO";
+
+        @Override
+        public Object[] toLog() {
+            return new Object[]{"airlineCode", airlineCode, "flightNumber", flightNumber, "origin", origin, "destination", destination};
+        }
+    }
+
+    private ILogger log;
+    private Flight flight;
+
+    @Setup
+    public void setup() {
+        BenchmarkData.reset();
+        log = SLoggerFactory.getLogger(IToLogBenchmark.class);
+        flight = new Flight();
+    }
+
+    @Benchmark
+    public void iToLog() {
+        log.info(BenchmarkData.MESSAGE, flight);
+    }
+
+    @Benchmark
+    public void inline() {
+        log.info(BenchmarkData.MESSAGE, "airlineCode", flight.airlineCode, "flightNumber", flight.flightNumber,
+                "origin", flight.origin, "destination", flight.destination);
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.structlog4j.benchmarks;
+
+import com.github.structlog4j.IFormatter;
+import com.github.structlog4j.json.JsonFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The streaming JsonFormatter against the previous JsonObjectBuilder based implementation,
+ * formatting the same entry directly (without the logger in between)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class JsonFormatterBenchmark {
+
+    private static final Logger LOG = NOPLogger.NOP_LOGGER;
+
+    @Param({"jsonObjectBuilder", "streaming"})
+    public String formatter;
+
+    private IFormatter<Object> json;
+    private long counter = 0;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        BenchmarkData.reset();
+        json = (IFormatter) (formatter.equals("streaming") ? JsonFormatter.getInstance() : new JsonObjectBuilderFormatter());
+    }
+
+    // typical log entry: message, a few strings, numbers and a boolean
+    @Benchmark
+    public String format() {
+        Object bld = json.start(LOG);
+        json.addMessage(LOG, bld, BenchmarkData.MESSAGE);
+        json.addKeyValue(LOG, bld, "airlineCode", "UA");
+        json.addKeyValue(LOG, bld, "flightNumber", "1234");
+        json.addKeyValue(LOG, bld, "airlineName", "United \"Airlines\"");
+        json.addKeyValue(LOG, bld, "recordCount", counter++);
+        json.addKeyValue(LOG, bld, "durationMs", 12.5);
+        json.addKeyValue(LOG, bld, "success", true);
+        return json.end(LOG, bld);
+    }
+}
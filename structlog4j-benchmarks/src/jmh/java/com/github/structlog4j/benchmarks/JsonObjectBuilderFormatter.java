@@ -0,0 +1,52 @@
+package com.github.structlog4j.benchmarks;
+
+import com.github.structlog4j.IFormatter;
+import org.slf4j.Logger;
+
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonWriter;
+import java.io.StringWriter;
+
+/**
+ * Previous JsonObjectBuilder based implementation of the JsonFormatter, kept only as the baseline
+ * for JsonFormatterBenchmark
+ */
+public class JsonObjectBuilderFormatter implements IFormatter<JsonObjectBuilder> {
+
+    @Override
+    public JsonObjectBuilder start(Logger log) {
+        return Json.createObjectBuilder();
+    }
+
+    @Override
+    public IFormatter<JsonObjectBuilder> addMessage(Logger log, JsonObjectBuilder bld, String message) {
+        bld.add("message",message);
+        return this;
+    }
+
+    @Override
+    public IFormatter<JsonObjectBuilder> addKeyValue(Logger log, JsonObjectBuilder bld, String key, Object value) {
+        if (value == null) {
+            bld.addNull(key);
+        } else if (value instanceof Boolean) {
+            bld.add(key,(boolean)value);
+        } else if (value instanceof Long) {
+            bld.add(key,(long)value);
+        } else if (value instanceof Double) {
+            bld.add(key,(double)value);
+        } else {
+            bld.add(key,String.valueOf(value));
+        }
+        return this;
+    }
+
+    @Override
+    public String end(Logger log, JsonObjectBuilder bld) {
+        StringWriter stWriter = new StringWriter();
+        try (JsonWriter jsonWriter = Json.createWriter(stWriter)) {
+            jsonWriter.writeObject(bld.build());
+        }
+        return stWriter.toString();
+    }
+}
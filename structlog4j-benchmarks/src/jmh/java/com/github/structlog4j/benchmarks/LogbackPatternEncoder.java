@@ -0,0 +1,126 @@
+package com.github.structlog4j.benchmarks;
+
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.pattern.DynamicConverter;
+import ch.qos.logback.core.pattern.PatternLayoutBase;
+import ch.qos.logback.core.pattern.PatternLayoutEncoderBase;
+import ch.qos.logback.core.util.CachingDateFormatter;
+import org.slf4j.event.Level;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Logback's pattern layout encoder for FileSinkBenchmark. Only logback-core is on the classpath
+ * (logback-classic would replace the no-op SLF4J binding of all the other benchmarks), so this is the
+ * PatternLayoutEncoder of logback-classic with the conversion words of the usual pattern: the same pattern
+ * parser, converter chain, cached date formatting and encoding, just for an event of our own
+ */
+public class LogbackPatternEncoder extends PatternLayoutEncoderBase<LogbackPatternEncoder.Event> {
+
+    // the usual file pattern, minus the logger name abbreviation
+    public static final String PATTERN = "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger - %msg%n";
+
+    @Override
+    public void start() {
+        Layout patternLayout = new Layout();
+        patternLayout.setContext(context);
+        patternLayout.setPattern(getPattern());
+        patternLayout.setOutputPatternAsHeader(outputPatternAsHeader);
+        patternLayout.start();
+        this.layout = patternLayout;
+        super.start();
+    }
+
+    /**
+     * What logback-classic keeps of a log call (timestamp and thread taken when it is created)
+     */
+    public static final class Event {
+        private final long timestamp = System.currentTimeMillis();
+        private final String thread = Thread.currentThread().getName();
+        private final String logger;
+        private final Level level;
+        private final String message;
+
+        public Event(String logger, Level level, String message) {
+            this.logger = logger;
+            this.level = level;
+            this.message = message;
+        }
+    }
+
+    static final class Layout extends PatternLayoutBase<Event> {
+
+        private static final Map<String,String> CONVERTERS = new HashMap<>();
+
+        static {
+            CONVERTERS.put("d", DateConverter.class.getName());
+            CONVERTERS.put("thread", ThreadConverter.class.getName());
+            CONVERTERS.put("level", LevelConverter.class.getName());
+            CONVERTERS.put("logger", LoggerConverter.class.getName());
+            CONVERTERS.put("msg", MessageConverter.class.getName());
+            CONVERTERS.put("n", LineSeparatorConverter.class.getName());
+        }
+
+        @Override
+        public Map<String,String> getDefaultConverterMap() {
+            return CONVERTERS;
+        }
+
+        @Override
+        public String doLayout(Event event) {
+            return isStarted() ? writeLoopOnConverters(event) : CoreConstants.EMPTY_STRING;
+        }
+    }
+
+    public static class DateConverter extends DynamicConverter<Event> {
+        private CachingDateFormatter formatter;
+
+        @Override
+        public void start() {
+            String pattern = getFirstOption();
+            formatter = new CachingDateFormatter(pattern != null ? pattern : CoreConstants.ISO8601_PATTERN);
+            super.start();
+        }
+
+        @Override
+        public String convert(Event event) {
+            return formatter.format(event.timestamp);
+        }
+    }
+
+    public static class ThreadConverter extends DynamicConverter<Event> {
+        @Override
+        public String convert(Event event) {
+            return event.thread;
+        }
+    }
+
+    public static class LevelConverter extends DynamicConverter<Event> {
+        @Override
+        public String convert(Event event) {
+            return event.level.toString();
+        }
+    }
+
+    public static class LoggerConverter extends DynamicConverter<Event> {
+        @Override
+        public String convert(Event event) {
+            return event.logger;
+        }
+    }
+
+    public static class MessageConverter extends DynamicConverter<Event> {
+        @Override
+        public String convert(Event event) {
+            return event.message;
+        }
+    }
+
+    public static class LineSeparatorConverter extends DynamicConverter<Event> {
+        @Override
+        public String convert(Event event) {
+            return CoreConstants.LINE_SEPARATOR;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.structlog4j.benchmarks;
+
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.SLoggerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log entry with a growing number of key/value pairs, against plain SLF4J with the same values in the message
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PairsBenchmark {
+
+    @Param({"0", "2", "8", "32"})
+    public int pairs;
+
+    private ILogger log;
+    private Object[] params;
+
+    private Logger slf4j;
+    private String slf4jFormat;
+    private Object[] slf4jArguments;
+
+    @Setup
+    public void setup() {
+        BenchmarkData.reset();
+        log = SLoggerFactory.getLogger(PairsBenchmark.class);
+        params = BenchmarkData.pairs(pairs);
+
+        slf4j = LoggerFactory.getLogger(PairsBenchmark.class);
+        slf4jFormat = BenchmarkData.slf4jFormat(params);
+        slf4jArguments = BenchmarkData.slf4jArguments(params);
+    }
+
+    @Benchmark
+    public void structlog4j() {
+        log.info(BenchmarkData.MESSAGE, params);
+    }
+
+    @Benchmark
+    public void slf4jBaseline() {
+        slf4j.info(slf4jFormat, slf4jArguments);
+    }
+}
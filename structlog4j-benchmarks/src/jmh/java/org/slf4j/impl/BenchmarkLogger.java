@@ -0,0 +1,180 @@
+package org.slf4j.impl;
+
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MarkerIgnoringBase;
+import org.slf4j.helpers.MessageFormatter;
+
+/**
+ * No-op backend for the benchmarks: INFO and above are enabled, the messages are formatted the way
+ * a real backend would (for the plain SLF4J baseline) and then dropped
+ */
+public class BenchmarkLogger extends MarkerIgnoringBase {
+
+    private static final long serialVersionUID = 1L;
+
+    BenchmarkLogger(String name) {
+        this.name = name;
+    }
+
+    // reads the whole message like an appender would, so the JIT can not drop the formatting,
+    // without any writes to shared memory that would skew the multi-threaded runs
+    private static void consume(String message, Throwable t) {
+        if (message.hashCode() == 0 && t != null && t.hashCode() == 0) {
+            throw new IllegalStateException("Never happens in practice");
+        }
+    }
+
+    private static void consume(FormattingTuple tuple) {
+        consume(tuple.getMessage(), tuple.getThrowable());
+    }
+
+    @Override
+    public boolean isTraceEnabled() {
+        return false;
+    }
+
+    @Override
+    public void trace(String msg) {
+        // disabled
+    }
+
+    @Override
+    public void trace(String format, Object arg) {
+        // disabled
+    }
+
+    @Override
+    public void trace(String format, Object arg1, Object arg2) {
+        // disabled
+    }
+
+    @Override
+    public void trace(String format, Object... arguments) {
+        // disabled
+    }
+
+    @Override
+    public void trace(String msg, Throwable t) {
+        // disabled
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return false;
+    }
+
+    @Override
+    public void debug(String msg) {
+        // disabled
+    }
+
+    @Override
+    public void debug(String format, Object arg) {
+        // disabled
+    }
+
+    @Override
+    public void debug(String format, Object arg1, Object arg2) {
+        // disabled
+    }
+
+    @Override
+    public void debug(String format, Object... arguments) {
+        // disabled
+    }
+
+    @Override
+    public void debug(String msg, Throwable t) {
+        // disabled
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return true;
+    }
+
+    @Override
+    public void info(String msg) {
+        consume(msg, null);
+    }
+
+    @Override
+    public void info(String format, Object arg) {
+        consume(MessageFormatter.format(format, arg));
+    }
+
+    @Override
+    public void info(String format, Object arg1, Object arg2) {
+        consume(MessageFormatter.format(format, arg1, arg2));
+    }
+
+    @Override
+    public void info(String format, Object... arguments) {
+        consume(MessageFormatter.arrayFormat(format, arguments));
+    }
+
+    @Override
+    public void info(String msg, Throwable t) {
+        consume(msg, t);
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        return true;
+    }
+
+    @Override
+    public void warn(String msg) {
+        consume(msg, null);
+    }
+
+    @Override
+    public void warn(String format, Object arg) {
+        consume(MessageFormatter.format(format, arg));
+    }
+
+    @Override
+    public void warn(String format, Object arg1, Object arg2) {
+        consume(MessageFormatter.format(format, arg1, arg2));
+    }
+
+    @Override
+    public void warn(String format, Object... arguments) {
+        consume(MessageFormatter.arrayFormat(format, arguments));
+    }
+
+    @Override
+    public void warn(String msg, Throwable t) {
+        consume(msg, t);
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        return true;
+    }
+
+    @Override
+    public void error(String msg) {
+        consume(msg, null);
+    }
+
+    @Override
+    public void error(String format, Object arg) {
+        consume(MessageFormatter.format(format, arg));
+    }
+
+    @Override
+    public void error(String format, Object arg1, Object arg2) {
+        consume(MessageFormatter.format(format, arg1, arg2));
+    }
+
+    @Override
+    public void error(String format, Object... arguments) {
+        consume(MessageFormatter.arrayFormat(format, arguments));
+    }
+
+    @Override
+    public void error(String msg, Throwable t) {
+        consume(msg, t);
+    }
+}
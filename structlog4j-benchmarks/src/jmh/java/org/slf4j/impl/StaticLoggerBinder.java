@@ -0,0 +1,28 @@
+package org.slf4j.impl;
+
+import org.slf4j.ILoggerFactory;
+
+/**
+ * Binds SLF4J to the no-op backend, so the benchmarks measure only the library itself
+ * @author Jacek Furmankiewicz
+ */
+public class StaticLoggerBinder {
+
+    private static final StaticLoggerBinder SINGLETON = new StaticLoggerBinder();
+
+    public static final StaticLoggerBinder getSingleton() {
+        return SINGLETON;
+    }
+
+    public static String REQUESTED_API_VERSION = "1.7";  // !final
+
+    private final ILoggerFactory loggerFactory = BenchmarkLogger::new;
+
+    public ILoggerFactory getLoggerFactory() {
+        return loggerFactory;
+    }
+
+    public String getLoggerFactoryClassStr() {
+        return BenchmarkLogger.class.getName();
+    }
+}
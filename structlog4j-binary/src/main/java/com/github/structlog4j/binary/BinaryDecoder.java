@@ -0,0 +1,247 @@
+package com.github.structlog4j.binary;
+
+import static com.github.structlog4j.binary.BinaryFormat.*;
+
+import com.github.structlog4j.KeyValuePairFormatter;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Reads the records written by the BinaryFormatter back, in the same order they were written.
+ * Remembers the keys defined so far, so use one decoder per stream (or call resetDictionary() where a new one starts).
+ * Not thread safe
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class BinaryDecoder {
+
+    private static final Logger LOG = NOPLogger.NOP_LOGGER;
+
+    // keys defined in the stream so far, by id
+    private String[] keys = new String[64];
+    // keys the stream refers to without defining them (only when rendering a formatter's own records)
+    private final IntFunction<String> knownKeys;
+
+    public BinaryDecoder() {
+        this(id -> null);
+    }
+
+    BinaryDecoder(IntFunction<String> knownKeys) {
+        this.knownKeys = knownKeys;
+    }
+
+    /**
+     * Forgets all the keys defined so far, for the start of a new stream
+     */
+    public void resetDictionary() {
+        Arrays.fill(keys, null);
+    }
+
+    /**
+     * Reads the next record from the stream, taking in any key definitions before it
+     * @param in Stream of records (ideally buffered, it is read byte by byte)
+     * @return The message (as "message") and all the key/value pairs in their original order, null at the end of the stream
+     * @throws IOException If the stream is invalid or ends in the middle of a record
+     */
+    public Map<String,Object> read(InputStream in) throws IOException {
+        int start = in.read();
+        while (start == KEYS) {
+            for(int tag = readByte(in); tag != END; tag = readByte(in)) {
+                if (tag != KEY_DEFINE) {
+                    throw new IOException("Invalid key definition: 0x" + Integer.toHexString(tag));
+                }
+                readKey(in, tag);
+            }
+            start = in.read();
+        }
+        if (start < 0) {
+            return null;
+        } else if (start != RECORD) {
+            throw new IOException("Invalid record start: 0x" + Integer.toHexString(start));
+        }
+
+        Map<String,Object> record = new LinkedHashMap<>();
+        record.put(FIELD_MESSAGE, readString(in));
+        for(int tag = readByte(in); tag != END; tag = readByte(in)) {
+            record.put(readKey(in, tag), readValue(in));
+        }
+        return record;
+    }
+
+    /**
+     * Decodes a single record, e.g. the one passed to a byte sink
+     * @param record The whole record
+     * @return The message (as "message") and all the key/value pairs in their original order
+     * @throws IllegalArgumentException If the record is invalid
+     */
+    public Map<String,Object> decode(ByteBuffer record) {
+        try {
+            Map<String,Object> decoded = read(new ByteBufferInputStream(record.duplicate()));
+            if (decoded == null) {
+                throw new EOFException("Empty record");
+            }
+            return decoded;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid record: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Renders a decoded record for humans, exactly like the KeyValuePairFormatter would have
+     */
+    public static String toKeyValue(Map<String,Object> record) {
+        KeyValuePairFormatter formatter = KeyValuePairFormatter.getInstance();
+        StringBuilder bld = formatter.start(LOG);
+        formatter.addMessage(LOG, bld, String.valueOf(record.get(FIELD_MESSAGE)));
+        for(Map.Entry<String,Object> pair : record.entrySet()) {
+            if (pair.getKey().equals(FIELD_MESSAGE)) {
+                continue;
+            }
+            Object value = pair.getValue();
+            if (value instanceof Long) {
+                formatter.addKeyValue(LOG, bld, pair.getKey(), (long) value);
+            } else if (value instanceof Double) {
+                formatter.addKeyValue(LOG, bld, pair.getKey(), (double) value);
+            } else if (value instanceof Boolean) {
+                formatter.addKeyValue(LOG, bld, pair.getKey(), (boolean) value);
+            } else {
+                formatter.addKeyValue(LOG, bld, pair.getKey(), value);
+            }
+        }
+        return formatter.end(LOG, bld);
+    }
+
+    private String readKey(InputStream in, int tag) throws IOException {
+        switch (tag) {
+            case KEY_DEFINE: {
+                int id = readId(in);
+                String name = readString(in);
+                if (id >= keys.length) {
+                    keys = Arrays.copyOf(keys, Math.max(keys.length * 2, id + 1));
+                }
+                keys[id] = name;
+                return name;
+            }
+            case KEY_REF: {
+                int id = readId(in);
+                String name = id < keys.length ? keys[id] : null;
+                if (name == null) {
+                    name = knownKeys.apply(id);
+                }
+                if (name == null) {
+                    throw new IOException("Key id " + id + " used before being defined");
+                }
+                return name;
+            }
+            case KEY_INLINE:
+                return readString(in);
+            default:
+                throw new IOException("Invalid key tag: 0x" + Integer.toHexString(tag));
+        }
+    }
+
+    private Object readValue(InputStream in) throws IOException {
+        int tag = readByte(in);
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case LONG: {
+                long zigzag = readVarint(in);
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+            case DOUBLE: {
+                long bits = 0;
+                for(int i = 0; i < 8; i++) {
+                    bits = (bits << 8) | readByte(in);
+                }
+                return Double.longBitsToDouble(bits);
+            }
+            case STRING:
+                return readString(in);
+            default:
+                throw new IOException("Invalid value tag: 0x" + Integer.toHexString(tag));
+        }
+    }
+
+    private int readId(InputStream in) throws IOException {
+        long id = readVarint(in);
+        if (id >= BinaryKeyDictionary.MAX_KEYS) {
+            throw new IOException("Invalid key id: " + id);
+        }
+        return (int) id;
+    }
+
+    private String readString(InputStream in) throws IOException {
+        long length = readVarint(in);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[(int) length];
+        int read = 0;
+        while (read < bytes.length) {
+            int count = in.read(bytes, read, bytes.length - read);
+            if (count < 0) {
+                throw new EOFException("Stream ended in the middle of a record");
+            }
+            read += count;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid varint");
+    }
+
+    private int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Stream ended in the middle of a record");
+        }
+        return b;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.structlog4j.binary;
+
+import com.github.structlog4j.Utf8Buffer;
+
+/**
+ * Wire format shared by the BinaryFormatter and the BinaryDecoder.
+ *
+ * record  = RECORD string (key value)* END
+ * keys    = KEYS (KEY_DEFINE varint string)* END
+ * key     = KEY_DEFINE varint string | KEY_REF varint | KEY_INLINE string
+ * value   = NULL | FALSE | TRUE | LONG zigzag-varint | DOUBLE 8 bytes (IEEE 754, big endian) | STRING string
+ * string  = varint (UTF-8 length) UTF-8 bytes
+ *
+ * Records are self-delimiting, so a stream is simply all of them written one after the other.
+ * KEY_DEFINE assigns the key an id that later records of the same stream refer to via KEY_REF.
+ * A keys block only defines keys, the sinks start every new stream (e.g. a rotated file) with one
+ */
+final class BinaryFormat {
+
+    static final int RECORD = 0xB1;
+    static final int KEYS = 0xB2;
+    static final int END = 0x00;
+
+    static final int KEY_DEFINE = 0x10;
+    static final int KEY_REF = 0x11;
+    static final int KEY_INLINE = 0x12;
+
+    static final int NULL = 0x20;
+    static final int FALSE = 0x21;
+    static final int TRUE = 0x22;
+    static final int LONG = 0x23;
+    static final int DOUBLE = 0x24;
+    static final int STRING = 0x25;
+
+    static final String FIELD_MESSAGE = "message";
+
+    private BinaryFormat() {}
+
+    static void writeVarint(Utf8Buffer bld, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bld.write((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        bld.write((byte) value);
+    }
+
+    // small negative numbers stay small too
+    static void writeSigned(Utf8Buffer bld, long value) {
+        writeVarint(bld, (value << 1) ^ (value >> 63));
+    }
+
+    static void writeDouble(Utf8Buffer bld, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for(int shift = 56; shift >= 0; shift -= 8) {
+            bld.write((byte) (bits >>> shift));
+        }
+    }
+
+    static void writeString(Utf8Buffer bld, String value) {
+        writeVarint(bld, utf8Length(value));
+        bld.write(value);
+    }
+
+    // same rules as Utf8Buffer.write(CharSequence), unpaired surrogates become a single '?'
+    static int utf8Length(String value) {
+        int length = 0;
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
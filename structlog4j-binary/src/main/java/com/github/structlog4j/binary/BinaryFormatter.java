@@ -0,0 +1,234 @@
+package com.github.structlog4j.binary;
+
+import static com.github.structlog4j.binary.BinaryFormat.*;
+
+import com.github.structlog4j.IByteFormatter;
+import com.github.structlog4j.IFormatter;
+import com.github.structlog4j.StructKey;
+import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.Utf8Buffer;
+import org.slf4j.Logger;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary formatter for high volume streams (e.g. audit logs) written to a byte sink.
+ * Numbers and booleans keep their native encoding and repeated keys become small integer ids
+ * (see BinaryFormat for the layout). Read the records back with the BinaryDecoder.
+ *
+ * Every instance has its own key dictionary. The sinks start every new stream (e.g. a rotated file) with the
+ * definitions of all the keys so far, for any other destination call resetDictionary() whenever it starts
+ * a new one, so its keys get defined again. The stack trace of an exception is part of the record
+ * (as "stackTrace"). Without a byte sink the entries are
+ * sent to SLF4J as key/value pairs, exactly like the KeyValuePairFormatter
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class BinaryFormatter implements IByteFormatter<BinaryRecord> {
+
+    private static final String FIELD_MESSAGE_2 = "message2";
+
+    private static final BinaryFormatter INSTANCE = new BinaryFormatter();
+    public static BinaryFormatter getInstance() {return INSTANCE;}
+
+    // cached dictionary entries are specific to each instance
+    private final int keyEncoding = StructKey.newEncoding();
+    private volatile BinaryKeyDictionary dictionary = new BinaryKeyDictionary();
+    private final ThreadLocal<BinaryRecord> records = ThreadLocal.withInitial(BinaryRecord::new);
+
+    /**
+     * Starts a new stream, all the keys are defined again in the next records that use them
+     */
+    public void resetDictionary() {
+        dictionary = new BinaryKeyDictionary();
+    }
+
+    @Override
+    public final BinaryRecord start(Logger log) {
+        BinaryRecord record = records.get();
+        if (record.isActive()) {
+            // another entry is still being encoded on this thread (e.g. logging from within a toString())
+            record = new BinaryRecord();
+        }
+        record.start(StructLog4J.getBufferPool().acquireBytes(), dictionary).bytes.write((byte) RECORD);
+        return record;
+    }
+
+    @Override
+    public final IFormatter<BinaryRecord> addMessage(Logger log, BinaryRecord bld, String message) {
+        writeString(bld.bytes, message);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<BinaryRecord> addKeyValue(Logger log, BinaryRecord bld, String key, Object value) {
+        appendKey(bld, checkKey(log, key));
+        appendValue(bld.bytes, value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<BinaryRecord> addKeyValue(Logger log, BinaryRecord bld, String key, long value) {
+        appendKey(bld, checkKey(log, key));
+        appendLong(bld.bytes, value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<BinaryRecord> addKeyValue(Logger log, BinaryRecord bld, String key, double value) {
+        appendKey(bld, checkKey(log, key));
+        appendDouble(bld.bytes, value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<BinaryRecord> addKeyValue(Logger log, BinaryRecord bld, String key, boolean value) {
+        appendKey(bld, checkKey(log, key));
+        bld.bytes.write((byte) (value ? TRUE : FALSE));
+        return this;
+    }
+
+    @Override
+    public final IFormatter<BinaryRecord> addKeyValue(Logger log, BinaryRecord bld, StructKey key, Object value) {
+        appendKey(bld, log, key);
+        appendValue(bld.bytes, value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<BinaryRecord> addKeyValue(Logger log, BinaryRecord bld, StructKey key, long value) {
+        appendKey(bld, log, key);
+        appendLong(bld.bytes, value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<BinaryRecord> addKeyValue(Logger log, BinaryRecord bld, StructKey key, double value) {
+        appendKey(bld, log, key);
+        appendDouble(bld.bytes, value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<BinaryRecord> addKeyValue(Logger log, BinaryRecord bld, StructKey key, boolean value) {
+        appendKey(bld, log, key);
+        bld.bytes.write((byte) (value ? TRUE : FALSE));
+        return this;
+    }
+
+    // records are self-delimiting, sinks write them without a line separator or stack trace
+    @Override
+    public final boolean isText() {
+        return false;
+    }
+
+    @Override
+    public final Utf8Buffer endBytes(Logger log, BinaryRecord bld) {
+        return bld.bytes.write((byte) END);
+    }
+
+    // only once the sink has accepted the record can later ones refer to its keys by id
+    @Override
+    public final void written(Logger log, BinaryRecord bld) {
+        bld.publish();
+    }
+
+    @Override
+    public final void release(Logger log, BinaryRecord bld) {
+        free(bld);
+    }
+
+    // all the keys defined so far, so that every file (or ring segment) can be decoded on its own
+    @Override
+    public final ByteBuffer streamHeader() {
+        return dictionary.definitions();
+    }
+
+    // no byte sink: rendered as key/value pairs for SLF4J, nothing was written to the stream
+    @Override
+    public final String end(Logger log, BinaryRecord bld) {
+        try {
+            BinaryDecoder decoder = new BinaryDecoder(bld.dictionary::name);
+            return BinaryDecoder.toKeyValue(decoder.decode(endBytes(log, bld).toByteBuffer()));
+        } finally {
+            free(bld);
+        }
+    }
+
+    private void free(BinaryRecord bld) {
+        StructLog4J.getBufferPool().release(bld.bytes);
+        bld.clear();
+    }
+
+    private void appendKey(BinaryRecord bld, String key) {
+        appendKey(bld, key, bld.dictionary.lookup(key));
+    }
+
+    // the dictionary entry is cached in the StructKey, looked up again only after a reset
+    private void appendKey(BinaryRecord bld, Logger log, StructKey key) {
+        BinaryKeyDictionary.Entry entry = (BinaryKeyDictionary.Entry) key.getEncoded(keyEncoding);
+        if (entry == null || entry.dictionary != bld.dictionary) {
+            String name = checkKey(log, key.getName());
+            entry = bld.dictionary.lookup(name);
+            if (entry == null) {
+                appendKey(bld, name, null);
+                return;
+            }
+            key.setEncoded(keyEncoding, entry);
+        }
+        appendKey(bld, entry.name, entry);
+    }
+
+    private void appendKey(BinaryRecord bld, String key, BinaryKeyDictionary.Entry entry) {
+        Utf8Buffer bytes = bld.bytes;
+        if (entry == null) {
+            // dictionary full
+            bytes.write((byte) KEY_INLINE);
+            writeString(bytes, key);
+        } else if (entry.published) {
+            bytes.write((byte) KEY_REF);
+            writeVarint(bytes, entry.id);
+        } else {
+            // defined again in every record until one of them has been written
+            bytes.write((byte) KEY_DEFINE);
+            writeVarint(bytes, entry.id);
+            writeString(bytes, key);
+            bld.defined(entry);
+        }
+    }
+
+    // same type mapping as the JSON formatters
+    private void appendValue(Utf8Buffer bytes, Object value) {
+        if (value == null) {
+            bytes.write((byte) NULL);
+        } else if (value instanceof Boolean) {
+            bytes.write((byte) ((boolean) value ? TRUE : FALSE));
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Long) {
+            appendLong(bytes, ((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            appendDouble(bytes, ((Number) value).doubleValue());
+        } else {
+            bytes.write((byte) STRING);
+            writeString(bytes, String.valueOf(value));
+        }
+    }
+
+    private void appendLong(Utf8Buffer bytes, long value) {
+        bytes.write((byte) LONG);
+        writeSigned(bytes, value);
+    }
+
+    private void appendDouble(Utf8Buffer bytes, double value) {
+        bytes.write((byte) DOUBLE);
+        writeDouble(bytes, value);
+    }
+
+    // avoid overriding the "message" field
+    private String checkKey(Logger log, String key) {
+        if (key.equals(FIELD_MESSAGE)) {
+            log.warn("Key 'message' renamed to 'message2' in order to avoid overriding default message field. Please correct in your code.");
+            return FIELD_MESSAGE_2;
+        }
+        return key;
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.structlog4j.binary;
+
+import static com.github.structlog4j.binary.BinaryFormat.*;
+
+import com.github.structlog4j.Utf8Buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Key ids of one stream. A key is defined inline (with its name) until the first record defining it has been
+ * written to the sink, only then do records start referring to it by id alone. That way a reader never sees
+ * an id before its definition, even if threads write their records in a different order than they encoded them.
+ * Whenever the sink starts a new stream it writes the definitions of all the keys first
+ */
+class BinaryKeyDictionary {
+
+    // any further keys are written with their name every time
+    static final int MAX_KEYS = 4096;
+
+    private final ConcurrentMap<String,Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> names = new AtomicReferenceArray<>(MAX_KEYS);
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    static final class Entry {
+        final BinaryKeyDictionary dictionary;
+        final int id;
+        final String name;
+        // set once a record defining the key has been written
+        volatile boolean published = false;
+
+        Entry(BinaryKeyDictionary dictionary, int id, String name) {
+            this.dictionary = dictionary;
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Returns the entry of the key, null if the dictionary is full
+     */
+    Entry lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null && nextId.get() < MAX_KEYS) {
+            entry = entries.computeIfAbsent(key, name -> {
+                int id = nextId.getAndIncrement();
+                if (id >= MAX_KEYS) {
+                    return null;
+                }
+                names.set(id, name);
+                return new Entry(this, id, name);
+            });
+        }
+        return entry;
+    }
+
+    // keys block defining every key with an id so far, null if there are none
+    ByteBuffer definitions() {
+        int count = Math.min(nextId.get(), MAX_KEYS);
+        if (count == 0) {
+            return null;
+        }
+        Utf8Buffer bytes = new Utf8Buffer(count * 16);
+        bytes.write((byte) KEYS);
+        for(int id = 0; id < count; id++) {
+            String name = names.get(id);
+            // null while still being added, its first record defines it anyway
+            if (name != null) {
+                bytes.write((byte) KEY_DEFINE);
+                writeVarint(bytes, id);
+                writeString(bytes, name);
+            }
+        }
+        return bytes.write((byte) END).toByteBuffer();
+    }
+
+    // for rendering records as text without a separate decoder
+    String name(int id) {
+        return id >= 0 && id < MAX_KEYS ? names.get(id) : null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.structlog4j.binary;
+
+import com.github.structlog4j.Utf8Buffer;
+
+import java.util.Arrays;
+
+/**
+ * Record being encoded, together with the keys it defines. Reused per thread
+ */
+final class BinaryRecord {
+
+    Utf8Buffer bytes;
+    BinaryKeyDictionary dictionary;
+
+    private BinaryKeyDictionary.Entry[] defined = new BinaryKeyDictionary.Entry[8];
+    private int definedCount = 0;
+    private boolean active = false;
+
+    boolean isActive() {
+        return active;
+    }
+
+    BinaryRecord start(Utf8Buffer bytes, BinaryKeyDictionary dictionary) {
+        this.bytes = bytes;
+        this.dictionary = dictionary;
+        this.active = true;
+        return this;
+    }
+
+    void defined(BinaryKeyDictionary.Entry entry) {
+        if (definedCount == defined.length) {
+            defined = Arrays.copyOf(defined, definedCount * 2);
+        }
+        defined[definedCount++] = entry;
+    }
+
+    // the record has been written, later records can refer to its keys by id alone
+    void publish() {
+        for(int i = 0; i < definedCount; i++) {
+            defined[i].published = true;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(defined, 0, definedCount, null);
+        definedCount = 0;
+        bytes = null;
+        dictionary = null;
+        active = false;
+    }
+}
@@ -0,0 +1,200 @@
+package com.github.structlog4j.binary.test;
+
+import com.github.structlog4j.SLogger;
+import com.github.structlog4j.SLoggerFactory;
+import com.github.structlog4j.StructKey;
+import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.binary.BinaryDecoder;
+import com.github.structlog4j.binary.BinaryFormatter;
+import com.github.structlog4j.json.JsonByteFormatter;
+import com.github.structlog4j.KeyValuePairFormatter;
+import com.github.structlog4j.test.TestByteSink;
+import com.github.structlog4j.test.TestUtils;
+import com.github.structlog4j.test.samples.TestSecurityContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.event.Level;
+import org.slf4j.impl.LogEntry;
+import org.slf4j.impl.TestLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import static com.github.structlog4j.test.TestUtils.*;
+import static com.github.structlog4j.test.PerformanceHarness.*;
+import static org.junit.Assert.*;
+
+/**
+ * Binary formatter tests
+ */
+public class BasicBinaryTests {
+
+    private SLogger log;
+    private LinkedList<LogEntry> entries;
+    private TestSecurityContext iToLog = new TestSecurityContext("Test User","TEST_TENANT");
+    private BinaryFormatter formatter;
+    private CapturingByteSink sink;
+
+    @Before
+    public void setup() {
+        TestUtils.initForTesting();
+        // a new stream for every test
+        formatter = new BinaryFormatter();
+        sink = new CapturingByteSink();
+        StructLog4J.setFormatter(formatter);
+        StructLog4J.setByteSink(sink);
+
+        log = (SLogger) SLoggerFactory.getLogger(BasicBinaryTests.class);
+        entries = ((TestLogger)log.getSlfjLogger()).getEntries();
+        // loggers are cached, start from scratch
+        entries.clear();
+    }
+
+    @Test
+    public void roundTripTest() throws IOException {
+        log.error("This is an \"error\"","user","John \\ Doe","count",-123456789L,"success",true);
+        log.info("Zażółć gęślą jaźń 😀",iToLog,"ratio",1.5,"int",5,"nothing",null);
+        log.atWarn("Fluent").kv(StructKey.of("user"),"Jacek").kv(StructKey.of("count"),Long.MIN_VALUE).log();
+
+        BinaryDecoder decoder = new BinaryDecoder();
+        InputStream in = sink.getStream();
+
+        Map<String,Object> expected = new LinkedHashMap<>();
+        expected.put("message","This is an \"error\"");
+        expected.put("user","John \\ Doe");
+        expected.put("count",-123456789L);
+        expected.put("success",true);
+        assertEquals(expected,decoder.read(in));
+
+        expected.clear();
+        expected.put("message","Zażółć gęślą jaźń 😀");
+        expected.put("userName","Test User");
+        expected.put("tenantId","TEST_TENANT");
+        expected.put("ratio",1.5);
+        expected.put("int",5L);
+        expected.put("nothing",null);
+        assertEquals(expected,decoder.read(in));
+
+        expected.clear();
+        expected.put("message","Fluent");
+        expected.put("user","Jacek");
+        expected.put("count",Long.MIN_VALUE);
+        assertEquals(expected,decoder.read(in));
+
+        assertNull(decoder.read(in));
+        // nothing was sent to SLF4J
+        assertEquals(entries.toString(),0,entries.size());
+    }
+
+    @Test
+    public void keyDictionaryTest() throws IOException {
+        for(int i = 0; i < 3; i++) {
+            log.info("Processed flight records","airlineCode","UA","recordCount",42L);
+        }
+
+        // the keys are defined only in the first record
+        assertEquals(sink.getSizes().toString(),3,sink.getSizes().size());
+        int first = sink.getSizes().get(0);
+        int next = sink.getSizes().get(1);
+        assertEquals(first - "airlineCode".length() - "recordCount".length() - 2, next);
+        assertEquals(next,(int) sink.getSizes().get(2));
+
+        BinaryDecoder decoder = new BinaryDecoder();
+        InputStream in = sink.getStream();
+        for(int i = 0; i < 3; i++) {
+            Map<String,Object> record = decoder.read(in);
+            assertEquals(record.toString(),"UA",record.get("airlineCode"));
+            assertEquals(record.toString(),42L,record.get("recordCount"));
+        }
+    }
+
+    @Test
+    public void resetDictionaryTest() throws IOException {
+        log.info("First stream","user","Jacek");
+        formatter.resetDictionary();
+        CapturingByteSink second = new CapturingByteSink();
+        StructLog4J.setByteSink(second);
+        log.atInfo("Second stream").kv("user","John").log();
+
+        // the second stream can be read on its own
+        Map<String,Object> record = new BinaryDecoder().read(second.getStream());
+        assertEquals(record.toString(),"John",record.get("user"));
+        assertEquals(sink.getSizes().get(0),second.getSizes().get(0));
+    }
+
+    @Test
+    public void structKeyTest() throws IOException {
+        StructKey user = StructKey.of("user");
+        log.atInfo("Before reset").kv(user,"Jacek").log();
+        log.atInfo("Cached").kv(user,"Jacek").log();
+        formatter.resetDictionary();
+        log.atInfo("After reset").kv(user,"Jacek").log();
+
+        BinaryDecoder decoder = new BinaryDecoder();
+        InputStream in = sink.getStream();
+        assertEquals("Jacek",decoder.read(in).get("user"));
+        assertEquals("Jacek",decoder.read(in).get("user"));
+        // defined again after the reset
+        decoder.resetDictionary();
+        assertEquals("Jacek",decoder.read(in).get("user"));
+        assertTrue(sink.getSizes().get(2) > sink.getSizes().get(1));
+    }
+
+    @Test
+    public void keyValueWithoutSinkTest() {
+        StructLog4J.clearByteSink();
+        logForKeyValue();
+        LinkedList<LogEntry> actual = new LinkedList<>(entries);
+        entries.clear();
+
+        StructLog4J.setFormatter(KeyValuePairFormatter.getInstance());
+        logForKeyValue();
+
+        assertEquals(entries.size(),actual.size());
+        for(int i = 0; i < entries.size(); i++) {
+            assertMessage(actual,i,entries.get(i).getLevel(),entries.get(i).getMessage(),false);
+        }
+    }
+
+    @Test
+    public void decodeToKeyValueTest() {
+        log.error("This is an error","user","Jacek Furmankiewicz","count",5,"success",false);
+
+        Map<String,Object> record = new BinaryDecoder().decode(java.nio.ByteBuffer.wrap(sink.getBytes()));
+        assertEquals("This is an error user=\"Jacek Furmankiewicz\" count=5 success=false",BinaryDecoder.toKeyValue(record));
+    }
+
+    @Test
+    public void smallerThanJsonTest() {
+        for(int i = 0; i < 10; i++) {
+            log.info("Processed flight records","airlineCode","UA","recordCount",1234567L,"ratio",0.75,"success",true);
+        }
+
+        StructLog4J.setFormatter(JsonByteFormatter.getInstance());
+        TestByteSink json = new TestByteSink();
+        StructLog4J.setByteSink(json);
+        for(int i = 0; i < 10; i++) {
+            log.info("Processed flight records","airlineCode","UA","recordCount",1234567L,"ratio",0.75,"success",true);
+        }
+
+        // 54 bytes per repeated record (92 for the first one) vs 107 for JSON
+        assertEquals(578,sink.getBytes().length);
+        assertEquals(1070,json.getBytesWritten());
+    }
+
+    @Test
+    public void allocationBudgetTest() {
+        StructLog4J.setByteSink(new TestByteSink());
+        assertAllocatesAtMost(0, () -> log.info("Processed flight records", "airlineCode", "UA", "recordCount", 42L));
+        assertAllocatesAtMost(0, () -> log.atInfo("Processed flight records").kv("airlineCode", "UA").kv("recordCount", 42L).kv("success", true).log());
+    }
+
+    private void logForKeyValue() {
+        log.error("This is an error","user","Jacek Furmankiewicz","count",-5L,"ratio",1.5,"success",true);
+        log.info("Message with IToLog",iToLog,"nothing",null);
+        log.atWarn("Fluent").kv(StructKey.of("user"),"Jacek").kv("int",5).log();
+    }
+}
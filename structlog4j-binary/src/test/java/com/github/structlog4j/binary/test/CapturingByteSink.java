@@ -0,0 +1,41 @@
+package com.github.structlog4j.binary.test;
+
+import com.github.structlog4j.IByteSink;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Byte sink that keeps the raw stream, so it can be read back with the BinaryDecoder
+ */
+public class CapturingByteSink implements IByteSink {
+
+    private final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    private final List<Integer> sizes = new ArrayList<>();
+
+    @Override
+    public void write(Logger log, Level level, ByteBuffer entry, Throwable error) {
+        sizes.add(entry.remaining());
+        while (entry.hasRemaining()) {
+            stream.write(entry.get());
+        }
+    }
+
+    public InputStream getStream() {
+        return new ByteArrayInputStream(stream.toByteArray());
+    }
+
+    public byte[] getBytes() {
+        return stream.toByteArray();
+    }
+
+    public List<Integer> getSizes() {
+        return sizes;
+    }
+}
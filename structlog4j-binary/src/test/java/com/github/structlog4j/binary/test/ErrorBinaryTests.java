@@ -0,0 +1,114 @@
+package com.github.structlog4j.binary.test;
+
+import com.github.structlog4j.IByteFormatter;
+import com.github.structlog4j.IByteSink;
+import com.github.structlog4j.SLogger;
+import com.github.structlog4j.SLoggerFactory;
+import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.binary.BinaryDecoder;
+import com.github.structlog4j.binary.BinaryFormatter;
+import com.github.structlog4j.test.TestUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+import org.slf4j.impl.LogEntry;
+import org.slf4j.impl.TestLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for handling of invalid input
+ */
+public class ErrorBinaryTests {
+
+    private SLogger log;
+    private LinkedList<LogEntry> entries;
+    private CapturingByteSink sink;
+
+    @Before
+    public void setup() {
+        TestUtils.initForTesting();
+        sink = new CapturingByteSink();
+        StructLog4J.setFormatter(new BinaryFormatter());
+        StructLog4J.setByteSink(sink);
+
+        log = (SLogger) SLoggerFactory.getLogger(ErrorBinaryTests.class);
+        entries = ((TestLogger)log.getSlfjLogger()).getEntries();
+        // loggers are cached, start from scratch
+        entries.clear();
+    }
+
+    @Test
+    public void messageKeyRenamedTest() throws IOException {
+        log.error("This is an error","message","Some other message");
+
+        assertEquals(entries.toString(),1,entries.size());
+        assertEquals(entries.toString(),"Key 'message' renamed to 'message2' in order to avoid overriding default message field. Please correct in your code.",entries.get(0).getMessage());
+
+        Map<String,Object> record = new BinaryDecoder().read(sink.getStream());
+        assertEquals(record.toString(),"This is an error",record.get("message"));
+        assertEquals(record.toString(),"Some other message",record.get("message2"));
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedRecordTest() throws IOException {
+        log.error("This is an error","user","Jacek");
+        byte[] bytes = sink.getBytes();
+
+        new BinaryDecoder().read(new ByteArrayInputStream(Arrays.copyOf(bytes,bytes.length - 3)));
+    }
+
+    @Test(expected = IOException.class)
+    public void undefinedKeyTest() throws IOException {
+        log.error("First","user","Jacek");
+        log.error("Second","user","Jacek");
+        byte[] bytes = sink.getBytes();
+        int second = sink.getSizes().get(0);
+
+        // the second record refers to a key defined in the first one
+        new BinaryDecoder().read(new ByteArrayInputStream(Arrays.copyOfRange(bytes,second,bytes.length)));
+    }
+
+    @Test
+    public void droppedRecordTest() throws IOException {
+        // drops the first entry, like a sink that has already been closed
+        StructLog4J.setByteSink(new IByteSink() {
+            private int count = 0;
+
+            @Override
+            public void write(Logger log, Level level, ByteBuffer entry, Throwable error) {
+                sink.write(log, level, entry, error);
+            }
+
+            @Override
+            public boolean write(Logger log, Level level, ByteBuffer entry, Throwable error, IByteFormatter<?> formatter) {
+                return count++ > 0 && IByteSink.super.write(log, level, entry, error, formatter);
+            }
+        });
+        log.error("Dropped","user","Jacek");
+        log.error("Written","user","John");
+        log.error("Next","user","Jacek");
+
+        // the key is defined again in the first record that was actually written
+        InputStream in = sink.getStream();
+        BinaryDecoder decoder = new BinaryDecoder();
+        assertEquals("John",decoder.read(in).get("user"));
+        assertEquals("Jacek",decoder.read(in).get("user"));
+        assertNull(decoder.read(in));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corruptRecordTest() {
+        new BinaryDecoder().decode(ByteBuffer.wrap(new byte[]{0x7F, 0x01, 0x02}));
+    }
+}
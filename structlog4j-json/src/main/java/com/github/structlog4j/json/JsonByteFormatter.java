@@ -0,0 +1,177 @@
+package com.github.structlog4j.json;
+
+import com.github.structlog4j.IByteFormatter;
+import com.github.structlog4j.IFormatter;
+import com.github.structlog4j.StructKey;
+import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.Utf8Buffer;
+import org.slf4j.Logger;
+
+/**
+ * Byte version of the JsonFormatter, writes the JSON object straight to UTF-8 without
+ * building any JSON object tree or String first. Same field names, type mapping and duplicate key handling as the JsonFormatter
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class JsonByteFormatter implements IByteFormatter<Utf8Buffer> {
+
+    private static final String FIELD_MESSAGE = "message";
+    private static final String FIELD_MESSAGE_2 = "message2";
+
+    private static final byte[] START = {'{','"','m','e','s','s','a','g','e','"',':'};
+    private static final byte[] NULL = {'n','u','l','l'};
+
+    private static final int KEY_ENCODING = StructKey.newEncoding();
+
+    private static final JsonByteFormatter INSTANCE = new JsonByteFormatter();
+    public static JsonByteFormatter getInstance() {return INSTANCE;}
+
+    @Override
+    public final Utf8Buffer start(Logger log) {
+        return StructLog4J.getBufferPool().acquireBytes();
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addMessage(Logger log, Utf8Buffer bld, String message) {
+        bld.write(START);
+        JsonEscaper.appendString(bld, message);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, String key, Object value) {
+        appendValue(appendKey(bld, checkKey(log, key)), value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, String key, long value) {
+        appendKey(bld, checkKey(log, key)).write(value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, String key, double value) {
+        appendDouble(appendKey(bld, checkKey(log, key)), value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, String key, boolean value) {
+        appendKey(bld, checkKey(log, key)).write(value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, StructKey key, Object value) {
+        appendValue(bld.write(encode(log, key)), value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, StructKey key, long value) {
+        bld.write(encode(log, key)).write(value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, StructKey key, double value) {
+        appendDouble(bld.write(encode(log, key)), value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, StructKey key, boolean value) {
+        bld.write(encode(log, key)).write(value);
+        return this;
+    }
+
+    @Override
+    public final Utf8Buffer endBytes(Logger log, Utf8Buffer bld) {
+        JsonKeys.dedupe(bld);
+        return bld.writeAscii('}');
+    }
+
+    @Override
+    public final void release(Logger log, Utf8Buffer bld) {
+        StructLog4J.getBufferPool().release(bld);
+    }
+
+    // fragments are pre-encoded ,"key1":value1,"key2":value2 bytes
+    @Override
+    public final Utf8Buffer startFragment(Logger log) {
+        return new Utf8Buffer();
+    }
+
+    @Override
+    public final Object endFragment(Logger log, Utf8Buffer fragmentBld) {
+        return fragmentBld.toByteArray();
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addFragment(Logger log, Utf8Buffer bld, Object fragment) {
+        bld.write((byte[]) fragment);
+        return this;
+    }
+
+    // the message always comes first, so every key is preceded by a comma
+    private Utf8Buffer appendKey(Utf8Buffer bld, String key) {
+        bld.writeAscii(',');
+        JsonEscaper.appendString(bld, key);
+        return bld.writeAscii(':');
+    }
+
+    // same type mapping as the JsonFormatter
+    private void appendValue(Utf8Buffer bld, Object value) {
+        if (value == null) {
+            bld.write(NULL);
+        } else if (value instanceof Boolean) {
+            bld.write((boolean) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Long) {
+            bld.write(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            appendDouble(bld, (double) value);
+        } else if (value instanceof Float) {
+            appendFloat(bld, (float) value);
+        } else {
+            JsonEscaper.appendString(bld, String.valueOf(value));
+        }
+    }
+
+    // JSON has no NaN or Infinity, those are written as strings
+    private void appendDouble(Utf8Buffer bld, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            bld.writeAscii('"').write(value).writeAscii('"');
+        } else {
+            bld.write(value);
+        }
+    }
+
+    // shortest float representation, widening to double would turn 0.1f into 0.10000000149011612
+    private void appendFloat(Utf8Buffer bld, float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            bld.writeAscii('"').write(Float.toString(value)).writeAscii('"');
+        } else {
+            bld.write(Float.toString(value));
+        }
+    }
+
+    // ,"key": is checked and encoded only once per key and cached in it
+    private byte[] encode(Logger log, StructKey key) {
+        byte[] encoded = (byte[]) key.getEncoded(KEY_ENCODING);
+        if (encoded == null) {
+            encoded = key.setEncoded(KEY_ENCODING, appendKey(new Utf8Buffer(), checkKey(log, key.getName())).toByteArray());
+        }
+        return encoded;
+    }
+
+    // avoid overriding the "message" field
+    private String checkKey(Logger log, String key) {
+        if (key.equals(FIELD_MESSAGE)) {
+            log.warn("Key 'message' renamed to 'message2' in order to avoid overriding default JSON message field. Please correct in your code.");
+            return FIELD_MESSAGE_2;
+        }
+        return key;
+    }
+
+}
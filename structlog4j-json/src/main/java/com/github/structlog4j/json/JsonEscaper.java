@@ -0,0 +1,130 @@
+package com.github.structlog4j.json;
+
+import com.github.structlog4j.Utf8Buffer;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Hand-written JSON string escaping, shared by the JSON formatters.
+ * Quotes, backslashes and control characters are escaped, everything else is written as is.
+ * Strings without any of those (the vast majority) are appended in one go
+ */
+@UtilityClass // Lombok
+class JsonEscaper {
+
+    private static final char[] HEX = {'0','1','2','3','4','5','6','7','8','9','a','b','c','d','e','f'};
+
+    /**
+     * Appends the value as a quoted JSON string
+     */
+    void appendString(StringBuilder bld, String value) {
+        bld.append('"');
+        int length = value.length();
+        int i = firstToEscape(value);
+        if (i == length) {
+            // fast path, nothing to escape
+            bld.append(value).append('"');
+            return;
+        }
+
+        bld.append(value, 0, i);
+        for(; i < length; i++) {
+            char c = value.charAt(i);
+            if (needsEscaping(c)) {
+                appendEscape(bld, c);
+            } else {
+                bld.append(c);
+            }
+        }
+        bld.append('"');
+    }
+
+    /**
+     * Same, encoded straight to UTF-8
+     */
+    void appendString(Utf8Buffer bld, String value) {
+        bld.writeAscii('"');
+        int length = value.length();
+        int start = 0;
+        for(int i = firstToEscape(value); i < length; i++) {
+            char c = value.charAt(i);
+            if (needsEscaping(c)) {
+                bld.write(value, start, i);
+                start = i + 1;
+                appendEscape(bld, c);
+            }
+        }
+        bld.write(value, start, length).writeAscii('"');
+    }
+
+    private int firstToEscape(String value) {
+        int length = value.length();
+        for(int i = 0; i < length; i++) {
+            if (needsEscaping(value.charAt(i))) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private boolean needsEscaping(char c) {
+        return c < 0x20 || c == '"' || c == '\\';
+    }
+
+    private void appendEscape(StringBuilder bld, char c) {
+        bld.append('\\');
+        switch (c) {
+            case '"':
+                bld.append('"');
+                break;
+            case '\\':
+                bld.append('\\');
+                break;
+            case '\n':
+                bld.append('n');
+                break;
+            case '\r':
+                bld.append('r');
+                break;
+            case '\t':
+                bld.append('t');
+                break;
+            case '\b':
+                bld.append('b');
+                break;
+            case '\f':
+                bld.append('f');
+                break;
+            default:
+                bld.append('u').append('0').append('0').append(HEX[c >> 4]).append(HEX[c & 0xF]);
+        }
+    }
+
+    private void appendEscape(Utf8Buffer bld, char c) {
+        bld.writeAscii('\\');
+        switch (c) {
+            case '"':
+                bld.writeAscii('"');
+                break;
+            case '\\':
+                bld.writeAscii('\\');
+                break;
+            case '\n':
+                bld.writeAscii('n');
+                break;
+            case '\r':
+                bld.writeAscii('r');
+                break;
+            case '\t':
+                bld.writeAscii('t');
+                break;
+            case '\b':
+                bld.writeAscii('b');
+                break;
+            case '\f':
+                bld.writeAscii('f');
+                break;
+            default:
+                bld.writeAscii('u').writeAscii('0').writeAscii('0').writeAscii(HEX[c >> 4]).writeAscii(HEX[c & 0xF]);
+        }
+    }
+}
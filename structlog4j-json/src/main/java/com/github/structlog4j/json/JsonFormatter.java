@@ -1,70 +1,177 @@
 package com.github.structlog4j.json;
 
 import com.github.structlog4j.IFormatter;
+import com.github.structlog4j.StructKey;
+import com.github.structlog4j.StructLog4J;
 import org.slf4j.Logger;
 
-import javax.json.Json;
-import javax.json.JsonObjectBuilder;
-import javax.json.JsonWriter;
-import java.io.StringWriter;
-
 /**
- * Basic JSON formatter. Formats using Glassfish JSON library as it has minimal
- * dependencies
+ * Basic JSON formatter. Streams the JSON object directly into a pooled StringBuilder,
+ * without building any JSON object tree first, e.g.
+ *
+ * {"message":"Processed flight records","recordCount":23,"airlineCode":"UA"}
+ *
+ * A key passed more than once (e.g. also set by the mandatory context) is written once,
+ * at its first position with its last value
  *
  * @author Jacek Furmankiewicz
  */
-public class JsonFormatter implements IFormatter<JsonObjectBuilder> {
+public class JsonFormatter implements IFormatter<StringBuilder> {
 
     private static final String FIELD_MESSAGE = "message";
     private static final String FIELD_MESSAGE_2 = "message2";
 
+    private static final String START = "{\"message\":";
+    private static final String NULL = "null";
+
+    private static final int KEY_ENCODING = StructKey.newEncoding();
+
     private static final JsonFormatter INSTANCE = new JsonFormatter();
     public static JsonFormatter getInstance() {return INSTANCE;}
 
     @Override
-    public final JsonObjectBuilder start(Logger log) {
-        return Json.createObjectBuilder();
+    public final StringBuilder start(Logger log) {
+        return StructLog4J.getBufferPool().acquireChars();
     }
 
     @Override
-    public final IFormatter<JsonObjectBuilder> addMessage(Logger log, JsonObjectBuilder bld, String message) {
-        bld.add(FIELD_MESSAGE,message);
+    public final IFormatter<StringBuilder> addMessage(Logger log, StringBuilder bld, String message) {
+        bld.append(START);
+        JsonEscaper.appendString(bld, message);
         return this;
     }
 
     @Override
-    public final IFormatter<JsonObjectBuilder> addKeyValue(Logger log, JsonObjectBuilder bld, String key, Object value) {
-        // avoid overriding the "message" field
-        if (key.equals(FIELD_MESSAGE)) {
-            key = FIELD_MESSAGE_2;
-            log.warn("Key 'message' renamed to 'message2' in order to avoid overriding default JSON message field. Please correct in your code.");
-        }
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, String key, Object value) {
+        appendValue(appendKey(bld, checkKey(log, key)), value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, String key, long value) {
+        appendKey(bld, checkKey(log, key)).append(value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, String key, double value) {
+        appendDouble(appendKey(bld, checkKey(log, key)), value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, String key, boolean value) {
+        appendKey(bld, checkKey(log, key)).append(value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, StructKey key, Object value) {
+        appendValue(bld.append(encode(log, key)), value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, StructKey key, long value) {
+        bld.append(encode(log, key)).append(value);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, StructKey key, double value) {
+        appendDouble(bld.append(encode(log, key)), value);
+        return this;
+    }
 
-        // different methods per type
+    @Override
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, StructKey key, boolean value) {
+        bld.append(encode(log, key)).append(value);
+        return this;
+    }
+
+    @Override
+    public final String end(Logger log, StringBuilder bld) {
+        JsonKeys.dedupe(bld);
+        String entry = bld.append('}').toString();
+        StructLog4J.getBufferPool().release(bld);
+        return entry;
+    }
+
+    // fragments are pre-formatted ,"key1":value1,"key2":value2 text
+    @Override
+    public final StringBuilder startFragment(Logger log) {
+        return new StringBuilder();
+    }
+
+    @Override
+    public final Object endFragment(Logger log, StringBuilder fragmentBld) {
+        return fragmentBld.toString();
+    }
+
+    @Override
+    public final IFormatter<StringBuilder> addFragment(Logger log, StringBuilder bld, Object fragment) {
+        bld.append((String) fragment);
+        return this;
+    }
+
+    // the message always comes first, so every key is preceded by a comma
+    private StringBuilder appendKey(StringBuilder bld, String key) {
+        bld.append(',');
+        JsonEscaper.appendString(bld, key);
+        return bld.append(':');
+    }
+
+    // different JSON types depending on the value type
+    private void appendValue(StringBuilder bld, Object value) {
         if (value == null) {
-            bld.addNull(key);
+            bld.append(NULL);
         } else if (value instanceof Boolean) {
-            bld.add(key,(boolean)value);
-        } else if (value instanceof Integer || value instanceof Short) {
-            bld.add(key,(int)value);
-        } else if (value instanceof Long) {
-            bld.add(key,(long)value);
-        } else if (value instanceof Double || value instanceof Float) {
-            bld.add(key,(double)value);
+            bld.append((boolean) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Long) {
+            bld.append(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            appendDouble(bld, (double) value);
+        } else if (value instanceof Float) {
+            appendFloat(bld, (float) value);
         } else {
-            bld.add(key,String.valueOf(value));
+            JsonEscaper.appendString(bld, String.valueOf(value));
         }
-        return this;
     }
 
-    @Override
-    public final String end(Logger log, JsonObjectBuilder bld) {
-        StringWriter stWriter = new StringWriter();
-        try (JsonWriter jsonWriter = Json.createWriter(stWriter)) {
-            jsonWriter.writeObject(bld.build());
+    // JSON has no NaN or Infinity, those are written as strings
+    private void appendDouble(StringBuilder bld, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            bld.append('"').append(value).append('"');
+        } else {
+            bld.append(value);
+        }
+    }
+
+    // shortest float representation, widening to double would turn 0.1f into 0.10000000149011612
+    private void appendFloat(StringBuilder bld, float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            bld.append('"').append(value).append('"');
+        } else {
+            bld.append(value);
+        }
+    }
+
+    // ,"key": is checked and encoded only once per key and cached in it
+    private String encode(Logger log, StructKey key) {
+        String encoded = (String) key.getEncoded(KEY_ENCODING);
+        if (encoded == null) {
+            encoded = key.setEncoded(KEY_ENCODING, appendKey(new StringBuilder(), checkKey(log, key.getName())).toString());
+        }
+        return encoded;
+    }
+
+    // avoid overriding the "message" field
+    private String checkKey(Logger log, String key) {
+        if (key.equals(FIELD_MESSAGE)) {
+            log.warn("Key 'message' renamed to 'message2' in order to avoid overriding default JSON message field. Please correct in your code.");
+            return FIELD_MESSAGE_2;
         }
-        return stWriter.toString();
+        return key;
     }
 
 }
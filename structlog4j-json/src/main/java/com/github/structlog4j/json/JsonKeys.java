@@ -0,0 +1,204 @@
+package com.github.structlog4j.json;
+
+import com.github.structlog4j.Utf8Buffer;
+import lombok.experimental.UtilityClass;
+
+import java.util.Arrays;
+
+/**
+ * Collapses keys passed more than once (e.g. also set by the mandatory context) in a streamed JSON entry,
+ * the same way a JSON object builder would: the first position with the last value.
+ * The entry is scanned once when it ends, without allocating anything unless a key is actually repeated
+ */
+@UtilityClass // Lombok
+class JsonKeys {
+
+    // {"message": then the message string
+    private static final int MESSAGE_START = 11;
+
+    // per pair: start (the comma), key end (the colon), end, key hash
+    private static final int START = 0;
+    private static final int KEY_END = 1;
+    private static final int END = 2;
+    private static final int HASH = 3;
+    private static final int SLOTS = 4;
+
+    private static final ThreadLocal<Scan> SCAN = ThreadLocal.withInitial(Scan::new);
+
+    /**
+     * Collapses duplicate keys of the entry, before the closing brace
+     */
+    void dedupe(StringBuilder bld) {
+        Scan scan = SCAN.get();
+        if (scan.pairs(bld) > 1 && scan.hasDuplicates(bld)) {
+            String entry = bld.toString();
+            int[] pairs = scan.pairs;
+            bld.setLength(pairs[START]);
+            for(int i = 0; i < scan.count; i++) {
+                int last = scan.last(entry, i);
+                if (last >= 0) {
+                    int p = i * SLOTS;
+                    int l = last * SLOTS;
+                    bld.append(entry, pairs[p + START], pairs[p + KEY_END]).append(entry, pairs[l + KEY_END], pairs[l + END]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Same, on the UTF-8 bytes
+     */
+    void dedupe(Utf8Buffer bld) {
+        Scan scan = SCAN.get();
+        Bytes bytes = scan.bytes.of(bld.array(), bld.length());
+        try {
+            if (scan.pairs(bytes) > 1 && scan.hasDuplicates(bytes)) {
+                byte[] entry = Arrays.copyOf(bld.array(), bld.length());
+                scan.bytes.of(entry, entry.length);
+                int[] pairs = scan.pairs;
+                bld.reset().write(entry, 0, pairs[START]);
+                for(int i = 0; i < scan.count; i++) {
+                    int last = scan.last(bytes, i);
+                    if (last >= 0) {
+                        int p = i * SLOTS;
+                        int l = last * SLOTS;
+                        bld.write(entry, pairs[p + START], pairs[p + KEY_END] - pairs[p + START])
+                                .write(entry, pairs[l + KEY_END], pairs[l + END] - pairs[l + KEY_END]);
+                    }
+                }
+            }
+        } finally {
+            scan.bytes.of(null, 0);
+        }
+    }
+
+    // reusable per thread
+    private static final class Scan {
+        private int[] pairs = new int[16 * SLOTS];
+        private int count;
+        private final Bytes bytes = new Bytes();
+
+        // records the ,"key":value pairs after the message, returns how many
+        int pairs(CharSequence entry) {
+            int length = entry.length();
+            int i = skipString(entry, MESSAGE_START);
+            count = 0;
+            while (i < length && entry.charAt(i) == ',') {
+                int start = i;
+                int keyEnd = skipString(entry, i + 1);
+                int hash = 0;
+                for(int k = start + 1; k < keyEnd; k++) {
+                    hash = 31 * hash + entry.charAt(k);
+                }
+                i = keyEnd + 1;
+                if (i < length && entry.charAt(i) == '"') {
+                    i = skipString(entry, i);
+                } else {
+                    while (i < length && entry.charAt(i) != ',') {
+                        i++;
+                    }
+                }
+                add(start, keyEnd, i, hash);
+            }
+            return count;
+        }
+
+        boolean hasDuplicates(CharSequence entry) {
+            for(int i = 1; i < count; i++) {
+                for(int j = 0; j < i; j++) {
+                    if (sameKey(entry, i, j)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        // index of the pair with the last value for the key of pair i, -1 if the key was already written before
+        int last(CharSequence entry, int i) {
+            for(int j = 0; j < i; j++) {
+                if (sameKey(entry, i, j)) {
+                    return -1;
+                }
+            }
+            int last = i;
+            for(int j = i + 1; j < count; j++) {
+                if (sameKey(entry, i, j)) {
+                    last = j;
+                }
+            }
+            return last;
+        }
+
+        private boolean sameKey(CharSequence entry, int i, int j) {
+            int p = i * SLOTS;
+            int q = j * SLOTS;
+            if (pairs[p + HASH] != pairs[q + HASH]) {
+                return false;
+            }
+            int length = pairs[p + KEY_END] - pairs[p + START];
+            if (length != pairs[q + KEY_END] - pairs[q + START]) {
+                return false;
+            }
+            for(int k = 1; k < length; k++) {
+                if (entry.charAt(pairs[p + START] + k) != entry.charAt(pairs[q + START] + k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void add(int start, int keyEnd, int end, int hash) {
+            int p = count * SLOTS;
+            if (p + SLOTS > pairs.length) {
+                pairs = Arrays.copyOf(pairs, pairs.length * 2);
+            }
+            pairs[p + START] = start;
+            pairs[p + KEY_END] = keyEnd;
+            pairs[p + END] = end;
+            pairs[p + HASH] = hash;
+            count++;
+        }
+    }
+
+    // index right after the JSON string starting at i
+    private int skipString(CharSequence entry, int i) {
+        int length = entry.length();
+        for(i++; i < length; i++) {
+            char c = entry.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i + 1;
+            }
+        }
+        return length;
+    }
+
+    // UTF-8 bytes seen as chars: all the JSON structural characters are ASCII, multi-byte sequences never match them
+    private static final class Bytes implements CharSequence {
+        private byte[] bytes;
+        private int length;
+
+        Bytes of(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -2,8 +2,11 @@ package com.github.structlog4j.json.test;
 
 import com.github.structlog4j.SLogger;
 import com.github.structlog4j.SLoggerFactory;
+import com.github.structlog4j.StructKey;
 import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.json.JsonByteFormatter;
 import com.github.structlog4j.json.JsonFormatter;
+import com.github.structlog4j.test.TestByteSink;
 import com.github.structlog4j.test.samples.BusinessObjectContext;
 import com.github.structlog4j.test.samples.TestSecurityContext;
 import com.github.structlog4j.test.TestUtils;
@@ -13,9 +16,12 @@ import org.slf4j.event.Level;
 import org.slf4j.impl.LogEntry;
 import org.slf4j.impl.TestLogger;
 
+import java.io.StringReader;
 import java.util.LinkedList;
+import javax.json.Json;
 
 import static com.github.structlog4j.test.TestUtils.*;
+import static com.github.structlog4j.test.PerformanceHarness.*;
 import static com.github.structlog4j.json.test.JsonTestUtils.*;
 import static org.junit.Assert.*;
 
@@ -35,6 +41,8 @@ public class BasicJsonTests {
 
         log = (SLogger) SLoggerFactory.getLogger(BasicJsonTests.class);
         entries = ((TestLogger)log.getSlfjLogger()).getEntries();
+        // loggers are cached, start from scratch
+        entries.clear();
 
     }
 
@@ -74,6 +82,38 @@ public class BasicJsonTests {
         assertMessage(entries,0,Level.ERROR,"{\"message\":\"This is an error\",\"user\":null}",false);
     }
 
+    @Test
+    public void duplicateKeyTest() {
+        StructLog4J.setMandatoryContextSupplier(() -> new Object[]{"user","System"});
+
+        log.error("This is an error","user","Jacek");
+        StructLog4J.setFormatter(JsonByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+        log.error("This is an error","user","Jacek");
+
+        // one field, last value wins
+        assertEquals(entries.toString(),2,entries.size());
+        assertJsonMessages(entries);
+        assertMessage(entries,0,Level.ERROR,"{\"message\":\"This is an error\",\"user\":\"System\"}",false);
+        assertMessage(entries,1,Level.ERROR,"{\"message\":\"This is an error\",\"user\":\"System\"}",false);
+        assertEquals("System",Json.createReader(new StringReader(entries.get(0).getMessage())).readObject().getString("user"));
+    }
+
+    @Test
+    public void duplicateKeyPositionTest() {
+        log.error("This is an error","user","Jacek","tenant","Acme","user","Jane \"JD\" Doe","count",1,"count",2);
+        StructLog4J.setFormatter(JsonByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+        log.error("This is an error","user","Jacek","tenant","Acme","user","Jane \"JD\" Doe","count",1,"count",2);
+
+        // first position, last value
+        assertEquals(entries.toString(),2,entries.size());
+        assertJsonMessages(entries);
+        String expected = "{\"message\":\"This is an error\",\"user\":\"Jane \\\"JD\\\" Doe\",\"tenant\":\"Acme\",\"count\":2}";
+        assertMessage(entries,0,Level.ERROR,expected,false);
+        assertMessage(entries,1,Level.ERROR,expected,false);
+    }
+
     @Test
     public void multipleKeyValuePairsTest() {
         log.error("This is an error","user","John Doe","tenant","System","requestId","1234");
@@ -259,5 +299,108 @@ public class BasicJsonTests {
                 entries.get(2).getMessage());
     }
 
-}
+    @Test
+    public void primitiveKeyValueTest() {
+        log.error("This is an error","count",23L,"ratio",0.5);
+        log.error("This is an error","success",true,"user","John Doe");
 
+        assertEquals(entries.toString(),2,entries.size());
+        JsonTestUtils.assertJsonMessages(entries);
+        assertMessage(entries,0,Level.ERROR,"{\"message\":\"This is an error\",\"count\":23,\"ratio\":0.5}",false);
+        assertMessage(entries,1,Level.ERROR,"{\"message\":\"This is an error\",\"success\":true,\"user\":\"John Doe\"}",false);
+    }
+
+    @Test
+    public void floatKeyValueTest() {
+        log.error("This is an error","ratio",0.1f);
+        log.atError("This is an error").kv("ratio",0.1f).kv("max",Float.POSITIVE_INFINITY).log();
+        StructLog4J.setFormatter(JsonByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+        log.error("This is an error","ratio",0.1f,"avg",Float.NaN);
+
+        // not widened to double, 0.1f would be 0.10000000149011612
+        assertEquals(entries.toString(),3,entries.size());
+        JsonTestUtils.assertJsonMessages(entries);
+        assertMessage(entries,0,Level.ERROR,"{\"message\":\"This is an error\",\"ratio\":0.1}",false);
+        assertMessage(entries,1,Level.ERROR,"{\"message\":\"This is an error\",\"ratio\":0.1,\"max\":\"Infinity\"}",false);
+        assertMessage(entries,2,Level.ERROR,"{\"message\":\"This is an error\",\"ratio\":0.1,\"avg\":\"NaN\"}",false);
+    }
+
+    @Test
+    public void fluentTest() {
+        log.atError("This is an error").kv("count",23L).kv("ratio",0.5).kv("success",true).kv("user",null).log();
+
+        assertEquals(entries.toString(),1,entries.size());
+        JsonTestUtils.assertJsonMessage(entries,0);
+        assertMessage(entries,0,Level.ERROR,"{\"message\":\"This is an error\",\"count\":23,\"ratio\":0.5,\"success\":true,\"user\":null}",false);
+    }
+
+    @Test
+    public void structKeyTest() {
+        StructKey user = StructKey.of("user");
+        StructKey count = StructKey.of("count");
+
+        log.error("This is an error",user,"John Doe",count,23L);
+        log.atError("This is an error").kv(user,"Jane").kv(count,24L).kv(StructKey.of("ratio"),0.5).log();
+
+        assertEquals(entries.toString(),2,entries.size());
+        JsonTestUtils.assertJsonMessages(entries);
+        assertMessage(entries,0,Level.ERROR,"{\"message\":\"This is an error\",\"user\":\"John Doe\",\"count\":23}",false);
+        assertMessage(entries,1,Level.ERROR,"{\"message\":\"This is an error\",\"user\":\"Jane\",\"count\":24,\"ratio\":0.5}",false);
+    }
+
+    @Test
+    public void staticMandatoryContextTest() {
+        StructLog4J.setStaticMandatoryContext(() -> new Object[]{"hostname","Titanic","pid",1234L});
+        StructLog4J.setMandatoryContextSupplier(() -> new Object[]{"serviceName","MyService"});
+
+        log.error("This is an error","key1",1L);
+        log.error("This is another error");
+
+        assertEquals(entries.toString(),2,entries.size());
+        JsonTestUtils.assertJsonMessages(entries);
+        assertMessage(entries,0,Level.ERROR,"{\"message\":\"This is an error\",\"key1\":1,\"hostname\":\"Titanic\",\"pid\":1234,\"serviceName\":\"MyService\"}",false);
+        assertMessage(entries,1,Level.ERROR,"{\"message\":\"This is another error\",\"hostname\":\"Titanic\",\"pid\":1234,\"serviceName\":\"MyService\"}",false);
+    }
+
+    @Test
+    public void byteFormatterTest() {
+        StructLog4J.setStaticMandatoryContext(() -> new Object[]{"hostname","Titanic","pid",1234L});
+        logForByteFormatter();
+        LinkedList<LogEntry> expected = new LinkedList<>(entries);
+        entries.clear();
+
+        // same output, but straight to the sink
+        StructLog4J.setFormatter(JsonByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+        logForByteFormatter();
+
+        JsonTestUtils.assertJsonMessages(entries);
+        assertSameMessages(expected);
+    }
+
+    @Test
+    public void allocationBudgetTest() {
+        // only the final String
+        assertAllocatesAtMost(200, () -> log.info("Processed flight records", "airlineCode", "UA", "recordCount", 42L));
+
+        StructLog4J.setFormatter(JsonByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+        assertAllocatesAtMost(0, () -> log.info("Processed flight records", "airlineCode", "UA", "recordCount", 42L));
+        assertAllocatesAtMost(0, () -> log.atInfo("Processed flight records").kv("airlineCode", "UA").kv("recordCount", 42L).kv("success", true).log());
+    }
+
+    private void assertSameMessages(LinkedList<LogEntry> expected) {
+        assertEquals(entries.toString(),expected.size(),entries.size());
+        for(int i = 0; i < expected.size(); i++) {
+            assertMessage(entries,i,expected.get(i).getLevel(),expected.get(i).getMessage(),expected.get(i).getError().isPresent());
+        }
+    }
+
+    private void logForByteFormatter() {
+        log.error("This is an \"error\"","user","John \\ Doe","count",-123456789L,"success",true);
+        log.info("Zażółć gęślą jaźń \uD83D\uDE00\ttab\nline",iToLog,"ratio",1.5,"whole",2.0,"int",5,"nothing",null);
+        log.atWarn("Fluent\u0001").kv(StructKey.of("user"),"Jacek").kv(StructKey.of("count"),Long.MIN_VALUE).cause(new RuntimeException("Major exception")).log();
+    }
+
+}
@@ -36,6 +36,8 @@ public class ErrorJsonTests {
 
         log = (SLogger) SLoggerFactory.getLogger(ErrorJsonTests.class);
         entries = ((TestLogger)log.getSlfjLogger()).getEntries();
+        // loggers are cached, start from scratch
+        entries.clear();
     }
 
     @Test(expected = RuntimeException.class)
@@ -0,0 +1,347 @@
+package com.github.structlog4j.sink;
+
+import com.github.structlog4j.IByteFormatter;
+import com.github.structlog4j.IByteSink;
+import com.github.structlog4j.StructLog4J;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Byte sink with group commit: logging threads only copy their entries (one per line, followed by the stack trace
+ * of the exception, if any, while binary entries are copied as they are) into a direct buffer, while a background thread writes out everything that accumulated
+ * since its previous write in one call. With two buffers swapped between them, logging threads wait only
+ * if they fill a whole buffer faster than the previous one gets written.
+ *
+ * Subclasses do the actual writing, always on the background thread
+ *
+ * @author Jacek Furmankiewicz
+ */
+public abstract class BatchingByteSink implements IByteSink, Closeable {
+
+    private static final byte NEW_LINE = '\n';
+    // how often the background thread calls idle() when there is nothing to write
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // background thread waits for entries
+    private final Condition notEmpty = lock.newCondition();
+    // logging threads wait for space, for another thread to finish its entry or for a flush
+    private final Condition notFull = lock.newCondition();
+
+    // everything below is guarded by the lock
+    private ByteBuffer filling;
+    // null while being written by the background thread
+    private ByteBuffer spare;
+    // thread in the middle of copying an entry, so that entries larger than the free space do not get mixed up
+    private Thread owner;
+    private long appended;
+    private long written;
+    private boolean closed;
+    // the last one an entry was written with, for the stream header
+    private IByteFormatter<?> formatter;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread writer;
+    private final Thread shutdownHook;
+    // formatter of the batch being written, only used on the background thread
+    private IByteFormatter<?> batchFormatter;
+
+    /**
+     * @param name Name of the background thread
+     * @param bufferSize Size of each of the two buffers
+     * @param closeOnShutdown Registers a JVM shutdown hook that calls close()
+     */
+    protected BatchingByteSink(String name, int bufferSize, boolean closeOnShutdown) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        filling = ByteBuffer.allocateDirect(bufferSize);
+        spare = ByteBuffer.allocateDirect(bufferSize);
+
+        writer = new Thread(this::run, name);
+        writer.setDaemon(true);
+
+        if (closeOnShutdown) {
+            shutdownHook = new Thread(this::close, name + "-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        } else {
+            shutdownHook = null;
+        }
+    }
+
+    /**
+     * Starts the background thread, called by subclasses once they are ready to write
+     */
+    protected final void start() {
+        writer.start();
+    }
+
+    /**
+     * Writes one batch, called only from the background thread
+     */
+    protected abstract void writeBatch(ByteBuffer batch) throws IOException;
+
+    /**
+     * Called from the background thread after every batch and periodically when there is nothing to write,
+     * e.g. for an fsync or rotation that is due
+     */
+    protected void idle() throws IOException {
+    }
+
+    /**
+     * Header to start a new stream with (e.g. a new file) before the next batch, null if the entries need none.
+     * Called only from the background thread
+     */
+    protected ByteBuffer streamHeader() {
+        return batchFormatter != null ? batchFormatter.streamHeader() : null;
+    }
+
+    /**
+     * Called from the background thread after the last batch was written
+     */
+    protected void closeTarget() throws IOException {
+    }
+
+    @Override
+    public void write(Logger log, Level level, ByteBuffer entry, Throwable error) {
+        write(entry, error, null);
+    }
+
+    @Override
+    public boolean write(Logger log, Level level, ByteBuffer entry, Throwable error, IByteFormatter<?> formatter) {
+        return write(entry, error, formatter);
+    }
+
+    private boolean write(ByteBuffer entry, Throwable error, IByteFormatter<?> formatter) {
+        boolean text = formatter == null || formatter.isText();
+        byte[] stackTrace = text && error != null ? stackTrace(error) : null;
+
+        lock.lock();
+        try {
+            while (owner != null) {
+                notFull.awaitUninterruptibly();
+            }
+            if (closed) {
+                dropped.increment();
+                return false;
+            }
+
+            owner = Thread.currentThread();
+            if (formatter != null) {
+                this.formatter = formatter;
+            }
+            appended += entry.remaining();
+            put(entry);
+            if (text) {
+                appended++;
+                putNewLine();
+            }
+            if (stackTrace != null) {
+                appended += stackTrace.length;
+                put(ByteBuffer.wrap(stackTrace));
+            }
+            return true;
+        } finally {
+            if (owner == Thread.currentThread()) {
+                owner = null;
+                notFull.signalAll();
+            }
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all the entries logged so far have been written
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            long target = appended;
+            while (written < target && writer.isAlive()) {
+                notEmpty.signal();
+                notFull.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes all the remaining entries and stops the background thread. Entries logged afterwards are dropped
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (writer.isAlive() && Thread.currentThread() != writer) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // already shutting down
+            }
+        }
+    }
+
+    /**
+     * Number of batches written so far, usually far fewer than the entries
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * Number of failed writes, each of them lost a whole batch
+     */
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    /**
+     * Number of entries dropped because they were logged after close()
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    // copies as much as fits, waits for the background thread to swap the buffers whenever the current one is full
+    private void put(ByteBuffer src) {
+        while (src.hasRemaining()) {
+            if (!filling.hasRemaining()) {
+                notEmpty.signal();
+                notFull.awaitUninterruptibly();
+                continue;
+            }
+            if (filling.position() == 0) {
+                notEmpty.signal();
+            }
+            if (src.remaining() <= filling.remaining()) {
+                filling.put(src);
+            } else {
+                ByteBuffer piece = src.duplicate();
+                piece.limit(piece.position() + filling.remaining());
+                filling.put(piece);
+                src.position(piece.position());
+            }
+        }
+    }
+
+    private void putNewLine() {
+        while (!filling.hasRemaining()) {
+            notEmpty.signal();
+            notFull.awaitUninterruptibly();
+        }
+        filling.put(NEW_LINE);
+    }
+
+    // background thread
+    private void run() {
+        while (true) {
+            ByteBuffer batch = null;
+            lock.lock();
+            try {
+                if (filling.position() == 0) {
+                    if (closed && owner == null) {
+                        break;
+                    }
+                    notEmpty.awaitNanos(IDLE_NANOS);
+                }
+                if (filling.position() > 0) {
+                    batchFormatter = formatter;
+                    batch = filling;
+                    filling = spare;
+                    spare = null;
+                    notFull.signalAll();
+                }
+            } catch (InterruptedException e) {
+                // keep going until closed
+            } finally {
+                lock.unlock();
+            }
+
+            int size = 0;
+            if (batch != null) {
+                batch.flip();
+                size = batch.remaining();
+                try {
+                    writeBatch(batch);
+                    batches.increment();
+                } catch (IOException | RuntimeException e) {
+                    error("write", e);
+                }
+                batch.clear();
+
+                lock.lock();
+                try {
+                    spare = batch;
+                    written += size;
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            try {
+                idle();
+            } catch (IOException | RuntimeException e) {
+                error("maintain", e);
+            }
+        }
+
+        try {
+            closeTarget();
+        } catch (IOException | RuntimeException e) {
+            error("close", e);
+        }
+        lock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // we are the logger, so it goes to the diagnostics channel (and the metrics) instead
+    private void error(String action, Exception e) {
+        errors.increment();
+        StructLog4J.reportSinkError(getClass(), action, e);
+    }
+
+    static byte[] stackTrace(Throwable error) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            PrintStream out = new PrintStream(bytes, false, "UTF-8");
+            error.printStackTrace(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.structlog4j.sink;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Byte sink writing to the standard output in batches, see BatchingByteSink.
+ * Much faster than System.out (which flushes every entry), but anything printed to System.out directly
+ * may end up between two batches
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class ConsoleByteSink extends BatchingByteSink {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel = new FileOutputStream(FileDescriptor.out).getChannel();
+
+    public ConsoleByteSink() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public ConsoleByteSink(int bufferSize) {
+        super("structlog4j-sink-console", bufferSize, true);
+        start();
+    }
+
+    @Override
+    protected void writeBatch(ByteBuffer batch) throws IOException {
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.structlog4j.sink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Byte sink appending the entries to a file, in batches written by a background thread via a FileChannel
+ * (see BatchingByteSink). Fsync and rotation are configurable, see FileSinkConfig.
+ *
+ * Rotated files get the next free number appended to their name (app.log.1, app.log.2, ...). Rotation happens
+ * on the background thread between two batches, logging threads keep filling the next batch in the meantime.
+ * Every file starts with the formatter's stream header (e.g. the keys of the BinaryFormatter)
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class FileByteSink extends BatchingByteSink {
+
+    private final Path path;
+    private final FileSinkConfig config;
+
+    // only used on the background thread
+    private FileChannel channel;
+    private long fileSize;
+    private long openedAt;
+    private long syncedAt;
+    private boolean unsynced;
+    private int rotated;
+    // the next batch gets the stream header first
+    private boolean newStream;
+
+    public FileByteSink(Path path) {
+        this(path, FileSinkConfig.DEFAULT);
+    }
+
+    public FileByteSink(Path path, FileSinkConfig config) {
+        super("structlog4j-sink-" + path.getFileName(), config.getBufferSize(), config.isCloseOnShutdown());
+        if (config.getFsyncPolicy() == null) {
+            throw new IllegalArgumentException("Fsync policy must be specified");
+        } else if (config.getMaxFileSize() < 0 || config.getRotationIntervalMillis() < 0 || config.getFsyncIntervalMillis() < 0) {
+            throw new IllegalArgumentException("File size, rotation and fsync intervals cannot be negative");
+        }
+        this.path = path.toAbsolutePath();
+        this.config = config;
+        try {
+            open();
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("Unable to open " + path, e);
+        }
+        start();
+    }
+
+    /**
+     * Path of the file currently written to
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    protected void writeBatch(ByteBuffer batch) throws IOException {
+        if (config.getMaxFileSize() > 0 && fileSize > 0 && fileSize + batch.remaining() > config.getMaxFileSize()) {
+            rotate();
+        }
+        if (newStream) {
+            // e.g. the keys of a binary format, so that every file can be read on its own
+            ByteBuffer header = streamHeader();
+            if (header != null) {
+                write(header);
+            }
+            newStream = false;
+        }
+        write(batch);
+        unsynced = true;
+
+        if (config.getFsyncPolicy() == FileSinkConfig.FsyncPolicy.EVERY_BATCH) {
+            sync();
+        }
+    }
+
+    @Override
+    protected void idle() throws IOException {
+        long now = System.nanoTime();
+        if (config.getRotationIntervalMillis() > 0 && fileSize > 0
+                && now - openedAt >= TimeUnit.MILLISECONDS.toNanos(config.getRotationIntervalMillis())) {
+            rotate();
+        } else if (unsynced && config.getFsyncPolicy() == FileSinkConfig.FsyncPolicy.INTERVAL
+                && now - syncedAt >= TimeUnit.MILLISECONDS.toNanos(config.getFsyncIntervalMillis())) {
+            sync();
+        }
+    }
+
+    @Override
+    protected void closeTarget() throws IOException {
+        if (config.getFsyncPolicy() != FileSinkConfig.FsyncPolicy.NEVER) {
+            sync();
+        }
+        channel.close();
+    }
+
+    private void write(ByteBuffer bytes) throws IOException {
+        int size = bytes.remaining();
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            // the lost entries may have defined something the next ones refer to
+            newStream = true;
+            throw e;
+        }
+        fileSize += size;
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        newStream = true;
+        fileSize = channel.size();
+        openedAt = System.nanoTime();
+        syncedAt = openedAt;
+    }
+
+    private void sync() throws IOException {
+        if (unsynced) {
+            channel.force(false);
+            unsynced = false;
+        }
+        syncedAt = System.nanoTime();
+    }
+
+    // the file is closed (and synced, unless never) before being renamed, so that it is complete
+    private void rotate() throws IOException {
+        closeTarget();
+        Path target;
+        do {
+            target = Paths.get(path + "." + (++rotated));
+        } while (Files.exists(target));
+        try {
+            Files.move(path, target);
+        } finally {
+            // keeps appending to the same file if it could not be renamed
+            open();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.structlog4j.sink;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.experimental.Wither;
+
+/**
+ * Settings for the FileByteSink. Start from the defaults and override only what is needed, e.g.
+ *
+ * new FileByteSink(Paths.get("app.log"), FileSinkConfig.DEFAULT.withMaxFileSize(100 * 1024 * 1024));
+ */
+@Value
+@Wither
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class FileSinkConfig {
+
+    /**
+     * When the written entries are forced to the disk
+     */
+    public enum FsyncPolicy {
+        /** Left to the operating system, fastest but entries may get lost if the machine (not just the JVM) crashes */
+        NEVER,
+        /** At most once per fsyncIntervalMillis */
+        INTERVAL,
+        /** After every batch, slowest but nothing that was written gets lost */
+        EVERY_BATCH
+    }
+
+    public static final FileSinkConfig DEFAULT = new FileSinkConfig(1024 * 1024, FsyncPolicy.INTERVAL, 1000, 0, 0, true);
+
+    /** Size of each of the two direct buffers the entries are batched in */
+    private int bufferSize;
+    private FsyncPolicy fsyncPolicy;
+    /** Used only with FsyncPolicy.INTERVAL */
+    private long fsyncIntervalMillis;
+    /** The file is rotated before it would grow beyond this size, 0 = never */
+    private long maxFileSize;
+    /** The file is rotated once it is this old, 0 = never */
+    private long rotationIntervalMillis;
+    /** Registers a JVM shutdown hook that writes all remaining entries and closes the file */
+    private boolean closeOnShutdown;
+}
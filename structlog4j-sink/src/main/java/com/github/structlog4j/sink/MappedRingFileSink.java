@@ -0,0 +1,258 @@
+package com.github.structlog4j.sink;
+
+import static com.github.structlog4j.sink.RingFileFormat.*;
+
+import com.github.structlog4j.IByteFormatter;
+import com.github.structlog4j.IByteSink;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Byte sink for crash-durable logging: the entries are written straight into a pre-allocated memory-mapped file,
+ * so they survive the JVM dying hard (the operating system writes the pages out on its own). The file is a ring
+ * of fixed-size segments, once full the oldest entries get overwritten. Read it back with the RingFileReader.
+ *
+ * Every record has a header with its length, sequence number and checksum (see RingFileFormat). Logging threads
+ * claim space with a CAS on the tail and copy their records in parallel, nothing is locked. Every segment starts
+ * with the formatter's stream header (e.g. the keys of the BinaryFormatter), so it can be read even once the ones
+ * before it have been overwritten, the other threads wait only while it is being written. An existing ring file
+ * with the same size is kept and written to after its newest valid record, so recover it before it gets overwritten.
+ * The ring should be much larger than what all the threads log at the same time
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class MappedRingFileSink implements IByteSink, Closeable {
+
+    private static final byte NEW_LINE = '\n';
+    private static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+    private static final int DEFAULT_SEGMENTS = 16;
+    // tail while the first thread to reach a new segment writes its header
+    private static final long STARTING_SEGMENT = -1;
+
+    private final Path path;
+    private final MappedByteBuffer file;
+    private final int segmentSize;
+    private final long capacity;
+
+    // position of the next record in the endless stream, also its sequence number
+    private final AtomicLong tail;
+    // position right after the header of the newest segment
+    private volatile long segmentBody = -1;
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed;
+
+    // absolute bulk puts need a buffer position of their own
+    private final ThreadLocal<Writer> writers;
+
+    public MappedRingFileSink(Path path) {
+        this(path, DEFAULT_SEGMENT_SIZE, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param path Ring file, created if it does not exist and replaced if it has a different size
+     * @param segmentSize Size of each segment, the largest entry that can be logged (multiple of 8)
+     * @param segments Number of segments
+     */
+    public MappedRingFileSink(Path path, int segmentSize, int segments) {
+        if (segmentSize < 256 || segmentSize % ALIGNMENT != 0) {
+            throw new IllegalArgumentException("Segment size must be a multiple of 8, at least 256: " + segmentSize);
+        } else if (segments < 2) {
+            throw new IllegalArgumentException("At least 2 segments are required: " + segments);
+        } else if (FILE_HEADER_SIZE + (long) segmentSize * segments > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Ring file cannot be larger than 2GB");
+        }
+        this.path = path;
+        this.segmentSize = segmentSize;
+        this.capacity = (long) segmentSize * segments;
+
+        try {
+            long start = resumePosition(path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // the mapping stays valid after the channel is closed
+                file = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_SIZE + capacity);
+            }
+            writeHeader(file, segmentSize, segments);
+            tail = new AtomicLong(start);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open " + path, e);
+        }
+        writers = ThreadLocal.withInitial(() -> new Writer(file.duplicate()));
+    }
+
+    /**
+     * Path of the ring file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void write(Logger log, Level level, ByteBuffer entry, Throwable error) {
+        write(entry, error, null);
+    }
+
+    @Override
+    public boolean write(Logger log, Level level, ByteBuffer entry, Throwable error, IByteFormatter<?> formatter) {
+        return write(entry, error, formatter);
+    }
+
+    // text entries get a new line and the stack trace, binary ones are stored as they are
+    private boolean write(ByteBuffer entry, Throwable error, IByteFormatter<?> formatter) {
+        boolean text = formatter == null || formatter.isText();
+        byte[] stackTrace = text && error != null ? BatchingByteSink.stackTrace(error) : null;
+        int length = entry.remaining() + (text ? 1 : 0) + (stackTrace != null ? stackTrace.length : 0);
+        long sequence = closed || recordSize(length) > segmentSize ? -1 : claim(recordSize(length), formatter);
+        if (sequence < 0) {
+            dropped.increment();
+            return false;
+        }
+        put(sequence, length, entry, text, stackTrace);
+        return true;
+    }
+
+    /**
+     * Forces the whole file to the disk, only needed to survive the operating system crashing as well
+     */
+    public void force() {
+        file.force();
+    }
+
+    /**
+     * Forces the file to the disk, entries logged afterwards are dropped
+     */
+    @Override
+    public void close() {
+        closed = true;
+        force();
+    }
+
+    /**
+     * Number of entries dropped because they were larger than a segment (next to its header) or logged after close()
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    // records never span two segments, the rest of a segment that is too small gets skipped.
+    // -1 if the record does not fit into a segment next to its header
+    private long claim(int size, IByteFormatter<?> formatter) {
+        while (true) {
+            long position = tail.get();
+            if (position == STARTING_SEGMENT) {
+                Thread.yield();
+                continue;
+            }
+            int remaining = segmentSize - (int) (position % segmentSize);
+            if (remaining == segmentSize && position != segmentBody) {
+                // the others wait until the header is in place, so none of their records precede it
+                if (tail.compareAndSet(position, STARTING_SEGMENT)) {
+                    long body = startSegment(position, formatter);
+                    segmentBody = body;
+                    tail.set(body);
+                }
+            } else if (size <= remaining) {
+                if (tail.compareAndSet(position, position + size)) {
+                    return position;
+                }
+            } else if (position == segmentBody) {
+                return -1;
+            } else if (tail.compareAndSet(position, position + remaining)) {
+                pad(position, remaining);
+            }
+        }
+    }
+
+    // every segment starts with the stream header (if it fits), so that it can be read without the ones before it
+    private long startSegment(long position, IByteFormatter<?> formatter) {
+        ByteBuffer header = formatter != null ? formatter.streamHeader() : null;
+        if (header == null || recordSize(header.remaining()) >= segmentSize) {
+            return position;
+        }
+        int length = header.remaining();
+        put(position, length, header, false, null);
+        return position + recordSize(length);
+    }
+
+    private void put(long sequence, int length, ByteBuffer entry, boolean text, byte[] stackTrace) {
+        int index = index(sequence);
+        Writer writer = writers.get();
+        ByteBuffer buffer = writer.buffer;
+        CRC32 crc = startChecksum(writer.crc, sequence, length);
+
+        buffer.position(index + RECORD_HEADER_SIZE);
+        int start = entry.position();
+        crc.update(entry);
+        entry.position(start);
+        buffer.put(entry);
+        if (text) {
+            crc.update(NEW_LINE);
+            buffer.put(NEW_LINE);
+        }
+        if (stackTrace != null) {
+            crc.update(stackTrace, 0, stackTrace.length);
+            buffer.put(stackTrace);
+        }
+
+        buffer.putLong(index + 8, sequence);
+        buffer.putInt(index + 4, (int) crc.getValue());
+        buffer.putInt(index, length);
+    }
+
+    private void pad(long sequence, int remaining) {
+        if (remaining >= RECORD_HEADER_SIZE) {
+            int index = index(sequence);
+            CRC32 crc = startChecksum(writers.get().crc, sequence, PADDING);
+            file.putLong(index + 8, sequence);
+            file.putInt(index + 4, (int) crc.getValue());
+            file.putInt(index, PADDING);
+        }
+    }
+
+    private int index(long sequence) {
+        return FILE_HEADER_SIZE + (int) (sequence % capacity);
+    }
+
+    // continues after the newest valid record of an existing ring file of the same size, in a new segment
+    private long resumePosition(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        } else if (Files.size(path) != FILE_HEADER_SIZE + capacity) {
+            Files.delete(path);
+            return 0;
+        }
+        try {
+            RingFileReader reader = new RingFileReader(path);
+            if (reader.getSegmentSize() == segmentSize) {
+                long end = reader.getEndPosition();
+                return (end + segmentSize - 1) / segmentSize * segmentSize;
+            }
+        } catch (IOException e) {
+            // not a ring file
+        }
+        // same size, but not a ring file with these segments
+        Files.delete(path);
+        return 0;
+    }
+
+    private static final class Writer {
+        private final ByteBuffer buffer;
+        private final CRC32 crc = new CRC32();
+
+        private Writer(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
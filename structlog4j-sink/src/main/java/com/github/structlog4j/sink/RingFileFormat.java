@@ -0,0 +1,61 @@
+package com.github.structlog4j.sink;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Layout of the files written by the MappedRingFileSink and read by the RingFileReader.
+ *
+ * file    = header segment*
+ * header  = MAGIC VERSION segment-size segment-count (ints, padded to FILE_HEADER_SIZE)
+ * segment = record* (padding)?
+ * record  = payload-length checksum sequence payload (padded to ALIGNMENT)
+ *
+ * The sequence number is the position of the record in the endless stream the ring is a window of,
+ * so it also tells where the record must be in the file: records left over from earlier laps or torn by a crash
+ * do not match their position or checksum. Records never span two segments, the rest of a segment that is
+ * too small for the next record is skipped with a PADDING record
+ */
+final class RingFileFormat {
+
+    // "SLRF"
+    static final int MAGIC = 0x534C5246;
+    static final int VERSION = 1;
+    static final int FILE_HEADER_SIZE = 64;
+
+    static final int RECORD_HEADER_SIZE = 16;
+    static final int ALIGNMENT = 8;
+    // payload length of a record that fills the rest of the segment
+    static final int PADDING = -1;
+
+    private RingFileFormat() {}
+
+    static int recordSize(int payloadLength) {
+        return (RECORD_HEADER_SIZE + payloadLength + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    // the checksum covers the sequence number and the length too, the payload gets added by the caller
+    static CRC32 startChecksum(CRC32 crc, long sequence, int length) {
+        crc.reset();
+        for(int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (sequence >>> shift));
+        }
+        for(int shift = 24; shift >= 0; shift -= 8) {
+            crc.update(length >>> shift);
+        }
+        return crc;
+    }
+
+    static void writeHeader(ByteBuffer file, int segmentSize, int segments) {
+        file.putInt(0, MAGIC);
+        file.putInt(4, VERSION);
+        file.putInt(8, segmentSize);
+        file.putInt(12, segments);
+    }
+
+    static boolean isValidHeader(ByteBuffer file) {
+        return file.capacity() >= FILE_HEADER_SIZE && file.getInt(0) == MAGIC && file.getInt(4) == VERSION
+                && file.getInt(8) > 0 && file.getInt(12) > 0
+                && file.capacity() == FILE_HEADER_SIZE + (long) file.getInt(8) * file.getInt(12);
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.structlog4j.sink;
+
+import static com.github.structlog4j.sink.RingFileFormat.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Recovers the records from a file written by the MappedRingFileSink, e.g. after the JVM crashed.
+ * Every record whose checksum and position are valid is recovered, even after one torn by the crash,
+ * and they are returned in the order they were written. Can also be run from the command line:
+ *
+ * java -cp ... com.github.structlog4j.sink.RingFileReader app.ring > app.log
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class RingFileReader {
+
+    private final ByteBuffer file;
+    private final int segmentSize;
+    private final long capacity;
+    private final CRC32 crc = new CRC32();
+
+    public RingFileReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a ring file: " + path);
+            }
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (!isValidHeader(file)) {
+            throw new IOException("Not a ring file: " + path);
+        }
+        segmentSize = file.getInt(8);
+        capacity = (long) segmentSize * file.getInt(12);
+    }
+
+    /**
+     * All the valid records still in the file, oldest first. A binary stream has to be read from the first
+     * segment start on, the records before it may refer to keys defined in its overwritten part
+     */
+    public List<RingRecord> recover() {
+        List<RingRecord> records = new ArrayList<>();
+        long end = 0;
+
+        int offset = 0;
+        while (offset < capacity) {
+            int segmentEnd = (offset / segmentSize + 1) * segmentSize;
+            if (segmentEnd - offset < RECORD_HEADER_SIZE) {
+                offset = segmentEnd;
+                continue;
+            }
+
+            int length = readRecord(offset);
+            if (length == PADDING) {
+                offset = segmentEnd;
+            } else if (length >= 0) {
+                long sequence = file.getLong(FILE_HEADER_SIZE + offset + 8);
+                byte[] payload = new byte[length];
+                ByteBuffer view = file.duplicate();
+                view.position(FILE_HEADER_SIZE + offset + RECORD_HEADER_SIZE);
+                view.get(payload);
+                records.add(new RingRecord(sequence, payload, offset % segmentSize == 0));
+                end = Math.max(end, sequence + recordSize(length));
+                offset += recordSize(length);
+            } else {
+                // not a valid record, look for the next one
+                offset += ALIGNMENT;
+            }
+        }
+
+        // anything older than one lap has been overwritten in the meantime, even if parts of it are still there
+        long start = end - capacity;
+        records.removeIf(record -> record.getSequence() < start);
+        records.sort(Comparator.comparingLong(RingRecord::getSequence));
+        return records;
+    }
+
+    /**
+     * Writes all the valid records to the stream, oldest first, e.g. as a regular log file
+     *
+     * @return Number of records written
+     */
+    public int export(OutputStream out) throws IOException {
+        List<RingRecord> records = recover();
+        for(RingRecord record : records) {
+            out.write(record.getPayload());
+        }
+        out.flush();
+        return records.size();
+    }
+
+    int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Position right after the newest valid record, where writing can continue
+     */
+    long getEndPosition() {
+        List<RingRecord> records = recover();
+        if (records.isEmpty()) {
+            return 0;
+        }
+        RingRecord last = records.get(records.size() - 1);
+        return last.getSequence() + recordSize(last.getPayload().length);
+    }
+
+    // payload length (or PADDING) if the record at the offset is valid, below PADDING if not
+    private int readRecord(int offset) {
+        int index = FILE_HEADER_SIZE + offset;
+        int length = file.getInt(index);
+        long sequence = file.getLong(index + 8);
+        if (sequence < 0 || sequence % capacity != offset) {
+            return PADDING - 1;
+        }
+        if (length != PADDING && (length < 0 || offset % segmentSize + recordSize(length) > segmentSize)) {
+            return PADDING - 1;
+        }
+
+        startChecksum(crc, sequence, length);
+        if (length > 0) {
+            ByteBuffer payload = file.duplicate();
+            payload.position(index + RECORD_HEADER_SIZE);
+            payload.limit(index + RECORD_HEADER_SIZE + length);
+            crc.update(payload);
+        }
+        return (int) crc.getValue() == file.getInt(index + 4) ? length : PADDING - 1;
+    }
+
+    /**
+     * Exports a ring file to the standard output
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: RingFileReader <ring file>");
+            System.exit(1);
+        }
+        new RingFileReader(Paths.get(args[0])).export(System.out);
+    }
+}
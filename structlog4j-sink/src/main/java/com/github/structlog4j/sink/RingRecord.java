@@ -0,0 +1,23 @@
+package com.github.structlog4j.sink;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Record recovered from a ring file
+ */
+@Value
+public class RingRecord {
+
+    /** Position in the stream of all the records ever written to the file, increases with every record */
+    private long sequence;
+    /** The log entry, followed by a new line and the stack trace of the exception, if any (binary entries as they are) */
+    private byte[] payload;
+    /** First record of a segment, its stream header if the formatter has one (binary streams can be read from here on) */
+    private boolean segmentStart;
+
+    public String getText() {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,223 @@
+package com.github.structlog4j.sink.test;
+
+import com.github.structlog4j.KeyValuePairByteFormatter;
+import com.github.structlog4j.SLogger;
+import com.github.structlog4j.SLoggerFactory;
+import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.binary.BinaryDecoder;
+import com.github.structlog4j.binary.BinaryFormatter;
+import com.github.structlog4j.sink.MappedRingFileSink;
+import com.github.structlog4j.sink.RingFileReader;
+import com.github.structlog4j.sink.RingRecord;
+import com.github.structlog4j.test.TestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.github.structlog4j.test.PerformanceHarness.*;
+import static org.junit.Assert.*;
+
+/**
+ * Memory-mapped ring file tests
+ */
+public class BasicRingFileTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SLogger log;
+    private Path file;
+    private MappedRingFileSink sink;
+
+    @Before
+    public void setup() {
+        TestUtils.initForTesting();
+        StructLog4J.setFormatter(KeyValuePairByteFormatter.getInstance());
+        file = folder.getRoot().toPath().resolve("app.ring");
+        log = (SLogger) SLoggerFactory.getLogger(BasicRingFileTests.class);
+    }
+
+    @After
+    public void tearDown() {
+        if (sink != null) {
+            sink.close();
+        }
+    }
+
+    @Test
+    public void basicTest() throws IOException {
+        sink = new MappedRingFileSink(file, 4096, 4);
+        StructLog4J.setByteSink(sink);
+
+        log.info("Started processing","user","Jacek","count",5L);
+        log.error("Failed",new RuntimeException("Major exception"));
+
+        List<RingRecord> records = new RingFileReader(file).recover();
+        assertEquals(records.toString(),2,records.size());
+        assertEquals("Started processing user=Jacek count=5\n",records.get(0).getText());
+        assertEquals(0,records.get(0).getSequence());
+        assertTrue(records.get(1).getText(),records.get(1).getText().startsWith("Failed errorMessage=\"Major exception\"\njava.lang.RuntimeException: Major exception\n"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2,new RingFileReader(file).export(out));
+        assertTrue(out.toString("UTF-8").startsWith("Started processing user=Jacek count=5\nFailed"));
+    }
+
+    @Test
+    public void multiThreadedTest() throws Exception {
+        sink = new MappedRingFileSink(file, 64 * 1024, 8);
+        StructLog4J.setByteSink(sink);
+
+        List<Thread> threads = new ArrayList<>();
+        for(int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for(int i = 0; i < 1000; i++) {
+                    log.info("Processed flight records","thread",thread,"index",i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        // nothing lost or mixed up, every thread's entries in their original order
+        List<RingRecord> records = new RingFileReader(file).recover();
+        assertEquals(4000,records.size());
+        for(int t = 0; t < 4; t++) {
+            String prefix = "Processed flight records thread=" + t + " ";
+            List<String> lines = records.stream().map(RingRecord::getText).filter(line -> line.startsWith(prefix)).collect(Collectors.toList());
+            for(int i = 0; i < 1000; i++) {
+                assertEquals(prefix + "index=" + i + "\n",lines.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void wrapAroundTest() throws IOException {
+        sink = new MappedRingFileSink(file, 256, 4);
+        StructLog4J.setByteSink(sink);
+
+        // 40 bytes per record, 6 per segment and the rest is padding
+        for(int i = 0; i < 100; i++) {
+            log.info("Wrapped entry","index",100 + i);
+        }
+
+        // only the newest ones are left, oldest first
+        List<RingRecord> records = new RingFileReader(file).recover();
+        assertEquals(24,records.size());
+        for(int i = 0; i < records.size(); i++) {
+            assertEquals("Wrapped entry index=" + (176 + i) + "\n",records.get(i).getText());
+        }
+    }
+
+    @Test
+    public void binaryWrapAroundTest() throws IOException {
+        StructLog4J.setFormatter(new BinaryFormatter());
+        sink = new MappedRingFileSink(file, 256, 4);
+        StructLog4J.setByteSink(sink);
+
+        for(int i = 0; i < 100; i++) {
+            log.info("Wrapped entry","user","Jacek","index",100 + i);
+        }
+
+        // every segment starts with the keys, the records before the first one may refer to overwritten definitions
+        List<RingRecord> records = new RingFileReader(file).recover();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        records.stream().skip(records.indexOf(records.stream().filter(RingRecord::isSegmentStart).findFirst().get()))
+                .forEach(record -> stream.write(record.getPayload(),0,record.getPayload().length));
+
+        BinaryDecoder decoder = new BinaryDecoder();
+        InputStream in = new ByteArrayInputStream(stream.toByteArray());
+        List<Long> indexes = new ArrayList<>();
+        for(Map<String,Object> record = decoder.read(in); record != null; record = decoder.read(in)) {
+            assertEquals(record.toString(),"Jacek",record.get("user"));
+            indexes.add((Long) record.get("index"));
+        }
+        assertTrue(indexes.toString(),indexes.size() >= 12);
+        assertEquals(199L,(long) indexes.get(indexes.size() - 1));
+        for(int i = 1; i < indexes.size(); i++) {
+            assertEquals(indexes.get(i - 1) + 1,(long) indexes.get(i));
+        }
+    }
+
+    @Test
+    public void tornRecordTest() throws IOException {
+        sink = new MappedRingFileSink(file, 4096, 4);
+        StructLog4J.setByteSink(sink);
+        for(int i = 0; i < 3; i++) {
+            log.info("Entry","index",i);
+        }
+        sink.close();
+
+        // damage the payload of the second record, as if the crash happened while it was being copied
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap("X".getBytes(StandardCharsets.UTF_8)), 64 + 32 + 16);
+        }
+
+        List<RingRecord> records = new RingFileReader(file).recover();
+        assertEquals("Entry index=0\n",records.get(0).getText());
+        assertEquals("Entry index=2\n",records.get(1).getText());
+        assertEquals(2,records.size());
+    }
+
+    @Test
+    public void resumeTest() throws IOException {
+        sink = new MappedRingFileSink(file, 4096, 4);
+        StructLog4J.setByteSink(sink);
+        log.info("First run");
+        sink.close();
+
+        // continues in the next segment, the entries of the previous run are kept
+        sink = new MappedRingFileSink(file, 4096, 4);
+        StructLog4J.setByteSink(sink);
+        log.info("Second run");
+
+        List<RingRecord> records = new RingFileReader(file).recover();
+        assertEquals("First run\n",records.get(0).getText());
+        assertEquals("Second run\n",records.get(1).getText());
+        assertEquals(4096,records.get(1).getSequence());
+    }
+
+    @Test
+    public void allocationBudgetTest() {
+        sink = new MappedRingFileSink(file, 4096, 4);
+        StructLog4J.setByteSink(sink);
+        assertAllocatesAtMost(0, () -> log.info("Processed flight records", "airlineCode", "UA", "recordCount", 42L));
+    }
+
+    @Test
+    public void crashTest() throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                CrashingApplication.class.getName(), file.toString(), "100").inheritIO().start();
+        assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+        assertEquals(1,process.exitValue());
+
+        // every entry logged before the JVM died is there
+        List<RingRecord> records = new RingFileReader(file).recover();
+        assertEquals(100,records.size());
+        for(int i = 0; i < 100; i++) {
+            assertEquals("Before crash index=" + i + "\n",records.get(i).getText());
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.github.structlog4j.sink.test;
+
+import com.github.structlog4j.KeyValuePairByteFormatter;
+import com.github.structlog4j.LoggerOverride;
+import com.github.structlog4j.SLogger;
+import com.github.structlog4j.SLoggerFactory;
+import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.binary.BinaryDecoder;
+import com.github.structlog4j.binary.BinaryFormatter;
+import com.github.structlog4j.sink.FileByteSink;
+import com.github.structlog4j.sink.FileSinkConfig;
+import com.github.structlog4j.test.TestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.impl.LogEntry;
+import org.slf4j.impl.TestLogger;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * File sink tests
+ */
+public class BasicSinkTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SLogger log;
+    private LinkedList<LogEntry> entries;
+    private Path file;
+    private FileByteSink sink;
+
+    @Before
+    public void setup() throws IOException {
+        TestUtils.initForTesting();
+        StructLog4J.setFormatter(KeyValuePairByteFormatter.getInstance());
+        file = folder.getRoot().toPath().resolve("app.log");
+
+        log = (SLogger) SLoggerFactory.getLogger(BasicSinkTests.class);
+        entries = ((TestLogger)log.getSlfjLogger()).getEntries();
+        // loggers are cached, start from scratch
+        entries.clear();
+    }
+
+    @After
+    public void tearDown() {
+        if (sink != null) {
+            sink.close();
+        }
+    }
+
+    @Test
+    public void basicTest() throws IOException {
+        sink = new FileByteSink(file, FileSinkConfig.DEFAULT.withCloseOnShutdown(false));
+        StructLog4J.setByteSink(sink);
+
+        log.info("Started processing","user","Jacek","count",5L);
+        log.error("Failed",new RuntimeException("Major exception"));
+        sink.flush();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals("Started processing user=Jacek count=5",lines.get(0));
+        assertEquals("Failed errorMessage=\"Major exception\"",lines.get(1));
+        assertEquals("java.lang.RuntimeException: Major exception",lines.get(2));
+        assertTrue(lines.toString(),lines.get(3).contains("at com.github.structlog4j.sink.test.BasicSinkTests.basicTest"));
+        // nothing went to SLF4J
+        assertEquals(entries.toString(),0,entries.size());
+    }
+
+    @Test
+    public void appendTest() throws IOException {
+        Files.write(file, "Existing entry\n".getBytes(StandardCharsets.UTF_8));
+        sink = new FileByteSink(file, FileSinkConfig.DEFAULT.withCloseOnShutdown(false));
+        StructLog4J.setByteSink(sink);
+
+        log.info("New entry");
+        sink.close();
+
+        assertEquals("[Existing entry, New entry]",Files.readAllLines(file, StandardCharsets.UTF_8).toString());
+    }
+
+    @Test
+    public void multiThreadedTest() throws Exception {
+        // small buffer, so that the entries often span two batches
+        sink = new FileByteSink(file, FileSinkConfig.DEFAULT.withBufferSize(100).withFsyncPolicy(FileSinkConfig.FsyncPolicy.NEVER)
+                .withCloseOnShutdown(false));
+        StructLog4J.setByteSink(sink);
+
+        List<Thread> threads = new ArrayList<>();
+        for(int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for(int i = 0; i < 1000; i++) {
+                    log.info("Processed flight records","thread",thread,"index",i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        sink.close();
+
+        // no entries lost or mixed up
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Set<String> unique = new HashSet<>(lines);
+        assertEquals(4000,unique.size());
+        for(String line : lines) {
+            assertTrue(line,line.matches("Processed flight records thread=\\d index=\\d+"));
+        }
+        assertTrue(sink.getBatchCount() > 1);
+    }
+
+    @Test
+    public void largeEntryTest() throws IOException {
+        sink = new FileByteSink(file, FileSinkConfig.DEFAULT.withBufferSize(16).withCloseOnShutdown(false));
+        StructLog4J.setByteSink(sink);
+
+        StringBuilder value = new StringBuilder();
+        for(int i = 0; i < 100; i++) {
+            value.append(i);
+        }
+        log.info("Large","value",value.toString());
+        log.info("Small");
+        sink.flush();
+
+        assertEquals("[Large value=" + value + ", Small]",Files.readAllLines(file, StandardCharsets.UTF_8).toString());
+    }
+
+    @Test
+    public void sizeRotationTest() throws IOException {
+        sink = new FileByteSink(file, FileSinkConfig.DEFAULT.withMaxFileSize(20).withFsyncPolicy(FileSinkConfig.FsyncPolicy.EVERY_BATCH)
+                .withCloseOnShutdown(false));
+        StructLog4J.setByteSink(sink);
+
+        // 14 bytes each, every entry is a batch of its own
+        for(int i = 0; i < 3; i++) {
+            log.info("Entry","index",i);
+            sink.flush();
+        }
+        sink.close();
+
+        assertEquals("[Entry index=0]",Files.readAllLines(Paths.get(file + ".1")).toString());
+        assertEquals("[Entry index=1]",Files.readAllLines(Paths.get(file + ".2")).toString());
+        assertEquals("[Entry index=2]",Files.readAllLines(file).toString());
+    }
+
+    @Test
+    public void timeRotationTest() throws Exception {
+        // an existing rotated file is not overwritten
+        Files.write(Paths.get(file + ".1"), "Old\n".getBytes(StandardCharsets.UTF_8));
+        sink = new FileByteSink(file, FileSinkConfig.DEFAULT.withRotationIntervalMillis(50).withCloseOnShutdown(false));
+        StructLog4J.setByteSink(sink);
+
+        log.info("Before");
+        sink.flush();
+        for(int i = 0; i < 100 && !Files.exists(Paths.get(file + ".2")); i++) {
+            Thread.sleep(20);
+        }
+        log.info("After");
+        sink.close();
+
+        assertEquals("[Old]",Files.readAllLines(Paths.get(file + ".1")).toString());
+        assertEquals("[Before]",Files.readAllLines(Paths.get(file + ".2")).toString());
+        assertEquals("[After]",Files.readAllLines(file).toString());
+    }
+
+    @Test
+    public void loggerOverrideTest() throws IOException {
+        sink = new FileByteSink(file, FileSinkConfig.DEFAULT.withCloseOnShutdown(false));
+        // only this logger writes to the file, the rest still go to SLF4J
+        StructLog4J.setLoggerOverride(BasicSinkTests.class.getName(), LoggerOverride.NONE.withByteSink(sink));
+        SLogger other = (SLogger) SLoggerFactory.getLogger("com.github.structlog4j.sink.Other");
+
+        log.info("Audit","user","Jacek");
+        other.info("Other");
+        sink.flush();
+
+        assertEquals("[Audit user=Jacek]",Files.readAllLines(file).toString());
+        LinkedList<LogEntry> otherEntries = ((TestLogger) other.getSlfjLogger()).getEntries();
+        assertEquals("Other",otherEntries.getLast().getMessage());
+    }
+
+    @Test
+    public void binaryRoundTripTest() throws IOException {
+        StructLog4J.setFormatter(new BinaryFormatter());
+        sink = new FileByteSink(file, FileSinkConfig.DEFAULT.withCloseOnShutdown(false));
+        StructLog4J.setByteSink(sink);
+
+        log.info("Started processing","user","Jacek","count",5L);
+        log.error("Failed","user","John",new RuntimeException("Major exception"));
+        sink.close();
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            BinaryDecoder decoder = new BinaryDecoder();
+            Map<String,Object> record = decoder.read(in);
+            assertEquals("Started processing user=Jacek count=5",BinaryDecoder.toKeyValue(record));
+
+            // the stack trace is part of the record, nothing follows it
+            record = decoder.read(in);
+            assertEquals("Failed",record.get("message"));
+            assertEquals("John",record.get("user"));
+            assertEquals("Major exception",record.get("errorMessage"));
+            String stackTrace = (String) record.get("stackTrace");
+            assertTrue(stackTrace,stackTrace.startsWith("java.lang.RuntimeException: Major exception"));
+            assertTrue(stackTrace,stackTrace.contains("at com.github.structlog4j.sink.test.BasicSinkTests.binaryRoundTripTest"));
+
+            assertNull(decoder.read(in));
+        }
+    }
+
+    @Test
+    public void binaryRotationTest() throws IOException {
+        StructLog4J.setFormatter(new BinaryFormatter());
+        sink = new FileByteSink(file, FileSinkConfig.DEFAULT.withMaxFileSize(40).withFsyncPolicy(FileSinkConfig.FsyncPolicy.EVERY_BATCH)
+                .withCloseOnShutdown(false));
+        StructLog4J.setByteSink(sink);
+
+        // every entry is a batch of its own, in a file of its own
+        for(int i = 0; i < 3; i++) {
+            log.info("Entry","user","Jacek","index",i);
+            sink.flush();
+        }
+        sink.close();
+
+        // every file starts with the keys, so it can be read without the ones before it
+        assertEquals(0L,readBinary(Paths.get(file + ".1")).get("index"));
+        assertEquals(1L,readBinary(Paths.get(file + ".2")).get("index"));
+        Map<String,Object> record = readBinary(file);
+        assertEquals("Jacek",record.get("user"));
+        assertEquals(2L,record.get("index"));
+    }
+
+    // the only record in the file
+    private Map<String,Object> readBinary(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            BinaryDecoder decoder = new BinaryDecoder();
+            Map<String,Object> record = decoder.read(in);
+            assertNull(decoder.read(in));
+            return record;
+        }
+    }
+}
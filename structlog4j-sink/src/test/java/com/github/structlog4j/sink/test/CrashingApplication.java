@@ -0,0 +1,29 @@
+package com.github.structlog4j.sink.test;
+
+import com.github.structlog4j.ILogger;
+import com.github.structlog4j.KeyValuePairByteFormatter;
+import com.github.structlog4j.SLoggerFactory;
+import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.sink.MappedRingFileSink;
+
+import java.nio.file.Paths;
+
+/**
+ * Logs into a ring file and then kills the JVM without any shutdown hooks, see BasicRingFileTests
+ *
+ * Arguments: ring file, number of entries
+ */
+public class CrashingApplication {
+
+    public static void main(String[] args) {
+        StructLog4J.setFormatter(KeyValuePairByteFormatter.getInstance());
+        StructLog4J.setByteSink(new MappedRingFileSink(Paths.get(args[0]), 4096, 4));
+
+        ILogger log = SLoggerFactory.getLogger(CrashingApplication.class);
+        int count = Integer.parseInt(args[1]);
+        for(int i = 0; i < count; i++) {
+            log.info("Before crash","index",i);
+        }
+        Runtime.getRuntime().halt(1);
+    }
+}
@@ -0,0 +1,154 @@
+package com.github.structlog4j.sink.test;
+
+import com.github.structlog4j.Diagnostic;
+import com.github.structlog4j.DiagnosticType;
+import com.github.structlog4j.KeyValuePairByteFormatter;
+import com.github.structlog4j.SLogger;
+import com.github.structlog4j.SLoggerFactory;
+import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.sink.BatchingByteSink;
+import com.github.structlog4j.sink.FileByteSink;
+import com.github.structlog4j.sink.FileSinkConfig;
+import com.github.structlog4j.sink.MappedRingFileSink;
+import com.github.structlog4j.sink.RingFileReader;
+import com.github.structlog4j.sink.RingRecord;
+import com.github.structlog4j.test.TestUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for handling of invalid input
+ */
+public class ErrorSinkTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SLogger log;
+    private Path file;
+
+    @Before
+    public void setup() {
+        TestUtils.initForTesting();
+        StructLog4J.setFormatter(KeyValuePairByteFormatter.getInstance());
+        file = folder.getRoot().toPath().resolve("app.log");
+        log = (SLogger) SLoggerFactory.getLogger(ErrorSinkTests.class);
+    }
+
+    @Test
+    public void writeAfterCloseTest() throws IOException {
+        FileByteSink sink = new FileByteSink(file, FileSinkConfig.DEFAULT.withCloseOnShutdown(false));
+        StructLog4J.setByteSink(sink);
+
+        log.info("Written");
+        sink.close();
+        log.info("Dropped");
+        // no harm in closing twice
+        sink.close();
+        sink.flush();
+
+        assertEquals("[Written]",Files.readAllLines(file).toString());
+        assertEquals(1,sink.getDroppedCount());
+        assertEquals(0,sink.getErrorCount());
+    }
+
+    @Test
+    public void writeErrorTest() {
+        StructLog4J.enableMetrics();
+        FailingSink sink = new FailingSink();
+        StructLog4J.setByteSink(sink);
+
+        log.info("Lost");
+        sink.flush();
+        log.info("Lost again");
+        sink.close();
+
+        // no more System.err, both failures end up in the diagnostics and the metrics
+        assertEquals(2,sink.getErrorCount());
+        assertEquals(2,StructLog4J.getMetrics().getUnexpectedErrors());
+        assertEquals(Collections.singletonList(new Diagnostic(DiagnosticType.SINK_ERROR,FailingSink.class.getName(),"write",2)),
+                StructLog4J.getDiagnostics());
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void invalidPathTest() {
+        new FileByteSink(folder.getRoot().toPath().resolve("missing").resolve("app.log"), FileSinkConfig.DEFAULT.withCloseOnShutdown(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBufferSizeTest() {
+        new FileByteSink(file, FileSinkConfig.DEFAULT.withBufferSize(0));
+    }
+
+    @Test
+    public void ringEntryTooLargeTest() throws IOException {
+        MappedRingFileSink sink = new MappedRingFileSink(file, 256, 2);
+        StructLog4J.setByteSink(sink);
+
+        StringBuilder value = new StringBuilder();
+        for(int i = 0; i < 200; i++) {
+            value.append(i);
+        }
+        log.info("Too large","value",value.toString());
+        log.info("Small");
+
+        List<RingRecord> records = new RingFileReader(file).recover();
+        assertEquals(1,records.size());
+        assertEquals("Small\n",records.get(0).getText());
+        assertEquals(1,sink.getDroppedCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void notRingFileTest() throws IOException {
+        Files.write(file, "Just a regular log file\n".getBytes(StandardCharsets.UTF_8));
+        new RingFileReader(file);
+    }
+
+    @Test
+    public void ringFileReplacedTest() throws IOException {
+        // not a ring file, or one with different segments: replaced
+        Files.write(file, "Just a regular log file\n".getBytes(StandardCharsets.UTF_8));
+        MappedRingFileSink sink = new MappedRingFileSink(file, 256, 2);
+        StructLog4J.setByteSink(sink);
+        log.info("Written");
+        sink.close();
+
+        assertEquals(64 + 512,Files.size(file));
+        assertEquals("Written\n",new RingFileReader(file).recover().get(0).getText());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSegmentSizeTest() {
+        new MappedRingFileSink(file, 1001, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingFsyncPolicyTest() {
+        new FileByteSink(file, FileSinkConfig.DEFAULT.withFsyncPolicy(null).withCloseOnShutdown(false));
+    }
+
+    private static class FailingSink extends BatchingByteSink {
+        FailingSink() {
+            super("failing-sink", 1024, false);
+            start();
+        }
+
+        @Override
+        protected void writeBatch(ByteBuffer batch) throws IOException {
+            throw new IOException("Disk full");
+        }
+    }
+}
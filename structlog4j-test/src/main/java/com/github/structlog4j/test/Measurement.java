@@ -0,0 +1,17 @@
+package com.github.structlog4j.test;
+
+import lombok.Value;
+
+/**
+ * Steady-state cost of one call of a scenario, as measured by the PerformanceHarness
+ */
+@Value
+public class Measurement {
+    private double bytesPerCall;
+    private double opsPerSecond;
+
+    @Override
+    public String toString() {
+        return String.format("%.1f bytes/call, %.0f ops/s", bytesPerCall, opsPerSecond);
+    }
+}
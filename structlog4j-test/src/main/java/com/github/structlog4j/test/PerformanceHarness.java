@@ -0,0 +1,86 @@
+package com.github.structlog4j.test;
+
+import static org.junit.Assert.*;
+
+import lombok.experimental.UtilityClass;
+import org.junit.Assume;
+import org.slf4j.impl.TestLogger;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated and the operations per second of a logging scenario, so that
+ * every module can pin its allocation budget in a regular unit test, e.g.
+ *
+ * assertAllocatesAtMost(0, () -> log.info("Processed", "count", count));
+ *
+ * The scenario runs on the calling thread, with the TestLogger and TestByteSink not recording
+ * anything (so their own garbage does not count). Needs a HotSpot based JVM, the test is skipped otherwise
+ */
+@UtilityClass
+public class PerformanceHarness {
+
+    // enough for the JIT to compile and apply escape analysis to the hot path
+    public final int WARMUP_ITERATIONS = 20_000;
+    public final int ITERATIONS = 100_000;
+
+    public Measurement measure(Runnable scenario) {
+        return measure(scenario, WARMUP_ITERATIONS, ITERATIONS);
+    }
+
+    public Measurement measure(Runnable scenario, int warmupIterations, int iterations) {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        long threadId = Thread.currentThread().getId();
+
+        boolean recording = TestLogger.isRecording();
+        TestLogger.setRecording(false);
+        try {
+            for(int i = 0; i < warmupIterations; i++) {
+                scenario.run();
+            }
+
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for(int i = 0; i < iterations; i++) {
+                scenario.run();
+            }
+            long nanos = System.nanoTime() - start;
+            long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+            return new Measurement((double) allocated / iterations, iterations * 1_000_000_000.0 / Math.max(nanos, 1));
+        } finally {
+            TestLogger.setRecording(recording);
+        }
+    }
+
+    /**
+     * Fails if a call of the scenario allocates more than that many bytes on average
+     */
+    public void assertAllocatesAtMost(long bytesPerCall, Runnable scenario) {
+        Measurement measurement = measure(scenario);
+        // rounded, a stray allocation in 100K calls (e.g. by the JIT) is not a regression
+        assertTrue("Allocation budget of " + bytesPerCall + " bytes/call exceeded: " + measurement,
+                Math.round(measurement.getBytesPerCall()) <= bytesPerCall);
+    }
+
+    /**
+     * Fails if the scenario runs fewer times per second than that. Keep the limit well below
+     * the usual result, the build machines may be a lot slower or busy
+     */
+    public void assertThroughputAtLeast(double opsPerSecond, Runnable scenario) {
+        Measurement measurement = measure(scenario);
+        assertTrue("Throughput below " + opsPerSecond + " ops/s: " + measurement,
+                measurement.getOpsPerSecond() >= opsPerSecond);
+    }
+
+    private com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("Allocation measurement not supported by this JVM", bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue("Allocation measurement not supported by this JVM", threads.isThreadAllocatedMemorySupported());
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads;
+    }
+}
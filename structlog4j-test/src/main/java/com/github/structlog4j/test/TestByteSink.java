@@ -0,0 +1,34 @@
+package com.github.structlog4j.test;
+
+import com.github.structlog4j.IByteSink;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+import org.slf4j.impl.LogEntry;
+import org.slf4j.impl.TestLogger;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Byte sink for unit tests, decodes the entries and adds them to the TestLogger entries
+ * so they can be checked exactly like the ones logged via SLF4J
+ */
+public class TestByteSink implements IByteSink {
+
+    private int bytesWritten = 0;
+
+    @Override
+    public void write(Logger log, Level level, ByteBuffer entry, Throwable error) {
+        bytesWritten += entry.remaining();
+        if (!TestLogger.isRecording()) {
+            return;
+        }
+        String message = StandardCharsets.UTF_8.decode(entry).toString();
+        ((TestLogger) log).getEntries().add(new LogEntry(level, message, Optional.ofNullable(error)));
+    }
+
+    public int getBytesWritten() {
+        return bytesWritten;
+    }
+}
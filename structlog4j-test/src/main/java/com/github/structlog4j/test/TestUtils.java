@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 
 import com.github.structlog4j.KeyValuePairFormatter;
 import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.StripedBufferPool;
 import lombok.experimental.UtilityClass;
 import org.slf4j.event.Level;
 import org.slf4j.impl.LogEntry;
@@ -26,8 +27,17 @@ public class TestUtils {
      * Resets the config to default settings for every test
      */
     public void initForTesting() {
-        StructLog4J.clearMandatoryContextSupplier();
+        StructLog4J.disableAsync();
+        StructLog4J.disableAggregation();
+        StructLog4J.disableMetrics();
+        StructLog4J.clearMandatoryContext();
+        StructLog4J.clearLoggerOverrides();
+        StructLog4J.disableExceptionSuppression();
+        StructLog4J.clearDiagnostics();
+        StructLog4J.clearByteSink();
+        StructLog4J.setBufferPool(new StripedBufferPool());
         StructLog4J.setFormatter(KeyValuePairFormatter.getInstance());
+        StructLog4J.setValueFormatter(String::valueOf);
     }
 
     public void assertMessage(List<LogEntry> entries, int entryIndex, Level expectedLevel, String expectedMessage, boolean expectedExceptionPresent) {
@@ -1,19 +1,20 @@
 package com.github.structlog4j.test.samples;
 
-import com.github.structlog4j.IToLog;
+import com.github.structlog4j.IKeyValueSink;
+import com.github.structlog4j.IToLogStreaming;
 import lombok.Value;
 
 /**
- * A Sample of an object that implements the IToLog
+ * A Sample of an object that implements the IToLogStreaming
  */
 @Value
-public class BusinessObjectContext implements IToLog {
+public class BusinessObjectContext implements IToLogStreaming {
 
     private String entityName;
     private String entityId;
 
     @Override
-    public Object[] toLog() {
-        return new Object[]{"entityName",getEntityName(),"entityId",getEntityId()};
+    public void toLog(IKeyValueSink sink) {
+        sink.kv("entityName",getEntityName()).kv("entityId",getEntityId());
     }
 }
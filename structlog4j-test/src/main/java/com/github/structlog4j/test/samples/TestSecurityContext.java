@@ -1,19 +1,20 @@
 package com.github.structlog4j.test.samples;
 
-import com.github.structlog4j.IToLog;
+import com.github.structlog4j.IKeyValueSink;
+import com.github.structlog4j.IToLogStreaming;
 import lombok.Value;
 
 /**
- * A Sample of an object that implements the IToLog
+ * A Sample of an object that implements the IToLogStreaming
  */
 @Value
-public class TestSecurityContext implements IToLog {
+public class TestSecurityContext implements IToLogStreaming {
 
     private String userName;
     private String tenantId;
 
     @Override
-    public Object[] toLog() {
-        return new Object[]{"userName",getUserName(),"tenantId",getTenantId()};
+    public void toLog(IKeyValueSink sink) {
+        sink.kv("userName",getUserName()).kv("tenantId",getTenantId());
     }
 }
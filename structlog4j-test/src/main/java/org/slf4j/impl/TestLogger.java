@@ -18,6 +18,23 @@ public class TestLogger implements Logger {
 
     private LinkedList<LogEntry> entries = new LinkedList<>();
 
+    // turned off while measuring allocations, so that only the library's own garbage gets counted
+    private static volatile boolean recording = true;
+
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    public static void setRecording(boolean recording) {
+        TestLogger.recording = recording;
+    }
+
+    private void record(Level level, String message, Throwable error) {
+        if (recording) {
+            entries.add(new LogEntry(level, message, Optional.ofNullable(error)));
+        }
+    }
+
     @Override
     public String getName() {
         return name;
@@ -30,7 +47,7 @@ public class TestLogger implements Logger {
 
     @Override
     public void trace(String msg) {
-        entries.add(new LogEntry(Level.TRACE,msg, Optional.empty()));
+        record(Level.TRACE, msg, null);
     }
 
     @Override
@@ -50,7 +67,7 @@ public class TestLogger implements Logger {
 
     @Override
     public void trace(String msg, Throwable t) {
-        entries.add(new LogEntry(Level.TRACE,msg,Optional.of(t)));
+        record(Level.TRACE, msg, t);
     }
 
     @Override
@@ -90,7 +107,7 @@ public class TestLogger implements Logger {
 
     @Override
     public void debug(String msg) {
-        entries.add(new LogEntry(Level.DEBUG,msg,Optional.empty()));
+        record(Level.DEBUG, msg, null);
     }
 
     @Override
@@ -110,7 +127,7 @@ public class TestLogger implements Logger {
 
     @Override
     public void debug(String msg, Throwable t) {
-        entries.add(new LogEntry(Level.DEBUG,msg,Optional.of(t)));
+        record(Level.DEBUG, msg, t);
     }
 
     @Override
@@ -150,7 +167,7 @@ public class TestLogger implements Logger {
 
     @Override
     public void info(String msg) {
-        entries.add(new LogEntry(Level.INFO,msg,Optional.empty()));
+        record(Level.INFO, msg, null);
     }
 
     @Override
@@ -170,7 +187,7 @@ public class TestLogger implements Logger {
 
     @Override
     public void info(String msg, Throwable t) {
-        entries.add(new LogEntry(Level.INFO,msg,Optional.of(t)));
+        record(Level.INFO, msg, t);
     }
 
     @Override
@@ -210,7 +227,7 @@ public class TestLogger implements Logger {
 
     @Override
     public void warn(String msg) {
-        entries.add(new LogEntry(Level.WARN,msg,Optional.empty()));
+        record(Level.WARN, msg, null);
     }
 
     @Override
@@ -230,7 +247,7 @@ public class TestLogger implements Logger {
 
     @Override
     public void warn(String msg, Throwable t) {
-        entries.add(new LogEntry(Level.WARN,msg,Optional.of(t)));
+        record(Level.WARN, msg, t);
     }
 
     @Override
@@ -270,33 +287,33 @@ public class TestLogger implements Logger {
 
     @Override
     public void error(String msg) {
-        entries.add(new LogEntry(Level.ERROR,msg,Optional.empty()));
+        record(Level.ERROR, msg, null);
     }
 
     @Override
     public void error(String format, Object arg) {
         // used in internal errors
         format = format.replace("{}","%s");
-        entries.add(new LogEntry(Level.ERROR,String.format(format,arg), Optional.empty()));
+        record(Level.ERROR, String.format(format,arg), null);
     }
 
     @Override
     public void error(String format, Object arg1, Object arg2) {
         // used in internal errors
         format = format.replace("{}","%s");
-        entries.add(new LogEntry(Level.ERROR,String.format(format,arg1, arg2), Optional.empty()));
+        record(Level.ERROR, String.format(format,arg1, arg2), null);
     }
 
     @Override
     public void error(String format, Object... arguments) {
         // used in internal errors
         format = format.replace("{}","%s");
-        entries.add(new LogEntry(Level.ERROR,String.format(format,arguments), Optional.empty()));
+        record(Level.ERROR, String.format(format,arguments), null);
     }
 
     @Override
     public void error(String msg, Throwable t) {
-        entries.add(new LogEntry(Level.ERROR,msg,Optional.of(t)));
+        record(Level.ERROR, msg, t);
     }
 
     @Override
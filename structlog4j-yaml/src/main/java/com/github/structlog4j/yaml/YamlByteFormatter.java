@@ -0,0 +1,143 @@
+package com.github.structlog4j.yaml;
+
+import com.github.structlog4j.IByteFormatter;
+import com.github.structlog4j.IFormatter;
+import com.github.structlog4j.StructKey;
+import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.Utf8Buffer;
+import org.slf4j.Logger;
+
+/**
+ * Byte version of the YamlFormatter, writes a flat YAML block mapping straight to UTF-8 in the order the keys
+ * were logged. Does not need SnakeYaml at all, scalars are quoted only when YAML requires it.
+ * Same duplicate key handling as the YamlFormatter
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class YamlByteFormatter implements IByteFormatter<Utf8Buffer> {
+
+    private static final String FIELD_MESSAGE = "message";
+    private static final String FIELD_MESSAGE_2 = "message2";
+
+    private static final byte[] START = {'m','e','s','s','a','g','e',':',' '};
+
+    private static final int KEY_ENCODING = StructKey.newEncoding();
+
+    private static final YamlByteFormatter INSTANCE = new YamlByteFormatter();
+    public static YamlByteFormatter getInstance() {return INSTANCE;}
+
+    @Override
+    public final Utf8Buffer start(Logger log) {
+        return StructLog4J.getBufferPool().acquireBytes();
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addMessage(Logger log, Utf8Buffer bld, String message) {
+        bld.write(START);
+        YamlScalars.appendScalar(bld, message);
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, String key, Object value) {
+        YamlScalars.appendScalar(appendKey(bld, checkKey(log, key)), String.valueOf(value));
+        return this;
+    }
+
+    // same as the YamlFormatter, values are always strings so they get quoted, but at least there is no boxing
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, String key, long value) {
+        appendKey(bld, checkKey(log, key)).writeAscii('\'').write(value).writeAscii('\'');
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, String key, double value) {
+        YamlScalars.appendScalar(appendKey(bld, checkKey(log, key)), Double.toString(value));
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, String key, boolean value) {
+        appendKey(bld, checkKey(log, key)).writeAscii('\'').write(value).writeAscii('\'');
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, StructKey key, Object value) {
+        YamlScalars.appendScalar(bld.write(encode(log, key)), String.valueOf(value));
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, StructKey key, long value) {
+        bld.write(encode(log, key)).writeAscii('\'').write(value).writeAscii('\'');
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, StructKey key, double value) {
+        YamlScalars.appendScalar(bld.write(encode(log, key)), Double.toString(value));
+        return this;
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addKeyValue(Logger log, Utf8Buffer bld, StructKey key, boolean value) {
+        bld.write(encode(log, key)).writeAscii('\'').write(value).writeAscii('\'');
+        return this;
+    }
+
+    @Override
+    public final Utf8Buffer endBytes(Logger log, Utf8Buffer bld) {
+        YamlKeys.dedupe(bld);
+        return bld;
+    }
+
+    @Override
+    public final void release(Logger log, Utf8Buffer bld) {
+        StructLog4J.getBufferPool().release(bld);
+    }
+
+    // fragments are pre-encoded "\nkey1: value1\nkey2: value2" bytes
+    @Override
+    public final Utf8Buffer startFragment(Logger log) {
+        return new Utf8Buffer();
+    }
+
+    @Override
+    public final Object endFragment(Logger log, Utf8Buffer fragmentBld) {
+        return fragmentBld.toByteArray();
+    }
+
+    @Override
+    public final IFormatter<Utf8Buffer> addFragment(Logger log, Utf8Buffer bld, Object fragment) {
+        bld.write((byte[]) fragment);
+        return this;
+    }
+
+    // the message always comes first, so every key starts a new line
+    private Utf8Buffer appendKey(Utf8Buffer bld, String key) {
+        bld.writeAscii('\n');
+        YamlScalars.appendScalar(bld, key);
+        return bld.writeAscii(':').writeAscii(' ');
+    }
+
+    // "\nkey: " is checked and encoded only once per key and cached in it
+    private byte[] encode(Logger log, StructKey key) {
+        byte[] encoded = (byte[]) key.getEncoded(KEY_ENCODING);
+        if (encoded == null) {
+            encoded = key.setEncoded(KEY_ENCODING, appendKey(new Utf8Buffer(), checkKey(log, key.getName())).toByteArray());
+        }
+        return encoded;
+    }
+
+    // avoid overriding the "message" field
+    private String checkKey(Logger log, String key) {
+        if (key.equals(FIELD_MESSAGE)) {
+            log.warn("Key 'message' renamed to 'message2' in order to avoid overriding default YAML message field. Please correct in your code.");
+            return FIELD_MESSAGE_2;
+        }
+        return key;
+    }
+
+}
@@ -1,64 +1,139 @@
 package com.github.structlog4j.yaml;
 
 import com.github.structlog4j.IFormatter;
-import java.util.HashMap;
-import java.util.Map;
+import com.github.structlog4j.StructKey;
+import com.github.structlog4j.StructLog4J;
 import org.slf4j.Logger;
-import org.yaml.snakeyaml.DumperOptions;
-import org.yaml.snakeyaml.Yaml;
-import org.yaml.snakeyaml.nodes.Tag;
 
 /**
- * Basic YAML formatter using the standard SnakeYaml library
+ * Basic YAML formatter. Writes a flat YAML block mapping directly into a pooled StringBuilder,
+ * in the order the keys were logged. Scalars are quoted only when YAML requires it,
+ * the output is parsed back by SnakeYaml (or any other YAML parser) into exactly the same values.
+ * A key passed more than once (e.g. also set by the mandatory context) is written once, at its first position with its last value
  *
  * @author Jacek Furmankiewicz
  */
-public class YamlFormatter implements IFormatter<Map<String,String>> {
-
-    // SnakeYaml object is not threadsafe, need Thread local instance for max performance
-    private static final ThreadLocal<Yaml> YAML = new ThreadLocal<Yaml>() {
-        @Override
-        protected Yaml initialValue() {
-            DumperOptions options = new DumperOptions();
-            options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-            options.setDefaultScalarStyle(DumperOptions.ScalarStyle.PLAIN);
-
-            return new Yaml(options);
-        }
-    };
+public class YamlFormatter implements IFormatter<StringBuilder> {
 
     private static final String FIELD_MESSAGE = "message";
     private static final String FIELD_MESSAGE_2 = "message2";
 
+    private static final String START = "message: ";
+
+    private static final int KEY_ENCODING = StructKey.newEncoding();
+
     private static final YamlFormatter INSTANCE = new YamlFormatter();
     public static YamlFormatter getInstance() {return INSTANCE;}
 
     @Override
-    public final Map<String,String> start(Logger log) {
-        return new HashMap<>(10);
+    public final StringBuilder start(Logger log) {
+        return StructLog4J.getBufferPool().acquireChars();
     }
 
     @Override
-    public final IFormatter<Map<String,String>> addMessage(Logger log, Map<String,String> bld, String message) {
-        bld.put(FIELD_MESSAGE,message);
+    public final IFormatter<StringBuilder> addMessage(Logger log, StringBuilder bld, String message) {
+        bld.append(START);
+        YamlScalars.appendScalar(bld, message);
         return this;
     }
 
     @Override
-    public final IFormatter<Map<String,String>> addKeyValue(Logger log, Map<String,String> bld, String key, Object value) {
-        // avoid overriding the "message" field
-        if (key.equals(FIELD_MESSAGE)) {
-            key = FIELD_MESSAGE_2;
-            log.warn("Key 'message' renamed to 'message2' in order to avoid overriding default YAML message field. Please correct in your code.");
-        }
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, String key, Object value) {
+        YamlScalars.appendScalar(appendKey(bld, checkKey(log, key)), String.valueOf(value));
+        return this;
+    }
+
+    // values are always strings, so numbers and booleans have to be quoted, but at least there is no boxing
+    @Override
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, String key, long value) {
+        appendKey(bld, checkKey(log, key)).append('\'').append(value).append('\'');
+        return this;
+    }
 
-        bld.put(key, String.valueOf(value));
+    @Override
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, String key, double value) {
+        YamlScalars.appendScalar(appendKey(bld, checkKey(log, key)), Double.toString(value));
+        return this;
+    }
+
+    @Override
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, String key, boolean value) {
+        appendKey(bld, checkKey(log, key)).append('\'').append(value).append('\'');
+        return this;
+    }
+
+    @Override
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, StructKey key, Object value) {
+        YamlScalars.appendScalar(bld.append(encode(log, key)), String.valueOf(value));
         return this;
     }
 
     @Override
-    public final String end(Logger log, Map<String,String> bld) {
-        return YAML.get().dump(bld).trim();
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, StructKey key, long value) {
+        bld.append(encode(log, key)).append('\'').append(value).append('\'');
+        return this;
+    }
+
+    @Override
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, StructKey key, double value) {
+        YamlScalars.appendScalar(bld.append(encode(log, key)), Double.toString(value));
+        return this;
+    }
+
+    @Override
+    public final IFormatter<StringBuilder> addKeyValue(Logger log, StringBuilder bld, StructKey key, boolean value) {
+        bld.append(encode(log, key)).append('\'').append(value).append('\'');
+        return this;
+    }
+
+    @Override
+    public final String end(Logger log, StringBuilder bld) {
+        YamlKeys.dedupe(bld);
+        String entry = bld.toString();
+        StructLog4J.getBufferPool().release(bld);
+        return entry;
+    }
+
+    // fragments are pre-formatted "\nkey1: value1\nkey2: value2" text
+    @Override
+    public final StringBuilder startFragment(Logger log) {
+        return new StringBuilder();
+    }
+
+    @Override
+    public final Object endFragment(Logger log, StringBuilder fragmentBld) {
+        return fragmentBld.toString();
+    }
+
+    @Override
+    public final IFormatter<StringBuilder> addFragment(Logger log, StringBuilder bld, Object fragment) {
+        bld.append((String) fragment);
+        return this;
+    }
+
+    // the message always comes first, so every key starts a new line
+    private StringBuilder appendKey(StringBuilder bld, String key) {
+        bld.append('\n');
+        YamlScalars.appendScalar(bld, key);
+        return bld.append(':').append(' ');
+    }
+
+    // "\nkey: " is checked and encoded only once per key and cached in it
+    private String encode(Logger log, StructKey key) {
+        String encoded = (String) key.getEncoded(KEY_ENCODING);
+        if (encoded == null) {
+            encoded = key.setEncoded(KEY_ENCODING, appendKey(new StringBuilder(), checkKey(log, key.getName())).toString());
+        }
+        return encoded;
+    }
+
+    // avoid overriding the "message" field
+    private String checkKey(Logger log, String key) {
+        if (key.equals(FIELD_MESSAGE)) {
+            log.warn("Key 'message' renamed to 'message2' in order to avoid overriding default YAML message field. Please correct in your code.");
+            return FIELD_MESSAGE_2;
+        }
+        return key;
     }
 
 }
@@ -0,0 +1,231 @@
+package com.github.structlog4j.yaml;
+
+import com.github.structlog4j.Utf8Buffer;
+import lombok.experimental.UtilityClass;
+
+import java.util.regex.Pattern;
+
+/**
+ * Hand-written YAML scalar emitter shared by the YAML formatters.
+ * Decides how a String has to be written as a YAML scalar, so that SnakeYaml (or any other YAML 1.1 parser)
+ * reads back exactly the same String:
+ * - PLAIN: as is
+ * - SINGLE_QUOTED: would otherwise be read as another type (number, boolean, null, etc.) or contains indicators
+ * - DOUBLE_QUOTED: contains characters that have to be escaped (line breaks, control characters, unpaired surrogates)
+ */
+@UtilityClass // Lombok
+class YamlScalars {
+
+    static final int PLAIN = 0;
+    static final int SINGLE_QUOTED = 1;
+    static final int DOUBLE_QUOTED = 2;
+
+    // same implicit types as the SnakeYaml resolver
+    private static final Pattern BOOL = Pattern.compile("^(?:yes|Yes|YES|no|No|NO|true|True|TRUE|false|False|FALSE|on|On|ON|off|Off|OFF|y|Y|n|N)$");
+    private static final Pattern FLOAT = Pattern.compile("^([-+]?(\\.[0-9]+|[0-9_]+(\\.[0-9_]*)?)([eE][-+]?[0-9]+)?|[-+]?[0-9][0-9_]*(?::[0-5]?[0-9])+\\.[0-9_]*|[-+]?\\.(?:inf|Inf|INF)|\\.(?:nan|NaN|NAN))$");
+    private static final Pattern INT = Pattern.compile("^(?:[-+]?0b_*[0-1]+[0-1_]*|[-+]?0_*[0-7]+[0-7_]*|[-+]?(?:0|[1-9][0-9_]*)|[-+]?0x_*[0-9a-fA-F]+[0-9a-fA-F_]*|[-+]?[1-9][0-9_]*(?::[0-5]?[0-9])+)$");
+    private static final Pattern NULL = Pattern.compile("^(?:~|null|Null|NULL)$");
+    private static final Pattern TIMESTAMP = Pattern.compile("^(?:[0-9][0-9][0-9][0-9]-[0-9][0-9]-[0-9][0-9]|[0-9][0-9][0-9][0-9]-[0-9][0-9]?-[0-9][0-9]?(?:[Tt]|[ \\t]+)[0-9][0-9]?:[0-9][0-9]:[0-9][0-9](?:\\.[0-9]*)?(?:[ \\t]*(?:Z|[-+][0-9][0-9]?(?::[0-9][0-9])?))?)$");
+
+    // characters that cannot start a plain scalar
+    private static final String INDICATORS = "#,[]{}&*!|>'\"%@`";
+
+    private static final char[] HEX = {'0','1','2','3','4','5','6','7','8','9','A','B','C','D','E','F'};
+
+    /**
+     * Appends the value, quoted only if needed
+     */
+    void appendScalar(StringBuilder bld, String value) {
+        switch (style(value)) {
+            case PLAIN:
+                bld.append(value);
+                break;
+            case SINGLE_QUOTED:
+                // the only escape in single quotes is '' for a quote
+                bld.append('\'');
+                for(int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '\'') {
+                        bld.append('\'');
+                    }
+                    bld.append(c);
+                }
+                bld.append('\'');
+                break;
+            default:
+                bld.append('"');
+                for(int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (needsEscaping(value, i)) {
+                        appendEscape(bld, c);
+                    } else {
+                        bld.append(c);
+                    }
+                }
+                bld.append('"');
+        }
+    }
+
+    /**
+     * Same, encoded straight to UTF-8
+     */
+    void appendScalar(Utf8Buffer bld, String value) {
+        switch (style(value)) {
+            case PLAIN:
+                bld.write(value);
+                break;
+            case SINGLE_QUOTED: {
+                bld.writeAscii('\'');
+                int start = 0;
+                for(int i = 0; i < value.length(); i++) {
+                    if (value.charAt(i) == '\'') {
+                        bld.write(value, start, i + 1).writeAscii('\'');
+                        start = i + 1;
+                    }
+                }
+                bld.write(value, start, value.length()).writeAscii('\'');
+                break;
+            }
+            default: {
+                bld.writeAscii('"');
+                int start = 0;
+                for(int i = 0; i < value.length(); i++) {
+                    if (needsEscaping(value, i)) {
+                        bld.write(value, start, i);
+                        start = i + 1;
+                        appendEscape(bld, value.charAt(i));
+                    }
+                }
+                bld.write(value, start, value.length()).writeAscii('"');
+            }
+        }
+    }
+
+    /**
+     * Returns PLAIN, SINGLE_QUOTED or DOUBLE_QUOTED
+     */
+    int style(String value) {
+        int length = value.length();
+        if (length == 0) {
+            return SINGLE_QUOTED;
+        }
+
+        int style = PLAIN;
+        for(int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (isSpecial(value, i)) {
+                // line breaks and other special characters can only be escaped in double quotes
+                return DOUBLE_QUOTED;
+            } else if (c == ':' && (i + 1 == length || value.charAt(i + 1) == ' ')) {
+                style = SINGLE_QUOTED;
+            } else if (c == '#' && i > 0 && value.charAt(i - 1) == ' ') {
+                style = SINGLE_QUOTED;
+            }
+        }
+        if (style != PLAIN) {
+            return style;
+        }
+
+        char first = value.charAt(0);
+        if (first == ' ' || value.charAt(length - 1) == ' ' || INDICATORS.indexOf(first) >= 0) {
+            return SINGLE_QUOTED;
+        } else if ((first == '-' || first == '?' || first == ':') && (length == 1 || value.charAt(1) == ' ')) {
+            return SINGLE_QUOTED;
+        }
+        return isImplicitType(value) ? SINGLE_QUOTED : PLAIN;
+    }
+
+    // only strings that start like one of the implicit types need to be checked against them
+    private boolean isImplicitType(String value) {
+        char first = value.charAt(0);
+        if ((first >= '0' && first <= '9') || first == '-' || first == '+' || first == '.') {
+            return INT.matcher(value).matches() || FLOAT.matcher(value).matches() || TIMESTAMP.matcher(value).matches();
+        }
+        switch (first) {
+            case 'y': case 'Y': case 'n': case 'N': case 't': case 'T': case 'f': case 'F': case 'o': case 'O':
+                return BOOL.matcher(value).matches() || NULL.matcher(value).matches();
+            case '~':
+                return value.length() == 1;
+            case '<':
+                return value.equals("<<");
+            case '=':
+                return value.length() == 1;
+            default:
+                return false;
+        }
+    }
+
+    // line breaks, C0/C1 control characters, non-characters, unpaired surrogates and other special characters,
+    // none of them may appear unescaped in a YAML stream
+    private boolean isSpecial(String value, int i) {
+        char c = value.charAt(i);
+        if (c >= 0x20 && c < 0x7F) {
+            return false;
+        } else if (Character.isHighSurrogate(c)) {
+            return i + 1 == value.length() || !Character.isLowSurrogate(value.charAt(i + 1));
+        } else if (Character.isLowSurrogate(c)) {
+            return i == 0 || !Character.isHighSurrogate(value.charAt(i - 1));
+        }
+        return c < 0x20 || (c >= 0x7F && c <= 0x9F) || c == 0x2028 || c == 0x2029 || c == 0xFEFF || c == 0xFFFE || c == 0xFFFF;
+    }
+
+    // characters that cannot be written as is in double quotes
+    private boolean needsEscaping(String value, int i) {
+        char c = value.charAt(i);
+        return c == '"' || c == '\\' || isSpecial(value, i);
+    }
+
+    private void appendEscape(StringBuilder bld, char c) {
+        bld.append('\\');
+        switch (c) {
+            case '"':
+                bld.append('"');
+                break;
+            case '\\':
+                bld.append('\\');
+                break;
+            case '\n':
+                bld.append('n');
+                break;
+            case '\r':
+                bld.append('r');
+                break;
+            case '\t':
+                bld.append('t');
+                break;
+            case 0:
+                bld.append('0');
+                break;
+            default:
+                bld.append('u').append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF])
+                        .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+        }
+    }
+
+    private void appendEscape(Utf8Buffer bld, char c) {
+        bld.writeAscii('\\');
+        switch (c) {
+            case '"':
+                bld.writeAscii('"');
+                break;
+            case '\\':
+                bld.writeAscii('\\');
+                break;
+            case '\n':
+                bld.writeAscii('n');
+                break;
+            case '\r':
+                bld.writeAscii('r');
+                break;
+            case '\t':
+                bld.writeAscii('t');
+                break;
+            case 0:
+                bld.writeAscii('0');
+                break;
+            default:
+                bld.writeAscii('u').writeAscii(HEX[(c >> 12) & 0xF]).writeAscii(HEX[(c >> 8) & 0xF])
+                        .writeAscii(HEX[(c >> 4) & 0xF]).writeAscii(HEX[c & 0xF]);
+        }
+    }
+}
@@ -2,12 +2,17 @@ package com.github.structlog4j.yaml.test;
 
 import com.github.structlog4j.SLogger;
 import com.github.structlog4j.SLoggerFactory;
+import com.github.structlog4j.StructKey;
 import com.github.structlog4j.StructLog4J;
+import com.github.structlog4j.test.TestByteSink;
 import com.github.structlog4j.test.TestUtils;
 import com.github.structlog4j.test.samples.BusinessObjectContext;
 import com.github.structlog4j.test.samples.TestSecurityContext;
+import com.github.structlog4j.yaml.YamlByteFormatter;
 import com.github.structlog4j.yaml.YamlFormatter;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.event.Level;
@@ -16,6 +21,7 @@ import org.slf4j.impl.TestLogger;
 
 import static com.github.structlog4j.yaml.test.YamlTestUtils.*;
 import static com.github.structlog4j.test.TestUtils.assertMessage;
+import static com.github.structlog4j.test.PerformanceHarness.assertAllocatesAtMost;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -35,6 +41,8 @@ public class BasicYamlTests {
 
         log = (SLogger) SLoggerFactory.getLogger(BasicYamlTests.class);
         entries = ((TestLogger)log.getSlfjLogger()).getEntries();
+        // loggers are cached, start from scratch
+        entries.clear();
 
     }
 
@@ -83,10 +91,31 @@ public class BasicYamlTests {
 
         assertEquals(entries.toString(),1,entries.size());
         assertYamlMessage(entries,0);
-        assertMessage(entries,0,Level.ERROR, "requestId: '1234'\n" +
-                "message: This is an error\n" +
+        assertMessage(entries,0,Level.ERROR, "message: This is an error\n" +
                 "user: John Doe\n" +
-                "tenant: System",false);
+                "tenant: System\n" +
+                "requestId: '1234'",false);
+    }
+
+    @Test
+    public void duplicateKeyTest() {
+        StructLog4J.setMandatoryContextSupplier(() -> new Object[]{"user","System"});
+
+        log.error("This is an error","user","Jacek","yes",1,"count",1,"yes","it's","count",2);
+        StructLog4J.setFormatter(YamlByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+        log.error("This is an error","user","Jacek","yes",1,"count",1,"yes","it's","count",2);
+
+        // YAML does not allow duplicate keys: first position, last value
+        assertEquals(entries.toString(),2,entries.size());
+        assertYamlMessages(entries);
+        String expected = "message: This is an error\n" +
+                "user: System\n" +
+                "'yes': it's\n" +
+                "count: '2'";
+        assertMessage(entries,0,Level.ERROR,expected,false);
+        assertMessage(entries,1,Level.ERROR,expected,false);
+        assertEquals("{message=This is an error, user=System, yes=it's, count=2}",parseYaml(entries,0).toString());
     }
 
     @Test
@@ -95,9 +124,9 @@ public class BasicYamlTests {
 
         assertEquals(entries.toString(),1,entries.size());
         assertYamlMessage(entries,0);
-        assertMessage(entries,0,Level.ERROR,"tenantId: TEST_TENANT\n" +
-                "message: This is an error\n" +
-                "userName: Test User", false);
+        assertMessage(entries,0,Level.ERROR,"message: This is an error\n" +
+                "userName: Test User\n" +
+                "tenantId: TEST_TENANT", false);
     }
 
 
@@ -110,11 +139,11 @@ public class BasicYamlTests {
 
         assertEquals(entries.toString(),1,entries.size());
         assertYamlMessage(entries,0);
-        assertMessage(entries, 0, Level.ERROR, "entityName: Country\n" +
+        assertMessage(entries, 0, Level.ERROR, "message: This is an error\n" +
+                "userName: Test User\n" +
                 "tenantId: TEST_TENANT\n" +
-                "entityId: CA\n" +
-                "message: This is an error\n" +
-                "userName: Test User",false);
+                "entityName: Country\n" +
+                "entityId: CA",false);
     }
 
     @Test
@@ -126,13 +155,13 @@ public class BasicYamlTests {
         assertEquals(entries.toString(),1,entries.size());
         assertYamlMessage(entries,0);
         assertMessage(entries,0,Level.ERROR,
-                "key1: '1'\n" +
-                        "key2: Value 2\n" +
-                        "entityName: Country\n" +
+                "message: This is an error\n" +
+                        "userName: Test User\n" +
                         "tenantId: TEST_TENANT\n" +
+                        "entityName: Country\n" +
                         "entityId: CA\n" +
-                        "message: This is an error\n" +
-                        "userName: Test User",
+                        "key1: '1'\n" +
+                        "key2: Value 2",
                 false);
 
     }
@@ -146,8 +175,8 @@ public class BasicYamlTests {
 
         assertEquals(entries.toString(),1,entries.size());
         assertYamlMessage(entries,0);
-        assertMessage(entries,0,Level.ERROR,"errorMessage: Major exception\n" +
-                "message: This is an error",true);
+        assertMessage(entries,0,Level.ERROR,"message: This is an error\n" +
+                "errorMessage: Major exception",true);
     }
 
     /**
@@ -163,8 +192,8 @@ public class BasicYamlTests {
 
         assertEquals(entries.toString(),1,entries.size());
         assertYamlMessage(entries,0);
-        assertMessage(entries,0,Level.ERROR,"errorMessage: This is the root cause of the error\n" +
-                "message: This is an error",true);
+        assertMessage(entries,0,Level.ERROR,"message: This is an error\n" +
+                "errorMessage: This is the root cause of the error",true);
     }
 
 
@@ -177,10 +206,10 @@ public class BasicYamlTests {
 
         assertEquals(entries.toString(),1,entries.size());
         assertYamlMessage(entries,0);
-        assertMessage(entries,0,Level.ERROR,"key1: '1'\n" +
+        assertMessage(entries,0,Level.ERROR,"message: This is an error\n" +
+                        "key1: '1'\n" +
                         "key2: Value 2\n" +
-                        "errorMessage: Major exception\n" +
-                        "message: This is an error",
+                        "errorMessage: Major exception",
                 true);
     }
 
@@ -204,36 +233,36 @@ public class BasicYamlTests {
 
         // first
         assertYamlMessage(entries,0);
-        assertEquals(entries.toString(),"key1: '1'\n" +
-                        "key2: Value 2\n" +
-                        "entityName: Country\n" +
+        assertEquals(entries.toString(),"message: This is an error\n" +
+                        "userName: Test User\n" +
                         "tenantId: TEST_TENANT\n" +
-                        "errorMessage: This is the root cause of the error\n" +
+                        "entityName: Country\n" +
                         "entityId: CA\n" +
-                        "message: This is an error\n" +
-                        "userName: Test User",
+                        "key1: '1'\n" +
+                        "key2: Value 2\n" +
+                        "errorMessage: This is the root cause of the error",
                 entries.get(0).getMessage());
         // second
         assertYamlMessage(entries,1);
-        assertEquals(entries.toString(),"key1: '1'\n" +
-                        "key2: Value 2\n" +
-                        "entityName: Country\n" +
+        assertEquals(entries.toString(),"message: This is an error\n" +
                         "errorMessage: This is the root cause of the error\n" +
+                        "userName: Test User\n" +
                         "tenantId: TEST_TENANT\n" +
+                        "entityName: Country\n" +
                         "entityId: CA\n" +
-                        "message: This is an error\n" +
-                        "userName: Test User",
+                        "key1: '1'\n" +
+                        "key2: Value 2",
                 entries.get(1).getMessage());
         // third
         assertYamlMessage(entries,2);
-        assertEquals(entries.toString(),"key1: '1'\n" +
-                        "key2: Value 2\n" +
-                        "entityName: Country\n" +
+        assertEquals(entries.toString(),"message: This is an error\n" +
+                        "userName: Test User\n" +
                         "tenantId: TEST_TENANT\n" +
+                        "key1: '1'\n" +
                         "errorMessage: This is the root cause of the error\n" +
+                        "entityName: Country\n" +
                         "entityId: CA\n" +
-                        "message: This is an error\n" +
-                        "userName: Test User",
+                        "key2: Value 2",
                 entries.get(2).getMessage());
     }
 
@@ -250,29 +279,29 @@ public class BasicYamlTests {
         assertYamlMessages(entries);
 
         assertEquals(entries.toString(),Level.ERROR,entries.get(0).getLevel());
-        assertEquals(entries.toString(),"tenantId: TEST_TENANT\n" +
-                "message: Error\n" +
-                "userName: Test User",entries.get(0).getMessage());
+        assertEquals(entries.toString(),"message: Error\n" +
+                "userName: Test User\n" +
+                "tenantId: TEST_TENANT",entries.get(0).getMessage());
 
         assertEquals(entries.toString(),Level.WARN,entries.get(1).getLevel());
-        assertEquals(entries.toString(),"tenantId: TEST_TENANT\n" +
-                "message: Warning\n" +
-                "userName: Test User",entries.get(1).getMessage());
+        assertEquals(entries.toString(),"message: Warning\n" +
+                "userName: Test User\n" +
+                "tenantId: TEST_TENANT",entries.get(1).getMessage());
 
         assertEquals(entries.toString(),Level.INFO,entries.get(2).getLevel());
-        assertEquals(entries.toString(),"tenantId: TEST_TENANT\n" +
-                "message: Information\n" +
-                "userName: Test User",entries.get(2).getMessage());
+        assertEquals(entries.toString(),"message: Information\n" +
+                "userName: Test User\n" +
+                "tenantId: TEST_TENANT",entries.get(2).getMessage());
 
         assertEquals(entries.toString(),Level.DEBUG,entries.get(3).getLevel());
-        assertEquals(entries.toString(),"tenantId: TEST_TENANT\n" +
-                "message: Debug\n" +
-                "userName: Test User",entries.get(3).getMessage());
+        assertEquals(entries.toString(),"message: Debug\n" +
+                "userName: Test User\n" +
+                "tenantId: TEST_TENANT",entries.get(3).getMessage());
 
         assertEquals(entries.toString(),Level.TRACE,entries.get(4).getLevel());
-        assertEquals(entries.toString(),"tenantId: TEST_TENANT\n" +
-                "message: Trace\n" +
-                "userName: Test User",entries.get(4).getMessage());
+        assertEquals(entries.toString(),"message: Trace\n" +
+                "userName: Test User\n" +
+                "tenantId: TEST_TENANT",entries.get(4).getMessage());
 
     }
 
@@ -303,42 +332,154 @@ public class BasicYamlTests {
 
         // first
 
-        assertEquals(entries.toString(),"key1: '1'\n" +
-                        "key2: Value 2\n" +
-                        "hostname: Titanic\n" +
-                        "entityName: Country\n" +
+        assertEquals(entries.toString(),"message: This is an error\n" +
+                        "userName: Test User\n" +
                         "tenantId: TEST_TENANT\n" +
-                        "errorMessage: This is the root cause of the error\n" +
+                        "entityName: Country\n" +
                         "entityId: CA\n" +
-                        "message: This is an error\n" +
-                        "userName: Test User\n" +
+                        "key1: '1'\n" +
+                        "key2: Value 2\n" +
+                        "errorMessage: This is the root cause of the error\n" +
+                        "hostname: Titanic\n" +
                         "serviceName: MyService",
                 entries.get(0).getMessage());
         // second
-        assertEquals(entries.toString(),"key1: '1'\n" +
-                        "key2: Value 2\n" +
-                        "hostname: Titanic\n" +
-                        "entityName: Country\n" +
+        assertEquals(entries.toString(),"message: This is an error\n" +
                         "errorMessage: This is the root cause of the error\n" +
+                        "userName: Test User\n" +
                         "tenantId: TEST_TENANT\n" +
+                        "entityName: Country\n" +
                         "entityId: CA\n" +
-                        "message: This is an error\n" +
-                        "userName: Test User\n" +
+                        "key1: '1'\n" +
+                        "key2: Value 2\n" +
+                        "hostname: Titanic\n" +
                         "serviceName: MyService",
                 entries.get(1).getMessage());
         // third
-        assertEquals(entries.toString(),"key1: '1'\n" +
-                        "key2: Value 2\n" +
-                        "hostname: Titanic\n" +
-                        "entityName: Country\n" +
+        assertEquals(entries.toString(),"message: This is an error\n" +
+                        "userName: Test User\n" +
                         "tenantId: TEST_TENANT\n" +
+                        "key1: '1'\n" +
                         "errorMessage: This is the root cause of the error\n" +
+                        "entityName: Country\n" +
                         "entityId: CA\n" +
-                        "message: This is an error\n" +
-                        "userName: Test User\n" +
+                        "key2: Value 2\n" +
+                        "hostname: Titanic\n" +
                         "serviceName: MyService",
                 entries.get(2).getMessage());
     }
 
-}
+    @Test
+    public void primitiveKeyValueTest() {
+        log.error("This is an error","count",23L,"success",true);
+
+        assertEquals(entries.toString(),1,entries.size());
+        assertYamlMessage(entries,0);
+        assertMessage(entries,0,Level.ERROR,"message: This is an error\n" +
+                "count: '23'\n" +
+                "success: 'true'",false);
+    }
+
+    @Test
+    public void structKeyTest() {
+        StructKey user = StructKey.of("user");
+
+        log.atError("This is an error").kv(user,"John Doe").log();
+
+        assertEquals(entries.toString(),1,entries.size());
+        assertYamlMessage(entries,0);
+        assertMessage(entries,0,Level.ERROR,"message: This is an error\n" +
+                "user: John Doe",false);
+    }
+
+    @Test
+    public void staticMandatoryContextTest() {
+        StructLog4J.setStaticMandatoryContext(() -> new Object[]{"hostname","Titanic"});
+
+        log.error("This is an error");
+        log.error("This is another error");
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertYamlMessages(entries);
+        assertMessage(entries,0,Level.ERROR,"message: This is an error\n" +
+                "hostname: Titanic",false);
+        assertMessage(entries,1,Level.ERROR,"message: This is another error\n" +
+                "hostname: Titanic",false);
+    }
+
+    @Test
+    public void byteFormatterTest() {
+        StructLog4J.setFormatter(YamlByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+
+        log.error("This is an error","user","John Doe","count",23L,"success",true,"ratio",1.5);
+
+        // insertion order, quoted the same way as SnakeYaml does it
+        assertEquals(entries.toString(),1,entries.size());
+        assertYamlMessages(entries);
+        assertMessage(entries,0,Level.ERROR,"message: This is an error\n" +
+                "user: John Doe\n" +
+                "count: '23'\n" +
+                "success: 'true'\n" +
+                "ratio: '1.5'",false);
+    }
+
+    @Test
+    public void quotingTest() {
+        Object[] values = new Object[]{"k1","true","k2","123","k3","a: b","k4","#x","k5","- item","k6","","k7","it's",
+                "k8","line\nbreak","k9","null","k10","~","k11"," lead","k12","0x1F","k13","2017-01-01","k14","Zażółć \"quoted\"",
+                "k15","tab\tin","k16","back\\slash","k17","{x}","k18","a #b","k19","trail:","k20","@at"};
+        log.error("This is an error",values);
+        StructLog4J.setFormatter(YamlByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+        log.error("This is an error",values);
+
+        // both have to be parsed back into exactly the same Strings
+        Map<String,Object> expected = new LinkedHashMap<>();
+        expected.put("message","This is an error");
+        for(int i = 0; i < values.length; i = i + 2) {
+            expected.put((String) values[i], values[i + 1]);
+        }
+
+        assertEquals(entries.toString(),2,entries.size());
+        assertYamlMessages(entries);
+        assertEquals(entries.get(0).getMessage(),expected,parseYaml(entries,0));
+        assertEquals(entries.get(1).getMessage(),expected,parseYaml(entries,1));
+    }
+
+    @Test
+    public void specialCharacterQuotingTest() {
+        Object[] values = new Object[]{"k1","c1\u0080control","k2","nel\u0085","k3","end\u009F","k4","lone\uD800high","k5","\uDC00lone low",
+                "k6","non\uFFFEchar","k7","\uFFFF","k8","emoji \uD83D\uDE00 pair","k9","high at end\uD800"};
+        log.error("This is an error",values);
+        StructLog4J.setFormatter(YamlByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+        log.error("This is an error",values);
+
+        Map<String,Object> expected = new LinkedHashMap<>();
+        expected.put("message","This is an error");
+        for(int i = 0; i < values.length; i = i + 2) {
+            expected.put((String) values[i], values[i + 1]);
+        }
 
+        assertEquals(entries.toString(),2,entries.size());
+        assertTrue(entries.get(0).getMessage(),entries.get(0).getMessage().contains("k1: \"c1\\u0080control\""));
+        assertTrue(entries.get(0).getMessage(),entries.get(0).getMessage().contains("k4: \"lone\\uD800high\""));
+        // a valid surrogate pair is written as is
+        assertTrue(entries.get(0).getMessage(),entries.get(0).getMessage().contains("k8: emoji \uD83D\uDE00 pair"));
+        assertEquals(entries.get(0).getMessage(),expected,parseYaml(entries,0));
+        assertEquals(entries.get(1).getMessage(),expected,parseYaml(entries,1));
+    }
+
+    @Test
+    public void allocationBudgetTest() {
+        // only the final String
+        assertAllocatesAtMost(184, () -> log.info("Processed flight records", "airlineCode", "UA", "recordCount", 42L));
+
+        StructLog4J.setFormatter(YamlByteFormatter.getInstance());
+        StructLog4J.setByteSink(new TestByteSink());
+        assertAllocatesAtMost(0, () -> log.info("Processed flight records", "airlineCode", "UA", "recordCount", 42L));
+        assertAllocatesAtMost(0, () -> log.atInfo("Processed flight records").kv("airlineCode", "UA").kv("recordCount", 42L).kv("success", true).log());
+    }
+
+}
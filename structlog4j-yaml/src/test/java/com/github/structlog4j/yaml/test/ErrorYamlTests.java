@@ -38,6 +38,8 @@ public class ErrorYamlTests {
 
         log = (SLogger) SLoggerFactory.getLogger(ErrorYamlTests.class);
         entries = ((TestLogger)log.getSlfjLogger()).getEntries();
+        // loggers are cached, start from scratch
+        entries.clear();
     }
 
     @Test(expected = RuntimeException.class)
@@ -84,10 +86,10 @@ public class ErrorYamlTests {
 
         // validate that despite the error we still managed to process the log entry and logged as much as we could
         // the second key was ignored even though it was valid, we simply could not rely on the order any more with corrupted keys
-        assertEquals(entries.toString(),"tenantId: TEST_TENANT\n" +
-                "errorMessage: Important exception\n" +
-                "message: This is an error\n" +
-                "userName: test_user",entries.get(1).getMessage());
+        assertEquals(entries.toString(),"message: This is an error\n" +
+                "userName: test_user\n" +
+                "tenantId: TEST_TENANT\n" +
+                "errorMessage: Important exception",entries.get(1).getMessage());
         // validate we did not lose the exception even if it was after the key that had the error
         assertTrue(entries.toString(),entries.get(1).getError().isPresent());
     }
@@ -150,8 +152,8 @@ public class ErrorYamlTests {
         assertEquals(entries.toString(),"Key with spaces was passed in from class com.github.structlog4j.yaml.test.ErrorYamlTests$3.toLog(): key with spaces",entries.get(0).getMessage());
 
         // validate that despite the error we still managed to process the log entry and logged as much as we could
-        assertEquals(entries.toString(),"key1: Value1\n" +
-                "message: This is an error",entries.get(1).getMessage());
+        assertEquals(entries.toString(),"message: This is an error\n" +
+                "key1: Value1",entries.get(1).getMessage());
     }
 
 
@@ -172,8 +174,8 @@ public class ErrorYamlTests {
         assertEquals(entries.toString(),"Non-String or null key was passed in from class com.github.structlog4j.yaml.test.ErrorYamlTests$4.toLog(): null (null)",entries.get(0).getMessage());
 
         // validate that despite the error we still managed to process the log entry and logged as much as we could
-        assertEquals(entries.toString(),"key1: Value1\n" +
-                "message: This is an error",entries.get(1).getMessage());
+        assertEquals(entries.toString(),"message: This is an error\n" +
+                "key1: Value1",entries.get(1).getMessage());
     }
 
     @Test
@@ -194,8 +196,8 @@ public class ErrorYamlTests {
 
         assertEquals(entries.toString(),1,entries.size());
         assertYamlMessage(entries,0);
-        assertMessage(entries,0, Level.ERROR,"key1: Some \" value with \" quotes\n" +
-                "message: This is a message",false);
+        assertMessage(entries,0, Level.ERROR,"message: This is a message\n" +
+                "key1: Some \" value with \" quotes",false);
     }
 
     @Test
@@ -204,8 +206,8 @@ public class ErrorYamlTests {
 
         assertEquals(entries.toString(),1,entries.size());
         assertYamlMessage(entries,0);
-        assertMessage(entries,0, Level.ERROR,"key1: Some \" value with \" quotes\n" +
-                "message: This is a \"message\"",false);
+        assertMessage(entries,0, Level.ERROR,"message: This is a \"message\"\n" +
+                "key1: Some \" value with \" quotes",false);
     }
 
     @Test
@@ -34,6 +34,13 @@ public class YamlTestUtils {
         }
     }
 
+    /**
+     * Parses the message
+     */
+    public Object parseYaml(List<LogEntry> entries, int entryIndex) {
+        return YAML.get().load(entries.get(entryIndex).getMessage());
+    }
+
     /**
      * Ensures all messages are valid JSON
      */